@@ -125,8 +125,11 @@ public class CliOptions {
 	boolean portable;
 	@Option(names = {"-z", "-lazysave"}, description = "Only save to disk on update and exit%n"
 			+ "    Warning:%n"
-			+ "    This may cause you to lose data if jEveAssets exit unexpectedly" + END_GROUP)
+			+ "    This may cause you to lose data if jEveAssets exit unexpectedly")
 	boolean lazySave;
+	@Option(names = {"-shardedprofiles"}, description = "Save profiles as one file per owner and section%n"
+			+ "    Only the files that changed are saved" + END_GROUP)
+	boolean shardedProfiles;
 
 	@ArgGroup(exclusive = false, heading = "Update Options:%n")
 	UpdateOptions updateOptions;
@@ -574,6 +577,10 @@ public class CliOptions {
 		return lazySave;
 	}
 
+	public boolean isShardedProfiles() {
+		return shardedProfiles;
+	}
+
 	public boolean isDebug() {
 		if (devOptions == null) {
 			return false;
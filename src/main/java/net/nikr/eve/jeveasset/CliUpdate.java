@@ -30,11 +30,8 @@ import net.nikr.eve.jeveasset.data.profile.ProfileData;
 import net.nikr.eve.jeveasset.data.profile.ProfileManager;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.data.settings.TrackerData;
+import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.EsiUpdateTask;
 import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.PriceDataTask;
-import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.Step1Task;
-import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.Step2Task;
-import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.Step3Task;
-import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateDialog.Step4Task;
 import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateTask;
 import net.nikr.eve.jeveasset.gui.tabs.values.AssetValue;
 import net.nikr.eve.jeveasset.gui.tabs.values.DataSetCreator;
@@ -70,10 +67,7 @@ public class CliUpdate {
 			ProfileData profileData = new ProfileData(profileManager);
 			profileData.updateEventLists();
 			List<UpdateTask> updateTasks = new ArrayList<>();
-			updateTasks.add(new Step1Task(profileManager));
-			updateTasks.add(new Step2Task(profileManager, true, true, true, true, true, true, true, true, true, true, true));
-			updateTasks.add(new Step3Task(profileManager, true));
-			updateTasks.add(new Step4Task(profileManager));
+			updateTasks.add(new EsiUpdateTask(profileManager, true, true, true, true, true, true, true, true, true, true, true));
 			updateTasks.add(new PriceDataTask(priceDataGetter, profileData, false));
 			for (UpdateTask updateTask : updateTasks) {
 				updateTask.addPropertyChangeListener(new PropertyChangeListener() {
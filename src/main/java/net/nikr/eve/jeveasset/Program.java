@@ -29,6 +29,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +59,7 @@ import net.nikr.eve.jeveasset.data.api.my.MyTransaction;
 import net.nikr.eve.jeveasset.data.profile.ProfileData;
 import net.nikr.eve.jeveasset.data.profile.ProfileManager;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
+import net.nikr.eve.jeveasset.data.sde.RouteFinder;
 import net.nikr.eve.jeveasset.data.sde.StaticData;
 import net.nikr.eve.jeveasset.data.settings.AddedData;
 import net.nikr.eve.jeveasset.data.settings.PriceHistoryDatabase;
@@ -111,6 +113,10 @@ import net.nikr.eve.jeveasset.gui.tabs.values.ValueRetroTab;
 import net.nikr.eve.jeveasset.gui.tabs.values.ValueTableTab;
 import net.nikr.eve.jeveasset.i18n.GuiFrame;
 import net.nikr.eve.jeveasset.i18n.GuiShared;
+import net.nikr.eve.jeveasset.io.local.PriceStore;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler.SaveTarget;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
 import net.nikr.eve.jeveasset.io.online.PriceDataGetter;
 import net.nikr.eve.jeveasset.io.online.Updater;
 import net.nikr.eve.jeveasset.io.shared.DesktopUtil;
@@ -175,6 +181,13 @@ public class Program implements ActionListener {
 	private Updatable updatable;
 
 	private final Map<String, JMainTab> jMainTabs = new HashMap<>();
+	private final Set<Integer> pendingPrices = new HashSet<>(); //Price updates waiting for the price update thread
+	private final SaveScheduler.Saver settingsSaver = new SaveScheduler.Saver() {
+		@Override
+		public void save(String msg) {
+			doSaveSettings(msg);
+		}
+	};
 
 	//Data
 	private final ProfileData profileData;
@@ -361,11 +374,51 @@ public class Program implements ActionListener {
 		LOG.info("DATA Loading...");
 		FileUtil.autoImportFileUtil();
 		TempDirs.fixTempDir();
-		StaticData.load();
-		Settings.load();
-		TrackerData.load();
-		AddedData.load();
-		PriceHistoryDatabase.load();
+		StartupLoader loader = new StartupLoader("DATA");
+		loader.add("Static Data", new Runnable() {
+			@Override
+			public void run() {
+				StaticData.load();
+			}
+		});
+		loader.add("Settings", new Runnable() {
+			@Override
+			public void run() {
+				Settings.load();
+			}
+		}, "Static Data");
+		loader.add("Route Finder", new Runnable() {
+			@Override
+			public void run() {
+				RouteFinder.load();
+			}
+		}, "Static Data");
+		loader.add("Tracker Data", new Runnable() {
+			@Override
+			public void run() {
+				TrackerData.load();
+			}
+		}, "Settings"); //Settings.load() may import legacy tracker data
+		loader.add("Added Data", new Runnable() {
+			@Override
+			public void run() {
+				AddedData.load();
+			}
+		}, "Settings"); //Settings.load() may import legacy asset added data
+		loader.add("Price History", new Runnable() {
+			@Override
+			public void run() {
+				PriceHistoryDatabase.load();
+			}
+		});
+		loader.add("Price Data", new Runnable() {
+			@Override
+			public void run() {
+				PriceStore.get().load();
+				PriceHistoryDatabase.movePriceData(PriceStore.get());
+			}
+		}, "Price History");
+		loader.load();
 	}
 
 	/**
@@ -566,6 +619,35 @@ public class Program implements ActionListener {
 		});
 	}
 
+	/**
+	 * Update prices from a background thread (f.ex. the price data update).
+	 * Updated on a background thread without the lock window, as the batches may arrive many times per update.
+	 * Updates queued before the thread gets to them are done as one update.
+	 * @param typeIDs
+	 */
+	public final void updatePricesLater(Set<Integer> typeIDs) {
+		synchronized (pendingPrices) {
+			boolean queued = !pendingPrices.isEmpty();
+			pendingPrices.addAll(typeIDs);
+			if (queued) {
+				return; //Already queued
+			}
+		}
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Set<Integer> update;
+				synchronized (pendingPrices) {
+					update = new HashSet<>(pendingPrices);
+					pendingPrices.clear();
+				}
+				updateEventLists(null, null, update, null); //Synchronized: One update at the time
+			}
+		}, "Price Update");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
 	public final void updateNames(Set<Long> itemIDs) {
 		JLockWindow jLockWindow = new JLockWindow(getMainWindow().getFrame());
 		jLockWindow.show(GuiShared.get().updating(), new LockWorkerAdaptor() {
@@ -712,10 +794,8 @@ public class Program implements ActionListener {
 	 * @param msg Who is saving what?
 	 */
 	public void saveSettings(final String msg) {
-		if (!CliOptions.get().isLazySave() && !Settings.ignoreSave()) {
-			Settings.saveStart();
-			Thread thread = new SaveSettings(msg, this);
-			thread.start();
+		if (!CliOptions.get().isLazySave()) {
+			SaveScheduler.get().save(SaveTarget.SETTINGS, msg, settingsSaver);
 		}
 	}
 
@@ -734,15 +814,19 @@ public class Program implements ActionListener {
 		if (CliOptions.get().isLazySave()) {
 			doSaveSettings("API Update");
 		} else {
-			saveSettings("API Update");
-			Settings.waitForEmptySaveQueue();
+			SaveScheduler.get().saveAndWait(SaveTarget.SETTINGS, "API Update", settingsSaver);
 		}
 		saveProfile();
 	}
 
-	public synchronized void saveProfile() {
-		LOG.info("Saving Profile");
-		profileManager.saveProfile();
+	public void saveProfile() {
+		SaveScheduler.get().saveAndWait(SaveTarget.PROFILE, "Profile", new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				LOG.info("Saving Profile");
+				profileManager.saveProfile();
+			}
+		});
 	}
 
 	public void exit() {
@@ -771,11 +855,10 @@ public class Program implements ActionListener {
 	private void saveExit() {
 		if (CliOptions.get().isLazySave()) {
 			doSaveSettings("Exit");
-		} else {
-			LOG.info("Waiting for save queue to finish...");
-			Settings.waitForEmptySaveQueue();
 		}
-		TrackerData.waitForEmptySaveQueue();
+		LOG.info("Waiting for save queue to finish...");
+		SaveScheduler.get().flush();
+		SqliteDatabase.closeAll();
 	}
 
 	private void showAbout() {
@@ -1121,51 +1204,4 @@ public class Program implements ActionListener {
 		}
 	}
 
-	private static class SaveSettings extends Thread {
-
-		private static int counter = 0;
-
-		private final String msg;
-		private final Program program;
-		private final int id;
-
-		public SaveSettings(String msg, Program program) {
-			super("Save Settings " + counter++ + ": " + msg);
-			this.msg = msg;
-			this.program = program;
-			this.id = counter;
-		}
-
-		@Override
-		public void run() {
-			long before = System.currentTimeMillis();
-
-			program.doSaveSettings(msg);
-
-			Settings.saveEnd();
-
-			long after = System.currentTimeMillis();
-
-			LOG.debug("Settings saved in: " + (after - before) + "ms");
-		}
-
-		@Override
-		public int hashCode() {
-			int hash = 7;
-			hash = 67 * hash + this.id;
-			return hash;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (obj == null) {
-				return false;
-			}
-			if (getClass() != obj.getClass()) {
-				return false;
-			}
-			final SaveSettings other = (SaveSettings) obj;
-			return this.id == other.id;
-		}
-	}
 }
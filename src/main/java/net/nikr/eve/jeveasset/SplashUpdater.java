@@ -32,6 +32,9 @@ import java.awt.SplashScreen;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.imageio.ImageIO;
 import javax.swing.JWindow;
 import javax.swing.SwingUtilities;
@@ -56,6 +59,7 @@ public class SplashUpdater {
 	private static boolean showSplashWindow = true;
 	private static long delta = 0;
 	private static Long lastPaint = null;
+	private static final Map<String, Long> PHASE_TIMINGS = new LinkedHashMap<>();
 
 	/** Creates a new instance of SplashUpdater. */
 	public SplashUpdater() {
@@ -114,6 +118,24 @@ public class SplashUpdater {
 		text = s;
 	}
 
+	/**
+	 * Report that a load phase is done.
+	 * @param phase Name of the phase
+	 * @param time Time used in milliseconds
+	 */
+	public synchronized static void phaseDone(final String phase, final long time) {
+		PHASE_TIMINGS.put(phase, time);
+		LOG.info("{} loaded in {}ms", phase, time);
+	}
+
+	/**
+	 * Get the time used by the load phases done so far.
+	 * @return Phase name : time used in milliseconds
+	 */
+	public synchronized static Map<String, Long> getPhaseTimings() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(PHASE_TIMINGS));
+	}
+
 	/**
 	 * Set subprogress of splash screen progressbar in the range 0-100.
 	 * @param n	 Set progress in the range 0-100
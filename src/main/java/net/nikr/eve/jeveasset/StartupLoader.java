@@ -0,0 +1,155 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Run load phases as a dependency graph.
+ * Phases without dependencies between them are run concurrently on a bounded thread pool.
+ * Phases must be added after the phases they depend on.
+ */
+public class StartupLoader {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StartupLoader.class);
+
+	private final String name;
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+	public StartupLoader(String name) {
+		this.name = name;
+	}
+
+	public StartupLoader add(String phase, Runnable runnable, String ... dependencies) {
+		if (phases.containsKey(phase)) {
+			throw new IllegalArgumentException(phase + " already added");
+		}
+		List<Phase> list = new ArrayList<>();
+		for (String dependency : dependencies) {
+			Phase dependencyPhase = phases.get(dependency);
+			if (dependencyPhase == null) {
+				throw new IllegalArgumentException(phase + " depends on " + dependency + " that have not been added yet");
+			}
+			list.add(dependencyPhase);
+		}
+		phases.put(phase, new Phase(phase, runnable, list));
+		return this;
+	}
+
+	/**
+	 * Run all phases and wait for them to complete.
+	 * @throws RuntimeException if any of the phases failed
+	 */
+	public void load() {
+		final long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(phases.size(), Runtime.getRuntime().availableProcessors())), new LoaderThreadFactory(name));
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (Phase phase : phases.values()) {
+				futures.add(phase.start(executor));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+		} catch (CompletionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		LOG.info(name + " loaded in " + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	private static class Phase {
+		private final String name;
+		private final Runnable runnable;
+		private final List<Phase> dependencies;
+		private CompletableFuture<Void> future;
+
+		public Phase(String name, Runnable runnable, List<Phase> dependencies) {
+			this.name = name;
+			this.runnable = runnable;
+			this.dependencies = dependencies;
+		}
+
+		private CompletableFuture<Void> start(ExecutorService executor) {
+			if (dependencies.isEmpty()) {
+				future = CompletableFuture.runAsync(new Runnable() {
+					@Override
+					public void run() {
+						runPhase();
+					}
+				}, executor);
+			} else {
+				CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.size()];
+				for (int i = 0; i < dependencies.size(); i++) {
+					dependencyFutures[i] = dependencies.get(i).future;
+				}
+				future = CompletableFuture.allOf(dependencyFutures).thenRunAsync(new Runnable() {
+					@Override
+					public void run() {
+						runPhase();
+					}
+				}, executor);
+			}
+			return future;
+		}
+
+		private void runPhase() {
+			long start = System.currentTimeMillis();
+			runnable.run();
+			SplashUpdater.phaseDone(name, System.currentTimeMillis() - start);
+		}
+	}
+
+	private static class LoaderThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+		private final String name;
+
+		public LoaderThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
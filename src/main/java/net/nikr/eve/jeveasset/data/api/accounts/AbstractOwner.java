@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import net.nikr.eve.jeveasset.data.api.my.MyAccountBalance;
 import net.nikr.eve.jeveasset.data.api.my.MyAsset;
 import net.nikr.eve.jeveasset.data.api.my.MyContract;
@@ -44,6 +45,10 @@ import net.nikr.eve.jeveasset.data.settings.Settings;
 
 public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType> {
 
+	private static final AtomicLong DATA_VERSIONS = new AtomicLong();
+
+	private volatile long dataVersion = DATA_VERSIONS.incrementAndGet(); //Unique for all owners, changed when the owner data is changed
+
 	private List<MyAccountBalance> accountBalances = new ArrayList<>();
 	private Set<MyMarketOrder> marketOrders = new HashSet<>();
 	private Set<MyTransaction> transactions = new HashSet<>();
@@ -365,10 +370,12 @@ public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType>
 
 	public final synchronized void addAsset(MyAsset asset) {
 		assets.add(asset);
+		setDataChanged();
 	}
 
 	public final synchronized void removeAssets(List<MyAsset> remove) {
 		assets.removeAll(remove);
+		setDataChanged();
 	}
 
 	@Override
@@ -409,26 +416,31 @@ public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType>
 	@Override
 	public final void setBlueprints(final Map<Long, RawBlueprint> blueprints) {
 		this.blueprints = blueprints;
+		setDataChanged();
 	}
 
 	@Override
 	public final void setIndustryJobs(final List<MyIndustryJob> industryJobs) {
 		this.industryJobs = industryJobs;
+		setDataChanged();
 	}
 
 	@Override
 	public final void setTransactions(final Set<MyTransaction> transactions) {
 		this.transactions = transactions;
+		setDataChanged();
 	}
 
 	@Override
 	public final void setJournal(final Set<MyJournal> journal) {
 		this.journal = journal;
+		setDataChanged();
 	}
 
 	@Override
 	public final void setMarketOrders(final Set<MyMarketOrder> marketOrders) {
 		this.marketOrders = marketOrders;
+		setDataChanged();
 	}
 
 	@Override
@@ -439,16 +451,19 @@ public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType>
 	@Override
 	public final void setContracts(final Map<MyContract, List<MyContractItem>> contracts) {
 		this.contracts = contracts;
+		setDataChanged();
 	}
 
 	@Override
 	public final synchronized void setAssets(final List<MyAsset> assets) {
 		this.assets = assets;
+		setDataChanged();
 	}
 
 	@Override
 	public final void setAccountBalances(final List<MyAccountBalance> accountBalances) {
 		this.accountBalances = accountBalances;
+		setDataChanged();
 	}
 
 	@Override
@@ -459,6 +474,7 @@ public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType>
 	@Override
 	public void setWalletDivisions(Map<Integer, String> walletDivisions) {
 		this.walletDivisions = walletDivisions;
+		setDataChanged();
 	}
 
 	@Override
@@ -469,31 +485,47 @@ public abstract class AbstractOwner implements OwnerType, Comparable<OwnerType>
 	@Override
 	public void setAssetDivisions(Map<Integer, String> assetDivisions) {
 		this.assetDivisions = assetDivisions;
+		setDataChanged();
 	}
 
 	@Override
 	public void setSkills(List<MySkill> skills) {
 		this.skills = skills;
+		setDataChanged();
 	}
 
 	@Override
 	public void setMining(List<MyMining> mining) {
 		this.mining = mining;
+		setDataChanged();
 	}
 
 	@Override
 	public void setTotalSkillPoints(Long totalSkillPoints) {
 		this.totalSkillPoints = totalSkillPoints;
+		setDataChanged();
 	}
 
 	@Override
 	public void setUnallocatedSkillPoints(Integer unallocatedSkillPoints) {
 		this.unallocatedSkillPoints = unallocatedSkillPoints;
+		setDataChanged();
 	}
 
 	@Override
 	public void setActiveShip(MyShip activeShip) {
 		this.activeShip = activeShip;
+		setDataChanged();
+	}
+
+	@Override
+	public long getDataVersion() {
+		return dataVersion;
+	}
+
+	@Override
+	public void setDataChanged() {
+		dataVersion = DATA_VERSIONS.incrementAndGet();
 	}
 
 	@Override
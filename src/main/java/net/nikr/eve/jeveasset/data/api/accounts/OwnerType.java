@@ -90,6 +90,8 @@ public interface OwnerType extends Comparable<OwnerType> {
 	public void setTotalSkillPoints(final Long totalSkillPoints);
 	public void setUnallocatedSkillPoints(final Integer unallocatedSkillPoints);
 	public void setMining(List<MyMining> mining);
+	public long getDataVersion(); //Changed each time the owner data is set (unique for all owners)
+	public void setDataChanged(); //Call when the owner data is changed in place (not by the setters)
 	//Account Mask
 	public boolean isCharacter();
 	public boolean isAssetList();
@@ -77,6 +77,22 @@ public class RawPublicMarketOrder {
 		this.locationId = marketOrder.getLocationId();
 	}
 
+	public RawPublicMarketOrder(Long orderId, Integer typeId, Double price, Date issued, Long locationId, Integer systemId, Integer volumeRemain, Integer volumeTotal, Integer minVolume, Integer duration, MarketOrderRange rangeEnum, Boolean isBuyOrder) {
+		this.duration = duration;
+		this.minVolume = minVolume;
+		this.isBuyOrder = isBuyOrder;
+		this.price = price;
+		this.systemId = systemId;
+		this.typeId = typeId;
+		this.range = rangeEnum != null ? rangeEnum.getValue() : null;
+		this.rangeEnum = rangeEnum;
+		this.volumeTotal = volumeTotal;
+		this.issued = issued;
+		this.orderId = orderId;
+		this.volumeRemain = volumeRemain;
+		this.locationId = locationId;
+	}
+
 	public RawPublicMarketOrder(MarketLog marketLog) {
 		this.duration = marketLog.getDuration();
 		this.minVolume = marketLog.getMinVolume();
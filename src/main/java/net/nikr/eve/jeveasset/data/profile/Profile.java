@@ -146,6 +146,7 @@ public class Profile implements Comparable<Profile> {
 							&& !backFrom.renameTo(backTo)) {
 				LOG.warn("Failed to rename profile backup: {}", this.getName());
 			}
+			renameShards(from, to);
 		}
 	}
 
@@ -161,15 +162,33 @@ public class Profile implements Comparable<Profile> {
 		if (!backFrom.equals(backTo)) {
 			backFrom.renameTo(backTo);
 		}
+		renameShards(from, to);
 		stockpileIDs.renameTable(name);
 	}
 
 	public void delete() {
 		getFile().delete();
 		getBackupFile().delete();
+		File shardDirectory = ProfileWriter.getShardDirectory(getFilename());
+		File[] shards = shardDirectory.listFiles();
+		if (shards != null) {
+			for (File shard : shards) {
+				shard.delete();
+			}
+			shardDirectory.delete();
+		}
 		stockpileIDs.removeTable();
 	}
 
+	private void renameShards(File from, File to) {
+		File shardsFrom = ProfileWriter.getShardDirectory(from.getPath());
+		File shardsTo = ProfileWriter.getShardDirectory(to.getPath());
+		if (shardsFrom.exists() && !shardsFrom.equals(shardsTo)
+				&& !shardsFrom.renameTo(shardsTo)) {
+			LOG.warn("Failed to rename profile shards: {}", this.getName());
+		}
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj) {
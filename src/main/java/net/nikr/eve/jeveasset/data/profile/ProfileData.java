@@ -116,6 +116,34 @@ public class ProfileData {
 		return createPriceTypeIDs(); //always needs to be fresh :)
 	}
 
+	/**
+	 * ISK value by typeID, of assets, active market orders and stockpiles.
+	 * Used to update the prices with the most value first.
+	 * @return value by typeID (using the current price data)
+	 */
+	public Map<Integer, Double> getPriceTypeValues() {
+		Map<Integer, Double> values = new HashMap<>();
+		for (OwnerType owner : profileManager.getOwnerTypes()) {
+			//Assets
+			deepAssetValues(owner.getAssets(), values);
+			//Market Orders
+			for (MyMarketOrder marketOrder : owner.getMarketOrders()) {
+				if (marketOrder.isActive() && marketOrder.getVolumeRemain() != null && marketOrder.getPrice() != null) {
+					addValue(values, marketOrder.getTypeID(), marketOrder.getVolumeRemain() * marketOrder.getPrice());
+				}
+			}
+		}
+		//Stockpiles
+		for (Stockpile stockpile : Settings.get().getStockpiles()) {
+			for (StockpileItem stockpileItem : stockpile.getItems()) {
+				if (stockpileItem.getItem().isMarketGroup()) {
+					addValue(values, stockpileItem.getTypeID(), stockpileItem.getCountMinimumMultiplied() * ApiIdConverter.getPrice(stockpileItem.getTypeID(), false));
+				}
+			}
+		}
+		return values;
+	}
+
 	public EventList<MyAccountBalance> getAccountBalanceEventList() {
 		return accountBalanceEventList;
 	}
@@ -293,16 +321,33 @@ public class ProfileData {
 		}
 	}
 
+	private void deepAssetValues(List<MyAsset> assets, Map<Integer, Double> values) {
+		for (MyAsset asset : assets) {
+			if (asset.getItem().isMarketGroup()) {
+				addValue(values, asset.getItem().getTypeID(), asset.getCount() * ApiIdConverter.getPrice(asset.getItem().getTypeID(), asset.isBPC()));
+			}
+			deepAssetValues(asset.getAssets(), values);
+		}
+	}
+
+	private static void addValue(Map<Integer, Double> values, Integer typeID, double value) {
+		Double current = values.get(typeID);
+		if (current != null) {
+			values.put(typeID, current + value);
+		} else {
+			values.put(typeID, value);
+		}
+	}
+
 	public void updateMarketOrders(OutbidProcesserOutput output) {
 		Date addedDate = new Date();
-		Map<Long, Date> marketOrdersAdded = AddedData.getMarketOrders().getAll();
 		synchronized (owners) { //synchronized as owners are modified by updateEventLists
 			for (OwnerType ownerType : owners.values()) {
 				for (MyMarketOrder order : ownerType.getMarketOrders()) { // getMarketOrders() is thread safe
 					order.setOutbid(output.getOutbids().get(order.getOrderID()));
 					boolean updated = order.addChanges(output.getUpdates().get(order.getOrderID()));
 					if (updated) { //If Market Order have been updated
-						order.setChanged(AddedData.getMarketOrders().getPut(marketOrdersAdded, order.getOrderID(), addedDate));
+						order.setChanged(AddedData.getMarketOrders().getPut(order.getOrderID(), addedDate));
 					}
 				}
 			}
@@ -527,7 +572,6 @@ public class ProfileData {
 			transactions.add(transaction);
 		}
 		//Update MarketOrders dynamic values
-		Map<Long, Date> marketOrdersAdded = AddedData.getMarketOrders().getAll();
 		for (MyMarketOrder order : marketOrders) {
 			//Last Transaction
 			if (order.isBuyOrder()) { //Buy
@@ -543,15 +587,15 @@ public class ProfileData {
 			order.setPriceData(ApiIdConverter.getPriceData(order.getTypeID(), false));
 			//Changed date
 			if (order.isUpdateChanged()) { //Update!
-				order.setChanged(AddedData.getMarketOrders().getPut(marketOrdersAdded, order.getOrderID(), addedDate));
+				order.setChanged(AddedData.getMarketOrders().getPut(order.getOrderID(), addedDate));
 			} else {
 				Date changed;
-				if (!marketOrdersAdded.containsKey(order.getOrderID())) { //New (use issued as a best guess)
+				if (!AddedData.getMarketOrders().contains(order.getOrderID())) { //New (use issued as a best guess)
 					changed = order.getIssued();
 				} else { //Updating
 					changed = addedDate;
 				}
-				order.setChanged(AddedData.getMarketOrders().getAdd(marketOrdersAdded, order.getOrderID(), changed));
+				order.setChanged(AddedData.getMarketOrders().getAdd(order.getOrderID(), changed));
 			}
 		}
 		AddedData.getMarketOrders().commitQueue();
@@ -589,7 +633,6 @@ public class ProfileData {
 		}
 
 		//Update Transaction dynamic values
-		Map<Long, Date> transactionsAdded = AddedData.getTransactions().getAll();
 		for (MyTransaction transaction : transactions) {
 			//Client Name
 			transaction.setClientName(ApiIdConverter.getOwnerName(transaction.getClientID()));
@@ -610,17 +653,16 @@ public class ProfileData {
 				setLastTransaction(transaction, transaction.getTypeID(), transaction.isBuy(), transaction.getPrice(), tax);
 			}
 			//Date added
-			transaction.setAdded(AddedData.getTransactions().getAdd(transactionsAdded, transaction.getTransactionID(), addedDate));
+			transaction.setAdded(AddedData.getTransactions().getAdd(transaction.getTransactionID(), addedDate));
 		}
 		AddedData.getTransactions().commitQueue();
 		//Update Journal dynamic values
-		Map<Long, Date> journalsAdded = AddedData.getJournals().getAll();
 		for (MyJournal journal : journals) {
 			//Names
 			journal.setFirstPartyName(ApiIdConverter.getOwnerName(journal.getFirstPartyID()));
 			journal.setSecondPartyName(ApiIdConverter.getOwnerName(journal.getSecondPartyID()));
 			//Date added
-			journal.setAdded(AddedData.getJournals().getAdd(journalsAdded, journal.getRefID(), addedDate));
+			journal.setAdded(AddedData.getJournals().getAdd(journal.getRefID(), addedDate));
 			//Context
 			journal.setContext(ApiIdConverter.getContext(journal));
 		}
@@ -631,22 +673,21 @@ public class ProfileData {
 			item.setPriceReprocessed(ApiIdConverter.getPriceReprocessed(item));
 		}
 
-		Map<Long, Date> assetAdded = AddedData.getAssets().getAll();
 		Program.ensureEDT(new Runnable() {
 			@Override
 			public void run() {
 				//Add Market Orders to Assets
-				addAssets(DataConverter.assetMarketOrder(marketOrders, Settings.get().isIncludeSellOrders(), Settings.get().isIncludeBuyOrders()), assets, blueprints, assetAdded, addedDate);
+				addAssets(DataConverter.assetMarketOrder(marketOrders, Settings.get().isIncludeSellOrders(), Settings.get().isIncludeBuyOrders()), assets, blueprints, addedDate);
 
 				//Add Industry Jobs to Assets
-				addAssets(DataConverter.assetIndustryJob(industryJobs, Settings.get().isIncludeManufacturing(), Settings.get().isIncludeCopying()), assets, blueprints, assetAdded, addedDate);
+				addAssets(DataConverter.assetIndustryJob(industryJobs, Settings.get().isIncludeManufacturing(), Settings.get().isIncludeCopying()), assets, blueprints, addedDate);
 
 				//Add Contract Items to Assets
-				addAssets(DataConverter.assetContracts(contractItems, uniqueOwners, Settings.get().isIncludeSellContracts(), Settings.get().isIncludeBuyContracts()), assets, blueprints, assetAdded, addedDate);
+				addAssets(DataConverter.assetContracts(contractItems, uniqueOwners, Settings.get().isIncludeSellContracts(), Settings.get().isIncludeBuyContracts()), assets, blueprints, addedDate);
 
 				//Add Assets to Assets
 				for (OwnerType owner : assetsMap.values()) {
-					addAssets(owner.getAssets(), assets, blueprints, assetAdded, addedDate);
+					addAssets(owner.getAssets(), assets, blueprints, addedDate);
 				}
 			}
 		});
@@ -1240,7 +1281,7 @@ public class ProfileData {
 		}
 	}
 
-	private void addAssets(final List<MyAsset> assets, List<MyAsset> addTo, Map<Long, MyBlueprint> blueprints, Map<Long, Date> assetAdded, Date assetAddedDate) {
+	private void addAssets(final List<MyAsset> assets, List<MyAsset> addTo, Map<Long, MyBlueprint> blueprints, Date assetAddedDate) {
 		for (MyAsset asset : assets) {
 			//XXX Ignore 9e18 locations: https://github.com/ccpgames/esi-issues/issues/684
 			if (asset.getLocationID() > 9000000000000000000L) {
@@ -1258,7 +1299,7 @@ public class ProfileData {
 			Tags tags = Settings.get().getTags(asset.getTagID());
 			asset.setTags(tags);
 			//Date added
-			asset.setAdded(AddedData.getAssets().getAdd(assetAdded, asset.getItemID(), assetAddedDate));
+			asset.setAdded(AddedData.getAssets().getAdd(asset.getItemID(), assetAddedDate));
 			//Price
 			updatePrice(asset);
 			//Reprocessed price
@@ -1298,7 +1339,7 @@ public class ProfileData {
 				asset.setLocation(ApiIdConverter.getLocation(asset.getLocationID()));
 			}
 			//Add sub-assets
-			addAssets(asset.getAssets(), addTo, blueprints, assetAdded, assetAddedDate);
+			addAssets(asset.getAssets(), addTo, blueprints, assetAddedDate);
 		}
 	}
 
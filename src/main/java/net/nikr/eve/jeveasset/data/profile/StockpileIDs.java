@@ -20,27 +20,22 @@
  */
 package net.nikr.eve.jeveasset.data.profile;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.gui.tabs.stockpile.Stockpile;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase.SqliteConnection;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 public class StockpileIDs {
 
-	private static final Logger LOG = LoggerFactory.getLogger(StockpileIDs.class);
-
 	public static final String DEFAULT_CONNECTION_URL = "jdbc:sqlite:" + FileUtil.getPathStockpileIDsDatabase();
 
 	private static String connectionUrl = DEFAULT_CONNECTION_URL;
@@ -64,6 +59,10 @@ public class StockpileIDs {
 		StockpileIDs.connectionUrl = connectionUrl;
 	}
 
+	private static SqliteDatabase getDatabase() {
+		return SqliteDatabase.get(connectionUrl);
+	}
+
 	protected void setNewDatabase(boolean newDatabase) {
 		this.newDatabase = newDatabase;
 	}
@@ -142,64 +141,49 @@ public class StockpileIDs {
 	}
 
 	private void insert(Set<Long> data) {
-		if (data == null || data.isEmpty()) {
-			return;
-		}
-		String sql = "INSERT INTO " + tableName + "(id) VALUES(?)";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Long id : data) {
-				statement.setLong(1, id);
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == data.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
-				}
-			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		update("INSERT INTO " + tableName + "(id) VALUES(?)", data);
 	}
 
 	private void delete(Set<Long> data) {
+		update("DELETE FROM " + tableName + " WHERE id = ?", data);
+	}
+
+	private void update(final String sql, Set<Long> data) {
 		if (data == null || data.isEmpty()) {
 			return;
 		}
-		String sql = "DELETE FROM " + tableName + " WHERE id = ?";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Long id : data) {
-				statement.setLong(1, id);
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == data.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
+		final Set<Long> ids = new HashSet<>(data); //Copy: written on the database thread
+		getDatabase().write(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare(sql);
+				int i = 0;
+				for (Long id : ids) {
+					statement.setLong(1, id);
+					statement.addBatch();
+					i++;
+					if (i % 1000 == 0 || i == ids.size()) {
+						statement.executeBatch(); // Execute every 1000 items.
+					}
 				}
 			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		});
 	}
 
 	private void get() {
-		String sql = "SELECT * FROM " + tableName;
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery();) {
-			while (rs.next()) {
-				hidden.add(rs.getLong("id"));
+		final String sql = "SELECT * FROM " + tableName;
+		hidden.addAll(getDatabase().read(new SqliteDatabase.Query<Set<Long>>() {
+			@Override
+			public Set<Long> query(SqliteConnection connection) throws SQLException {
+				Set<Long> ids = new HashSet<>();
+				try (ResultSet rs = connection.prepare(sql).executeQuery()) {
+					while (rs.next()) {
+						ids.add(rs.getLong("id"));
+					}
+				}
+				return ids;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		}, Collections.<Long>emptySet()));
 	}
 
 	private String getSafeTableName(String tableName) {
@@ -212,12 +196,7 @@ public class StockpileIDs {
 		String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (\n"
 				+ "	id integer PRIMARY KEY\n"
 				+ ");";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		execute(sql);
 	}
 
 	public boolean renameTable(String tableName) {
@@ -229,13 +208,10 @@ public class StockpileIDs {
 			return false; //FAILURE (table already exist)
 		}
 		String sql = "ALTER TABLE " + this.tableName + " RENAME TO " + tableName + ";";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
+		if (execute(sql)) {
 			this.tableName = tableName; //OK (change successful)
 			return true;
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+		} else {
 			return false; //FAILURE (some other error)
 		}
 	}
@@ -245,26 +221,19 @@ public class StockpileIDs {
 	}
 
 	public static boolean tableExist(String tableName) {
-		String sql = "SELECT name FROM sqlite_master WHERE type='table' AND name='" + tableName + "'";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement();
-				ResultSet rs = statement.executeQuery(sql)) {
-			while (rs.next()) {
-				return true;
-			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
-		return false;
+		return getDatabase().tableExist(tableName);
 	}
 
 	public void removeTable() {
-		String sql = "DROP TABLE IF EXISTS " + this.tableName + ";";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		execute("DROP TABLE IF EXISTS " + this.tableName + ";");
+	}
+
+	private static boolean execute(final String sql) {
+		return getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				connection.execute(sql);
+			}
+		});
 	}
 }
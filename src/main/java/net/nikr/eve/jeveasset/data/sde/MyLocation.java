@@ -67,7 +67,15 @@ public class MyLocation implements Comparable<MyLocation>, NamedPriceLocation {
 	}
 
 	public static MyLocation create(long stationID, String station, long systemID, String system, long constellationID, String constellation, long regionID, String region, String security, boolean citadel, boolean userLocation) {
-		final MyLocation newLocation = new MyLocation(stationID, station, systemID, system, constellationID, constellation, regionID, region, security, citadel, userLocation);
+		return create(new MyLocation(stationID, station, systemID, system, constellationID, constellation, regionID, region, security, citadel, userLocation));
+	}
+
+	/**
+	 * Add a location to the cache or update the cached location.
+	 * @param newLocation location not in the cache
+	 * @return the cached location
+	 */
+	public static MyLocation create(final MyLocation newLocation) {
 		MyLocation cached = CACHE.get(newLocation.getLocationID());
 		if (cached == null) { //New
 			cached = newLocation;
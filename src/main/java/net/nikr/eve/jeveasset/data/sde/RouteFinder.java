@@ -20,45 +20,66 @@
  */
 package net.nikr.eve.jeveasset.data.sde;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.nikr.eve.jeveasset.SplashUpdater;
-import net.nikr.eve.jeveasset.gui.tabs.routing.SolarSystem;
-import uk.me.candle.eve.graph.DisconnectedGraphException;
-import uk.me.candle.eve.graph.Edge;
-import uk.me.candle.eve.graph.Graph;
-import uk.me.candle.eve.graph.distances.Jumps;
-
+import net.nikr.eve.jeveasset.io.local.JumpDistanceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * All pairs jump distances between the systems connected by stargates.
+ * The distances are stored as unsigned bytes in a triangular table indexed by dense system indexes.
+ * The table is build by a BFS from every system and cached to disk.
+ */
 public class RouteFinder {
 
+	private static final Logger LOG = LoggerFactory.getLogger(RouteFinder.class);
+
+	private static final int UNREACHABLE = 0xFF;
+
 	private static RouteFinder DISTANCE;
 
-	private final Graph<SolarSystem> graph;
-	private final Map<Long, SolarSystem> systemCache;
-	private final Map<Route, Integer> distance = new HashMap<>();
+	private final long[] systemIDs; //Sorted: index = Arrays.binarySearch(systemIDs, systemID)
+	private final ByteBuffer distances;
+	private final Map<Long, Distances> vectors = new HashMap<>();
 
 	private RouteFinder() {
-		// build the graph.
-		// filter the solarsystems based on the settings.
-		graph = new Graph<>(new Jumps<>());
-		int count = 0;
-		systemCache = new HashMap<>();
-		for (Jump jump : StaticData.get().getJumps()) { // this way we exclude the locations that are unreachable.
-			count++;
-			SplashUpdater.setSubProgress((int) (count * 100.0 / StaticData.get().getJumps().size()));
-
-			SolarSystem from = systemCache.get(jump.getFrom().getSystemID());
-			SolarSystem to = systemCache.get(jump.getTo().getSystemID());
-			if (from == null) {
-				from = SolarSystem.create(systemCache, jump.getFrom());
-			}
-			if (to == null) {
-				to = SolarSystem.create(systemCache, jump.getTo());
+		//Systems (only the systems with jumps are reachable)
+		Set<Long> systems = new TreeSet<>();
+		for (Jump jump : StaticData.get().getJumps()) {
+			if (jump.getFrom() == null || jump.getTo() == null) {
+				continue;
 			}
-			graph.addEdge(new Edge<>(from, to));
+			systems.add(jump.getFrom().getSystemID());
+			systems.add(jump.getTo().getSystemID());
 		}
+		systemIDs = new long[systems.size()];
+		int index = 0;
+		for (Long systemID : systems) {
+			systemIDs[index] = systemID;
+			index++;
+		}
+		ByteBuffer buffer = JumpDistanceCache.load(systemIDs);
+		if (buffer == null) {
+			byte[] table = build(systemIDs, StaticData.get().getJumps());
+			JumpDistanceCache.save(systemIDs, table);
+			buffer = ByteBuffer.wrap(table).asReadOnlyBuffer();
+		}
+		distances = buffer;
 	}
 
 	public Integer distanceBetween(Long fromSystemID, Long toSystemID) {
@@ -68,24 +89,51 @@ public class RouteFinder {
 		if (Objects.equals(fromSystemID, toSystemID)) {
 			return 0;
 		}
-		Route route = new Route(fromSystemID, toSystemID);
-		Integer jumps = distance.get(route);
-		if (jumps != null) {
-			return jumps; //Saved route
+		int from = Arrays.binarySearch(systemIDs, fromSystemID);
+		int to = Arrays.binarySearch(systemIDs, toSystemID);
+		if (from < 0 || to < 0) {
+			return null;
 		}
-		SolarSystem from = systemCache.get(fromSystemID);
-		SolarSystem to = systemCache.get(toSystemID);
-		if (from == null || to == null) {
+		int jumps = distances.get(getIndex(systemIDs.length, from, to)) & 0xFF;
+		if (jumps == UNREACHABLE) {
 			return null;
 		}
-		try {
-			jumps = graph.distanceBetween(from, to);
-			distance.put(route, jumps);
-			return jumps;
-		} catch (DisconnectedGraphException ex) {
+		return jumps;
+	}
 
+	/**
+	 * Get the jumps from a system to all other systems.
+	 * The distances are shared by everyone using the same origin, until released by retainDistances().
+	 * @param fromSystemID origin system
+	 * @return distances from the origin system
+	 */
+	public synchronized Distances getDistances(long fromSystemID) {
+		Distances vector = vectors.get(fromSystemID);
+		if (vector == null) {
+			int from = Arrays.binarySearch(systemIDs, fromSystemID);
+			int[] jumps = new int[systemIDs.length];
+			for (int to = 0; to < systemIDs.length; to++) {
+				if (from < 0) {
+					jumps[to] = -1;
+				} else if (from == to) {
+					jumps[to] = 0;
+				} else {
+					int value = distances.get(getIndex(systemIDs.length, from, to)) & 0xFF;
+					jumps[to] = value == UNREACHABLE ? -1 : value;
+				}
+			}
+			vector = new Distances(fromSystemID, jumps);
+			vectors.put(fromSystemID, vector);
 		}
-		return null;
+		return vector;
+	}
+
+	/**
+	 * Release the distances of all the origins not in use anymore.
+	 * @param fromSystemIDs origins still in use
+	 */
+	public synchronized void retainDistances(Collection<Long> fromSystemIDs) {
+		vectors.keySet().retainAll(fromSystemIDs);
 	}
 
 	public static void load() {
@@ -99,49 +147,152 @@ public class RouteFinder {
 		return DISTANCE;
 	}
 
-	private static class Route {
-
-		private final Long lowSystemID;
-		private final Long highSystemID;
+	/**
+	 * Index of a pair in the triangular distance table.
+	 * @param size number of systems
+	 * @param a system index
+	 * @param b system index (not equal to a)
+	 * @return table index
+	 */
+	protected static int getIndex(int size, int a, int b) {
+		long low = Math.min(a, b);
+		long high = Math.max(a, b);
+		return (int) (low * (2 * size - low - 1) / 2 + (high - low - 1));
+	}
 
-		public Route(Long fromSystemID, Long toSystemID) {
-			if (fromSystemID < toSystemID) {
-				this.lowSystemID = fromSystemID;
-				this.highSystemID = toSystemID;
-			} else {
-				this.lowSystemID = toSystemID;
-				this.highSystemID = fromSystemID;
-			}
+	/**
+	 * Build the distance table by running a BFS from every system.
+	 * The sources are spread out over all cores.
+	 * @param systemIDs sorted system IDs
+	 * @param jumps
+	 * @return triangular distance table
+	 */
+	protected static byte[] build(final long[] systemIDs, final List<Jump> jumps) {
+		long start = System.currentTimeMillis();
+		final int size = systemIDs.length;
+		//Adjacency lists (compressed: neighbours of i are neighbours[offsets[i]] to neighbours[offsets[i + 1] - 1])
+		List<List<Integer>> adjacency = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			adjacency.add(new ArrayList<Integer>());
 		}
-
-		@Override
-		public int hashCode() {
-			int hash = 5;
-			hash = 47 * hash + Objects.hashCode(this.lowSystemID);
-			hash = 47 * hash + Objects.hashCode(this.highSystemID);
-			return hash;
+		int edges = 0;
+		for (Jump jump : jumps) {
+			if (jump.getFrom() == null || jump.getTo() == null) {
+				continue;
+			}
+			int from = Arrays.binarySearch(systemIDs, jump.getFrom().getSystemID());
+			int to = Arrays.binarySearch(systemIDs, jump.getTo().getSystemID());
+			if (from < 0 || to < 0 || from == to) {
+				continue;
+			}
+			if (!adjacency.get(from).contains(to)) {
+				adjacency.get(from).add(to);
+				adjacency.get(to).add(from);
+				edges = edges + 2;
+			}
 		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
+		final int[] offsets = new int[size + 1];
+		final int[] neighbours = new int[edges];
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			offsets[i] = offset;
+			for (Integer neighbour : adjacency.get(i)) {
+				neighbours[offset] = neighbour;
+				offset++;
 			}
-			if (obj == null) {
-				return false;
+		}
+		offsets[size] = offset;
+		//BFS
+		final byte[] table = new byte[(int) JumpDistanceCache.getSize(size)];
+		final int threads = Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors()));
+		final AtomicInteger done = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						int[] distance = new int[size];
+						int[] queue = new int[size];
+						//Every n'th source: the rows get shorter as the source index grows
+						for (int source = thread; source < size; source = source + threads) {
+							bfs(source, offsets, neighbours, distance, queue);
+							for (int target = source + 1; target < size; target++) {
+								int jumps = distance[target];
+								if (jumps < 0 || jumps >= UNREACHABLE) {
+									table[getIndex(size, source, target)] = (byte) UNREACHABLE;
+								} else {
+									table[getIndex(size, source, target)] = (byte) jumps;
+								}
+							}
+							SplashUpdater.setSubProgress((int) (done.incrementAndGet() * 100.0 / size));
+						}
+					}
+				}));
 			}
-			if (getClass() != obj.getClass()) {
-				return false;
+			for (Future<?> future : futures) {
+				future.get();
 			}
-			final Route other = (Route) obj;
-			if (!Objects.equals(this.lowSystemID, other.lowSystemID)) {
-				return false;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		LOG.info("Jump distances for " + size + " systems build in " + (System.currentTimeMillis() - start) + "ms");
+		return table;
+	}
+
+	/**
+	 * Jumps from one system to all the other systems, indexed by system index.
+	 */
+	public class Distances {
+
+		private final long fromSystemID;
+		private final int[] jumps; //-1 = unreachable
+
+		private Distances(long fromSystemID, int[] jumps) {
+			this.fromSystemID = fromSystemID;
+			this.jumps = jumps;
+		}
+
+		public long getFromSystemID() {
+			return fromSystemID;
+		}
+
+		public Integer get(long toSystemID) {
+			if (toSystemID == fromSystemID) {
+				return 0;
 			}
-			if (!Objects.equals(this.highSystemID, other.highSystemID)) {
-				return false;
+			int to = Arrays.binarySearch(systemIDs, toSystemID);
+			if (to < 0 || jumps[to] < 0) {
+				return null;
 			}
-			return true;
+			return jumps[to];
 		}
+	}
 
+	private static void bfs(int source, int[] offsets, int[] neighbours, int[] distance, int[] queue) {
+		Arrays.fill(distance, -1);
+		distance[source] = 0;
+		queue[0] = source;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			int current = queue[head];
+			head++;
+			for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+				int neighbour = neighbours[i];
+				if (distance[neighbour] < 0) {
+					distance[neighbour] = distance[current] + 1;
+					queue[tail] = neighbour;
+					tail++;
+				}
+			}
+		}
 	}
 }
@@ -25,12 +25,16 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.nikr.eve.jeveasset.SplashUpdater;
+import net.nikr.eve.jeveasset.StartupLoader;
 import net.nikr.eve.jeveasset.io.local.FlagsReader;
 import net.nikr.eve.jeveasset.io.local.ItemsReader;
 import net.nikr.eve.jeveasset.io.local.JumpsReader;
 import net.nikr.eve.jeveasset.io.local.LocationsReader;
+import net.nikr.eve.jeveasset.io.local.StaticDataCacheReader;
+import net.nikr.eve.jeveasset.io.local.StaticDataCacheWriter;
 
 
 public class StaticData {
@@ -59,18 +63,64 @@ public class StaticData {
 
 	private void loadData() {
 		SplashUpdater.setProgress(5);
-		ItemsReader.load(items); //Items
-		SplashUpdater.setProgress(10);
+		boolean cached;
 		try {
 			LOCATIONS_LOCK.writeLock().lock();
-			LocationsReader.load(locations); //Locations
+			cached = StaticDataCacheReader.load(items, locations, jumps, flags); //Binary snapshot
 		} finally {
 			LOCATIONS_LOCK.writeLock().unlock();
 		}
-		SplashUpdater.setProgress(15);
-		JumpsReader.load(jumps); //Jumps
-		SplashUpdater.setProgress(20);
-		FlagsReader.load(flags); //Item Flags
+		if (cached) {
+			SplashUpdater.setProgress(25);
+			return;
+		}
+		//XML (fallback)
+		final AtomicBoolean ok = new AtomicBoolean(true);
+		StartupLoader loader = new StartupLoader("Static Data");
+		loader.add("Items", new Runnable() {
+			@Override
+			public void run() {
+				if (!ItemsReader.load(items)) {
+					ok.set(false);
+				}
+				SplashUpdater.setProgress(10);
+			}
+		});
+		loader.add("Locations", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					LOCATIONS_LOCK.writeLock().lock();
+					if (!LocationsReader.load(locations)) {
+						ok.set(false);
+					}
+				} finally {
+					LOCATIONS_LOCK.writeLock().unlock();
+				}
+				SplashUpdater.setProgress(15);
+			}
+		});
+		loader.add("Jumps", new Runnable() {
+			@Override
+			public void run() {
+				if (!JumpsReader.load(jumps)) {
+					ok.set(false);
+				}
+				SplashUpdater.setProgress(20);
+			}
+		}, "Locations"); //Jumps use the locations
+		loader.add("Item Flags", new Runnable() {
+			@Override
+			public void run() {
+				if (!FlagsReader.load(flags)) {
+					ok.set(false);
+				}
+			}
+		});
+		loader.load();
+		if (ok.get()) { //Only create snapshot from complete data
+			StaticDataCacheWriter.save(items, locations, jumps, flags);
+		}
 		SplashUpdater.setProgress(25);
 	}
 
@@ -20,25 +20,19 @@
  */
 package net.nikr.eve.jeveasset.data.settings;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import net.nikr.eve.jeveasset.io.local.AssetAddedReader;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase.SqliteConnection;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 public class AddedData {
 
-	private static final Logger LOG = LoggerFactory.getLogger(AddedData.class);
-
 	private static enum DataSettings {
 		ASSETS("assetadded") {
 			@Override
@@ -71,8 +65,9 @@ public class AddedData {
 	}
 
 	private static final String CONNECTION_URL = "jdbc:sqlite:" + FileUtil.getPathAssetAddedDatabase();
-	private Map<Long, Date> insert = null;
-	private Map<Long, Date> update = null;
+	private static final long MISSING = Long.MIN_VALUE;
+	private LongLongMap index = null; //id -> date (loaded on first use)
+	private LongLongMap queue = new LongLongMap(); //id -> date (not saved yet)
 	private final DataSettings dataSettings;
 
 	private AddedData(DataSettings dataSettings) {
@@ -108,81 +103,92 @@ public class AddedData {
 		if (!tableExist()) { //New database: Empty
 			createTable();
 		}
+		synchronized (this) {
+			getIndex();
+		}
 	}
 
 	/**
 	 * Update if date is before the current value.
-	 * @param data current data
 	 * @param id unique id
 	 * @param added
 	 * @return
 	 */
-	public Date getAdd(Map<Long, Date> data, Long id, Date added) {
-		Date date = data.get(id);
-		if (date == null) { //Insert
-			date = added;
-			insertQueue(id, date);
+	public synchronized Date getAdd(long id, Date added) {
+		long date = getIndex().get(id, MISSING);
+		if (date == MISSING || date > added.getTime()) { //Insert or Update
+			put(id, added);
+			return added;
 		}
-		if (date.after(added)) { //Update
-			date = added;
-			updateQueue(id, date);
-		}
-		return date;
+		return new Date(date);
 	}
 
 	/**
 	 * Update if date is after the current value.
-	 * @param data current data
 	 * @param id unique id
 	 * @param added
 	 * @return
 	 */
-	public Date getPut(Map<Long, Date> data, Long id, Date added) {
-		Date date = data.get(id);
-		if (date == null) { //Insert
-			date = added;
-			insertQueue(id, date);
-		}
-		if (date.before(added)) { //Update
-			date = added;
-			updateQueue(id, date);
+	public synchronized Date getPut(long id, Date added) {
+		long date = getIndex().get(id, MISSING);
+		if (date == MISSING || date < added.getTime()) { //Insert or Update
+			put(id, added);
+			return added;
 		}
-		return date;
+		return new Date(date);
 	}
 
-	private void insertQueue(Long id, Date date) {
-		if (insert == null) {
-			insert = new HashMap<>();
-		}
-		insert.put(id, date);
+	public synchronized boolean contains(long id) {
+		return getIndex().get(id, MISSING) != MISSING;
 	}
 
-	private void updateQueue(Long id, Date date) {
-		if (update == null) {
-			update = new HashMap<>();
-		}
-		update.put(id, date);
+	private void put(long id, Date date) {
+		index.put(id, date.getTime());
+		queue.put(id, date.getTime());
 	}
 
+	/**
+	 * Save queued changes.
+	 * The changes are written in the background, the index is already up to date.
+	 */
 	public void commitQueue() {
-		insert(insert);
-		update(update);
-		update = null;
-		insert = null;
-	}
-
-	public boolean isEmpty() {
-		String sql = "SELECT * FROM " + dataSettings.getTableName();
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery()) {
-			while (rs.next()) {
-				return false;
+		final LongLongMap data;
+		synchronized (this) {
+			if (queue.isEmpty()) {
+				return;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+			data = queue;
+			queue = new LongLongMap();
 		}
-		return true;
+		final String sql = "INSERT OR REPLACE INTO " + dataSettings.getTableName() + "(itemid,date) VALUES(?,?)";
+		getDatabase().write(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare(sql);
+				int i = 0;
+				for (int slot = 0; slot < data.capacity(); slot++) {
+					if (!data.isUsed(slot)) {
+						continue;
+					}
+					statement.setLong(1, data.getKey(slot));
+					statement.setLong(2, data.getValue(slot));
+
+					statement.addBatch();
+					i++;
+					if (i % 1000 == 0 || i == data.size()) {
+						statement.executeBatch(); // Execute every 1000 items.
+					}
+				}
+			}
+		});
+	}
+
+	private static SqliteDatabase getDatabase() {
+		return SqliteDatabase.get(CONNECTION_URL);
+	}
+
+	public synchronized boolean isEmpty() {
+		return getIndex().isEmpty();
 	}
 
 	public void set(Map<Long, Date> data) {
@@ -191,99 +197,163 @@ public class AddedData {
 		}
 		createTable();
 		insert(data);
+		synchronized (this) {
+			index = null; //Reload
+		}
 	}
 
-	private void insert(Map<Long, Date> data) {
+	private void insert(final Map<Long, Date> data) {
 		if (data == null || data.isEmpty()) {
 			return;
 		}
-		String sql = "INSERT INTO " + dataSettings.getTableName() + "(itemid,date) VALUES(?,?)";
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Map.Entry<Long, Date> entry : data.entrySet()) {
-				statement.setLong(1, entry.getKey());
-				statement.setLong(2, entry.getValue().getTime());
-
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == data.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
+		final String sql = "INSERT INTO " + dataSettings.getTableName() + "(itemid,date) VALUES(?,?)";
+		getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare(sql);
+				int i = 0;
+				for (Map.Entry<Long, Date> entry : data.entrySet()) {
+					statement.setLong(1, entry.getKey());
+					statement.setLong(2, entry.getValue().getTime());
+
+					statement.addBatch();
+					i++;
+					if (i % 1000 == 0 || i == data.size()) {
+						statement.executeBatch(); // Execute every 1000 items.
+					}
 				}
 			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		});
 	}
 
-	public void update(Map<Long, Date> data) {
-		if (data == null || data.isEmpty()) {
-			return;
-		}
-		String sql = "UPDATE " + dataSettings.getTableName() + " SET date = ? WHERE itemid = ?";
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Map.Entry<Long, Date> entry : data.entrySet()) {
-				statement.setLong(1, entry.getValue().getTime());
-				statement.setLong(2, entry.getKey());
-
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == data.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
-				}
-			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+	private LongLongMap getIndex() {
+		if (index == null) {
+			index = selectAll();
 		}
+		return index;
 	}
 
-	public Map<Long, Date> getAll() {
-		Map<Long, Date> map = new HashMap<>();
-		String sql = "SELECT * FROM " + dataSettings.getTableName();
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery();) {
-			while (rs.next()) {
-				map.put(rs.getLong("itemid"), new Date(rs.getLong("date")));
+	private LongLongMap selectAll() {
+		final String sql = "SELECT itemid, date FROM " + dataSettings.getTableName();
+		return getDatabase().read(new SqliteDatabase.Query<LongLongMap>() {
+			@Override
+			public LongLongMap query(SqliteConnection connection) throws SQLException {
+				LongLongMap map = new LongLongMap();
+				try (ResultSet rs = connection.prepare(sql).executeQuery()) {
+					while (rs.next()) {
+						map.put(rs.getLong(1), rs.getLong(2));
+					}
+				}
+				return map;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
-		return map; //can not return null
+		}, new LongLongMap()); //can not return null
 	}
 
 	private void createTable() {
-		String sql = "CREATE TABLE IF NOT EXISTS " + dataSettings.getTableName() + " (\n"
+		final String sql = "CREATE TABLE IF NOT EXISTS " + dataSettings.getTableName() + " (\n"
 				+ "	itemid integer PRIMARY KEY,\n"
 				+ "	date integer NOT NULL\n"
 				+ ");";
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				connection.execute(sql);
+			}
+		});
 	}
 
 	private boolean tableExist() {
-		String sql = "SELECT name FROM sqlite_master WHERE type='table' AND name='" + dataSettings.getTableName() + "'";
-		try (Connection connection = DriverManager.getConnection(CONNECTION_URL);
-				Statement statement = connection.createStatement();
-				ResultSet rs = statement.executeQuery(sql)) {
-			while (rs.next()) {
-				return true;
+		return getDatabase().tableExist(dataSettings.getTableName());
+	}
+
+	/**
+	 * Open addressing hash map of primitive long keys and values.
+	 * Avoids a map entry, a boxed Long and a Date per row.
+	 */
+	private static class LongLongMap {
+
+		private long[] keys;
+		private long[] values;
+		private boolean[] used;
+		private int size = 0;
+
+		public LongLongMap() {
+			allocate(16);
+		}
+
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			values = new long[capacity];
+			used = new boolean[capacity];
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int capacity() {
+			return keys.length;
+		}
+
+		public boolean isUsed(int slot) {
+			return used[slot];
+		}
+
+		public long getKey(int slot) {
+			return keys[slot];
+		}
+
+		public long getValue(int slot) {
+			return values[slot];
+		}
+
+		public long get(long key, long missing) {
+			int slot = find(key);
+			if (used[slot]) {
+				return values[slot];
+			} else {
+				return missing;
+			}
+		}
+
+		public void put(long key, long value) {
+			int slot = find(key);
+			if (used[slot]) {
+				values[slot] = value;
+				return;
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			values[slot] = value;
+			size++;
+			if (size * 2 > keys.length) { //Keep load factor below 0.5
+				long[] oldKeys = keys;
+				long[] oldValues = values;
+				boolean[] oldUsed = used;
+				allocate(keys.length * 2);
+				for (int i = 0; i < oldKeys.length; i++) {
+					if (oldUsed[i]) {
+						int newSlot = find(oldKeys[i]);
+						used[newSlot] = true;
+						keys[newSlot] = oldKeys[i];
+						values[newSlot] = oldValues[i];
+					}
+				}
+			}
+		}
+
+		private int find(long key) {
+			int mask = keys.length - 1;
+			long hash = key * 0x9E3779B97F4A7C15L;
+			int slot = (int) (hash ^ (hash >>> 32)) & mask;
+			while (used[slot] && keys[slot] != key) {
+				slot = (slot + 1) & mask;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+			return slot;
 		}
-		return false;
 	}
 }
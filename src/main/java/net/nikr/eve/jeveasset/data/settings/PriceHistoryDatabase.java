@@ -20,12 +20,9 @@
  */
 package net.nikr.eve.jeveasset.data.settings;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.text.ParseException;
 import java.util.Calendar;
 import java.util.Date;
@@ -33,25 +30,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import net.nikr.eve.jeveasset.data.sde.Item;
 import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceMode;
 import net.nikr.eve.jeveasset.gui.shared.Formatter.DateFormatThreadSafe;
 import net.nikr.eve.jeveasset.gui.tabs.prices.PriceHistoryTab.PriceHistoryData;
+import net.nikr.eve.jeveasset.io.local.PriceStore;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase.SqliteConnection;
 import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 public class PriceHistoryDatabase {
 
-	private static final Logger LOG = LoggerFactory.getLogger(PriceHistoryDatabase.class);
-
 	public static final String DEFAULT_CONNECTION_URL = "jdbc:sqlite:" + FileUtil.getPathPriceHistoryDatabase();
 	public static final String ZKILLBOARD_TABLE = "zkillboard";
 	public static final String ZBLACKLIST_TABLE = "zblacklist";
 	public static final String PRICEDATA_TABLE = "pricedata";
+	public static final String PRICEDATA_MOVED_TABLE = "pricedatamoved"; //Exist when the price data history has been moved
 
 	public static final DateFormatThreadSafe DATE = new DateFormatThreadSafe("yyyy-MM-dd", true);
 
@@ -75,15 +71,17 @@ public class PriceHistoryDatabase {
 		if (!tableZBlacklistExist()) { //New database: Empty
 			createZBlacklistTable();
 		}
-		if (!tablePriceDataExist()) { //New database: Empty
-			createPriceDataTable();
-		}
+		createIndexes();
 	}
 
 	protected static void setConnectionUrl(String connectionUrl) {
 		PriceHistoryDatabase.connectionUrl = connectionUrl;
 	}
 
+	private static SqliteDatabase getDatabase() {
+		return SqliteDatabase.get(connectionUrl);
+	}
+
 	private static PriceHistoryDatabase getInstance() {
 		if (instance == null) {
 			instance = new PriceHistoryDatabase();
@@ -106,6 +104,7 @@ public class PriceHistoryDatabase {
 	/**
 	 * Add data to database.
 	 * Handles duplicates
+	 * Returns when the data is saved
 	 * @param data
 	 */
 	public static void setZKillboard(Map<Item, Set<PriceHistoryData>> data) {
@@ -115,6 +114,7 @@ public class PriceHistoryDatabase {
 	/**
 	 * Add typeIDs to database.
 	 * Handles duplicates
+	 * Returns when the data is saved
 	 * @param typeIDs
 	 */
 	public static void setZBlacklist(Set<Integer> typeIDs) {
@@ -137,31 +137,41 @@ public class PriceHistoryDatabase {
 	}
 
 	/**
-	 * Add data to database.
-	 * Handles duplicates
-	 * @param data
+	 * Move the price data history to the price store.
+	 * Only done once: The PRICEDATA_MOVED_TABLE is created when the history has been moved.
+	 * If interrupted, nothing is saved to the price store, and the history is moved on the next start.
+	 * The table is kept, so the history is not lost if an older version is used.
+	 * @param store
 	 */
-	public static void setPriceData(Map<Integer, PriceData> data) {
-		getInstance().insertPriceData(data);
+	public static void movePriceData(PriceStore store) {
+		getInstance().copyPriceData(store);
 	}
 
 	/**
-	 * Get all data in database.
+	 * Get data in database.
 	 * @param typeIDs
+	 * @param from first date (inclusive) or null for no limit
+	 * @param to last date (inclusive) or null for no limit
 	 * @return
 	 */
-	public static Map<Item, Set<PriceHistoryData>> getZKillboard(Set<Integer> typeIDs) {
-		return getInstance().selectZKillboard(typeIDs);
+	public static Map<Item, PriceHistorySeries> getZKillboard(Set<Integer> typeIDs, Date from, Date to) {
+		return getInstance().selectZKillboard(typeIDs, from, to);
 	}
 
 	/**
-	 * Get all data in database.
+	 * Get price data history from the price store.
 	 * @param typeIDs
+	 * @param from first date (inclusive) or null for no limit
+	 * @param to last date (inclusive) or null for no limit
 	 * @param priceMode
 	 * @return
 	 */
-	public static Map<Item, Set<PriceHistoryData>> getPriceData(Set<Integer> typeIDs, PriceMode priceMode) {
-		return getInstance().selectPriceData(typeIDs, priceMode);
+	public static Map<Item, PriceHistorySeries> getPriceData(Set<Integer> typeIDs, Date from, Date to, PriceMode priceMode) {
+		Map<Item, PriceHistorySeries> data = new HashMap<>();
+		for (Map.Entry<Integer, PriceHistorySeries> entry : PriceStore.get().getHistory(typeIDs, from, to, priceMode).entrySet()) {
+			data.put(ApiIdConverter.getItem(entry.getKey()), entry.getValue());
+		}
+		return data;
 	}
 
 	private void updateZKillboard(Map<Item, Set<PriceHistoryData>> map) {
@@ -174,194 +184,158 @@ public class PriceHistoryDatabase {
 		insertZKillboard(insert);
 	}
 
-	private void insertZKillboard(Set<PriceHistoryData> insert) {
+	private void insertZKillboard(final Set<PriceHistoryData> insert) {
 		if (insert == null || insert.isEmpty()) {
 			return;
 		}
-		String sql = "INSERT OR IGNORE INTO " + ZKILLBOARD_TABLE + "  (typeid,date,price) VALUES(?,?,?)";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (PriceHistoryData killboardData : insert) {
-				statement.setInt(1, killboardData.getTypeID());
-				statement.setString(2, killboardData.getDateString());
-				statement.setDouble(3, killboardData.getPrice());
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == insert.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
+		getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("INSERT OR IGNORE INTO " + ZKILLBOARD_TABLE + "  (typeid,date,price) VALUES(?,?,?)");
+				int i = 0;
+				for (PriceHistoryData killboardData : insert) {
+					statement.setInt(1, killboardData.getTypeID());
+					statement.setString(2, killboardData.getDateString());
+					statement.setDouble(3, killboardData.getPrice());
+					statement.addBatch();
+					i++;
+					if (i % 1000 == 0 || i == insert.size()) {
+						statement.executeBatch(); // Execute every 1000 items.
+					}
 				}
 			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		});
 	}
 
-	private void insertZBlaclist(Set<Integer> insert) {
+	private void insertZBlaclist(final Set<Integer> insert) {
 		if (insert == null || insert.isEmpty()) {
 			return;
 		}
-		String sql = "INSERT OR IGNORE INTO " + ZBLACKLIST_TABLE + "  (typeid) VALUES(?)";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Integer typeID : insert) {
-				statement.setInt(1, typeID);
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == insert.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
+		getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("INSERT OR IGNORE INTO " + ZBLACKLIST_TABLE + "  (typeid) VALUES(?)");
+				int i = 0;
+				for (Integer typeID : insert) {
+					statement.setInt(1, typeID);
+					statement.addBatch();
+					i++;
+					if (i % 1000 == 0 || i == insert.size()) {
+						statement.executeBatch(); // Execute every 1000 items.
+					}
 				}
 			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		});
 	}
 
 	private void deleteZBlaclist() {
-		String sql = "DELETE FROM " + ZBLACKLIST_TABLE;
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		getDatabase().write(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				connection.prepare("DELETE FROM " + ZBLACKLIST_TABLE).executeUpdate();
+			}
+		});
 	}
 
-	private void insertPriceData(Map<Integer, PriceData> insert) {
-		if (insert == null || insert.isEmpty()) {
-			return;
+	private Map<Item, PriceHistorySeries> selectZKillboard(final Set<Integer> typeIDs, Date from, Date to) {
+		final Map<Item, PriceHistorySeries> data = new HashMap<>();
+		for (int typeID : typeIDs) {
+			data.put(ApiIdConverter.getItem(typeID), new PriceHistorySeries());
 		}
-		String date = DATE.format(new Date()); //Todays date
-		String sql = "INSERT OR REPLACE INTO " + PRICEDATA_TABLE + " (typeid,date,"
-				+ "sellmax,"
-				+ "sellavg,"
-				+ "sellmedian,"
-				+ "sellpercentile,"
-				+ "sellmin,"
-				+ "buymax,"
-				+ "buypercentile,"
-				+ "buyavg,"
-				+ "buymedian,"
-				+ "buymin)"
-				+ "VALUES(?,?,?,?,?,?,?,?,?,?,?,?)";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql)) {
-			int i = 0;
-			connection.setAutoCommit(false);
-			for (Map.Entry<Integer, PriceData> entry : insert.entrySet()) {
-				statement.setInt(1, entry.getKey());
-				statement.setString(2, date);
-				statement.setDouble(3, entry.getValue().getSellMax());
-				statement.setDouble(4, entry.getValue().getSellAvg());
-				statement.setDouble(5, entry.getValue().getSellMedian());
-				statement.setDouble(6, entry.getValue().getSellPercentile());
-				statement.setDouble(7, entry.getValue().getSellMin());
-				statement.setDouble(8, entry.getValue().getBuyMax());
-				statement.setDouble(9, entry.getValue().getBuyPercentile());
-				statement.setDouble(10, entry.getValue().getBuyAvg());
-				statement.setDouble(11, entry.getValue().getBuyMedian());
-				statement.setDouble(12, entry.getValue().getBuyMin());
-				statement.addBatch();
-				i++;
-				if (i % 1000 == 0 || i == insert.size()) {
-					statement.executeBatch(); // Execute every 1000 items.
+		final String fromDate = getFrom(from);
+		final String toDate = getTo(to);
+		getDatabase().read(new SqliteDatabase.Query<Boolean>() {
+			@Override
+			public Boolean query(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("SELECT date, price FROM " + ZKILLBOARD_TABLE + " WHERE typeid = ? AND date BETWEEN ? AND ? ORDER BY date");
+				for (int typeID : typeIDs) {
+					PriceHistorySeries series = data.get(ApiIdConverter.getItem(typeID));
+					statement.setInt(1, typeID);
+					statement.setString(2, fromDate);
+					statement.setString(3, toDate);
+					try (ResultSet rs = statement.executeQuery()) {
+						while (rs.next()) {
+							try {
+								series.add(DATE.parse(rs.getString(1)).getTime(), rs.getDouble(2));
+							} catch (ParseException ex) {
+								//Ignore
+							}
+						}
+					}
 				}
+				return true;
 			}
-			connection.commit();
-			connection.setAutoCommit(true);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+		}, false);
+		return data;
 	}
 
-	private Map<Item, Set<PriceHistoryData>> selectZKillboard(Set<Integer> typeIDs) {
-		Map<Item, Set<PriceHistoryData>> data = new HashMap<>();
-		StringBuilder builder = new StringBuilder();
-		boolean first = true;
-		for (int typeID : typeIDs) {
-			if (first) {
-				first = false;
-			} else {
-				builder.append(", ");
-			}
-			builder.append(typeID);
-		}
-
-		for (int typeID : typeIDs) {
-			data.put(ApiIdConverter.getItem(typeID), new TreeSet<>());
+	private void copyPriceData(final PriceStore store) {
+		if (tablePriceDataMovedExist() || !tablePriceDataExist()) {
+			return;
 		}
-		String sql = "SELECT * FROM " + ZKILLBOARD_TABLE + " WHERE typeid IN (" + builder.toString()  + ")";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery();) {
-			while (rs.next()) {
-				int typeID = rs.getInt("typeid");
-				String date = rs.getString("date");
-				double price = rs.getDouble("price");
-				try {
-					Item item = ApiIdConverter.getItem(typeID);
-					data.get(item).add(new PriceHistoryData(typeID, item, date, price));
-				} catch (ParseException ex) {
-					//Ignore
+		final PriceStore.Importer importer = store.importer();
+		boolean read = getDatabase().read(new SqliteDatabase.Query<Boolean>() {
+			@Override
+			public Boolean query(SqliteConnection connection) throws SQLException {
+				try (ResultSet rs = connection.prepare("SELECT * FROM " + PRICEDATA_TABLE + " ORDER BY date").executeQuery()) {
+					String date = null;
+					Map<Integer, PriceData> day = new HashMap<>();
+					while (rs.next()) {
+						String next = rs.getString("date");
+						if (date != null && !date.equals(next)) {
+							addDay(importer, date, day);
+						}
+						date = next;
+						PriceData priceData = new PriceData();
+						priceData.setSellMax(rs.getDouble("sellmax"));
+						priceData.setSellAvg(rs.getDouble("sellavg"));
+						priceData.setSellMedian(rs.getDouble("sellmedian"));
+						priceData.setSellPercentile(rs.getDouble("sellpercentile"));
+						priceData.setSellMin(rs.getDouble("sellmin"));
+						priceData.setBuyMax(rs.getDouble("buymax"));
+						priceData.setBuyPercentile(rs.getDouble("buypercentile"));
+						priceData.setBuyAvg(rs.getDouble("buyavg"));
+						priceData.setBuyMedian(rs.getDouble("buymedian"));
+						priceData.setBuyMin(rs.getDouble("buymin"));
+						day.put(rs.getInt("typeid"), priceData);
+					}
+					if (date != null) {
+						addDay(importer, date, day);
+					}
 				}
+				return true;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+		}, false);
+		if (read && importer.commit()) {
+			createPriceDataMovedTable();
+		} else {
+			importer.discard();
 		}
-		return data;
 	}
 
-	private Map<Item, Set<PriceHistoryData>> selectPriceData(Set<Integer> typeIDs, PriceMode priceMode) {
-		Map<Item, Set<PriceHistoryData>> data = new HashMap<>();
-		StringBuilder builder = new StringBuilder();
-		boolean first = true;
-		for (int typeID : typeIDs) {
-			if (first) {
-				first = false;
-			} else {
-				builder.append(", ");
-			}
-			builder.append(typeID);
+	private static void addDay(PriceStore.Importer importer, String date, Map<Integer, PriceData> day) {
+		try {
+			importer.add(DATE.parse(date), day);
+		} catch (ParseException ex) {
+			//Ignore
 		}
-		for (int typeID : typeIDs) {
-			data.put(ApiIdConverter.getItem(typeID), new TreeSet<>());
+		day.clear();
+	}
+
+	private static String getFrom(Date from) {
+		if (from == null) {
+			return "";
+		} else {
+			return DATE.format(from);
 		}
-		String sql = "SELECT * FROM " + PRICEDATA_TABLE + " WHERE typeid IN (" + builder.toString()  + ")";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery();) {
-			while (rs.next()) {
-				int typeID = rs.getInt("typeid");
-				String date = rs.getString("date");
-				PriceData priceData = new PriceData();
-				priceData.setSellMax(rs.getDouble("sellmax"));
-				priceData.setSellAvg(rs.getDouble("sellavg"));
-				priceData.setSellMedian(rs.getDouble("sellmedian"));
-				priceData.setSellPercentile(rs.getDouble("sellpercentile"));
-				priceData.setSellMin(rs.getDouble("sellmin"));
-				priceData.setBuyMax(rs.getDouble("buymax"));
-				priceData.setBuyPercentile(rs.getDouble("buypercentile"));
-				priceData.setBuyAvg(rs.getDouble("buyavg"));
-				priceData.setBuyMedian(rs.getDouble("buymedian"));
-				priceData.setBuyMin(rs.getDouble("buymin"));
-				try {
-					Item item = ApiIdConverter.getItem(typeID);
-					data.get(item).add(new PriceHistoryData(typeID, item, date, PriceMode.getDefaultPrice(priceData, priceMode)));
-				} catch (ParseException ex) {
-					//Ignore
-				}
-			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
+	}
+
+	private static String getTo(Date to) {
+		if (to == null) {
+			return "9999-12-31";
+		} else {
+			return DATE.format(to);
 		}
-		return data;
 	}
 
 	public static String getZKillboardDate() {
@@ -374,87 +348,74 @@ public class PriceHistoryDatabase {
 	}
 
 	private Set<Integer> selectZKillboardUpdated() {
-		Set<Integer> typeIDs = new HashSet<>();
-		String sql = "SELECT typeid FROM " + ZKILLBOARD_TABLE + " WHERE date = ?";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				) {
+		return getDatabase().read(new SqliteDatabase.Query<Set<Integer>>() {
+			@Override
+			public Set<Integer> query(SqliteConnection connection) throws SQLException {
+				Set<Integer> typeIDs = new HashSet<>();
+				PreparedStatement statement = connection.prepare("SELECT typeid FROM " + ZKILLBOARD_TABLE + " WHERE date = ?");
 				statement.setString(1, getZKillboardDate());
-				ResultSet rs = statement.executeQuery();
-			while (rs.next()) {
-				typeIDs.add(rs.getInt("typeid"));
+				try (ResultSet rs = statement.executeQuery()) {
+					while (rs.next()) {
+						typeIDs.add(rs.getInt("typeid"));
+					}
+				}
+				return typeIDs;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
-		return typeIDs;
+		}, new HashSet<Integer>());
 	}
 
 	private Set<Integer> selectZBlacklist() {
-		Set<Integer> typeIDs = new HashSet<>();
-		String sql = "SELECT typeid FROM " + ZBLACKLIST_TABLE;
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				PreparedStatement statement = connection.prepareStatement(sql);
-				ResultSet rs = statement.executeQuery();
-				) {
-			while (rs.next()) {
-				typeIDs.add(rs.getInt("typeid"));
+		return getDatabase().read(new SqliteDatabase.Query<Set<Integer>>() {
+			@Override
+			public Set<Integer> query(SqliteConnection connection) throws SQLException {
+				Set<Integer> typeIDs = new HashSet<>();
+				try (ResultSet rs = connection.prepare("SELECT typeid FROM " + ZBLACKLIST_TABLE).executeQuery()) {
+					while (rs.next()) {
+						typeIDs.add(rs.getInt("typeid"));
+					}
+				}
+				return typeIDs;
 			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
-		return typeIDs;
+		}, new HashSet<Integer>());
 	}
 
 	private void createZKillboardTable() {
-		String sql = "CREATE TABLE IF NOT EXISTS " + ZKILLBOARD_TABLE + " (\n"
+		execute("CREATE TABLE IF NOT EXISTS " + ZKILLBOARD_TABLE + " (\n"
 				+ "	typeid INTEGER,\n"
 				+ "	date TEXT,\n"
 				+ "	price REAL,\n"
 				+ "	UNIQUE(typeid, date)\n"
-				+ ");";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+				+ ");");
 	}
 
 	private void createZBlacklistTable() {
-		String sql = "CREATE TABLE IF NOT EXISTS " + ZBLACKLIST_TABLE + " (\n"
+		execute("CREATE TABLE IF NOT EXISTS " + ZBLACKLIST_TABLE + " (\n"
 				+ "	typeid INTEGER\n"
-				+ ");";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+				+ ");");
 	}
 
-	private void createPriceDataTable() {
-		String sql = "CREATE TABLE IF NOT EXISTS " + PRICEDATA_TABLE + " (\n"
-				+ "	typeid INTEGER,\n"
-				+ "	date TEXT,\n"
-				+ "	sellmax REAL,\n"
-				+ "	sellavg REAL,\n"
-				+ "	sellmedian REAL,\n"
-				+ "	sellpercentile REAL,\n"
-				+ "	sellmin REAL,\n"
-				+ "	buymax REAL,\n"
-				+ "	buypercentile REAL,\n"
-				+ "	buyavg REAL,\n"
-				+ "	buymedian REAL,\n"
-				+ "	buymin REAL,\n"
-				+ "	UNIQUE(typeid, date)\n"
-				+ ");";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement()) {
-			statement.execute(sql);
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
+	private void createPriceDataMovedTable() {
+		execute("CREATE TABLE IF NOT EXISTS " + PRICEDATA_MOVED_TABLE + " (\n"
+				+ "	date TEXT\n"
+				+ ");");
+		execute("INSERT INTO " + PRICEDATA_MOVED_TABLE + " (date) VALUES ('" + DATE.format(new Date()) + "');");
+	}
+
+	/**
+	 * Range queries by typeid and date use the UNIQUE(typeid, date) index.
+	 * Queries by date only need their own index.
+	 */
+	private void createIndexes() {
+		execute("CREATE INDEX IF NOT EXISTS " + ZKILLBOARD_TABLE + "_date ON " + ZKILLBOARD_TABLE + " (date);");
+	}
+
+	private void execute(final String sql) {
+		getDatabase().writeAndWait(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				connection.execute(sql);
+			}
+		});
 	}
 
 	private boolean tableZKillboardExist() {
@@ -469,17 +430,11 @@ public class PriceHistoryDatabase {
 		return tableExist(PRICEDATA_TABLE);
 	}
 
+	private boolean tablePriceDataMovedExist() {
+		return tableExist(PRICEDATA_MOVED_TABLE);
+	}
+
 	public static boolean tableExist(String tableName) {
-		String sql = "SELECT name FROM sqlite_master WHERE type='table' AND name='" + tableName + "'";
-		try (Connection connection = DriverManager.getConnection(connectionUrl);
-				Statement statement = connection.createStatement();
-				ResultSet rs = statement.executeQuery(sql)) {
-			while (rs.next()) {
-				return true;
-			}
-		} catch (SQLException ex) {
-			LOG.error(ex.getMessage(), ex);
-		}
-		return false;
+		return getDatabase().tableExist(tableName);
 	}
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.data.settings;
+
+import java.util.Arrays;
+
+/**
+ * Price history of a single item, ordered by date.
+ * Stored as parallel primitive arrays, to avoid an object per day.
+ */
+public class PriceHistorySeries {
+
+	private long[] dates = new long[16];
+	private double[] prices = new double[16];
+	private int size = 0;
+
+	/**
+	 * Add a price.
+	 * Must be added in date order.
+	 * @param date time in milliseconds
+	 * @param price
+	 */
+	public void add(long date, double price) {
+		if (size == dates.length) {
+			dates = Arrays.copyOf(dates, size * 2);
+			prices = Arrays.copyOf(prices, size * 2);
+		}
+		dates[size] = date;
+		prices[size] = price;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getDate(int index) {
+		return dates[index];
+	}
+
+	public double getPrice(int index) {
+		return prices[index];
+	}
+}
@@ -61,6 +61,8 @@ import net.nikr.eve.jeveasset.i18n.DialoguesSettings;
 import net.nikr.eve.jeveasset.i18n.TabsJobs;
 import net.nikr.eve.jeveasset.i18n.TabsOrders;
 import net.nikr.eve.jeveasset.i18n.TabsTransaction;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler.SaveTarget;
 import net.nikr.eve.jeveasset.io.local.SettingsReader;
 import net.nikr.eve.jeveasset.io.local.SettingsWriter;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
@@ -97,6 +99,34 @@ public class Settings {
 		FLAG_SAVE_MINING_HISTORY
 	}
 
+	/**
+	 * Large parts of the settings, that are saved in their own file.
+	 * Only sections that have changed since the last save are written.
+	 */
+	public static enum SettingsSection {
+		STOCKPILES("stockpiles"),
+		USER_PRICES("userprices"),
+		USER_ITEM_NAMES("itemnames"),
+		EVE_NAMES("evenames"),
+		OWNERS("owners"),
+		;
+
+		private final String name;
+
+		private SettingsSection(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Get the section file next to the settings file.
+		 * @param settingsFilename settings.xml path
+		 * @return settings_[section].xml path
+		 */
+		public String getFilename(String settingsFilename) {
+			return settingsFilename.substring(0, settingsFilename.lastIndexOf(".")) + "_" + name + ".xml";
+		}
+	}
+
 	public static enum TransactionProfitPrice {
 		LASTEST() {
 			@Override
@@ -135,9 +165,6 @@ public class Settings {
 	private static Settings settings;
 	private static boolean testMode = false;
 
-//External
-	//Price						Saved by PriceDataGetter.process() in pricedata.dat (on api update)
-	private Map<Integer, PriceData> priceDatas = new HashMap<>(); //TypeID : int
 //API Data
 	//Api id to owner name		Saved by TaskDialog.update() (on API update)
 	private final Map<Long, Date> ownersNextUpdate = new HashMap<>();
@@ -175,12 +202,15 @@ public class Settings {
 	private final Map<String, Set<Integer>> priceHistorySets = new HashMap<>();
 //Runtime flags					Is not saved to file
 	private boolean settingsLoadError = false;
+	//Content hash of the sections, as last saved
+	private final Map<SettingsSection, String> sectionHashes = new EnumMap<>(SettingsSection.class);
 //Settings Dialog:				Saved by SettingsDialog.save()
 	//Lock OK
 	//Mixed boolean flags
 	private final Map<SettingFlag, Boolean> flags = new EnumMap<>(SettingFlag.class);
 	//Price
 	private PriceDataSettings priceDataSettings = new PriceDataSettings();
+	private int priceRefreshBudget = 0; //Max types to refresh per price update (0 = all)
 	//Proxy (API)
 	private ProxyData proxyData = new ProxyData();
 	//FIXME - - > Settings: Create windows settings
@@ -340,20 +370,8 @@ public class Settings {
 		LOCK.unlock(msg);
 	}
 
-	public static boolean ignoreSave() {
-		return LOCK.ignoreSave();
-	}
-
 	public static void waitForEmptySaveQueue() {
-		LOCK.waitForEmptySaveQueue();
-	}
-
-	public static void saveStart() {
-		LOCK.saveStart();
-	}
-
-	public static void saveEnd() {
-		LOCK.saveEnd();
+		SaveScheduler.get().waitFor(SaveTarget.SETTINGS);
 	}
 
 	public synchronized static void load() {
@@ -413,6 +431,19 @@ public class Settings {
 		this.priceDataSettings = priceDataSettings;
 	}
 
+	/**
+	 * Max number of types to refresh per price update.
+	 * Types without price data are always updated.
+	 * @return max types or 0 for no limit
+	 */
+	public int getPriceRefreshBudget() {
+		return priceRefreshBudget;
+	}
+
+	public void setPriceRefreshBudget(final int priceRefreshBudget) {
+		this.priceRefreshBudget = priceRefreshBudget;
+	}
+
 	public Map<Integer, UserItem<Integer, Double>> getUserPrices() {
 		return userPrices;
 	}
@@ -429,10 +460,6 @@ public class Settings {
 		this.userNames = userItemNames;
 	}
 
-	public void setPriceData(final Map<Integer, PriceData> priceData) {
-		this.priceDatas = priceData;
-	}
-
 	public Map<Long, String> getEveNames() {
 		return eveNames;
 	}
@@ -441,8 +468,12 @@ public class Settings {
 		this.eveNames = eveNames;
 	}
 
-	public Map<Integer, PriceData> getPriceData() {
-		return priceDatas;
+	public synchronized String getSectionHash(SettingsSection section) {
+		return sectionHashes.get(section);
+	}
+
+	public synchronized void setSectionHash(SettingsSection section, String hash) {
+		sectionHashes.put(section, hash);
 	}
 
 	public Map<SettingFlag, Boolean> getFlags() {
@@ -983,23 +1014,6 @@ public class Settings {
 	private static class SettingsLock {
 
 		private boolean locked = false;
-		private final SettingsQueue settingsQueue = new SettingsQueue();
-
-		public boolean ignoreSave() {
-			return settingsQueue.ignoreSave();
-		}
-
-		public void saveStart() {
-			settingsQueue.saveStart();
-		}
-
-		public void saveEnd() {
-			settingsQueue.saveEnd();
-		}
-
-		public void waitForEmptySaveQueue() {
-			settingsQueue.waitForEmptySaveQueue();
-		}
 
 		public synchronized void lock(String msg) {
 			while (locked) {
@@ -1020,36 +1034,6 @@ public class Settings {
 		}
 	}
 
-	private static class SettingsQueue {
-
-		private short savesQueue = 0;
-
-		public synchronized boolean ignoreSave() {
-			LOG.debug("Save Queue: " + savesQueue + " ignore: " + (savesQueue > 1));
-			return savesQueue > 1;
-		}
-
-		public synchronized void saveStart() {
-			this.savesQueue++;
-			notifyAll();
-		}
-
-		public synchronized void saveEnd() {
-			this.savesQueue--;
-			notifyAll();
-		}
-
-		public synchronized void waitForEmptySaveQueue() {
-			while (savesQueue > 0) {
-				try {
-					wait();
-				} catch (InterruptedException ex) {
-
-				}
-			}
-		}
-	}
-
 	private static class EmptySettingsFactory implements SettingsFactory {
 		@Override
 		public Settings create() {
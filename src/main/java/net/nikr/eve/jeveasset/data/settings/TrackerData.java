@@ -23,13 +23,17 @@ package net.nikr.eve.jeveasset.data.settings;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.nikr.eve.jeveasset.CliOptions;
 import net.nikr.eve.jeveasset.gui.tabs.values.Value;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler.SaveTarget;
 import net.nikr.eve.jeveasset.io.local.TrackerDataReader;
-import net.nikr.eve.jeveasset.io.local.TrackerDataWriter;
+import net.nikr.eve.jeveasset.io.local.TrackerDataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,8 +43,23 @@ public class TrackerData {
 	private static final Logger LOG = LoggerFactory.getLogger(TrackerData.class);
 	private static final Map<String, List<Value>> TRACKER_DATA = new HashMap<String, List<Value>>(); //ownerID :: long
 	private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
-	private static final Object SAVE_QUEUE_SYNC = new Object();
-	private static Integer SAVE_QUEUE = 0;
+	private static final SaveScheduler.Saver SAVER = new SaveScheduler.Saver() {
+		@Override
+		public void save(String msg) {
+			LOG.info("Saving tracker data: " + msg);
+			TrackerData.readLock();
+			try {
+				saveChanges();
+			} finally {
+				TrackerData.readUnlock();
+			}
+		}
+	};
+	//Changes since last save (guarded by LOCK and STORE_SYNC)
+	private static final Object STORE_SYNC = new Object();
+	private static final Map<String, List<Value>> APPENDED = new HashMap<>();
+	private static final Set<String> CHANGED = new HashSet<>();
+	private static boolean CHANGED_ALL = false;
 
 	public static void readLock() {
 		LOCK.readLock().lock();
@@ -59,20 +78,34 @@ public class TrackerData {
 	}
 
 	public static void waitForEmptySaveQueue() {
-		while (!saveQueueEmpty()) {
-			synchronized(SAVE_QUEUE_SYNC) {
-				try {
-					SAVE_QUEUE_SYNC.wait();
-				} catch (InterruptedException ex) {
-					//No problem
-				}
-			}
-		}
+		SaveScheduler.get().waitFor(SaveTarget.TRACKER);
 	}
 
 	public static void load() {
-		Map<String, List<Value>> trackerData = TrackerDataReader.load();
-		TrackerData.set(trackerData);
+		TrackerDataStore store = TrackerDataStore.get();
+		Map<String, List<Value>> trackerData = store.load();
+		boolean convert = false;
+		if (trackerData == null) { //Convert tracker.json
+			trackerData = TrackerDataReader.load();
+			convert = trackerData != null;
+		}
+		if (trackerData != null) {
+			try {
+				LOCK.writeLock().lock();
+				TRACKER_DATA.clear();
+				TRACKER_DATA.putAll(trackerData);
+				APPENDED.clear();
+				CHANGED.clear();
+				CHANGED_ALL = convert;
+			} finally {
+				LOCK.writeLock().unlock();
+			}
+		}
+		if (convert) {
+			save("Converted");
+		} else if (store.isCompactNeeded()) {
+			save("Compact");
+		}
 	}
 
 	public static void save(String msg) {
@@ -80,18 +113,10 @@ public class TrackerData {
 	}
 
 	public static void save(String msg, boolean wait) {
-		if (saveQueueIgnore()) {
-			return;
-		}
-		saveQueueAdd();
-		Save save = new Save(msg);
-		save.start();
 		if (wait) {
-			try {
-				save.join();
-			} catch (InterruptedException ex) {
-				//No problem
-			}
+			SaveScheduler.get().saveAndWait(SaveTarget.TRACKER, msg, SAVER);
+		} else {
+			SaveScheduler.get().save(SaveTarget.TRACKER, msg, SAVER);
 		}
 	}
 
@@ -111,6 +136,12 @@ public class TrackerData {
 				TRACKER_DATA.put(owner, list);
 			}
 			list.add(add);
+			List<Value> appended = APPENDED.get(owner);
+			if (appended == null) {
+				appended = new ArrayList<>();
+				APPENDED.put(owner, appended);
+			}
+			appended.add(add);
 		} finally {
 			LOCK.writeLock().unlock();
 		}
@@ -120,6 +151,7 @@ public class TrackerData {
 		try {
 			LOCK.writeLock().lock();
 			TRACKER_DATA.putAll(trackerData);
+			CHANGED.addAll(trackerData.keySet());
 		} finally {
 			LOCK.writeLock().unlock();
 		}
@@ -133,6 +165,38 @@ public class TrackerData {
 			LOCK.writeLock().lock();
 			TRACKER_DATA.clear();
 			TRACKER_DATA.putAll(trackerData);
+			CHANGED_ALL = true;
+		} finally {
+			LOCK.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Must be called when a value have been edited.
+	 * @param edited the edited value
+	 */
+	public static void edited(Value edited) {
+		try {
+			LOCK.writeLock().lock();
+			for (Map.Entry<String, List<Value>> entry : TRACKER_DATA.entrySet()) {
+				for (Value value : entry.getValue()) {
+					if (value == edited) {
+						CHANGED.add(entry.getKey());
+					}
+				}
+			}
+		} finally {
+			LOCK.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Must be called when all values may have been edited.
+	 */
+	public static void editedAll() {
+		try {
+			LOCK.writeLock().lock();
+			CHANGED_ALL = true;
 		} finally {
 			LOCK.writeLock().unlock();
 		}
@@ -147,6 +211,7 @@ public class TrackerData {
 				if (values.isEmpty()) { //Remove empty list
 					TRACKER_DATA.remove(owner);
 				}
+				CHANGED.add(owner);
 			}
 		} finally {
 			LOCK.writeLock().unlock();
@@ -162,51 +227,36 @@ public class TrackerData {
 				if (values.isEmpty()) { //Remove empty list
 					TRACKER_DATA.remove(owner);
 				}
+				CHANGED.add(owner);
 			}
 		} finally {
 			LOCK.writeLock().unlock();
 		}
 	}
 
-	private synchronized static boolean saveQueueIgnore() {
-		return SAVE_QUEUE > 1;
-	}
-
-	private synchronized static void saveQueueAdd() {
-		SAVE_QUEUE++;
-		synchronized(SAVE_QUEUE_SYNC) {
-			SAVE_QUEUE_SYNC.notifyAll();
-		}
-	}
-
-	private synchronized static void saveQueueRemove() {
-		SAVE_QUEUE--;
-		synchronized(SAVE_QUEUE_SYNC) {
-			SAVE_QUEUE_SYNC.notifyAll();
-		}
-	}
-
-	private synchronized static boolean saveQueueEmpty() {
-		return SAVE_QUEUE == 0;
-	}
-
-	private static class Save extends Thread {
-		private final String msg;
-
-		public Save(String msg) {
-			this.msg = msg;
-		}
-
-		@Override
-		public void run() {
-			long before = System.currentTimeMillis();
-
-			LOG.info("Saving tracker data: " + msg);
-			TrackerData.readLock();
-			TrackerDataWriter.save();
-			TrackerData.readUnlock();
-			saveQueueRemove();
-			LOG.debug("Tracker data saved in: " + (System.currentTimeMillis() - before) + "ms");
+	/**
+	 * Save the changes since last save.
+	 * New values are appended to the log, owners with other changes are rewritten.
+	 * Must be called with the read lock held.
+	 */
+	private static void saveChanges() {
+		synchronized (STORE_SYNC) {
+			TrackerDataStore store = TrackerDataStore.get();
+			boolean saved;
+			if (CHANGED_ALL || !store.exists()) {
+				saved = store.save(TRACKER_DATA);
+			} else {
+				saved = store.write(TRACKER_DATA, CHANGED);
+				Map<String, List<Value>> appended = new HashMap<>(APPENDED);
+				appended.keySet().removeAll(CHANGED); //Already saved
+				saved = store.append(appended) && saved;
+				if (saved && store.isCompactNeeded()) {
+					saved = store.compact(TRACKER_DATA);
+				}
+			}
+			APPENDED.clear();
+			CHANGED.clear();
+			CHANGED_ALL = !saved; //Save everything next time
 		}
 	}
 }
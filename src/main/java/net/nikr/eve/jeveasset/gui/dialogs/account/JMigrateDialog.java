@@ -362,6 +362,7 @@ public class JMigrateDialog extends JDialogCentered {
 			esiOwner.getJournal().addAll(owner.getJournal());
 			//Transactions
 			esiOwner.getTransactions().addAll(owner.getTransactions());
+			esiOwner.setDataChanged();
 		//Clear data
 			owner.setAccountBalances(new ArrayList<MyAccountBalance>());
 			owner.setAssets(new ArrayList<MyAsset>());
@@ -45,6 +45,7 @@ import net.nikr.eve.jeveasset.data.api.accounts.EveKitOwner;
 import net.nikr.eve.jeveasset.data.api.accounts.OwnerType;
 import net.nikr.eve.jeveasset.data.profile.ProfileData;
 import net.nikr.eve.jeveasset.data.profile.ProfileManager;
+import net.nikr.eve.jeveasset.data.settings.PriceData;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.gui.images.Images;
 import net.nikr.eve.jeveasset.gui.shared.Formatter;
@@ -73,7 +74,10 @@ import net.nikr.eve.jeveasset.io.esi.EsiShipGetter;
 import net.nikr.eve.jeveasset.io.esi.EsiSkillGetter;
 import net.nikr.eve.jeveasset.io.esi.EsiTransactionsGetter;
 import net.nikr.eve.jeveasset.io.online.PriceDataGetter;
-import net.nikr.eve.jeveasset.io.shared.ThreadWoker;
+import net.nikr.eve.jeveasset.io.online.PriceDataGetter.PriceBatchListener;
+import net.nikr.eve.jeveasset.io.shared.UpdateGraph;
+import net.nikr.eve.jeveasset.io.shared.UpdateGraph.Node;
+import net.nikr.eve.jeveasset.io.shared.UpdateGraph.NodeFactory;
 
 
 public class UpdateDialog extends JDialogCentered {
@@ -620,8 +624,7 @@ public class UpdateDialog extends JDialogCentered {
 						|| jTransactions.isSelected()
 						|| jSkills.isSelected()
 						) {
-					updateTasks.add(new Step1Task(program.getProfileManager()));
-					updateTasks.add(new Step2Task(program.getProfileManager(),
+					updateTasks.add(new EsiUpdateTask(program.getProfileManager(),
 							jAssets.isSelected(),
 							jAccountBalance.isSelected(),
 							jBlueprints.isSelected(),
@@ -633,14 +636,14 @@ public class UpdateDialog extends JDialogCentered {
 							jMining.isSelected(),
 							jTransactions.isSelected(),
 							jSkills.isSelected()));
-					updateTasks.add(new Step3Task(program.getProfileManager(),
-							jAssets.isSelected()));
-				}
-				if (jContracts.isSelected()) {
-					updateTasks.add(new Step4Task(program.getProfileManager()));
 				}
 				if (jPriceDataAll.isSelected() || jPriceDataNew.isSelected()) {
-					updateTasks.add(new PriceDataTask(program.getPriceDataGetter(), program.getProfileData(), jPriceDataAll.isSelected()));
+					updateTasks.add(new PriceDataTask(program.getPriceDataGetter(), program.getProfileData(), jPriceDataAll.isSelected(), new PriceBatchListener() {
+						@Override
+						public void batchUpdated(Map<Integer, PriceData> prices) {
+							program.updatePricesLater(prices.keySet());
+						}
+					}));
 				}
 				if (!updateTasks.isEmpty()) {
 					//Pause structure update
@@ -689,46 +692,7 @@ public class UpdateDialog extends JDialogCentered {
 		}
 	}
 
-	public static class Step1Task extends UpdateTask {
-
-		private final ProfileManager profileManager;
-
-		public Step1Task(final ProfileManager profileManager) {
-			super(DialoguesUpdate.get().step1());
-			this.profileManager = profileManager;
-		}
-
-		@Override
-		public void update() {
-			setIcon(null);
-			for (EveApiAccount account : profileManager.getAccounts()) {
-				for (EveApiOwner eveApiOwner : account.getOwners()) {
-					if (eveApiOwner.canMigrate()) {
-						addError("EveApi accounts must be migrated to ESI", "Add ESI accounts in the account manager:\r\nOptions > Accounts... > Add > ESI");
-						break;
-					} else {
-						addError("Migrated EveApi accounts can safely be deleted", "Delete EveApi accounts in the account manager:\r\nOptions > Accounts... > Edit");
-					}
-				}
-			}
-			for (EveKitOwner eveKitOwner : profileManager.getEveKitOwners()) {
-				if (eveKitOwner.canMigrate()) {
-					addError("EveKit accounts must be migrated to ESI", "Add ESI accounts in the account manager:\r\nOptions > Accounts... > Add > ESI");
-					break;
-				} else {
-					addError("Migrated EveKit accounts can safely be deleted", "Delete EveApi accounts in the account manager:\r\nOptions > Accounts... > Edit");
-				}
-			}
-			//Esi
-			List<Runnable> updates = new ArrayList<>();
-			for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
-				updates.add(new EsiOwnerGetter(this, esiOwner));
-			}
-			ThreadWoker.start(this, updates);
-		}
-	}
-
-	public static class Step2Task extends UpdateTask {
+	public static class EsiUpdateTask extends UpdateTask {
 
 		private final ProfileManager profileManager;
 		private final boolean assets;
@@ -742,8 +706,9 @@ public class UpdateDialog extends JDialogCentered {
 		private final boolean mining;
 		private final boolean transactions;
 		private final boolean skills;
+		private final Map<EsiOwner, Date> assetNextUpdate = new HashMap<>();
 
-		public Step2Task(final ProfileManager profileManager,
+		public EsiUpdateTask(final ProfileManager profileManager,
 								final boolean assets,
 								final boolean accountBalance,
 								final boolean blueprints,
@@ -755,7 +720,7 @@ public class UpdateDialog extends JDialogCentered {
 								final boolean mining,
 								final boolean transactions,
 								final boolean skills) {
-			super(DialoguesUpdate.get().step2());
+			super(DialoguesUpdate.get().esi());
 			this.profileManager = profileManager;
 			this.assets = assets;
 			this.accountBalance = accountBalance;
@@ -768,110 +733,196 @@ public class UpdateDialog extends JDialogCentered {
 			this.mining = mining;
 			this.transactions = transactions;
 			this.skills = skills;
+			for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
+				assetNextUpdate.put(esiOwner, esiOwner.getAssetNextUpdate());
+			}
 		}
 
 		@Override
 		public void update() {
 			setIcon(null);
+			for (EveApiAccount account : profileManager.getAccounts()) {
+				for (EveApiOwner eveApiOwner : account.getOwners()) {
+					if (eveApiOwner.canMigrate()) {
+						addError("EveApi accounts must be migrated to ESI", "Add ESI accounts in the account manager:\r\nOptions > Accounts... > Add > ESI");
+						break;
+					} else {
+						addError("Migrated EveApi accounts can safely be deleted", "Delete EveApi accounts in the account manager:\r\nOptions > Accounts... > Edit");
+					}
+				}
+			}
+			for (EveKitOwner eveKitOwner : profileManager.getEveKitOwners()) {
+				if (eveKitOwner.canMigrate()) {
+					addError("EveKit accounts must be migrated to ESI", "Add ESI accounts in the account manager:\r\nOptions > Accounts... > Add > ESI");
+					break;
+				} else {
+					addError("Migrated EveKit accounts can safely be deleted", "Delete EveApi accounts in the account manager:\r\nOptions > Accounts... > Edit");
+				}
+			}
 			//Esi
-			List<Runnable> updates = new ArrayList<>();
-			for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
+			final UpdateTask updateTask = this;
+			UpdateGraph graph = new UpdateGraph();
+			List<Node> dataNodes = new ArrayList<>(); //Owner data used by the ID to Name update
+			List<Node> contractNodes = new ArrayList<>(); //Contracts used by the contract items update
+			Map<EsiOwner, Node> ownerNodes = new HashMap<>();
+			for (final EsiOwner esiOwner : profileManager.getEsiOwners()) {
+				final String name = esiOwner.getOwnerName();
+				//Account (roles and scopes) before everything else of the owner
+				Node ownerNode = graph.add(name + ": Account", new NodeFactory() {
+					@Override
+					public Runnable create() {
+						return new EsiOwnerGetter(updateTask, esiOwner);
+					}
+				});
+				ownerNodes.put(esiOwner, ownerNode);
+				dataNodes.add(ownerNode);
 				if (accountBalance) {
-					updates.add(new EsiAccountBalanceGetter(this, esiOwner));
+					dataNodes.add(graph.add(name + ": Account Balance", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiAccountBalanceGetter(updateTask, esiOwner);
+						}
+					}, ownerNode));
 				}
 				if (assets) {
-					updates.add(new EsiAssetsGetter(this, esiOwner));
+					Node assetsNode = graph.add(name + ": Assets", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiAssetsGetter(updateTask, esiOwner);
+						}
+					}, ownerNode);
+					dataNodes.add(assetsNode);
 					if (esiOwner.isCorporation()) {
-						updates.add(new EsiDivisionsGetter(this, esiOwner));
+						dataNodes.add(graph.add(name + ": Divisions", new NodeFactory() {
+							@Override
+							public Runnable create() {
+								return new EsiDivisionsGetter(updateTask, esiOwner);
+							}
+						}, ownerNode));
 					}
+					//Locations, ship and planetary assets are added to the assets
+					graph.add(name + ": Locations", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiLocationsGetter(updateTask, esiOwner);
+						}
+					}, assetsNode);
+					graph.add(name + ": Active Ship", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiShipGetter(updateTask, esiOwner, assetNextUpdate.getOrDefault(esiOwner, Settings.getNow()));
+						}
+					}, assetsNode);
+					graph.add(name + ": Planetary Assets", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiPlanetaryInteractionGetter(updateTask, esiOwner, assetNextUpdate.getOrDefault(esiOwner, Settings.getNow()));
+						}
+					}, assetsNode);
 				}
 				if (industryJobs) {
-					updates.add(new EsiIndustryJobsGetter(this, esiOwner));
+					dataNodes.add(graph.add(name + ": Industry Jobs", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiIndustryJobsGetter(updateTask, esiOwner);
+						}
+					}, ownerNode));
 				}
 				if (mining) {
-					updates.add(new EsiMiningGetter(this, esiOwner, Settings.get().isMiningHistory()));
+					dataNodes.add(graph.add(name + ": Mining", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiMiningGetter(updateTask, esiOwner, Settings.get().isMiningHistory());
+						}
+					}, ownerNode));
 				}
 				if (marketOrders) {
-					updates.add(new EsiMarketOrdersGetter(this, esiOwner, Settings.get().isMarketOrderHistory()));
+					dataNodes.add(graph.add(name + ": Market Orders", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiMarketOrdersGetter(updateTask, esiOwner, Settings.get().isMarketOrderHistory());
+						}
+					}, ownerNode));
 				}
 				if (journal) {
-					updates.add(new EsiJournalGetter(this, esiOwner, Settings.get().isJournalHistory()));
+					dataNodes.add(graph.add(name + ": Journal", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiJournalGetter(updateTask, esiOwner, Settings.get().isJournalHistory());
+						}
+					}, ownerNode));
 				}
 				if (transactions) {
-					updates.add(new EsiTransactionsGetter(this, esiOwner, Settings.get().isTransactionHistory()));
+					dataNodes.add(graph.add(name + ": Transactions", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiTransactionsGetter(updateTask, esiOwner, Settings.get().isTransactionHistory());
+						}
+					}, ownerNode));
 				}
 				if (contracts) {
-					updates.add(new EsiContractsGetter(this, esiOwner, Settings.get().isContractHistory()));
+					Node contractsNode = graph.add(name + ": Contracts", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiContractsGetter(updateTask, esiOwner, Settings.get().isContractHistory());
+						}
+					}, ownerNode);
+					dataNodes.add(contractsNode);
+					contractNodes.add(contractsNode);
 				}
 				if (blueprints) {
-					updates.add(new EsiBlueprintsGetter(this, esiOwner));
+					dataNodes.add(graph.add(name + ": Blueprints", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiBlueprintsGetter(updateTask, esiOwner);
+						}
+					}, ownerNode));
 				}
 				if (bookmarks) {
-					updates.add(new EsiBookmarksGetter(this, esiOwner));
+					dataNodes.add(graph.add(name + ": Bookmarks", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiBookmarksGetter(updateTask, esiOwner);
+						}
+					}, ownerNode));
 				}
 				if (skills) {
-					updates.add(new EsiSkillGetter(this, esiOwner));
+					dataNodes.add(graph.add(name + ": Skills", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiSkillGetter(updateTask, esiOwner);
+						}
+					}, ownerNode));
 				}
 			}
-			ThreadWoker.start(this, updates);
-		}
-	}
-
-	public static class Step3Task extends UpdateTask {
-
-		private final ProfileManager profileManager;
-		private final boolean assets;
-		private final Map<EsiOwner, Date> assetNextUpdate = new HashMap<>();
-
-		public Step3Task(final ProfileManager profileManager, final boolean assets) {
-			super(DialoguesUpdate.get().step3());
-			this.profileManager = profileManager;
-			this.assets = assets;
-			for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
-				assetNextUpdate.put(esiOwner, esiOwner.getAssetNextUpdate());
-			}
-		}
-
-		@Override
-		public void update() {
-			setIcon(null);
-			List<Runnable> updates = new ArrayList<>();
-			//Locations
-			if (assets) {
-				//Esi
-				for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
-					updates.add(new EsiLocationsGetter(this, esiOwner));
-					updates.add(new EsiShipGetter(this, esiOwner, assetNextUpdate.getOrDefault(esiOwner, Settings.getNow())));
-					updates.add(new EsiPlanetaryInteractionGetter(this, esiOwner, assetNextUpdate.getOrDefault(esiOwner, Settings.getNow())));
+			graph.add("Faction Warfare", new NodeFactory() {
+				@Override
+				public Runnable create() {
+					return new EsiFactionWarfareGetter(updateTask);
 				}
-			}
-			updates.add(new EsiFactionWarfareGetter(this));
+			});
 			//char/corp/alliance IDs to names (ESI)
-			updates.add(new EsiNameGetter(this, profileManager.getOwnerTypes()));
-			ThreadWoker.start(this, updates);
-		}
-	}
-
-	public static class Step4Task extends UpdateTask {
-
-		private final ProfileManager profileManager;
-
-		public Step4Task(final ProfileManager profileManager) {
-			super(DialoguesUpdate.get().step4());
-			this.profileManager = profileManager;
-		}
-
-		@Override
-		public void update() {
-			setIcon(null);
-			//Contract Items
-			//Esi
-			List<Runnable> updates = new ArrayList<>();
-			EsiContractItemsGetter.reset();
-			for (EsiOwner esiOwner : profileManager.getEsiOwners()) {
-				updates.add(new EsiContractItemsGetter(this, esiOwner, profileManager.getEsiOwners()));
+			graph.add("IDs to Names", new NodeFactory() {
+				@Override
+				public Runnable create() {
+					return new EsiNameGetter(updateTask, profileManager.getOwnerTypes());
+				}
+			}, dataNodes);
+			//Contract Items (contracts are shared between owners, so, all contracts must be updated first)
+			if (contracts) {
+				EsiContractItemsGetter.reset();
+				for (final EsiOwner esiOwner : profileManager.getEsiOwners()) {
+					List<Node> dependencies = new ArrayList<>(contractNodes);
+					dependencies.add(ownerNodes.get(esiOwner));
+					graph.add(esiOwner.getOwnerName() + ": Contract Items", new NodeFactory() {
+						@Override
+						public Runnable create() {
+							return new EsiContractItemsGetter(updateTask, esiOwner, profileManager.getEsiOwners());
+						}
+					}, dependencies);
+				}
 			}
-			ThreadWoker.start(this, updates, false);
+			graph.run(this);
 		}
 	}
 
@@ -880,21 +931,27 @@ public class UpdateDialog extends JDialogCentered {
 		private final PriceDataGetter priceDataGetter;
 		private final ProfileData profileData;
 		private final boolean update;
+		private final PriceBatchListener listener;
 
 		public PriceDataTask(final PriceDataGetter priceDataGetter, final ProfileData profileData, final boolean update) {
+			this(priceDataGetter, profileData, update, null);
+		}
+
+		public PriceDataTask(final PriceDataGetter priceDataGetter, final ProfileData profileData, final boolean update, final PriceBatchListener listener) {
 			super(DialoguesUpdate.get().priceData() + " (" + (Settings.get().getPriceDataSettings().getSource().toString()) + ")");
 			this.priceDataGetter = priceDataGetter;
 			this.profileData = profileData;
 			this.update = update;
+			this.listener = listener;
 		}
 
 		@Override
 		public void update() {
 			setIcon(Settings.get().getPriceDataSettings().getSource().getIcon());
 			if (update) {
-				priceDataGetter.updateAll(profileData, this);
+				priceDataGetter.updateAll(profileData, this, listener);
 			} else {
-				priceDataGetter.updateNew(profileData, this);
+				priceDataGetter.updateNew(profileData, this, listener);
 			}
 		}
 	}
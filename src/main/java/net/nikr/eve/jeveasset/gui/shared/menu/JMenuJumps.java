@@ -23,13 +23,12 @@ package net.nikr.eve.jeveasset.gui.shared.menu;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 import javax.swing.JMenuItem;
 import net.nikr.eve.jeveasset.Program;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
 import net.nikr.eve.jeveasset.data.sde.RouteFinder;
+import net.nikr.eve.jeveasset.data.sde.RouteFinder.Distances;
 import net.nikr.eve.jeveasset.data.sde.StaticData;
 import net.nikr.eve.jeveasset.data.settings.types.LocationType;
 import net.nikr.eve.jeveasset.gui.images.Images;
@@ -133,7 +132,7 @@ public class JMenuJumps<T extends Enum<T> & EnumTableColumn<Q>, Q> extends JAuto
 
 	public static class Jump {
 		private final MyLocation from;
-		private final Map<Object, Integer> jumps = new HashMap<>();
+		private Distances distances;
 		private Integer index;
 
 		public Jump(MyLocation from) {
@@ -162,22 +161,24 @@ public class JMenuJumps<T extends Enum<T> & EnumTableColumn<Q>, Q> extends JAuto
 			if (systemID <= 0) {
 				return null;
 			}
-			Integer distanceBetween = RouteFinder.get().distanceBetween(getSystemID(), systemID);
-			jumps.put(locationType, distanceBetween);
-			return distanceBetween;
+			return getDistances().get(systemID);
 		}
 
 		public Integer getJumps(Object object) {
-			Integer count = jumps.get(object);
-			if (count != null) {
-				return count;
-			} if (object instanceof LocationType) {
+			if (object instanceof LocationType) {
 				return addJump((LocationType) object);
 			} else {
 				return null;
 			}
 		}
 
+		private synchronized Distances getDistances() {
+			if (distances == null) {
+				distances = RouteFinder.get().getDistances(getSystemID()); //Shared with other tables using the same system
+			}
+			return distances;
+		}
+
 		public Integer getIndex() {
 			return index;
 		}
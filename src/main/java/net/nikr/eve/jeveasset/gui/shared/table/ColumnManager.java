@@ -41,6 +41,7 @@ import javax.swing.event.TableColumnModelEvent;
 import javax.swing.event.TableColumnModelListener;
 import net.nikr.eve.jeveasset.Program;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
+import net.nikr.eve.jeveasset.data.sde.RouteFinder;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.data.settings.types.LocationType;
 import net.nikr.eve.jeveasset.gui.shared.filter.FilterControl;
@@ -249,6 +250,7 @@ public class ColumnManager<T extends Enum<T> & EnumTableColumn<Q>, Q> implements
 		Settings.lock("Jumps (remove)");
 		Settings.get().getTableJumps(toolName).remove(remove);
 		Settings.unlock("Jumps (remove)");
+		retainJumpsData();
 		program.saveSettings("Jumps (remove)");
 	}
 
@@ -331,6 +333,7 @@ public class ColumnManager<T extends Enum<T> & EnumTableColumn<Q>, Q> implements
 		Settings.lock("Jumps (clear)");
 		Settings.get().getTableJumps(toolName).clear();
 		Settings.unlock("Jumps (clear)");
+		retainJumpsData();
 		program.saveSettings("Jumps (clear)");
 	}
 
@@ -378,6 +381,21 @@ public class ColumnManager<T extends Enum<T> & EnumTableColumn<Q>, Q> implements
 		}
 	}
 
+	/**
+	 * Release the jump distances of systems no longer used by any table.
+	 */
+	private void retainJumpsData() {
+		Set<Long> systemIDs = new HashSet<>();
+		Settings.lock("Jumps (retain)");
+		for (List<Jump> jumps : Settings.get().getTableJumps().values()) {
+			for (Jump jump : jumps) {
+				systemIDs.add(jump.getSystemID());
+			}
+		}
+		Settings.unlock("Jumps (retain)");
+		RouteFinder.get().retainDistances(systemIDs);
+	}
+
 	public static interface IndexColumn<Q> extends EnumTableColumn<Q> {
 		public Integer getIndex();
 		public void setIndex(Integer index);
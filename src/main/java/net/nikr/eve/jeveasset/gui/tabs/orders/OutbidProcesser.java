@@ -21,7 +21,9 @@
 package net.nikr.eve.jeveasset.gui.tabs.orders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,6 +40,10 @@ import net.nikr.eve.jeveasset.data.profile.ProfileData;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
 import net.nikr.eve.jeveasset.data.sde.RouteFinder;
 import net.nikr.eve.jeveasset.data.settings.Citadel;
+import net.nikr.eve.jeveasset.io.local.OrderBookSnapshot;
+import net.nikr.eve.jeveasset.io.local.OrderBookStore;
+import net.nikr.eve.jeveasset.io.local.OrderBookStore.OrderBook;
+import net.nikr.eve.jeveasset.io.local.OrderBookSnapshot.TypeBook;
 import net.nikr.eve.jeveasset.io.online.CitadelGetter;
 import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 import net.nikr.eve.jeveasset.io.shared.RawConverter;
@@ -53,6 +59,10 @@ public class OutbidProcesser {
 
 	private final OutbidProcesserInput input;
 	private final OutbidProcesserOutput output;
+	private final Map<Long, Integer> distances = new HashMap<>();
+	private int added = 0;
+	private int changed = 0;
+	private int removed = 0;
 
 	private OutbidProcesser(OutbidProcesserInput input, OutbidProcesserOutput output) {
 		this.input = input;
@@ -65,85 +75,244 @@ public class OutbidProcesser {
 	}
 
 	private void process() {
-		//Process order updates
-		for (RawPublicMarketOrder ordersResponse : input.getMarketOrders()) {
-			Set<MyMarketOrder> orders = input.getTypeIDs().get(ordersResponse.getTypeID());
-			if (orders != null) {
-				for (MyMarketOrder marketOrder : orders) {
-					if (isSameOrder(marketOrder, ordersResponse)) { //Orders to be updated
-						output.getUpdates().put(ordersResponse.getOrderID(), ordersResponse);
-					}
+		//Index our orders by type, buy/sell and region (only orders in the same bucket can match)
+		Map<Long, List<IndexedOrder>> buckets = new HashMap<>();
+		List<IndexedOrder> ownOrders = new ArrayList<>();
+		Set<Long> ownOrderIDs = new HashSet<>();
+		Set<Integer> unknownTypes = new HashSet<>();
+		for (Set<MyMarketOrder> orders : input.getTypeIDs().values()) {
+			for (MyMarketOrder marketOrder : orders) {
+				ownOrderIDs.add(marketOrder.getOrderID());
+				Long systemID = getSystemID(marketOrder.getLocationID());
+				MyLocation systemLocation = systemID != null ? ApiIdConverter.getLocation(systemID) : null;
+				if (systemLocation == null || systemLocation.isEmpty()) {
+					LOG.warn("Unknown market location ignored");
+					output.setUnknownLocations();
+					unknownTypes.add(marketOrder.getTypeID()); //Always process (the location may be known next time)
+					continue; //We can't work with unknown locations
+				}
+				IndexedOrder indexedOrder = new IndexedOrder(marketOrder, systemID);
+				ownOrders.add(indexedOrder);
+				long key = getBucket(marketOrder.getTypeID(), marketOrder.isBuyOrder(), systemLocation.getRegionID());
+				List<IndexedOrder> bucket = buckets.get(key);
+				if (bucket == null) {
+					bucket = new ArrayList<>();
+					buckets.put(key, bucket);
 				}
+				bucket.add(indexedOrder);
 			}
 		}
-		//Process outbid
-		for (RawPublicMarketOrder ordersResponse : input.getMarketOrders()) {
-			//Regions with data
-			MyLocation orderLocation = ApiIdConverter.getLocation(ordersResponse.getSystemID());
-			if (!orderLocation.isEmpty()) {
-				output.getRegionIDs().add(orderLocation.getRegionID());
+		//One pass over the public orders, by type (only the types we trade are kept)
+		//Types with the same book and the same orders as last time keep the last outbid results
+		OrderBookSnapshot snapshot = OrderBookSnapshot.get();
+		Map<Integer, Set<RawPublicMarketOrder>> marketOrders = input.getMarketOrdersByType();
+		Map<Integer, TypeBook> books = new HashMap<>();
+		Set<Integer> changedTypes = new HashSet<>();
+		Map<Integer, Long> systemToRegion = new HashMap<>();
+		for (Map.Entry<Integer, Set<MyMarketOrder>> entry : input.getTypeIDs().entrySet()) {
+			Integer typeID = entry.getKey();
+			Set<RawPublicMarketOrder> book = marketOrders.get(typeID);
+			if (book == null) {
+				book = Collections.emptySet();
 			}
-			Set<MyMarketOrder> orders = input.getTypeIDs().get(ordersResponse.getTypeID());
-			if (orders != null) {
-				//Orders to match
-				for (MyMarketOrder marketOrder : orders) {
-					if (isSameOrder(marketOrder, ordersResponse)) { //Orders to be updated
-						continue;
-					}
-					if (!isSameType(marketOrder, ordersResponse)) { //Both buy or both sell
-						continue;
+			TypeBook current = createBook(entry.getValue(), book);
+			TypeBook previous = snapshot.get(typeID);
+			diff(previous, current);
+			books.put(typeID, current);
+			boolean process = previous == null || previous.getSignature() != current.getSignature() || unknownTypes.contains(typeID);
+			if (process) {
+				changedTypes.add(typeID);
+			} else {
+				output.addSkippedType();
+				current.setOutbids(previous.getOutbids());
+				for (Map.Entry<Long, Outbid> outbid : previous.getOutbids().entrySet()) {
+					output.getOutbids().put(outbid.getKey(), new Outbid(outbid.getValue().getPrice(), outbid.getValue().getCount()));
+				}
+			}
+			for (RawPublicMarketOrder ordersResponse : book) {
+				//Orders to be updated
+				if (ownOrderIDs.contains(ordersResponse.getOrderID())) {
+					output.getUpdates().put(ordersResponse.getOrderID(), ordersResponse);
+				}
+				//Regions with data
+				Long regionID = systemToRegion.get(ordersResponse.getSystemID());
+				if (regionID == null && !systemToRegion.containsKey(ordersResponse.getSystemID())) {
+					MyLocation orderLocation = ApiIdConverter.getLocation(ordersResponse.getSystemID());
+					if (!orderLocation.isEmpty()) {
+						regionID = orderLocation.getRegionID();
+						output.getRegionIDs().add(regionID);
 					}
-					if (!isInRange(marketOrder, ordersResponse)) { //Order range overlap
+					systemToRegion.put(ordersResponse.getSystemID(), regionID);
+				}
+				if (!process) {
+					continue; //Unchanged
+				}
+				if (regionID == null) {
+					LOG.warn("Unknown market location ignored");
+					output.setUnknownLocations();
+					continue; //We can't work with unknown locations
+				}
+				//Orders to match: same type, both buy or both sell and same region
+				List<IndexedOrder> bucket = buckets.get(getBucket(ordersResponse.getTypeID(), ordersResponse.isBuyOrder(), regionID));
+				if (bucket == null) {
+					continue;
+				}
+				for (IndexedOrder indexedOrder : bucket) {
+					if (isSameOrder(indexedOrder.marketOrder, ordersResponse)) { //Orders to be updated
 						continue;
 					}
-					Outbid outbid = output.getOutbids().get(marketOrder.getOrderID());
-					if (outbid == null) {
-						outbid = new Outbid(ordersResponse);
-						output.getOutbids().put(marketOrder.getOrderID(), outbid);
+					if (isInRange(indexedOrder, ordersResponse)) { //Order range overlap
+						indexedOrder.matches.add(ordersResponse);
 					}
-					RawPublicMarketOrder rawPublicMarketOrder = output.getUpdates().get(marketOrder.getOrderID());
-					final double price;
-					final Date issued;
-					if (rawPublicMarketOrder != null) { //Updated price/issued
-						price = rawPublicMarketOrder.getPrice();
-						issued = rawPublicMarketOrder.getIssued();
-					} else { //Old price/issued (better than nothing)
-						price = marketOrder.getPrice();
-						issued = marketOrder.getIssued();
+				}
+			}
+		}
+		//Process outbid
+		for (IndexedOrder indexedOrder : ownOrders) {
+			MyMarketOrder marketOrder = indexedOrder.marketOrder;
+			RawPublicMarketOrder rawPublicMarketOrder = output.getUpdates().get(marketOrder.getOrderID());
+			final double price;
+			final Date issued;
+			if (rawPublicMarketOrder != null) { //Updated price/issued
+				price = rawPublicMarketOrder.getPrice();
+				issued = rawPublicMarketOrder.getIssued();
+			} else { //Old price/issued (better than nothing)
+				price = marketOrder.getPrice();
+				issued = marketOrder.getIssued();
+			}
+			for (RawPublicMarketOrder ordersResponse : indexedOrder.matches) {
+				Outbid outbid = output.getOutbids().get(marketOrder.getOrderID());
+				if (outbid == null) {
+					outbid = new Outbid(ordersResponse);
+					output.getOutbids().put(marketOrder.getOrderID(), outbid);
+				}
+				if (marketOrder.isBuyOrder()) { //Buy (outbid is higher)
+					outbid.setPrice(Math.max(outbid.getPrice(), ordersResponse.getPrice()));
+					if (ordersResponse.getPrice() > price || (ordersResponse.getPrice() == price && ordersResponse.getIssued().before(issued))) {
+						outbid.addCount(ordersResponse.getVolumeRemain());
 					}
-					if (marketOrder.isBuyOrder()) { //Buy (outbid is higher)
-						outbid.setPrice(Math.max(outbid.getPrice(), ordersResponse.getPrice()));
-						if (ordersResponse.getPrice() > price || (ordersResponse.getPrice() == price && ordersResponse.getIssued().before(issued))) {
-							outbid.addCount(ordersResponse.getVolumeRemain());
-						}
-					} else { //Sell (outbid is lower)
-						outbid.setPrice(Math.min(outbid.getPrice(), ordersResponse.getPrice()));
-						if (ordersResponse.getPrice() < price || (ordersResponse.getPrice() == price && ordersResponse.getIssued().before(issued))) {
-							outbid.addCount(ordersResponse.getVolumeRemain());
-						} else if (ordersResponse.getPrice() == price) {
-							//TODO matching price, compare date?
-						}
+				} else { //Sell (outbid is lower)
+					outbid.setPrice(Math.min(outbid.getPrice(), ordersResponse.getPrice()));
+					if (ordersResponse.getPrice() < price || (ordersResponse.getPrice() == price && ordersResponse.getIssued().before(issued))) {
+						outbid.addCount(ordersResponse.getVolumeRemain());
+					} else if (ordersResponse.getPrice() == price) {
+						//TODO matching price, compare date?
 					}
-
 				}
 			}
 		}
+		//Keep the outbid results of the processed types for next time
+		for (Integer typeID : changedTypes) {
+			Map<Long, Outbid> outbids = new HashMap<>();
+			for (MyMarketOrder marketOrder : input.getTypeIDs().get(typeID)) {
+				Outbid outbid = output.getOutbids().get(marketOrder.getOrderID());
+				if (outbid != null) {
+					outbids.put(marketOrder.getOrderID(), new Outbid(outbid.getPrice(), outbid.getCount()));
+				}
+			}
+			books.get(typeID).setOutbids(outbids);
+		}
+		snapshot.save(books);
+		LOG.info("Outbid: " + changedTypes.size() + " types processed, " + output.getSkippedTypes() + " types skipped (" + added + " orders added, " + changed + " changed, " + removed + " removed)");
 		CitadelGetter.set(input.getCitadels().values());
 	}
 
-	private boolean isInRange(MyMarketOrder fromMarketOrder, RawPublicMarketOrder toMarketOrder) {
-		Long fromSystemID = getSystemID(fromMarketOrder.getLocationID());
-		Long toSystemID = RawConverter.toLong(toMarketOrder.getSystemID());
-		MyLocation fromSystemLocation = ApiIdConverter.getLocation(fromSystemID);
-		MyLocation toSystemLocation = ApiIdConverter.getLocation(toSystemID);
-		if (fromSystemLocation.isEmpty() || toSystemLocation.isEmpty()) {
-			LOG.warn("Unknown market location ignored");
-			output.setUnknownLocations();
-			return false; //We can't work with unknown locations
+	/**
+	 * Hash the public orders of a type.
+	 * The signature covers the public orders, our orders and the sell order range, as they all change the outbid results.
+	 * @param ownOrders our orders of the type
+	 * @param book public orders of the type
+	 * @return the book
+	 */
+	private TypeBook createBook(Set<MyMarketOrder> ownOrders, Set<RawPublicMarketOrder> book) {
+		long[][] sorted = new long[book.size()][];
+		int index = 0;
+		for (RawPublicMarketOrder marketOrder : book) {
+			sorted[index++] = new long[] {marketOrder.getOrderID(), hash(marketOrder)};
 		}
-		if (!Objects.equals(fromSystemLocation.getRegionID(), toSystemLocation.getRegionID())) {
-			return false; //Must be in same region
+		Arrays.sort(sorted, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] o1, long[] o2) {
+				return Long.compare(o1[0], o2[0]);
+			}
+		});
+		long[] orderIDs = new long[sorted.length];
+		long[] hashes = new long[sorted.length];
+		long signature = mix(17, Objects.hashCode(input.getSellOrderRange() != null ? input.getSellOrderRange().name() : null));
+		for (int i = 0; i < sorted.length; i++) {
+			orderIDs[i] = sorted[i][0];
+			hashes[i] = sorted[i][1];
+			signature = mix(mix(signature, orderIDs[i]), hashes[i]);
 		}
+		long ownHash = 0;
+		for (MyMarketOrder marketOrder : ownOrders) {
+			ownHash += hash(marketOrder); //Order independent
+		}
+		return new TypeBook(mix(signature, ownHash), orderIDs, hashes);
+	}
+
+	/**
+	 * Count the added, changed and removed orders (both books have sorted order IDs).
+	 * @param previous last book or null
+	 * @param current new book
+	 */
+	private void diff(TypeBook previous, TypeBook current) {
+		if (previous == null) {
+			added += current.size();
+			return;
+		}
+		int p = 0;
+		int c = 0;
+		while (p < previous.size() || c < current.size()) {
+			if (c >= current.size() || (p < previous.size() && previous.getOrderID(p) < current.getOrderID(c))) {
+				removed++;
+				p++;
+			} else if (p >= previous.size() || current.getOrderID(c) < previous.getOrderID(p)) {
+				added++;
+				c++;
+			} else {
+				if (previous.getHash(p) != current.getHash(c)) {
+					changed++;
+				}
+				p++;
+				c++;
+			}
+		}
+	}
+
+	private static long hash(RawPublicMarketOrder marketOrder) {
+		long hash = 17;
+		hash = mix(hash, Objects.hashCode(marketOrder.getPrice()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getVolumeRemain()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getIssued()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getRange() != null ? marketOrder.getRange().name() : null)); //Enum hashCode is not the same between runs
+		hash = mix(hash, Objects.hashCode(marketOrder.getLocationID()));
+		hash = mix(hash, Objects.hashCode(marketOrder.isBuyOrder()));
+		return hash;
+	}
+
+	private static long hash(MyMarketOrder marketOrder) {
+		long hash = 17;
+		hash = mix(hash, Objects.hashCode(marketOrder.getOrderID()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getPrice()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getIssued()));
+		hash = mix(hash, Objects.hashCode(marketOrder.getRange() != null ? marketOrder.getRange().name() : null));
+		hash = mix(hash, marketOrder.getLocationID());
+		hash = mix(hash, Objects.hashCode(marketOrder.isBuyOrder()));
+		return hash;
+	}
+
+	private static long mix(long hash, long value) {
+		hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	private static long getBucket(int typeID, boolean buy, long regionID) {
+		return ((long) typeID << 32) | ((regionID & 0x7FFFFFFFL) << 1) | (buy ? 1 : 0);
+	}
+
+	private boolean isInRange(IndexedOrder fromOrder, RawPublicMarketOrder toMarketOrder) {
+		MyMarketOrder fromMarketOrder = fromOrder.marketOrder;
 		MarketOrderRange fromRange;
 		MarketOrderRange toRange;
 		if (fromMarketOrder.isBuyOrder()) {
@@ -154,13 +323,13 @@ public class OutbidProcesser {
 			toRange = input.getSellOrderRange();
 		}
 		if (fromRange == MarketOrderRange.REGION || toRange == MarketOrderRange.REGION) {
-			return true; //Match everything
+			return true; //Match everything (same region is given by the bucket)
 		} else if (fromRange == MarketOrderRange.STATION && toRange == MarketOrderRange.STATION) {
 			return Objects.equals(fromMarketOrder.getLocationID(), toMarketOrder.getLocationID()); //Only match if in the same station
 		} else {
 			int range = getRange(fromRange) + getRange(toRange); //Find overlapping area
 			//int range = Math.max(getRange(response), getRange(marketOrder)); //Use the order with the max range
-			Integer distance = RouteFinder.get().distanceBetween(fromSystemID, toSystemID);
+			Integer distance = getDistance(fromOrder.systemID, RawConverter.toLong(toMarketOrder.getSystemID()));
 			if (distance == null) {
 				return false;
 			}
@@ -168,7 +337,15 @@ public class OutbidProcesser {
 		}
 	}
 
-
+	private Integer getDistance(long fromSystemID, long toSystemID) {
+		long key = (fromSystemID << 32) | (toSystemID & 0xFFFFFFFFL);
+		Integer distance = distances.get(key);
+		if (distance == null && !distances.containsKey(key)) {
+			distance = RouteFinder.get().distanceBetween(fromSystemID, toSystemID);
+			distances.put(key, distance);
+		}
+		return distance;
+	}
 
 	public static int getRange(MarketOrderRange range) {
 		switch (range) {
@@ -188,10 +365,6 @@ public class OutbidProcesser {
 		return Integer.MAX_VALUE;
 	}
 
-	private boolean isSameType(MyMarketOrder marketOrder, RawPublicMarketOrder response) {
-		return Objects.equals(marketOrder.isBuyOrder(), response.isBuyOrder());
-	}
-
 	private boolean isSameOrder(MyMarketOrder marketOrder, RawPublicMarketOrder response) {
 		return Objects.equals(marketOrder.getOrderID(), response.getOrderID());
 	}
@@ -215,7 +388,7 @@ public class OutbidProcesser {
 
 	public static class OutbidProcesserInput {
 
-		private static final Map<Integer, DatedMarketOrders> MARKET_ORDERS = Collections.synchronizedMap(new HashMap<>());
+		private static final Map<Integer, DatedMarketOrders> MARKET_ORDERS = Collections.synchronizedMap(new HashMap<>()); //Market logs (ESI orders are in the OrderBookStore)
 
 		private final Map<Long, Long> locationToSystem = new HashMap<>();
 		private final Map<Long, Citadel> citadels = new HashMap<>();
@@ -274,6 +447,9 @@ public class OutbidProcesser {
 			}
 			synchronized (MARKET_ORDERS) {
 				for (Map.Entry<Integer, Set<RawPublicMarketOrder>> entry : orders.entrySet()) {
+					if (!isTraded(entry.getKey())) {
+						continue; //Only keep the types we trade
+					}
 					DatedMarketOrders datedMarketOrders = MARKET_ORDERS.get(entry.getKey());
 					if (datedMarketOrders != null && datedMarketOrders.getDate().after(date)) {
 						return; //Current is newer
@@ -284,11 +460,41 @@ public class OutbidProcesser {
 			}
 		}
 
-		public List<RawPublicMarketOrder> getMarketOrders() {
-			List<RawPublicMarketOrder> marketOrders = new ArrayList<>();
-			synchronized (MARKET_ORDERS) {
-				for (DatedMarketOrders datedMarketOrders : MARKET_ORDERS.values()) {
-					marketOrders.addAll(datedMarketOrders.getMarketOrders());
+		/**
+		 * Public orders by typeID.
+		 * The orders are read from the order books on disk, only for the types we trade.
+		 * Expired order books are not used (see OrderBookStore.getBooks()).
+		 * Market logs newer than the order books replace the order book orders.
+		 * @return the public orders of the types we trade
+		 */
+		public Map<Integer, Set<RawPublicMarketOrder>> getMarketOrdersByType() {
+			Map<Integer, Set<RawPublicMarketOrder>> marketOrders = new HashMap<>();
+			List<OrderBook> books = OrderBookStore.get().getBooks();
+			Map<Integer, DatedMarketOrders> marketLogs;
+			synchronized (MARKET_ORDERS) { //Same market logs for all types
+				marketLogs = new HashMap<>(MARKET_ORDERS);
+			}
+			for (Integer typeID : typeIDs.keySet()) {
+				Set<RawPublicMarketOrder> orders = null;
+				Date date = null;
+				for (OrderBook book : books) {
+					if (!book.contains(typeID)) {
+						continue;
+					}
+					if (orders == null) {
+						orders = new HashSet<>();
+					}
+					orders.addAll(book.get(typeID));
+					if (date == null || date.before(book.getDate())) {
+						date = book.getDate();
+					}
+				}
+				DatedMarketOrders datedMarketOrders = marketLogs.get(typeID);
+				if (datedMarketOrders != null && (date == null || datedMarketOrders.getDate().after(date))) {
+					orders = datedMarketOrders.getMarketOrders();
+				}
+				if (orders != null) {
+					marketOrders.put(typeID, orders);
 				}
 			}
 			return marketOrders;
@@ -306,6 +512,15 @@ public class OutbidProcesser {
 			return typeIDs;
 		}
 
+		/**
+		 * Public orders of other types can be dropped as soon as they are downloaded.
+		 * @param typeID
+		 * @return true, if we have active orders of the type
+		 */
+		public boolean isTraded(Integer typeID) {
+			return typeIDs.containsKey(typeID);
+		}
+
 		public Set<Long> getStructureIDs() {
 			return structureIDs;
 		}
@@ -332,6 +547,7 @@ public class OutbidProcesser {
 		private final Map<Long, RawPublicMarketOrder> updates = new HashMap<>();
 		private final Set<Long> regionIDs = new HashSet<>();
 		private boolean unknownLocations = false;
+		private int skippedTypes = 0;
 
 		public Map<Long, Outbid> getOutbids() {
 			return outbids;
@@ -352,6 +568,29 @@ public class OutbidProcesser {
 		public void setUnknownLocations() {
 			this.unknownLocations = true;
 		}
+
+		/**
+		 * Types with an unchanged order book (the last outbid results were used).
+		 * @return number of types skipped
+		 */
+		public int getSkippedTypes() {
+			return skippedTypes;
+		}
+
+		public void addSkippedType() {
+			skippedTypes++;
+		}
+	}
+
+	private static class IndexedOrder {
+		private final MyMarketOrder marketOrder;
+		private final long systemID;
+		private final List<RawPublicMarketOrder> matches = new ArrayList<>();
+
+		public IndexedOrder(MyMarketOrder marketOrder, long systemID) {
+			this.marketOrder = marketOrder;
+			this.systemID = systemID;
+		}
 	}
 
 	private static class DatedMarketOrders {
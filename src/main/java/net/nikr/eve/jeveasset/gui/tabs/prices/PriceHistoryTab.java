@@ -67,6 +67,7 @@ import net.nikr.eve.jeveasset.data.sde.Item;
 import net.nikr.eve.jeveasset.data.sde.StaticData;
 import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceMode;
 import net.nikr.eve.jeveasset.data.settings.PriceHistoryDatabase;
+import net.nikr.eve.jeveasset.data.settings.PriceHistorySeries;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.data.settings.types.LocationType;
 import net.nikr.eve.jeveasset.gui.frame.StatusPanel;
@@ -182,7 +183,7 @@ public class PriceHistoryTab extends JMainTabSecondary {
 	private final DefaultListModel<Item> itemsModel;
 	private final List<Item> shownOrder = new ArrayList<>();
 	private final Set<Integer> shownTypeIDs = new HashSet<>();
-	private final Map<Item, Set<PriceHistoryData>> shownData = new TreeMap<>();
+	private final Map<Item, PriceHistorySeries> shownData = new TreeMap<>();
 	private final Map<Item, TimePeriodValues> series = new HashMap<>();
 	private final Map<Item, Double> seriesMax = new HashMap<>();
 	private final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
@@ -504,7 +505,7 @@ public class PriceHistoryTab extends JMainTabSecondary {
 	}
 
 	private void showPriceData(Set<Integer> typeIDs) {
-		addNewItemsLocked(PriceHistoryDatabase.getPriceData(typeIDs, jPriceType.getItemAt(jPriceType.getSelectedIndex())));
+		addNewItemsLocked(PriceHistoryDatabase.getPriceData(typeIDs, getFromDate(), getToDate(), jPriceType.getItemAt(jPriceType.getSelectedIndex())));
 	}
 
 	private void showZKillboard(Set<Integer> typeIDs) {
@@ -529,14 +530,14 @@ public class PriceHistoryTab extends JMainTabSecondary {
 		show.retainAll(current); //Keep up-to-date items
 		show.removeAll(shownTypeIDs);//Remove already in the GUI
 		if (!show.isEmpty()) { //Load from Database
-			Map<Item, Set<PriceHistoryData>> load = PriceHistoryDatabase.getZKillboard(show);
+			Map<Item, PriceHistorySeries> load = PriceHistoryDatabase.getZKillboard(show, getFromDate(), getToDate());
 			if (!load.isEmpty()) {
 				addNewItemsLocked(load);
 			}
 		}
 	}
 
-	private void addNewItemsLocked(Map<Item, Set<PriceHistoryData>> map) {
+	private void addNewItemsLocked(Map<Item, PriceHistorySeries> map) {
 		jLockWindow.show(NAME, new JLockWindow.LockWorker() {
 			@Override
 			public void task() {
@@ -554,14 +555,14 @@ public class PriceHistoryTab extends JMainTabSecondary {
 		});
 	}
 
-	private void createSeries(Map<Item, Set<PriceHistoryData>> map) {
+	private void createSeries(Map<Item, PriceHistorySeries> map) {
 		if (map == null || map.isEmpty()) {
 			return;
 		}
 		shownData.putAll(map);
 		Date from = getFromDate();
 		Date to = getToDate();
-		for (Map.Entry<Item, Set<PriceHistoryData>> entry : map.entrySet()) {
+		for (Map.Entry<Item, PriceHistorySeries> entry : map.entrySet()) {
 			Item item = entry.getKey();
 			//dataset
 			shownOrder.add(item);
@@ -571,7 +572,7 @@ public class PriceHistoryTab extends JMainTabSecondary {
 		Collections.sort(shownOrder);
 	}
 
-	private void updateGUI(Map<Item, Set<PriceHistoryData>> map) {
+	private void updateGUI(Map<Item, PriceHistorySeries> map) {
 		if (map == null || map.isEmpty()) {
 			return;
 		}
@@ -629,25 +630,53 @@ public class PriceHistoryTab extends JMainTabSecondary {
 
 	private void createData() {
 		//dataset
-		Date from = getFromDate();
-		Date to = getToDate();
-		for (Map.Entry<Item, Set<PriceHistoryData>> entry : shownData.entrySet()) {
-			createSeries(from, to, entry.getKey(), entry.getValue());
-		}
-		updateSeries();
+		final Date from = getFromDate();
+		final Date to = getToDate();
+		final Set<Integer> typeIDs = new HashSet<>(shownTypeIDs); //Copy
+		final PriceHistorySource source = getPriceHistorySource();
+		final PriceMode priceMode = jPriceType.getItemAt(jPriceType.getSelectedIndex());
+		jLockWindow.show(NAME, new JLockWindow.LockWorker() {
+			@Override
+			public void task() {
+				//Only load the shown date range
+				Map<Item, PriceHistorySeries> map;
+				switch (source) {
+					case ZKILLBOARD:
+						map = PriceHistoryDatabase.getZKillboard(typeIDs, from, to);
+						break;
+					case JEVEASSETS:
+						map = PriceHistoryDatabase.getPriceData(typeIDs, from, to, priceMode);
+						break;
+					default:
+						return;
+				}
+				shownData.putAll(map);
+				for (Map.Entry<Item, PriceHistorySeries> entry : map.entrySet()) {
+					createSeries(from, to, entry.getKey(), entry.getValue());
+				}
+			}
+
+			@Override
+			public void gui() {
+				updateSeries();
+			}
+
+			@Override
+			public void hidden() { }
+		});
 	}
 
-	private void createSeries(Date from, Date to, Item item, Set<PriceHistoryData> set) {
+	private void createSeries(Date from, Date to, Item item, PriceHistorySeries data) {
 		TimePeriodValues values = new TimePeriodValues(item.getTypeName());
 		double max = 0;
-		for (PriceHistoryData priceHistoryData : set) {
-			Date date = priceHistoryData.getDate();
-			if ((from != null && !date.after(from)) || (to != null && !date.before(to))) {
+		for (int i = 0; i < data.size(); i++) {
+			long date = data.getDate(i);
+			if ((from != null && date <= from.getTime()) || (to != null && date >= to.getTime())) {
 				continue;
 			}
-			double price = priceHistoryData.getPrice();
+			double price = data.getPrice(i);
 			max = Math.max(max, price);
-			values.add(priceHistoryData.getTimePeriod(), price);
+			values.add(new SimpleTimePeriod(date, date), price);
 		}
 		seriesMax.put(item, max);
 		series.put(item, values);
@@ -857,6 +886,7 @@ public class PriceHistoryTab extends JMainTabSecondary {
 	private class GetItems extends SwingWorker<Map<Item, Set<PriceHistoryData>>, Void> {
 
 		private final Map<Item, Set<PriceHistoryData>> data = new TreeMap<>();
+		private final Map<Item, PriceHistorySeries> seriesData = new HashMap<>();
 		private final Set<Integer> blacklist = new HashSet<>();
 		private final Progress progress;
 		private final Set<Integer> typeIDs;
@@ -886,6 +916,23 @@ public class PriceHistoryTab extends JMainTabSecondary {
 
 		@Override
 		protected Map<Item, Set<PriceHistoryData>> doInBackground() throws Exception {
+			try {
+				return getData();
+			} finally {
+				//Save to Database (before the data is shown, so reloads will include it)
+				PriceHistoryDatabase.setZBlacklist(blacklist);
+				PriceHistoryDatabase.setZKillboard(data);
+				for (Map.Entry<Item, Set<PriceHistoryData>> entry : data.entrySet()) {
+					PriceHistorySeries series = new PriceHistorySeries();
+					for (PriceHistoryData priceHistoryData : entry.getValue()) { //Sorted by date
+						series.add(priceHistoryData.getDate().getTime(), priceHistoryData.getPrice());
+					}
+					seriesData.put(entry.getKey(), series);
+				}
+			}
+		}
+
+		private Map<Item, Set<PriceHistoryData>> getData() {
 			int done = 0;
 			int total = typeIDs.size();
 			for (Integer typeID : typeIDs) {
@@ -940,9 +987,7 @@ public class PriceHistoryTab extends JMainTabSecondary {
 			if (progress != null) {
 				program.getStatusPanel().removeProgress(progress);
 			}
-			PriceHistoryDatabase.setZBlacklist(blacklist);
-			PriceHistoryDatabase.setZKillboard(data); //Save to Database
-			addNewItemsLocked(data);
+			addNewItemsLocked(seriesData);
 			setUpdating(false);
 			try {
 				get();
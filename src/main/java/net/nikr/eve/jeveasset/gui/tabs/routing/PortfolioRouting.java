@@ -0,0 +1,426 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.gui.tabs.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import net.nikr.eve.jeveasset.i18n.TabsRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.me.candle.eve.graph.Graph;
+import uk.me.candle.eve.graph.Node;
+import uk.me.candle.eve.routing.Progress;
+
+/**
+ * Runs a portfolio of route searches concurrently on a fork-join pool.
+ * All searches share one waypoint distance matrix (calculated once from the graph),
+ * so the searches never touch the graph. One search starts from the nearest neighbour route,
+ * the others from random routes with different seeds. Each search improves the route by 2-opt and or-opt
+ * and then keeps perturbing it (double bridge) until the time budget is used or the search is cancelled.
+ * @param <T> waypoint type
+ */
+public class PortfolioRouting<T extends Node> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PortfolioRouting.class);
+
+	public static final long DEFAULT_TIME_BUDGET = 10000; //10 seconds
+	private static final int WAYPOINT_LIMIT = 150;
+	private static final long NOTIFY_INTERVAL = 500; //Max two updates per second
+
+	public static interface BestRouteListener<T> {
+		public void bestRoute(List<T> route, int distance, long time);
+	}
+
+	private final long timeBudget;
+	private volatile boolean cancelled = false;
+	private long lastTimeTaken = 0;
+	private int lastDistance = 0;
+	//Shared state (guarded by this)
+	private List<T> waypoints;
+	private int[] bestRoute;
+	private int bestDistance;
+	private long start;
+	private long lastNotify;
+	private BestRouteListener<T> listener;
+
+	public PortfolioRouting() {
+		this(DEFAULT_TIME_BUDGET);
+	}
+
+	public PortfolioRouting(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	public String getName() {
+		return TabsRouting.get().portfolio();
+	}
+
+	public String getBasicDescription() {
+		return TabsRouting.get().portfolioDescription(Runtime.getRuntime().availableProcessors(), timeBudget / 1000);
+	}
+
+	public int getWaypointLimit() {
+		return WAYPOINT_LIMIT;
+	}
+
+	public long getLastTimeTaken() {
+		return lastTimeTaken;
+	}
+
+	public int getLastDistance() {
+		return lastDistance;
+	}
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public void resetCancel() {
+		cancelled = false;
+	}
+
+	/**
+	 * Find the shortest route between the waypoints.
+	 * @param progress progress (time used of the time budget)
+	 * @param graph graph to calculate the distances from
+	 * @param waypoints waypoints (the first waypoint is the start of the route)
+	 * @param listener notified with the best route so far, may be null
+	 * @return the best route found, starting with the first waypoint, or an empty list if cancelled
+	 */
+	public List<T> execute(final Progress progress, final Graph<T> graph, final List<T> waypoints, final BestRouteListener<T> listener) {
+		start = System.currentTimeMillis();
+		final int size = waypoints.size();
+		//Distance matrix (shared by all searches)
+		progress.setMinimum(0);
+		progress.setMaximum(100);
+		progress.setValue(0);
+		final int[][] distances = new int[size][size];
+		for (int from = 0; from < size; from++) {
+			for (int to = from + 1; to < size; to++) {
+				int distance = graph.distanceBetween(waypoints.get(from), waypoints.get(to));
+				distances[from][to] = distance;
+				distances[to][from] = distance;
+			}
+			if (cancelled) {
+				return new ArrayList<>();
+			}
+		}
+		synchronized (this) {
+			this.waypoints = waypoints;
+			this.listener = listener;
+			this.bestRoute = null;
+			this.bestDistance = Integer.MAX_VALUE;
+			this.lastNotify = 0;
+		}
+		if (size <= 3) { //Only one possible route
+			int[] route = new int[size];
+			for (int i = 0; i < size; i++) {
+				route[i] = i;
+			}
+			offer(route, getDistance(distances, route));
+		} else {
+			final int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				List<ForkJoinTask<?>> tasks = new ArrayList<>();
+				for (int i = 0; i < parallelism; i++) {
+					final int seed = i;
+					tasks.add(pool.submit(new Runnable() {
+						@Override
+						public void run() {
+							search(distances, seed);
+						}
+					}));
+				}
+				boolean done = false;
+				while (!done) {
+					progress.setValue((int) Math.min(100, (System.currentTimeMillis() - start) * 100 / Math.max(1, timeBudget)));
+					done = true;
+					for (ForkJoinTask<?> task : tasks) {
+						if (!task.isDone()) {
+							done = false;
+							break;
+						}
+					}
+					if (!done) {
+						try {
+							Thread.sleep(100);
+						} catch (InterruptedException ex) {
+							cancel();
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+				for (ForkJoinTask<?> task : tasks) {
+					task.join(); //Rethrow exceptions
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+		List<T> route;
+		synchronized (this) {
+			lastTimeTaken = System.currentTimeMillis() - start;
+			lastDistance = bestDistance;
+			route = toRoute(bestRoute);
+			this.listener = null;
+			this.waypoints = null;
+		}
+		if (cancelled) {
+			return new ArrayList<>();
+		}
+		LOG.info("Portfolio routing: " + lastDistance + " jumps in " + lastTimeTaken + "ms");
+		return route;
+	}
+
+	private boolean isStopped() {
+		return cancelled || System.currentTimeMillis() - start > timeBudget;
+	}
+
+	private void search(final int[][] distances, final int seed) {
+		final int size = distances.length;
+		Random random = new Random(seed);
+		int[] route;
+		if (seed == 0) {
+			route = nearestNeighbour(distances);
+		} else {
+			route = new int[size];
+			for (int i = 0; i < size; i++) {
+				route[i] = i;
+			}
+			for (int i = size - 1; i > 0; i--) { //Shuffle
+				int j = random.nextInt(i + 1);
+				int temp = route[i];
+				route[i] = route[j];
+				route[j] = temp;
+			}
+		}
+		improve(distances, route);
+		int distance = getDistance(distances, route);
+		offer(route, distance);
+		//Iterated local search
+		while (!isStopped()) {
+			int[] candidate = perturb(route, random);
+			improve(distances, candidate);
+			int candidateDistance = getDistance(distances, candidate);
+			if (candidateDistance < distance) {
+				route = candidate;
+				distance = candidateDistance;
+				offer(route, distance);
+			}
+		}
+	}
+
+	private synchronized void offer(final int[] route, final int distance) {
+		if (distance >= bestDistance) {
+			return;
+		}
+		bestRoute = Arrays.copyOf(route, route.length);
+		bestDistance = distance;
+		long now = System.currentTimeMillis();
+		if (listener != null && now - lastNotify >= NOTIFY_INTERVAL) {
+			lastNotify = now;
+			listener.bestRoute(toRoute(bestRoute), bestDistance, now - start);
+		}
+	}
+
+	/**
+	 * Convert to waypoints, rotated to start with the first waypoint.
+	 */
+	private List<T> toRoute(final int[] route) {
+		List<T> list = new ArrayList<>();
+		if (route == null) {
+			return list;
+		}
+		int first = 0;
+		for (int i = 0; i < route.length; i++) {
+			if (route[i] == 0) {
+				first = i;
+				break;
+			}
+		}
+		for (int i = 0; i < route.length; i++) {
+			list.add(waypoints.get(route[(first + i) % route.length]));
+		}
+		return list;
+	}
+
+	private static int[] nearestNeighbour(final int[][] distances) {
+		final int size = distances.length;
+		int[] route = new int[size];
+		boolean[] visited = new boolean[size];
+		visited[0] = true;
+		for (int i = 1; i < size; i++) {
+			int last = route[i - 1];
+			int next = -1;
+			for (int j = 0; j < size; j++) {
+				if (!visited[j] && (next < 0 || distances[last][j] < distances[last][next])) {
+					next = j;
+				}
+			}
+			route[i] = next;
+			visited[next] = true;
+		}
+		return route;
+	}
+
+	/**
+	 * Double bridge move: A B C D becomes A C B D.
+	 * Small routes are perturbed by reversing a random section instead.
+	 */
+	private static int[] perturb(final int[] route, final Random random) {
+		final int size = route.length;
+		int[] result = new int[size];
+		if (size < 8) {
+			System.arraycopy(route, 0, result, 0, size);
+			int from = random.nextInt(size);
+			int to = random.nextInt(size);
+			reverse(result, Math.min(from, to), Math.max(from, to));
+			return result;
+		}
+		int p1 = 1 + random.nextInt(size / 4);
+		int p2 = p1 + 1 + random.nextInt(size / 4);
+		int p3 = p2 + 1 + random.nextInt(size / 4);
+		int index = 0;
+		System.arraycopy(route, 0, result, index, p1);
+		index = index + p1;
+		System.arraycopy(route, p2, result, index, p3 - p2);
+		index = index + p3 - p2;
+		System.arraycopy(route, p1, result, index, p2 - p1);
+		index = index + p2 - p1;
+		System.arraycopy(route, p3, result, index, size - p3);
+		return result;
+	}
+
+	/**
+	 * 2-opt and or-opt until no further improvement is found (or stopped).
+	 */
+	private void improve(final int[][] distances, final int[] route) {
+		boolean improved = true;
+		while (improved && !isStopped()) {
+			improved = twoOpt(distances, route);
+			improved = orOpt(distances, route) || improved;
+		}
+	}
+
+	private static boolean twoOpt(final int[][] distances, final int[] route) {
+		final int size = route.length;
+		boolean improved = false;
+		for (int i = 0; i < size - 2; i++) {
+			for (int j = i + 2; j < size; j++) {
+				if (i == 0 && j == size - 1) {
+					continue; //Same edge
+				}
+				int a = route[i];
+				int b = route[i + 1];
+				int c = route[j];
+				int d = route[(j + 1) % size];
+				int delta = distances[a][c] + distances[b][d] - distances[a][b] - distances[c][d];
+				if (delta < 0) {
+					reverse(route, i + 1, j);
+					improved = true;
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Move sections of 1 to 3 waypoints to a better position in the route.
+	 */
+	private static boolean orOpt(final int[][] distances, final int[] route) {
+		final int size = route.length;
+		boolean improved = false;
+		for (int length = 1; length <= 3 && length < size - 2; length++) {
+			for (int i = 1; i + length <= size; i++) {
+				int prev = route[i - 1];
+				int first = route[i];
+				int last = route[i + length - 1];
+				int next = route[(i + length) % size];
+				int removeGain = distances[prev][first] + distances[last][next] - distances[prev][next];
+				for (int j = 0; j < size; j++) {
+					if (j >= i - 1 && j < i + length) {
+						continue; //Edges touching the section
+					}
+					int a = route[j];
+					int b = route[(j + 1) % size];
+					int addCost = distances[a][first] + distances[last][b] - distances[a][b];
+					if (addCost < removeGain) {
+						move(route, i, length, j);
+						improved = true;
+						break;
+					}
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Move the section starting at index with length to after the position.
+	 */
+	private static void move(final int[] route, final int index, final int length, final int position) {
+		final int size = route.length;
+		int[] section = Arrays.copyOfRange(route, index, index + length);
+		List<Integer> rest = new ArrayList<>(size - length);
+		int insertAt = -1;
+		for (int i = 0; i < size; i++) {
+			if (i >= index && i < index + length) {
+				continue;
+			}
+			rest.add(route[i]);
+			if (i == position) {
+				insertAt = rest.size();
+			}
+		}
+		int k = 0;
+		for (int i = 0; i < insertAt; i++) {
+			route[k++] = rest.get(i);
+		}
+		for (int waypoint : section) {
+			route[k++] = waypoint;
+		}
+		for (int i = insertAt; i < rest.size(); i++) {
+			route[k++] = rest.get(i);
+		}
+	}
+
+	private static void reverse(final int[] route, final int from, final int to) {
+		for (int i = from, j = to; i < j; i++, j--) {
+			int temp = route[i];
+			route[i] = route[j];
+			route[j] = temp;
+		}
+	}
+
+	private static int getDistance(final int[][] distances, final int[] route) {
+		int distance = 0;
+		for (int i = 0; i < route.length; i++) {
+			distance = distance + distances[route[i]][route[(i + 1) % route.length]];
+		}
+		return distance;
+	}
+}
@@ -91,6 +91,7 @@ import net.nikr.eve.jeveasset.gui.shared.table.EventModels.StringFilterator;
 import net.nikr.eve.jeveasset.gui.tabs.overview.OverviewGroup;
 import net.nikr.eve.jeveasset.gui.tabs.overview.OverviewLocation;
 import net.nikr.eve.jeveasset.gui.tabs.overview.OverviewLocation.LocationType;
+import net.nikr.eve.jeveasset.gui.tabs.routing.PortfolioRouting.BestRouteListener;
 import net.nikr.eve.jeveasset.i18n.General;
 import net.nikr.eve.jeveasset.i18n.GuiShared;
 import net.nikr.eve.jeveasset.i18n.TabsRouting;
@@ -1021,8 +1022,14 @@ public class RoutingTab extends JMainTabSecondary {
 				});
 			}
 			//Start route finding:
-			RoutingAlgorithmContainer algorithm = (RoutingAlgorithmContainer) jAlgorithm.getSelectedItem();
-			List<SolarSystem> nodeRoute = executeRouteFinding(inputWaypoints, algorithm);
+			final RoutingAlgorithmContainer algorithm = (RoutingAlgorithmContainer) jAlgorithm.getSelectedItem();
+			List<SolarSystem> nodeRoute = executeRouteFinding(inputWaypoints, algorithm, new BestRouteListener<SolarSystem>() {
+				@Override
+				public void bestRoute(List<SolarSystem> route, int distance, long time) {
+					//Show the best route so far
+					setRouteResult(createRouteResult(route, stationsMap, inputWaypoints.size(), algorithm.getName(), time, distance));
+				}
+			});
 			if (nodeRoute.isEmpty()) { //Cancelled
 				algorithm.resetCancelService();
 				return;
@@ -1034,18 +1041,7 @@ public class RoutingTab extends JMainTabSecondary {
 					}
 				});
 			}
-			SolarSystem last = null;
-			List<List<SolarSystem>> route = new ArrayList<>();
-			for (SolarSystem current : nodeRoute) {
-				if (last != null) {
-					route.add(new ArrayList<>(filteredGraph.routeBetween(last, current)));
-				}
-				last = current;
-			}
-			if (last != null) {
-				route.add(new ArrayList<>(filteredGraph.routeBetween(last, nodeRoute.get(0))));
-			}
-			setRouteResult(new RouteResult(route, stationsMap, inputWaypoints.size(), algorithm.getName(), algorithm.getLastTimeTaken(), algorithm.getLastDistance(), getAvoidString(), getSecurityString()));
+			setRouteResult(createRouteResult(nodeRoute, stationsMap, inputWaypoints.size(), algorithm.getName(), algorithm.getLastTimeTaken(), algorithm.getLastDistance()));
 		} catch (DisconnectedGraphException dce) {
 			Program.ensureEDT(new Runnable() {
 				@Override
@@ -1059,6 +1055,21 @@ public class RoutingTab extends JMainTabSecondary {
 		}
 	}
 
+	private RouteResult createRouteResult(List<SolarSystem> nodeRoute, Map<Long, List<SolarSystem>> stationsMap, int waypoints, String algorithmName, long time, int jumps) {
+		SolarSystem last = null;
+		List<List<SolarSystem>> route = new ArrayList<>();
+		for (SolarSystem current : nodeRoute) {
+			if (last != null) {
+				route.add(new ArrayList<>(filteredGraph.routeBetween(last, current)));
+			}
+			last = current;
+		}
+		if (last != null) {
+			route.add(new ArrayList<>(filteredGraph.routeBetween(last, nodeRoute.get(0))));
+		}
+		return new RouteResult(route, stationsMap, waypoints, algorithmName, time, jumps, getAvoidString(), getSecurityString());
+	}
+
 	public String getSecurityString() {
 		final StringBuilder builder = new StringBuilder();
 		builder.append(Formatter.securityFormat(jSecurityMinimum.getSelectedItem()));
@@ -1145,8 +1156,8 @@ public class RoutingTab extends JMainTabSecondary {
 		return filteredGraph;
 	}
 
-	private List<SolarSystem> executeRouteFinding(final List<SolarSystem> inputWaypoints, final RoutingAlgorithmContainer algorithm) {
-		return algorithm.execute(routeFind, filteredGraph, inputWaypoints);
+	private List<SolarSystem> executeRouteFinding(final List<SolarSystem> inputWaypoints, final RoutingAlgorithmContainer algorithm, final BestRouteListener<SolarSystem> listener) {
+		return algorithm.execute(routeFind, filteredGraph, inputWaypoints, listener);
 	}
 
 	private void setUIEnabled(final boolean b) {
@@ -1205,7 +1216,7 @@ public class RoutingTab extends JMainTabSecondary {
 	}
 
 	private void cancelProcessing() {
-		((RoutingAlgorithmContainer) jAlgorithm.getSelectedItem()).getCancelService().cancel();
+		((RoutingAlgorithmContainer) jAlgorithm.getSelectedItem()).cancel();
 	}
 
 	private int getWaypointsSize() {
@@ -1815,45 +1826,83 @@ public class RoutingTab extends JMainTabSecondary {
 	private static class RoutingAlgorithmContainer {
 
 		private RoutingAlgorithm<SolarSystem> contained;
+		private PortfolioRouting<SolarSystem> portfolio;
 
 		public RoutingAlgorithmContainer(final RoutingAlgorithm<SolarSystem> contained) {
 			this.contained = contained;
 		}
 
+		public RoutingAlgorithmContainer(final PortfolioRouting<SolarSystem> portfolio) {
+			this.portfolio = portfolio;
+		}
+
 		public int getWaypointLimit() {
+			if (portfolio != null) {
+				return portfolio.getWaypointLimit();
+			}
 			return contained.getWaypointLimit();
 		}
 
 		public String getName() {
+			if (portfolio != null) {
+				return portfolio.getName();
+			}
 			return contained.getName();
 		}
 
 		public String getTechnicalDescription() {
+			if (portfolio != null) {
+				return portfolio.getBasicDescription();
+			}
 			return contained.getTechnicalDescription();
 		}
 
 		public String getBasicDescription() {
+			if (portfolio != null) {
+				return portfolio.getBasicDescription();
+			}
 			return contained.getBasicDescription();
 		}
 
-		public List<SolarSystem> execute(final Progress progress, final Graph<SolarSystem> g, final List<SolarSystem> assetLocations) {
+		public List<SolarSystem> execute(final Progress progress, final Graph<SolarSystem> g, final List<SolarSystem> assetLocations, final BestRouteListener<SolarSystem> listener) {
+			if (portfolio != null) {
+				return portfolio.execute(progress, g, assetLocations, listener);
+			}
 			return contained.execute(progress, g, assetLocations);
 		}
 
 		public long getLastTimeTaken() {
+			if (portfolio != null) {
+				return portfolio.getLastTimeTaken();
+			}
 			return contained.getLastTimeTaken();
 		}
 
 		public int getLastDistance() {
+			if (portfolio != null) {
+				return portfolio.getLastDistance();
+			}
 			return contained.getLastDistance();
 		}
 
+		public void cancel() {
+			if (portfolio != null) {
+				portfolio.cancel();
+			} else {
+				getCancelService().cancel();
+			}
+		}
+
 		public CancelService getCancelService() {
 			return contained.getCancelService();
 		}
 
 		public void resetCancelService() {
-			contained.resetCancelService();
+			if (portfolio != null) {
+				portfolio.resetCancel();
+			} else {
+				contained.resetCancelService();
+			}
 		}
 
 		@Override
@@ -1867,6 +1916,7 @@ public class RoutingTab extends JMainTabSecondary {
 			list.add(new RoutingAlgorithmContainer(new SimpleUnisexMutatorHibrid2Opt<>()));
 			list.add(new RoutingAlgorithmContainer(new Crossover<>()));
 			list.add(new RoutingAlgorithmContainer(new NearestNeighbour<>()));
+			list.add(new RoutingAlgorithmContainer(new PortfolioRouting<>()));
 			return list;
 		}
 	}
@@ -361,6 +361,7 @@ public class JTrackerEditDialog extends JDialogCentered {
 			} finally {
 				TrackerData.writeUnlock();
 			}
+			TrackerData.edited(value);
 			TrackerData.save("Edited");
 			update = true;
 			setVisible(false);
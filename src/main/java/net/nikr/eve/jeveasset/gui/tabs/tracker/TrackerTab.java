@@ -45,6 +45,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -106,6 +107,7 @@ import net.nikr.eve.jeveasset.gui.shared.menu.JMenuInfo;
 import net.nikr.eve.jeveasset.gui.shared.menu.JMenuInfo.AutoNumberFormat;
 import net.nikr.eve.jeveasset.gui.shared.menu.JMenuInfo.MenuItemValue;
 import net.nikr.eve.jeveasset.gui.tabs.values.AssetValue;
+import net.nikr.eve.jeveasset.gui.tabs.values.Breakdown;
 import net.nikr.eve.jeveasset.gui.tabs.values.DataSetCreator;
 import net.nikr.eve.jeveasset.gui.tabs.values.Value;
 import net.nikr.eve.jeveasset.i18n.General;
@@ -702,11 +704,11 @@ public class TrackerTab extends JMainTabSecondary {
 			for (String owner : owners) {
 				for (Value data : TrackerData.get().get(owner)) {
 					//Get all account wallet account keys
-					if (!data.getBalanceFilter().isEmpty()) {
+					if (!data.getBalanceBreakdown().isEmpty()) {
 						balanceFilter = true;
 					}
 					//Get all asset IDs
-					if (!data.getAssetsFilter().isEmpty()) {
+					if (!data.getAssetsBreakdown().isEmpty()) {
 						assetsFilter = true;
 					}
 					if (balanceFilter && assetsFilter) {
@@ -794,19 +796,33 @@ public class TrackerTab extends JMainTabSecondary {
 	//Find all saved Keys/IDs
 		Set<String> walletIDs = new TreeSet<>();
 		Set<AssetValue> assetsIDs = new TreeSet<>();
+		BitSet walletIndexes = new BitSet();
+		BitSet assetsIndexes = new BitSet();
 		try {
 			TrackerData.readLock();
 			for (List<Value> list : TrackerData.get().values()) {
 				for (Value data : list) {
 					//Get all account wallet account keys
-					walletIDs.addAll(data.getBalanceFilter().keySet());
+					Breakdown balanceBreakdown = data.getBalanceBreakdown();
+					for (int i = 0; i < balanceBreakdown.size(); i++) {
+						walletIndexes.set(balanceBreakdown.getKey(i));
+					}
 					//Get all asset IDs
-					assetsIDs.addAll(data.getAssetsFilter().keySet());
+					Breakdown assetsBreakdown = data.getAssetsBreakdown();
+					for (int i = 0; i < assetsBreakdown.size(); i++) {
+						assetsIndexes.set(assetsBreakdown.getKey(i));
+					}
 				}
 			}
 		} finally {
 			TrackerData.readUnlock();
 		}
+		for (int i = walletIndexes.nextSetBit(0); i >= 0; i = walletIndexes.nextSetBit(i + 1)) {
+			walletIDs.add(Value.getBalanceID(i));
+		}
+		for (int i = assetsIndexes.nextSetBit(0); i >= 0; i = assetsIndexes.nextSetBit(i + 1)) {
+			assetsIDs.add(AssetValue.fromIndex(i));
+		}
 
 		//WALLET - Make nodes for found wallet account keys
 		CheckBoxNode corporationWalletNode = new CheckBoxNode(null, TabsTracker.get().corporationWallet(), TabsTracker.get().corporationWallet(), false);
@@ -891,6 +907,9 @@ public class TrackerTab extends JMainTabSecondary {
 		if (owners != null) { //No data set...
 			try {
 				TrackerData.readLock();
+				//Selected state by dictionary index (all keys in the tracker data are added before the read lock)
+				boolean[] assetSelected = getAssetSelected(assetNodesMap);
+				boolean[] walletSelected = getWalletSelected(accountNodesMap);
 				Map<Date, Map<String, Value>> trackerDataByDate = getTrackerDataByDate(owners);
 				Map<String, Value> lastMap = new HashMap<>();
 				for (Map.Entry<Date, Map<String, Value>> dateEntry : trackerDataByDate.entrySet()) {
@@ -915,7 +934,8 @@ public class TrackerTab extends JMainTabSecondary {
 						} else {
 							lastMap.put(ownerEntry.getKey(), data);
 						}
-						if (data.getAssetsFilter().isEmpty()) {
+						Breakdown assetsBreakdown = data.getAssetsBreakdown();
+						if (assetsBreakdown.isEmpty()) {
 							value.addAssets(data.getAssetsTotal());
 							//Default
 							Boolean assetBoolean = assetColumns.get(date);
@@ -924,9 +944,9 @@ public class TrackerTab extends JMainTabSecondary {
 							}
 						} else {
 							assetColumns.put(date, true);
-							for (Map.Entry<AssetValue, Double> entry : data.getAssetsFilter().entrySet()) {
-								if (assetNodesMap.get(entry.getKey().getID()).isSelected()) {
-									value.addAssets(entry.getValue());
+							for (int i = 0; i < assetsBreakdown.size(); i++) {
+								if (assetSelected[assetsBreakdown.getKey(i)]) {
+									value.addAssets(assetsBreakdown.getValue(i));
 								}
 							}
 						}
@@ -944,7 +964,8 @@ public class TrackerTab extends JMainTabSecondary {
 							value.addSkillPointValue(data.getSkillPoints(), 0);
 						}
 						value.addSellOrders(data.getSellOrders());
-						if (data.getBalanceFilter().isEmpty()) {
+						Breakdown balanceBreakdown = data.getBalanceBreakdown();
+						if (balanceBreakdown.isEmpty()) {
 							value.addBalance(data.getBalanceTotal());
 							//Default
 							Boolean walletBoolean = walletColumns.get(date);
@@ -953,9 +974,9 @@ public class TrackerTab extends JMainTabSecondary {
 							}
 						} else {
 							walletColumns.put(date, true);
-							for (Map.Entry<String, Double> entry : data.getBalanceFilter().entrySet()) {
-								if (accountNodesMap.get(entry.getKey()).isSelected()) {
-									value.addBalance(entry.getValue());
+							for (int i = 0; i < balanceBreakdown.size(); i++) {
+								if (walletSelected[balanceBreakdown.getKey(i)]) {
+									value.addBalance(balanceBreakdown.getValue(i));
 								}
 							}
 						}
@@ -998,6 +1019,26 @@ public class TrackerTab extends JMainTabSecondary {
 		updateShown();
 	}
 
+	private boolean[] getAssetSelected(Map<String, CheckBoxNode> assetNodesMap) {
+		List<AssetValue> assetValues = AssetValue.getIndexes();
+		boolean[] selected = new boolean[assetValues.size()];
+		for (int i = 0; i < selected.length; i++) {
+			CheckBoxNode node = assetNodesMap.get(assetValues.get(i).getID());
+			selected[i] = node != null && node.isSelected();
+		}
+		return selected;
+	}
+
+	private boolean[] getWalletSelected(Map<String, CheckBoxNode> accountNodesMap) {
+		List<String> ids = Value.getBalanceIDs();
+		boolean[] selected = new boolean[ids.size()];
+		for (int i = 0; i < selected.length; i++) {
+			CheckBoxNode node = accountNodesMap.get(ids.get(i));
+			selected[i] = node != null && node.isSelected();
+		}
+		return selected;
+	}
+
 	private Map<Date, Map<String, Value>> getTrackerDataByDate(final List<String> owners) {
 		Map<Date, Map<String, Value>> trackerDataByDate = new TreeMap<>();
 		Map<String, Value> empty = new HashMap<>();
@@ -20,7 +20,9 @@
  */
 package net.nikr.eve.jeveasset.gui.tabs.values;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
@@ -32,6 +34,7 @@ import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 
 public class AssetValue implements Comparable<AssetValue> {
 	private final static Map<String, AssetValue> CACHE = new HashMap<>();
+	private final static List<AssetValue> INDEX = new ArrayList<>(); //index :: AssetValue
 	private static final String UNKNOWN_LOCATION = General.get().emptyLocation("(\\d+)").replace("[", "\\[").replace("]", "\\]");
 	private static final String CITADEL_MATCH = "\\[Citadel #(\\d+)\\]";
 	private static final String CITADEL_REPLACE = General.get().emptyLocation("$1").replace("[", "\\[").replace("]", "\\]");
@@ -40,6 +43,7 @@ public class AssetValue implements Comparable<AssetValue> {
 	private String location;
 	private Long locationID;
 	private String id;
+	private int index;
 
 	public static AssetValue create(String id) {
 		return get(new AssetValue(id));
@@ -55,18 +59,38 @@ public class AssetValue implements Comparable<AssetValue> {
 			for (AssetValue assetValue : CACHE.values()) {
 				assetValue.update();
 			}
+			TrackerData.editedAll();
 		} finally {
 			TrackerData.writeUnlock();
 		}
 		TrackerData.save("Asset values updated", true);
 	}
 
-	private static AssetValue get(final AssetValue add) {
+	/**
+	 * Get AssetValue by dictionary index.
+	 * @param index index returned by getIndex()
+	 * @return the AssetValue
+	 */
+	public static synchronized AssetValue fromIndex(int index) {
+		return INDEX.get(index);
+	}
+
+	/**
+	 * All AssetValues ordered by dictionary index.
+	 * @return copy of the dictionary
+	 */
+	public static synchronized List<AssetValue> getIndexes() {
+		return new ArrayList<>(INDEX);
+	}
+
+	private static synchronized AssetValue get(final AssetValue add) {
 		AssetValue cached = CACHE.get(add.getKey());
 		if (cached != null) {
 			return cached;
 		} else {
 			CACHE.put(add.getKey(), add);
+			add.index = INDEX.size();
+			INDEX.add(add);
 			return add;
 		}
 	}
@@ -107,6 +131,10 @@ public class AssetValue implements Comparable<AssetValue> {
 		return id;
 	}
 
+	public int getIndex() {
+		return index;
+	}
+
 	private void update() {
 		if (locationID == null) {
 			locationID = updateLocationID(location);
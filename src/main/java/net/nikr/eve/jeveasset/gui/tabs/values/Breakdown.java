@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.gui.tabs.values;
+
+import java.util.Arrays;
+
+/**
+ * Value breakdown by key index.
+ * Keys are dictionary indexes (AssetValue.getIndex() or Value.getBalanceIndex(String)).
+ * Stored as sorted parallel arrays, to avoid a map entry and a boxed value per key.
+ */
+public class Breakdown {
+	private static final int[] EMPTY_KEYS = new int[0];
+	private static final double[] EMPTY_VALUES = new double[0];
+
+	private int[] keys = EMPTY_KEYS;
+	private double[] values = EMPTY_VALUES;
+	private int size = 0;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getKey(int index) {
+		return keys[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	public Double get(int key) {
+		int index = search(key);
+		if (index >= 0) {
+			return values[index];
+		} else {
+			return null;
+		}
+	}
+
+	public void add(int key, double value) {
+		int index = search(key);
+		if (index >= 0) {
+			values[index] = values[index] + value;
+			return;
+		}
+		index = -(index + 1);
+		if (size == keys.length) {
+			int capacity = Math.max(4, size + (size >> 1));
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		keys[index] = key;
+		values[index] = value;
+		size++;
+	}
+
+	public Double remove(int key) {
+		int index = search(key);
+		if (index < 0) {
+			return null;
+		}
+		double value = values[index];
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		return value;
+	}
+
+	private int search(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+}
@@ -20,7 +20,6 @@
  */
 package net.nikr.eve.jeveasset.gui.tabs.values;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -63,21 +62,27 @@ public class DataSetCreator {
 			calendar.set(2019, 1, 1);
 			Date issues943fixed = calendar.getTime(); //Deleted PI structures: https://github.com/esi/esi-issues/issues/943
 			TrackerData.writeLock();
+			boolean edited = false;
 			for (List<Value> values : TrackerData.get().values()) {
 				for (Value value : values) {
-					List<AssetValue> assetValues = new ArrayList<>(value.getAssetsFilter().keySet()); //Copy to allow modification of original during the loop
-				for (AssetValue assetValue : assetValues) {
-					Long locationID = assetValue.getLocationID();
+					Breakdown breakdown = value.getAssetsBreakdown();
+					for (int i = breakdown.size() - 1; i >= 0; i--) { //Backwards to allow modification of original during the loop
+						AssetValue assetValue = AssetValue.fromIndex(breakdown.getKey(i));
+						Long locationID = assetValue.getLocationID();
 						if (locationID != null
 								&& (locationID > 9000000000000000000L //9e18 locations: https://github.com/ccpgames/esi-issues/issues/684
 								|| ((locationID > 40000000 && locationID < 50000000) && value.getDate().before(issues943fixed)) //Deleted PI structures: https://github.com/esi/esi-issues/issues/943
 								)) {
-							value.getAssetsFilter().remove(assetValue);
+							value.removeAssets(assetValue);
 							Settings.get().getTrackerSettings().getFilters().remove(assetValue.getID());
+							edited = true;
 						}
 					}
 				}
 			}
+			if (edited) {
+				TrackerData.editedAll();
+			}
 		} finally {
 			TrackerData.writeUnlock();
 		}
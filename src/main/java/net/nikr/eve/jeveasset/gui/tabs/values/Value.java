@@ -21,8 +21,10 @@
 
 package net.nikr.eve.jeveasset.gui.tabs.values;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import net.nikr.eve.jeveasset.data.api.my.MyAsset;
 import net.nikr.eve.jeveasset.data.api.my.MyShip;
@@ -37,16 +39,18 @@ import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 public class Value implements Comparable<Value>, LocationType {
 	private final static long MINIMUM_SKILL_POINTS = 5000000;
 	private final static double SKILL_EXTRACTOR_SIZE = 500000.0;
+	private final static Map<String, Integer> BALANCE_INDEX = new HashMap<>(); //id :: index
+	private final static List<String> BALANCE_IDS = new ArrayList<>(); //index :: id
 	private final String name;
 	private final Date date;
 	private final String compare;
 	private double assets = 0;
-	private final Map<AssetValue, Double> assetsFilter = new HashMap<>();
+	private final Breakdown assetsFilter = new Breakdown();
 	private double sellOrders = 0;
 	private double escrows = 0;
 	private double escrowsToCover = 0;
 	private double balance = 0;
-	private final Map<String, Double> balanceFilter = new HashMap<>();
+	private final Breakdown balanceFilter = new Breakdown();
 	private double manufacturing;
 	private double contractCollateral;
 	private double contractValue = 0;
@@ -72,13 +76,9 @@ public class Value implements Comparable<Value>, LocationType {
 		this.assets = this.assets + assets;
 	}
 
-	public void addAssets(AssetValue id, Double assets) {
+	public void addAssets(AssetValue id, double assets) {
 		this.assets = this.assets + assets;
-		Double now = this.assetsFilter.get(id);
-		if (now == null) {
-			now = 0.0;
-		}
-		this.assetsFilter.put(id, now + assets);
+		this.assetsFilter.add(id.getIndex(), assets);
 	}
 
 	public void addAssets(AssetValue id, MyAsset asset) {
@@ -92,9 +92,8 @@ public class Value implements Comparable<Value>, LocationType {
 	}
 
 	public void removeAssets(AssetValue id) {
-		Double oldAssets = this.assetsFilter.get(id); //Get value
+		Double oldAssets = this.assetsFilter.remove(id.getIndex()); //Removing item
 		this.assets = this.assets - oldAssets; //Removing value from total
-		this.assetsFilter.remove(id); //Removing item
 	}
 
 	public void addSellOrders(double sellOrders) {
@@ -115,17 +114,12 @@ public class Value implements Comparable<Value>, LocationType {
 
 	public void addBalance(String id, double balance) {
 		this.balance = this.balance + balance;
-		Double now = this.balanceFilter.get(id);
-		if (now == null) {
-			now = 0.0;
-		}
-		this.balanceFilter.put(id, now + balance);
+		this.balanceFilter.add(getBalanceIndex(id), balance);
 	}
 
 	public void removeBalance(String id) {
-		Double oldBalance = this.balanceFilter.get(id); //Get value
+		Double oldBalance = this.balanceFilter.remove(getBalanceIndex(id)); //Removing item
 		this.balance = this.balance - oldBalance; //Removing value from total
-		this.balanceFilter.remove(id); //Removing item
 	}
 
 	public void addManufacturing(double manufacturing) {
@@ -152,10 +146,33 @@ public class Value implements Comparable<Value>, LocationType {
 		return name;
 	}
 
-	public Map<AssetValue, Double> getAssetsFilter() {
+	/**
+	 * Assets by location/flag.
+	 * Keys are AssetValue indexes (see AssetValue.fromIndex(int)).
+	 * @return the breakdown (empty if only the total is known)
+	 */
+	public Breakdown getAssetsBreakdown() {
 		return assetsFilter;
 	}
 
+	/**
+	 * Copy of the assets breakdown.
+	 * Use getAssetsBreakdown() when iterating many values.
+	 * @return AssetValue :: assets
+	 */
+	public Map<AssetValue, Double> getAssetsFilter() {
+		Map<AssetValue, Double> map = new HashMap<>();
+		for (int i = 0; i < assetsFilter.size(); i++) {
+			AssetValue assetValue = AssetValue.fromIndex(assetsFilter.getKey(i));
+			Double now = map.get(assetValue);
+			if (now == null) {
+				now = 0.0;
+			}
+			map.put(assetValue, now + assetsFilter.getValue(i));
+		}
+		return map;
+	}
+
 	public double getAssetsTotal() {
 		return assets;
 	}
@@ -172,10 +189,50 @@ public class Value implements Comparable<Value>, LocationType {
 		return escrowsToCover;
 	}
 
-	public Map<String, Double> getBalanceFilter() {
+	/**
+	 * Wallet balance by wallet division.
+	 * Keys are balance indexes (see getBalanceID(int)).
+	 * @return the breakdown (empty if only the total is known)
+	 */
+	public Breakdown getBalanceBreakdown() {
 		return balanceFilter;
 	}
 
+	/**
+	 * Copy of the balance breakdown.
+	 * Use getBalanceBreakdown() when iterating many values.
+	 * @return id :: balance
+	 */
+	public Map<String, Double> getBalanceFilter() {
+		Map<String, Double> map = new HashMap<>();
+		for (int i = 0; i < balanceFilter.size(); i++) {
+			map.put(getBalanceID(balanceFilter.getKey(i)), balanceFilter.getValue(i));
+		}
+		return map;
+	}
+
+	public static synchronized int getBalanceIndex(String id) {
+		Integer index = BALANCE_INDEX.get(id);
+		if (index == null) {
+			index = BALANCE_IDS.size();
+			BALANCE_INDEX.put(id, index);
+			BALANCE_IDS.add(id);
+		}
+		return index;
+	}
+
+	public static synchronized String getBalanceID(int index) {
+		return BALANCE_IDS.get(index);
+	}
+
+	/**
+	 * All balance ids ordered by index.
+	 * @return copy of the dictionary
+	 */
+	public static synchronized List<String> getBalanceIDs() {
+		return new ArrayList<>(BALANCE_IDS);
+	}
+
 	public double getBalanceTotal() {
 		return balance;
 	}
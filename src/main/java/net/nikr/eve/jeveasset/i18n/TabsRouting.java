@@ -68,6 +68,8 @@ public abstract class TabsRouting extends Bundle {
 	public abstract String noSystemsTitle();
 	public abstract String ok();
 	public abstract String overviewGroup(Object arg0);
+	public abstract String portfolio();
+	public abstract String portfolioDescription(int cores, long seconds);
 	public abstract String remove();
 	public abstract String resultArrow();
 	public abstract String resultEdit();
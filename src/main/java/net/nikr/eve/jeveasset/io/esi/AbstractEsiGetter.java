@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -97,7 +98,10 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 			OkHttpClient = new OkHttpClient.Builder()
 					.readTimeout(20, TimeUnit.SECONDS)
 					.writeTimeout(20, TimeUnit.SECONDS)
-					.connectTimeout(20, TimeUnit.SECONDS).build();
+					.connectTimeout(20, TimeUnit.SECONDS)
+					.addInterceptor(EsiCache.get())
+					.addInterceptor(EsiGovernor.get())
+					.build();
 		}
 		return OkHttpClient;
 	}
@@ -157,14 +161,22 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 	}
 
 	private <R> R updateApi(Updater<ApiResponse<R>, ApiException> updater) throws ApiException {
-		return updateApi(updater, 0);
+		ApiResponse<R> apiResponse = updateApiResponse(updater, 0);
+		if (apiResponse == null) {
+			return null;
+		}
+		return apiResponse.getData();
+	}
+
+	private <R> ApiResponse<R> updateApiResponse(Updater<ApiResponse<R>, ApiException> updater) throws ApiException {
+		return updateApiResponse(updater, 0);
 	}
 
-	private <R> R updateApi(Updater<ApiResponse<R>, ApiException> updater, int retries) throws ApiException {
+	private <R> ApiResponse<R> updateApiResponse(Updater<ApiResponse<R>, ApiException> updater, int retries) throws ApiException {
 		checkErrors(); //Update timeframe as needed
 		checkCancelled();
 		try {
-			ApiResponse<R> apiResponse = updater.update();
+			ApiResponse<R> apiResponse = updateConditional(updater);
 			if (apiResponse == null) {
 				return null;
 			}
@@ -173,7 +185,7 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 			if (owner != null) {
 				owner.setInvalid(false);
 			}
-			return apiResponse.getData();
+			return apiResponse;
 		} catch (ApiException ex) {
 			handleHeaders(ex);
 			logWarn(ex.getResponseBody(), ex.getMessage());
@@ -194,13 +206,34 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 					//No problem
 				}
 				logInfo(updater.getStatus(), "Retrying " + retries + " of " + updater.getMaxRetries() + ":");
-				return updateApi(updater, retries);
+				return updateApiResponse(updater, retries);
 			} else {
 				throw ex;
 			}
 		}
 	}
 
+	/**
+	 * Update with If-None-Match.
+	 * On 304 Not Modified the previous response is returned, without deserialization.
+	 */
+	private <R> ApiResponse<R> updateConditional(Updater<ApiResponse<R>, ApiException> updater) throws ApiException {
+		EsiCache.Conditional conditional = EsiCache.get().start();
+		try {
+			ApiResponse<R> apiResponse = updater.update();
+			conditional.updated(apiResponse);
+			return apiResponse;
+		} catch (ApiException ex) {
+			ApiResponse<R> apiResponse = conditional.notModified(ex);
+			if (apiResponse != null) {
+				return apiResponse;
+			}
+			throw ex;
+		} finally {
+			EsiCache.get().end();
+		}
+	}
+
 	protected void handleHeaders(ApiException apiException) {
 		setExpires(apiException.getResponseHeaders());
 		setErrorLimit(apiException.getResponseHeaders()); //Always save error limit header
@@ -454,6 +487,39 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 		protected abstract List<V> get(K k) throws ApiException;
 	}
 
+	/**
+	 * Update a list of paged endpoints, without collecting the results.
+	 * The handler should pass the pages to a consumer (see updatePages(int, EsiPagesHandler, EsiPageConsumer)).
+	 */
+	protected final <K> void updatePagedList(Collection<K> list, PagedStreamHandler<K> handler) throws ApiException {
+		List<Callable<Void>> updaters = new ArrayList<>();
+		for (K k : list) {
+			updaters.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					handler.get(k);
+					return null;
+				}
+			}
+			);
+		}
+		LOG.info("Starting " + updaters.size() + " list threads");
+		try {
+			List<Future<Void>> futures = startSubThreads(updaters);
+			for (Future<Void> future : futures) {
+				future.get(); //Throw errors (if any)
+			}
+		} catch (InterruptedException ex) {
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			ThreadWoker.throwExecutionException(ApiException.class, ex);
+		}
+	}
+
+	protected abstract class PagedStreamHandler<K> {
+		protected abstract void get(K k) throws ApiException;
+	}
+
 	protected final <K, V> Map<K, List<V>> updatePagedMap(Collection<K> list, PagedListHandler<K, V> handler) throws ApiException {
 		List<Callable<Map<K, List<V>>>> updaters = new ArrayList<>();
 		for (K k : list) {
@@ -557,30 +623,53 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 	}
 
 	protected <K> List<K> updatePages(int maxRetries, EsiPagesHandler<K> handler) throws ApiException {
+		final Map<Integer, List<K>> pages = new TreeMap<>();
+		updatePages(maxRetries, handler, new EsiPageConsumer<K>() {
+			@Override
+			public void consume(int page, List<K> values) {
+				synchronized (pages) {
+					pages.put(page, values);
+				}
+			}
+		});
 		List<K> values = new ArrayList<>();
-		EsiPageUpdater<K> pageUpdater = new EsiPageUpdater<>(handler, 1, "1 of ?", maxRetries);
-		List<K> returnValue = updateApi(pageUpdater);
-		if (returnValue != null) {
-			values.addAll(returnValue);
+		for (List<K> page : pages.values()) { //In page order
+			values.addAll(page);
+		}
+		return values;
+	}
+
+	/**
+	 * Update all pages and pass each page to the consumer, as soon as it is updated.
+	 * So, the pages can be converted while the other pages are updated, and the responses do not have to be kept until all pages are done.
+	 * @param <K> response type
+	 * @param maxRetries max retries per page
+	 * @param handler gets a page
+	 * @param consumer called from the page threads, in no particular page order (must be thread safe)
+	 * @throws ApiException
+	 */
+	protected <K> void updatePages(int maxRetries, EsiPagesHandler<K> handler, EsiPageConsumer<K> consumer) throws ApiException {
+		EsiPageUpdater<K> pageUpdater = new EsiPageUpdater<>(handler, 1, "1 of ?", maxRetries, consumer);
+		ApiResponse<List<K>> apiResponse = updateApiResponse(pageUpdater);
+		Integer pages = null;
+		if (apiResponse != null) {
+			if (apiResponse.getData() != null) {
+				consumer.consume(1, apiResponse.getData());
+			}
+			pages = getHeaderInteger(apiResponse.getHeaders(), "x-pages"); //Get pages header
 		}
-		Integer pages = getHeaderInteger(pageUpdater.getResponse().getHeaders(), "x-pages"); //Get pages header
 		int count = 2;
 		if (pages != null && pages > 1) { //More than one page
 			List<EsiPageUpdater<K>> updaters = new ArrayList<>();
 			for (int i = 2; i <= pages; i++) { //Get the remaining pages (we already got page 1 so we start at page 2
-				updaters.add(new EsiPageUpdater<>(handler, i, count + " of " + pages, maxRetries));
+				updaters.add(new EsiPageUpdater<>(handler, i, count + " of " + pages, maxRetries, consumer));
 				count++;
 			}
-			LOG.info("Starting " + updaters.size() + " pages threads");
+			LOG.info("Starting " + updaters.size() + " pages threads (ESI limit: " + EsiGovernor.getLimit() + " queue: " + EsiGovernor.getQueueDepth() + ")");
 			try {
-				List<Future<List<K>>> futures = startSubThreads(updaters);
-				for (Future<List<K>> future : futures) {
-					if (future.isDone()) {
-						returnValue = future.get(); //Get data from ESI
-						if (returnValue != null) {
-							values.addAll(returnValue);
-						}
-					}
+				List<Future<Void>> futures = startSubThreads(updaters);
+				for (Future<Void> future : futures) {
+					future.get(); //Throw errors (if any)
 				}
 			} catch (InterruptedException ex) {
 				throw new RuntimeException(ex);
@@ -588,41 +677,44 @@ public abstract class AbstractEsiGetter extends AbstractGetter<EsiOwner> {
 				ThreadWoker.throwExecutionException(ApiException.class, ex);
 			}
 		}
-		return values;
 	}
 
 	public interface EsiPagesHandler<K> {
 		public ApiResponse<List<K>> get(Integer page) throws ApiException;
 	}
 
-	public class EsiPageUpdater<T> implements Callable<List<T>>, Updater<ApiResponse<List<T>>, ApiException> {
+	public interface EsiPageConsumer<K> {
+		public void consume(int page, List<K> values);
+	}
+
+	public class EsiPageUpdater<T> implements Callable<Void>, Updater<ApiResponse<List<T>>, ApiException> {
 
 		private final EsiPagesHandler<T> handler;
 		private final int page;
 		private final String status;
 		private final int maxRetries;
-		private ApiResponse<List<T>> response;
+		private final EsiPageConsumer<T> consumer;
 
-		public EsiPageUpdater(EsiPagesHandler<T> handler, int page, String status, int maxRetries) {
+		public EsiPageUpdater(EsiPagesHandler<T> handler, int page, String status, int maxRetries, EsiPageConsumer<T> consumer) {
 			this.handler = handler;
 			this.page = page;
 			this.status = status;
 			this.maxRetries = maxRetries;
+			this.consumer = consumer;
 		}
 
 		@Override
 		public ApiResponse<List<T>> update() throws ApiException {
-			response = handler.get(page);
-			return response;
+			return handler.get(page);
 		}
 
 		@Override
-		public List<T> call() throws Exception {
-			return updateApi(this);
-		}
-
-		public ApiResponse<List<T>> getResponse() {
-			return response;
+		public Void call() throws Exception {
+			List<T> values = updateApi(this);
+			if (values != null) {
+				consumer.consume(page, values); //Convert on the page thread, so the response can be garbage collected
+			}
+			return null;
 		}
 
 		@Override
@@ -20,9 +20,13 @@
  */
 package net.nikr.eve.jeveasset.io.esi;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import net.nikr.eve.jeveasset.data.api.accounts.EsiOwner;
+import net.nikr.eve.jeveasset.data.api.raw.RawAsset;
 import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateTask;
 import net.troja.eve.esi.ApiException;
 import net.troja.eve.esi.ApiResponse;
@@ -38,8 +42,9 @@ public class EsiAssetsGetter extends AbstractEsiGetter {
 
 	@Override
 	protected void update() throws ApiException {
+		final Map<Integer, List<RawAsset>> pages = new TreeMap<>();
 		if (owner.isCorporation()) {
-			List<CorporationAssetsResponse> responses = updatePages(DEFAULT_RETRIES, new EsiPagesHandler<CorporationAssetsResponse>() {
+			updatePages(DEFAULT_RETRIES, new EsiPagesHandler<CorporationAssetsResponse>() {
 				@Override
 				public ApiResponse<List<CorporationAssetsResponse>> get(Integer page) throws ApiException {
 					ApiResponse<List<CorporationAssetsResponse>> apiResponse = getAssetsApiAuth().getCorporationsCorporationIdAssetsWithHttpInfo((int) owner.getOwnerID(), DATASOURCE, null, page, null);
@@ -49,10 +54,17 @@ public class EsiAssetsGetter extends AbstractEsiGetter {
 					}
 					return apiResponse;
 				}
+			}, new EsiPageConsumer<CorporationAssetsResponse>() {
+				@Override
+				public void consume(int page, List<CorporationAssetsResponse> values) {
+					List<RawAsset> rawAssets = EsiConverter.toRawAssetsCorporation(values);
+					synchronized (pages) {
+						pages.put(page, rawAssets);
+					}
+				}
 			});
-			owner.setAssets(EsiConverter.toAssetsCorporation(responses, owner));
 		} else {
-			List<CharacterAssetsResponse> responses = updatePages(DEFAULT_RETRIES, new EsiPagesHandler<CharacterAssetsResponse>() {
+			updatePages(DEFAULT_RETRIES, new EsiPagesHandler<CharacterAssetsResponse>() {
 				@Override
 				public ApiResponse<List<CharacterAssetsResponse>> get(Integer page) throws ApiException {
 					ApiResponse<List<CharacterAssetsResponse>> apiResponse = getAssetsApiAuth().getCharactersCharacterIdAssetsWithHttpInfo((int) owner.getOwnerID(), DATASOURCE, null, page, null);
@@ -62,9 +74,21 @@ public class EsiAssetsGetter extends AbstractEsiGetter {
 					}
 					return apiResponse;
 				}
+			}, new EsiPageConsumer<CharacterAssetsResponse>() {
+				@Override
+				public void consume(int page, List<CharacterAssetsResponse> values) {
+					List<RawAsset> rawAssets = EsiConverter.toRawAssets(values);
+					synchronized (pages) {
+						pages.put(page, rawAssets);
+					}
+				}
 			});
-			owner.setAssets(EsiConverter.toAssets(responses, owner));
 		}
+		List<RawAsset> rawAssets = new ArrayList<>();
+		for (List<RawAsset> page : pages.values()) { //In page order
+			rawAssets.addAll(page);
+		}
+		owner.setAssets(EsiConverter.toAssetsRaw(rawAssets, owner));
 	}
 
 	@Override
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.esi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.HttpURLConnection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase.SqliteConnection;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import net.troja.eve.esi.ApiException;
+import net.troja.eve.esi.ApiResponse;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Conditional ESI requests.
+ * The ETag and body of ESI responses are saved by url (endpoint, owner and page).
+ * The next request of the same url is sent with If-None-Match.
+ * When ESI answers 304 Not Modified, the previous result is reused:
+ * From memory (without deserialization) or from the saved body (after a restart).
+ */
+public class EsiCache implements Interceptor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EsiCache.class);
+
+	private static final String CONNECTION_URL = "jdbc:sqlite:" + FileUtil.getPathEsiCacheDatabase();
+	private static final String IF_NONE_MATCH = "If-None-Match";
+	private static final String ETAG = "ETag";
+	private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+	private static final long MAX_AGE = 30L * 24L * 60L * 60L * 1000L; //30 days
+	private static final int MAX_MEMORY = 1000; //Urls kept in memory
+
+	private static EsiCache cache;
+
+	private final ThreadLocal<Conditional> conditionals = new ThreadLocal<>();
+	/**
+	 * Least recently used first, max MAX_MEMORY urls.
+	 * Only used from synchronized methods (shared by all ESI threads).
+	 */
+	private final Map<String, SoftReference<Cached>> memory = new LinkedHashMap<String, SoftReference<Cached>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Cached>> eldest) {
+			return size() > MAX_MEMORY || eldest.getValue().get() == null;
+		}
+	};
+	private boolean init = false;
+
+	private EsiCache() { }
+
+	public static synchronized EsiCache get() {
+		if (cache == null) {
+			cache = new EsiCache();
+		}
+		return cache;
+	}
+
+	/**
+	 * Start a conditional update on this thread.
+	 * Only the first GET request of the update is conditional.
+	 * Must be followed by end().
+	 * @return the conditional update
+	 */
+	public Conditional start() {
+		Conditional conditional = new Conditional();
+		conditionals.set(conditional);
+		return conditional;
+	}
+
+	/**
+	 * End the conditional update on this thread.
+	 */
+	public void end() {
+		conditionals.remove();
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		Request request = chain.request();
+		Conditional conditional = conditionals.get();
+		if (conditional == null || !request.method().equals("GET") || request.header(IF_NONE_MATCH) != null) {
+			return chain.proceed(request);
+		}
+		if (conditional.key != null) { //More than one request in the update: can not be cached
+			conditional.disabled = true;
+			return chain.proceed(request);
+		}
+		String key = request.url().toString();
+		conditional.key = key;
+		String etag = getEtag(key);
+		if (etag == null) {
+			return save(chain.proceed(request), conditional);
+		}
+		conditional.data = getMemory(key);
+		Response response = chain.proceed(request.newBuilder().header(IF_NONE_MATCH, etag).build());
+		if (response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+			conditional.data = null;
+			return save(response, conditional);
+		}
+		if (conditional.data != null) {
+			return response; //Reuse the data in memory (see Conditional.notModified())
+		}
+		byte[] body = getBody(key);
+		if (body != null) { //Reuse the saved body
+			conditional.etag = etag;
+			conditional.touch = true;
+			return response.newBuilder()
+					.code(HttpURLConnection.HTTP_OK)
+					.message("OK")
+					.body(ResponseBody.create(body, JSON))
+					.build();
+		}
+		//Saved body lost: request it again
+		response.close();
+		return save(chain.proceed(request), conditional);
+	}
+
+	private Response save(Response response, Conditional conditional) throws IOException {
+		String etag = response.header(ETAG);
+		if (response.isSuccessful() && etag != null) {
+			conditional.etag = etag;
+			conditional.body = response.peekBody(Long.MAX_VALUE).bytes();
+		}
+		return response;
+	}
+
+	private synchronized Cached getMemory(String key) {
+		SoftReference<Cached> reference = memory.get(key);
+		if (reference == null) {
+			return null;
+		}
+		Cached cached = reference.get();
+		if (cached == null) {
+			memory.remove(key);
+		}
+		return cached;
+	}
+
+	private synchronized void putMemory(String key, Cached cached) {
+		memory.put(key, new SoftReference<>(cached));
+	}
+
+	private SqliteDatabase getDatabase() {
+		SqliteDatabase database = SqliteDatabase.get(CONNECTION_URL);
+		synchronized (this) {
+			if (!init) {
+				init = true;
+				database.writeAndWait(new SqliteDatabase.Update() {
+					@Override
+					public void update(SqliteConnection connection) throws SQLException {
+						connection.execute("CREATE TABLE IF NOT EXISTS esicache (url TEXT PRIMARY KEY, etag TEXT, body BLOB, date INTEGER)");
+						PreparedStatement statement = connection.prepare("DELETE FROM esicache WHERE date < ?");
+						statement.setLong(1, System.currentTimeMillis() - MAX_AGE);
+						statement.executeUpdate();
+					}
+				});
+			}
+		}
+		return database;
+	}
+
+	private String getEtag(final String key) {
+		return getDatabase().read(new SqliteDatabase.Query<String>() {
+			@Override
+			public String query(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("SELECT etag FROM esicache WHERE url = ?");
+				statement.setString(1, key);
+				try (ResultSet rs = statement.executeQuery()) {
+					if (rs.next()) {
+						return rs.getString(1);
+					}
+					return null;
+				}
+			}
+		}, null);
+	}
+
+	private byte[] getBody(final String key) {
+		byte[] compressed = getDatabase().read(new SqliteDatabase.Query<byte[]>() {
+			@Override
+			public byte[] query(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("SELECT body FROM esicache WHERE url = ?");
+				statement.setString(1, key);
+				try (ResultSet rs = statement.executeQuery()) {
+					if (rs.next()) {
+						return rs.getBytes(1);
+					}
+					return null;
+				}
+			}
+		}, null);
+		if (compressed == null) {
+			return null;
+		}
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				out.write(buffer, 0, len);
+			}
+			return out.toByteArray();
+		} catch (IOException ex) {
+			LOG.warn("Cached body not loaded: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private void putBody(final String key, final String etag, final byte[] body) {
+		final byte[] compressed;
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(body);
+			}
+			compressed = out.toByteArray();
+		} catch (IOException ex) {
+			LOG.warn("Body not cached: " + ex.getMessage());
+			return;
+		}
+		getDatabase().write(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("INSERT OR REPLACE INTO esicache (url, etag, body, date) VALUES (?, ?, ?, ?)");
+				statement.setString(1, key);
+				statement.setString(2, etag);
+				statement.setBytes(3, compressed);
+				statement.setLong(4, System.currentTimeMillis());
+				statement.executeUpdate();
+			}
+		});
+	}
+
+	private void touch(final String key) {
+		getDatabase().write(new SqliteDatabase.Update() {
+			@Override
+			public void update(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("UPDATE esicache SET date = ? WHERE url = ?");
+				statement.setLong(1, System.currentTimeMillis());
+				statement.setString(2, key);
+				statement.executeUpdate();
+			}
+		});
+	}
+
+	/**
+	 * A conditional update on one thread.
+	 */
+	public class Conditional {
+		private String key;
+		private String etag;
+		private byte[] body;
+		private Cached data;
+		private boolean touch = false;
+		private boolean disabled = false;
+
+		private Conditional() { }
+
+		/**
+		 * Save the result of a successful update.
+		 * @param response the deserialized response
+		 */
+		public void updated(ApiResponse<?> response) {
+			if (key == null || etag == null || disabled || response == null || response.getData() == null) {
+				return;
+			}
+			putMemory(key, new Cached(response.getData(), response.getHeaders()));
+			if (body != null) {
+				putBody(key, etag, body);
+			} else if (touch) {
+				touch(key);
+			}
+		}
+
+		/**
+		 * Get the previous response, if ESI answered 304 Not Modified.
+		 * @param <T> response data type
+		 * @param ex the update error
+		 * @return the previous response (with the new headers) or null, if the error was not 304 Not Modified
+		 */
+		@SuppressWarnings("unchecked")
+		public <T> ApiResponse<T> notModified(ApiException ex) {
+			if (ex.getCode() != HttpURLConnection.HTTP_NOT_MODIFIED || data == null || disabled) {
+				return null;
+			}
+			touch(key);
+			LOG.debug("Not modified: " + key);
+			Map<String, List<String>> headers = new HashMap<>();
+			if (data.headers != null) {
+				headers.putAll(data.headers);
+			}
+			if (ex.getResponseHeaders() != null) {
+				headers.putAll(ex.getResponseHeaders()); //New expires and error limit
+			}
+			Object copy = data.data;
+			if (copy instanceof List) {
+				copy = new ArrayList<>((List<?>) copy); //The list may be changed by the caller
+			}
+			return new ApiResponse<>(HttpURLConnection.HTTP_NOT_MODIFIED, headers, (T) copy);
+		}
+	}
+
+	private static class Cached {
+		private final Object data;
+		private final Map<String, List<String>> headers;
+
+		public Cached(Object data, Map<String, List<String>> headers) {
+			this.data = data;
+			this.headers = headers;
+		}
+	}
+}
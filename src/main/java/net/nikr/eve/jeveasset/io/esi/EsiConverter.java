@@ -105,18 +105,30 @@ public class EsiConverter extends DataConverter {
 	}
 
 	public static List<MyAsset> toAssets(List<CharacterAssetsResponse> responses, OwnerType owner) {
-		List<RawAsset> rawAssets = new ArrayList<>();
+		return toAssetsRaw(toRawAssets(responses), owner);
+	}
+
+	public static List<MyAsset> toAssetsCorporation(List<CorporationAssetsResponse> responses, OwnerType owner) {
+		return toAssetsRaw(toRawAssetsCorporation(responses), owner);
+	}
+
+	public static List<RawAsset> toRawAssets(List<CharacterAssetsResponse> responses) {
+		List<RawAsset> rawAssets = new ArrayList<>(responses.size());
 		for (CharacterAssetsResponse response : responses) {
 			rawAssets.add(new RawAsset(response));
 		}
-		return convertRawAssets(rawAssets, owner);
+		return rawAssets;
 	}
 
-	public static List<MyAsset> toAssetsCorporation(List<CorporationAssetsResponse> responses, OwnerType owner) {
-		List<RawAsset> rawAssets = new ArrayList<>();
+	public static List<RawAsset> toRawAssetsCorporation(List<CorporationAssetsResponse> responses) {
+		List<RawAsset> rawAssets = new ArrayList<>(responses.size());
 		for (CorporationAssetsResponse response : responses) {
 			rawAssets.add(new RawAsset(response));
 		}
+		return rawAssets;
+	}
+
+	public static List<MyAsset> toAssetsRaw(List<RawAsset> rawAssets, OwnerType owner) {
 		return convertRawAssets(rawAssets, owner);
 	}
 
@@ -276,8 +288,21 @@ public class EsiConverter extends DataConverter {
 	}
 
 	public static Map<Integer, Set<RawPublicMarketOrder>> toPublicMarketOrders(List<MarketOrdersResponse> responses) {
-		Map<Integer, Set<RawPublicMarketOrder>> marketOrders = new HashMap<>();
+		return toPublicMarketOrders(responses, new HashMap<>(), null);
+	}
+
+	/**
+	 * Add public market orders to an existing map.
+	 * @param responses orders to add
+	 * @param marketOrders orders by typeID (not thread safe)
+	 * @param typeIDs types to add (null = all)
+	 * @return marketOrders
+	 */
+	public static Map<Integer, Set<RawPublicMarketOrder>> toPublicMarketOrders(List<MarketOrdersResponse> responses, Map<Integer, Set<RawPublicMarketOrder>> marketOrders, Set<Integer> typeIDs) {
 		for (MarketOrdersResponse response : responses) {
+			if (typeIDs != null && !typeIDs.contains(response.getTypeId())) {
+				continue;
+			}
 			RawPublicMarketOrder marketOrder = new RawPublicMarketOrder(response);
 			Set<RawPublicMarketOrder> set = marketOrders.get(marketOrder.getTypeID());
 			if (set == null) {
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.esi;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of ESI requests in flight, per host.
+ * The limit is adaptive (AIMD):
+ * Grows by one for each limit of successful requests,
+ * and is halved on server errors, error limited (420) or timeouts.
+ * High latency shrinks the limit slowly.
+ * The ESI error limit (x-esi-error-limit-remain/reset) caps the limit,
+ * so the error window is not used up by requests already in flight.
+ */
+public class EsiGovernor implements Interceptor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EsiGovernor.class);
+
+	public static final String ESI_HOST = "esi.evetech.net";
+
+	private static EsiGovernor governor;
+
+	private final Map<String, Limiter> limiters = new HashMap<>();
+
+	private EsiGovernor() { }
+
+	public static synchronized EsiGovernor get() {
+		if (governor == null) {
+			governor = new EsiGovernor();
+		}
+		return governor;
+	}
+
+	/**
+	 * Current limit of requests in flight to ESI.
+	 * @return max requests in flight
+	 */
+	public static int getLimit() {
+		return get().getLimiter(ESI_HOST).getAllowed();
+	}
+
+	/**
+	 * Requests waiting for the limit.
+	 * @return queue depth
+	 */
+	public static int getQueueDepth() {
+		return get().getLimiter(ESI_HOST).getWaiting();
+	}
+
+	/**
+	 * Requests in flight to ESI.
+	 * @return requests in flight
+	 */
+	public static int getInFlight() {
+		return get().getLimiter(ESI_HOST).getInFlight();
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		Request request = chain.request();
+		Limiter limiter = getLimiter(request.url().host());
+		try {
+			limiter.acquire();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Cancelled while waiting for ESI");
+		}
+		long start = System.currentTimeMillis();
+		int code = 0; //0 = IOException
+		Integer errorRemain = null;
+		Integer errorReset = null;
+		try {
+			Response response = chain.proceed(request);
+			code = response.code();
+			errorRemain = getHeaderInteger(response, "x-esi-error-limit-remain");
+			errorReset = getHeaderInteger(response, "x-esi-error-limit-reset");
+			return response;
+		} finally {
+			limiter.release(code, System.currentTimeMillis() - start, errorRemain, errorReset);
+		}
+	}
+
+	private synchronized Limiter getLimiter(String host) {
+		Limiter limiter = limiters.get(host);
+		if (limiter == null) {
+			limiter = new Limiter(host);
+			limiters.put(host, limiter);
+		}
+		return limiter;
+	}
+
+	private static Integer getHeaderInteger(Response response, String name) {
+		String value = response.header(name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value.trim());
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	static class Limiter {
+
+		static final int MIN_LIMIT = 1;
+		static final int MAX_LIMIT = 100; //Same as the update thread pools
+		static final int INITIAL_LIMIT = 20;
+		/**
+		 * Errors per request slot: with 100 errors left, 20 requests may be in flight.
+		 */
+		static final int ERRORS_PER_REQUEST = 5;
+		/**
+		 * Errors left before no new requests are sent, until the error window is reset.
+		 */
+		static final int ERRORS_RESERVED = 10;
+		private static final long DECREASE_INTERVAL = 1000; //Only halve once per second
+		private static final double LATENCY_FACTOR = 3.0;
+
+		private final String host;
+		private double limit = INITIAL_LIMIT;
+		private int inFlight = 0;
+		private int waiting = 0;
+		private int peak = 0; //Most requests in flight since the last limit change
+		private int successes = 0; //Successful requests at the limit since the last limit change
+		private Integer errorRemain = null;
+		private long errorReset = 0;
+		private double latency = -1; //Smoothed latency (ms)
+		private double baseline = -1; //Lowest smoothed latency, slowly drifting up (ms)
+		private long lastDecrease = 0;
+
+		Limiter(String host) {
+			this.host = host;
+		}
+
+		synchronized void acquire() throws InterruptedException {
+			waiting++;
+			try {
+				while (inFlight >= getAllowed()) {
+					long wait = errorReset - System.currentTimeMillis();
+					if (isErrorLimited() && wait > 0) {
+						wait(wait);
+					} else {
+						wait(1000);
+					}
+				}
+			} finally {
+				waiting--;
+			}
+			inFlight++;
+			peak = Math.max(peak, inFlight);
+		}
+
+		synchronized void release(int code, long time, Integer remain, Integer reset) {
+			long now = System.currentTimeMillis();
+			inFlight--;
+			if (remain != null) {
+				errorRemain = remain;
+				errorReset = now + (reset != null ? reset * 1000L : 60000L);
+			}
+			if (code == 0 || code == 420 || (code >= 500 && code < 600)) {
+				if (now - lastDecrease > DECREASE_INTERVAL) {
+					lastDecrease = now;
+					setLimit(limit / 2, "Error " + code);
+				}
+			} else {
+				updateLatency(time);
+				if (baseline > 0 && latency > baseline * LATENCY_FACTOR && now - lastDecrease > DECREASE_INTERVAL) {
+					lastDecrease = now;
+					setLimit(limit * 0.9, "Latency " + Math.round(latency) + "ms");
+				} else if (peak >= (int) limit) { //Only grow when the limit is used
+					successes++;
+					if (successes >= (int) limit) { //One more after a full limit of successful requests
+						setLimit(limit + 1, null);
+					}
+				}
+			}
+			notifyAll();
+		}
+
+		synchronized int getAllowed() {
+			int allowed = (int) limit;
+			if (isErrorLimited()) {
+				int errors = errorRemain - ERRORS_RESERVED;
+				if (errors <= 0) {
+					return 0;
+				}
+				allowed = Math.min(allowed, Math.max(MIN_LIMIT, errors / ERRORS_PER_REQUEST));
+			}
+			return allowed;
+		}
+
+		synchronized int getWaiting() {
+			return waiting;
+		}
+
+		synchronized int getInFlight() {
+			return inFlight;
+		}
+
+		private boolean isErrorLimited() {
+			if (errorRemain == null) {
+				return false;
+			}
+			if (System.currentTimeMillis() > errorReset) { //New error window
+				errorRemain = null;
+				return false;
+			}
+			return errorRemain < MAX_LIMIT;
+		}
+
+		private void updateLatency(long time) {
+			if (latency < 0) {
+				latency = time;
+			} else {
+				latency = latency * 0.9 + time * 0.1;
+			}
+			if (baseline < 0 || latency < baseline) {
+				baseline = latency;
+			} else {
+				baseline = baseline * 1.001; //Adapt to slower endpoints
+			}
+		}
+
+		private void setLimit(double value, String reason) {
+			int before = (int) limit;
+			limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, value));
+			peak = inFlight;
+			successes = 0;
+			if (reason != null && before != (int) limit) {
+				LOG.info(host + " limit: " + before + " -> " + (int) limit + " (" + reason + ") queue: " + waiting);
+			}
+		}
+	}
+}
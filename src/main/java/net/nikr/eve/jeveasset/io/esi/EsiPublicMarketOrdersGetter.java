@@ -21,11 +21,9 @@
 package net.nikr.eve.jeveasset.io.esi;
 
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import net.nikr.eve.jeveasset.data.api.raw.RawPublicMarketOrder;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
 import net.nikr.eve.jeveasset.data.settings.Citadel;
@@ -38,6 +36,7 @@ import net.nikr.eve.jeveasset.gui.tabs.orders.OutbidProcesser.OutbidProcesserOut
 import static net.nikr.eve.jeveasset.io.esi.AbstractEsiGetter.DATASOURCE;
 import static net.nikr.eve.jeveasset.io.esi.AbstractEsiGetter.DEFAULT_RETRIES;
 import static net.nikr.eve.jeveasset.io.esi.AbstractEsiGetter.getMarketApiOpen;
+import net.nikr.eve.jeveasset.io.local.OrderBookStore;
 import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 import net.nikr.eve.jeveasset.io.shared.RawConverter;
 import net.troja.eve.esi.ApiException;
@@ -56,6 +55,7 @@ public class EsiPublicMarketOrdersGetter extends AbstractEsiGetter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(EsiPublicMarketOrdersGetter.class);
 	private static final Long OFFSET = 1000L * 3L; // 3 seconds
+	private static final long DEFAULT_EXPIRES = 1000L * 60L * 5L; // 5 minutes (ESI market orders cache time)
 
 	private final UpdateTask updateTask;
 	private final OutbidProcesserInput input;
@@ -77,27 +77,58 @@ public class EsiPublicMarketOrdersGetter extends AbstractEsiGetter {
 		AtomicInteger count = new AtomicInteger(0);
 		//Update public market orders
 		publicMarketOrders = true;
-		List<MarketOrdersResponse> responses = updatePagedList(input.getRegionIDs(), new PagedListHandler<Integer, MarketOrdersResponse>() {
+		//Region orders are written to the order book of the region, as the pages arrive
+		updatePagedList(input.getRegionIDs(), new PagedStreamHandler<Integer>() {
 			@Override
-			protected List<MarketOrdersResponse> get(Integer k) throws ApiException {
+			protected void get(Integer k) throws ApiException {
+				final OrderBookStore.Writer writer = OrderBookStore.get().create(OrderBookStore.getRegionKey(k));
+				final AtomicReference<Date> regionUpdate = new AtomicReference<>();
+				final AtomicReference<Date> expires = new AtomicReference<>();
+				boolean done = false;
 				try {
-					return updatePages(DEFAULT_RETRIES, new EsiPagesHandler<MarketOrdersResponse>() {
+					updatePages(DEFAULT_RETRIES, new EsiPagesHandler<MarketOrdersResponse>() {
 						@Override
 						public ApiResponse<List<MarketOrdersResponse>> get(Integer page) throws ApiException {
 							ApiResponse<List<MarketOrdersResponse>> response = getMarketApiOpen().getMarketsRegionIdOrdersWithHttpInfo("all", k, DATASOURCE, null, page, null);
 							String header = getHeader(response.getHeaders(), "last-modified");
 							if (header != null) {
 								Date date = Formatter.parseExpireDate(header);
-								if (lastUpdate == null) {
-									lastUpdate = date;
-								} else if (!modified && !lastUpdate.equals(date)){
-									modified = true;
+								regionUpdate.compareAndSet(null, date);
+								synchronized (input) {
+									if (lastUpdate == null) {
+										lastUpdate = date;
+									} else if (!modified && !lastUpdate.equals(date)){
+										modified = true;
+									}
 								}
 							}
+							setExpires(expires, response);
 							return response;
 						}
+					}, new EsiPageConsumer<MarketOrdersResponse>() {
+						@Override
+						public void consume(int page, List<MarketOrdersResponse> values) {
+							for (MarketOrdersResponse ordersResponse : values) {
+								writer.add(new RawPublicMarketOrder(ordersResponse));
+							}
+							synchronized (input) {
+								for (MarketOrdersResponse ordersResponse : values) {
+									//Find leaking market structures
+									if (ordersResponse.getLocationId() > 100000000) {
+										input.getStructureIDs().add(ordersResponse.getLocationId());
+									}
+									//Map known locationID <=> systemID
+									input.getLocationToSystem().put(ordersResponse.getLocationId(), RawConverter.toLong(ordersResponse.getSystemId()));
+								}
+							}
+						}
 					});
+					writer.commit(regionUpdate.get(), getExpires(expires));
+					done = true;
 				} finally {
+					if (!done) {
+						writer.discard(); //Keep the last order book
+					}
 					setProgressAll(input.getRegionIDs().size(), count.incrementAndGet(), 0, 40);
 				}
 			}
@@ -106,15 +137,6 @@ public class EsiPublicMarketOrdersGetter extends AbstractEsiGetter {
 			addError("last-modified changed while updating", "Cache expired while updating");
 		}
 		publicMarketOrders = false;
-		Map<Integer, Set<RawPublicMarketOrder>> orders = EsiConverter.toPublicMarketOrders(responses);
-		for (MarketOrdersResponse ordersResponse : responses) {
-			//Find leaking market structures
-			if (ordersResponse.getLocationId() > 100000000) {
-				input.getStructureIDs().add(ordersResponse.getLocationId());
-			}
-			//Map known locationID <=> systemID
-			input.getLocationToSystem().put(ordersResponse.getLocationId(), RawConverter.toLong(ordersResponse.getSystemId()));
-		}
 		//Get public structures
 		input.getStructureIDs().addAll(update(DEFAULT_RETRIES, new EsiHandler<List<Long>>() {
 			@Override
@@ -126,41 +148,54 @@ public class EsiPublicMarketOrdersGetter extends AbstractEsiGetter {
 		count.set(0);
 		MarketApi marketApi = input.getMarketApi();
 		if (marketApi != null) {
-			List<MarketStructuresResponse> structuresResponses = updatePagedList(input.getStructureIDs(), new PagedListHandler<Long, MarketStructuresResponse>() {
+			//Structure orders are written to the order book of the structure
+			updatePagedList(input.getStructureIDs(), new PagedStreamHandler<Long>() {
 				@Override
-				protected List<MarketStructuresResponse> get(Long k) throws ApiException {
+				protected void get(Long k) throws ApiException {
+					final OrderBookStore.Writer writer = OrderBookStore.get().create(OrderBookStore.getStructureKey(k));
+					final AtomicReference<Date> structureUpdate = new AtomicReference<>();
+					final AtomicReference<Date> expires = new AtomicReference<>();
+					final AtomicReference<Long> systemID = new AtomicReference<>();
+					boolean done = false;
 					try {
-						return updatePages(DEFAULT_RETRIES, new EsiPagesHandler<MarketStructuresResponse>() {
+						updatePages(DEFAULT_RETRIES, new EsiPagesHandler<MarketStructuresResponse>() {
 							@Override
 							public ApiResponse<List<MarketStructuresResponse>> get(Integer page) throws ApiException {
-								return marketApi.getMarketsStructuresStructureIdWithHttpInfo(k, DATASOURCE, null, page, null);
+								ApiResponse<List<MarketStructuresResponse>> response = marketApi.getMarketsStructuresStructureIdWithHttpInfo(k, DATASOURCE, null, page, null);
+								String header = getHeader(response.getHeaders(), "last-modified");
+								if (header != null) {
+									structureUpdate.compareAndSet(null, Formatter.parseExpireDate(header));
+								}
+								setExpires(expires, response);
+								return response;
+							}
+						}, new EsiPageConsumer<MarketStructuresResponse>() {
+							@Override
+							public void consume(int page, List<MarketStructuresResponse> values) {
+								for (MarketStructuresResponse response : values) {
+									writer.add(new RawPublicMarketOrder(response, getSystemID(systemID, response.getLocationId())));
+								}
 							}
 						});
+						writer.commit(structureUpdate.get(), getExpires(expires));
+						done = true;
 					} catch (ApiException ex) {
 						if (ex.getCode() == 403 && ex.getResponseBody().toLowerCase().contains("market access denied")) {
 							LOG.warn(ex.getMessage() + ":\n" + ex.getResponseBody());
-							return null;
 						} else {
 							throw ex;
 						}
 					} finally {
+						if (!done) {
+							writer.discard(); //Keep the last order book
+						}
 						setProgressAll(input.getStructureIDs().size(), count.incrementAndGet(), 40, 90);
 					}
 				}
 			});
-			for (MarketStructuresResponse response : structuresResponses) {
-				RawPublicMarketOrder marketOrder = new RawPublicMarketOrder(response, getSystemID(input, response.getLocationId()));
-				Set<RawPublicMarketOrder> set = orders.get(marketOrder.getTypeID());
-				if (set == null) {
-					set = new HashSet<>();
-					orders.put(marketOrder.getTypeID(), set);
-				}
-				set.add(marketOrder);
-			}
 		} else {
 			addError("NO ENOUGH ACCESS PRIVILEGES", "No character with market orders structure scope found\r\n(Add scope: [Options] > [Acounts...] > [Edit])");
 		}
-		input.addOrders(orders, lastUpdate);
 		//Process data
 		OutbidProcesser.process(input, output);
 		if (output.hasUnknownLocations()) {
@@ -202,6 +237,40 @@ public class EsiPublicMarketOrdersGetter extends AbstractEsiGetter {
 		return null;
 	}
 
+	private void setExpires(AtomicReference<Date> expires, ApiResponse<?> response) {
+		String header = getHeader(response.getHeaders(), "expires");
+		if (header != null) {
+			expires.compareAndSet(null, Formatter.parseExpireDate(header));
+		}
+	}
+
+	private Date getExpires(AtomicReference<Date> expires) {
+		Date date = expires.get();
+		if (date != null) {
+			return date;
+		}
+		return new Date(System.currentTimeMillis() + DEFAULT_EXPIRES);
+	}
+
+	/**
+	 * All orders in a structure have the same location, so the system is only found once per structure.
+	 * @param systemID system of the structure (null until found)
+	 * @param locationID structureID
+	 * @return systemID or null if unknown
+	 */
+	private Long getSystemID(AtomicReference<Long> systemID, long locationID) {
+		Long cached = systemID.get();
+		if (cached != null) {
+			return cached;
+		}
+		Long found;
+		synchronized (input) { //Updates the input maps
+			found = getSystemID(input, locationID);
+		}
+		systemID.set(found);
+		return found;
+	}
+
 	private Long getSystemID(OutbidProcesser.OutbidProcesserInput data, long locationID) {
 		Long systemID = data.getLocationToSystem().get(locationID);
 		if (systemID != null) {
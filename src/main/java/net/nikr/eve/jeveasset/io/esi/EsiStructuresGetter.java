@@ -43,6 +43,7 @@ import net.nikr.eve.jeveasset.data.settings.TrackerData;
 import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateTask;
 import net.nikr.eve.jeveasset.gui.shared.Formatter;
 import net.nikr.eve.jeveasset.gui.tabs.values.AssetValue;
+import net.nikr.eve.jeveasset.gui.tabs.values.Breakdown;
 import net.nikr.eve.jeveasset.gui.tabs.values.Value;
 import net.nikr.eve.jeveasset.io.online.CitadelGetter;
 import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
@@ -184,8 +185,9 @@ public class EsiStructuresGetter extends AbstractEsiGetter {
 				TrackerData.readLock();
 				for (List<Value> values : TrackerData.get().values()) {
 					for (Value value : values) {
-						for (AssetValue assetValue : value.getAssetsFilter().keySet()) {
-							add(locationIDs, assetValue.getLocationID());
+						Breakdown breakdown = value.getAssetsBreakdown();
+						for (int i = 0; i < breakdown.size(); i++) {
+							add(locationIDs, AssetValue.fromIndex(breakdown.getKey(i)).getLocationID());
 						}
 					}
 				}
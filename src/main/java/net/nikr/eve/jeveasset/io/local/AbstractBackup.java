@@ -26,6 +26,11 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import net.nikr.eve.jeveasset.Program;
@@ -59,12 +64,55 @@ public abstract class AbstractBackup extends AttributeGetters {
 		renameFile(targetFile, getCorruptFile(filename)); //Backup corrupted file
 	}
 
-	protected void backupFile(final String filename) {
-		File targetFile = new File(filename);
-		//target to bac (new is safe)
-		renameFile(targetFile, getBackupFile(filename));
-		//new to target (bac is safe)
-		renameFile(getNewFile(filename), targetFile);
+	/**
+	 * Move the .new file to the target, and keep the old target as .bac.
+	 * The target is replaced in one atomic move, so there is always a complete file at the target.
+	 * Files must never be changed in place, as the .bac may be a hard link to the target.
+	 * @param filename target file
+	 * @throws IOException if the .new file could not be moved to the target
+	 */
+	protected void backupFile(final String filename) throws IOException {
+		Path target = Paths.get(filename);
+		Path backup = getBackupFile(filename).toPath();
+		if (Files.exists(target)) {
+			try {
+				Files.deleteIfExists(backup);
+				Files.createLink(backup, target); //Keep the old target without copying it
+			} catch (IOException | UnsupportedOperationException ex) {
+				Files.copy(target, backup, StandardCopyOption.REPLACE_EXISTING); //File system without hard links
+			}
+		}
+		move(getNewFile(filename).toPath(), target);
+	}
+
+	/**
+	 * Move the .new file to the target, without keeping the old target.
+	 * @param filename target file
+	 * @throws IOException if the .new file could not be moved to the target
+	 */
+	protected void commitFile(final String filename) throws IOException {
+		move(getNewFile(filename).toPath(), Paths.get(filename));
+	}
+
+	/**
+	 * Write the file content to the disk.
+	 * Must be called before the .new file is moved to the target, so a crash can not leave an empty target.
+	 * @param outputStream file stream (wrapping streams must be flushed first)
+	 * @throws IOException
+	 */
+	protected void sync(final FileOutputStream outputStream) throws IOException {
+		outputStream.getFD().sync();
+	}
+
+	/**
+	 * Delete the .new file after a failed save.
+	 * @param filename target file
+	 */
+	protected void deleteNewFile(final String filename) {
+		File newFile = getNewFile(filename);
+		if (newFile.exists() && !newFile.delete()) {
+			LOG.warn("Failed to delete: " + newFile.getName());
+		}
 	}
 
 	protected File getNewFile(final String filename) {
@@ -124,7 +172,7 @@ public abstract class AbstractBackup extends AttributeGetters {
 		FileLock.unlock(xmlFile);
 	}
 
-	private File getBackupFile(final String filename) {
+	protected File getBackupFile(final String filename) {
 		return new File(filename.substring(0, filename.lastIndexOf(".")) + ".bac");
 	}
 
@@ -143,16 +191,21 @@ public abstract class AbstractBackup extends AttributeGetters {
 			LOG.warn("Move failed: " + from.getName() + " does not exist");
 			return false;
 		}
-		if (to.exists() && !to.delete()) {
-			LOG.warn("Move failed: failed to delete: " + to.getName());
-			return false;
-		}
-		if (from.exists() && from.renameTo(to)) {
+		try {
+			move(from.toPath(), to.toPath());
 			LOG.info(from.getName() + " moved to: "+ to.getName());
 			return true;
-		} else {
-			LOG.warn("Move failed: from " + from.getName() + " to " + to.getName());
+		} catch (IOException ex) {
+			LOG.warn("Move failed: from " + from.getName() + " to " + to.getName() + " (" + ex.getMessage() + ")");
 			return false;
 		}
 	}
+
+	private void move(Path from, Path to) throws IOException {
+		try {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
 }
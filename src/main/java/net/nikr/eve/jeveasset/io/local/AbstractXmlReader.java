@@ -27,11 +27,16 @@ import java.io.IOException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import net.nikr.eve.jeveasset.io.online.Updater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 
@@ -43,13 +48,20 @@ public abstract class AbstractXmlReader<T> extends AbstractBackup {
 		DYNAMIC, STATIC, DYNAMIC_BACKUP, IMPORT
 	}
 
+	private Document streamDocument;
+
 	protected T read(final String name, final String filename, final XmlType xmlType) {
 		if (!exist(filename) && (xmlType == XmlType.DYNAMIC || xmlType == XmlType.DYNAMIC_BACKUP)) {
 			return doNotExistValue();
 		}
 		try {
-			Element element = getDocumentElement(filename, xmlType);
-			T t = parse(element);
+			T t;
+			if (isStreaming()) {
+				t = readStream(filename, xmlType);
+			} else {
+				Element element = getDocumentElement(filename, xmlType);
+				t = parse(element);
+			}
 			LOG.info(name+ " loaded");
 			return t;
 		} catch (IOException ex) {
@@ -79,11 +91,159 @@ public abstract class AbstractXmlReader<T> extends AbstractBackup {
 	protected abstract T failValue();
 	protected abstract T doNotExistValue();
 
+	/**
+	 * Readers that can parse the file without building the whole document tree,
+	 * should return true and implement parse(XMLStreamReader).
+	 * @return true to use parse(XMLStreamReader) instead of parse(Element)
+	 */
+	protected boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * Parse the file as a stream.
+	 * The reader is positioned on the root element start tag.
+	 * Use nextChild(), readElement() and skipElement() to move through the file.
+	 * @param reader
+	 * @return
+	 * @throws XmlException
+	 * @throws XMLStreamException
+	 */
+	protected T parse(XMLStreamReader reader) throws XmlException, XMLStreamException {
+		throw new XmlException("Streaming not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Move to the next child element of the current element.
+	 * The current child must be completely consumed before calling this again.
+	 * @param reader
+	 * @return true if positioned on the start tag of the next child,
+	 *			false if positioned on the end tag of the parent (no more children)
+	 * @throws XMLStreamException
+	 */
+	protected boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skip the current element (and all it's children).
+	 * @param reader positioned on the start tag of the element. Will be positioned on the end tag when done.
+	 * @throws XMLStreamException
+	 */
+	protected void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Create a detached element with the attributes of the current element.
+	 * Does not move the reader.
+	 * @param reader positioned on a start tag
+	 * @return element without children
+	 */
+	protected Element readAttributes(XMLStreamReader reader) {
+		Element element = streamDocument.createElement(reader.getLocalName());
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return element;
+	}
+
+	/**
+	 * Read the current element (and all it's children) into a small detached element.
+	 * Only attributes are read, text content is ignored.
+	 * @param reader positioned on the start tag of the element. Will be positioned on the end tag when done.
+	 * @return element
+	 * @throws XMLStreamException
+	 */
+	protected Element readElement(XMLStreamReader reader) throws XMLStreamException {
+		Element element = readAttributes(reader);
+		Node parent = element;
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				Element child = readAttributes(reader);
+				parent.appendChild(child);
+				parent = child;
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				parent = parent.getParentNode();
+				depth--;
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * Create an empty detached element.
+	 * @param name
+	 * @return
+	 */
+	protected Element createElement(String name) {
+		return streamDocument.createElement(name);
+	}
+
 	private void staticDataFix() {
 		Updater updater = new Updater();
 		updater.fixData();
 	}
 
+	private T readStream(final String filename, final XmlType xmlType) throws XmlException, IOException {
+		FileInputStream is = null;
+		XMLStreamReader reader = null;
+		try {
+			if (xmlType == XmlType.DYNAMIC || xmlType == XmlType.DYNAMIC_BACKUP) {
+				lock(filename);
+			}
+			File file = new File(filename);
+			is = new FileInputStream(file);
+			streamDocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			reader = factory.createXMLStreamReader(is);
+			reader.nextTag(); //Root element
+			T t = parse(reader);
+			if (xmlType == XmlType.DYNAMIC_BACKUP) {
+				backup(filename);
+			}
+			return t;
+		} catch (XMLStreamException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		} catch (ParserConfigurationException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		} finally {
+			streamDocument = null;
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ex) {
+					//No problem
+				}
+			}
+			if (is != null) {
+				is.close();
+			}
+			if (xmlType == XmlType.DYNAMIC || xmlType == XmlType.DYNAMIC_BACKUP) {
+				unlock(filename); //Last thing to do
+			}
+		}
+	}
+
 	private Element getDocumentElement(final String filename, final XmlType xmlType) throws XmlException, IOException {
 		FileInputStream is = null;
 		try {
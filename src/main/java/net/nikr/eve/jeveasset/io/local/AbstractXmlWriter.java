@@ -22,12 +22,11 @@
 package net.nikr.eve.jeveasset.io.local;
 
 import java.awt.Color;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -79,62 +78,66 @@ public abstract class AbstractXmlWriter extends AbstractBackup {
 
 	private void writeXmlFile(final Document doc, final String filename, final String encoding, boolean createBackup, boolean fitting) throws XmlException {
 		DOMSource source = new DOMSource(doc);
-		FileOutputStream outputStream = null;
-		File file;
-		if (createBackup) {
-			file = getNewFile(filename); //Save to .new file
-		} else {
-			file = new File(filename);
-		}
+		File file = getNewFile(filename); //Save to .new file
 		try {
 			lock(filename);
 			//Save file
-			outputStream = new FileOutputStream(file);
-			OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream, encoding);
-			if (fitting) {
-				outputStreamWriter.append("<?xml version=\"1.0\" ?>\r\n");
-			}
-			// result
-			Result result = new StreamResult(outputStreamWriter);
-
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer;
-			transformer = transformerFactory.newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-			transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-			transformer.setOutputProperty("{http://xml.apache.org/xalan}indent-amount", "4");
-			transformer.setOutputProperty(OutputKeys.ENCODING, encoding);
-			if (fitting) {
-				transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-			}
-			transformer.transform(source, result);
-		} catch (FileNotFoundException ex) {
-			throw new XmlException(ex.getMessage(), ex);
-		} catch (TransformerConfigurationException ex) {
-			throw new XmlException(ex.getMessage(), ex);
-		} catch (TransformerException ex) {
-			throw new XmlException(ex.getMessage(), ex);
-		} catch (UnsupportedEncodingException ex) {
-			throw new XmlException(ex.getMessage(), ex);
-		} catch (IOException ex) {
-			throw new XmlException(ex.getMessage(), ex);
-		} finally {
-			if (outputStream != null) {
-				try {
-					outputStream.close();
-				} catch (IOException ex) {
-					throw new XmlException(ex.getMessage(), ex);
+			try (FileOutputStream outputStream = new FileOutputStream(file)) {
+				OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream, encoding);
+				if (fitting) {
+					outputStreamWriter.append("<?xml version=\"1.0\" ?>\r\n");
 				}
+				// result
+				Result result = new StreamResult(outputStreamWriter);
+				getTransformer(encoding, fitting).transform(source, result);
+				outputStreamWriter.flush();
+				sync(outputStream);
 			}
-			//Saving done - create backup and rename new file to target
+			//Saving done - move the new file to target
 			if (createBackup) {
-				backupFile(filename); //Rename .xml => .bac (.new is safe) and .new => .xml (.bac is safe). That way we always have at least one safe file
+				backupFile(filename); //Link .xml => .bac and move .new => .xml. That way we always have at least one safe file
+			} else {
+				commitFile(filename);
 			}
+		} catch (TransformerException | IOException ex) {
+			deleteNewFile(filename);
+			throw new XmlException(ex.getMessage(), ex);
+		} finally {
 			unlock(filename); //Last thing to do
 		}
 	}
 
+	/**
+	 * Get the document as UTF-8 encoded XML.
+	 * @param doc
+	 * @return
+	 * @throws XmlException
+	 */
+	protected byte[] getXmlBytes(final Document doc) throws XmlException {
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			getTransformer("UTF-8", false).transform(new DOMSource(doc), new StreamResult(outputStream));
+			return outputStream.toByteArray();
+		} catch (TransformerException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		}
+	}
+
+	private Transformer getTransformer(final String encoding, final boolean fitting) throws TransformerConfigurationException {
+		TransformerFactory transformerFactory = TransformerFactory.newInstance();
+		Transformer transformer;
+		transformer = transformerFactory.newTransformer();
+		transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+		transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+		transformer.setOutputProperty("{http://xml.apache.org/xalan}indent-amount", "4");
+		transformer.setOutputProperty(OutputKeys.ENCODING, encoding);
+		if (fitting) {
+			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		}
+		return transformer;
+	}
+
 	protected void setAttribute(final Element node, final String qualifiedName, final Object value) {
 		node.setAttribute(qualifiedName, valueOf(value));
 	}
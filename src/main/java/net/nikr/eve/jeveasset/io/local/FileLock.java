@@ -18,61 +18,46 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  *
  */
+
 package net.nikr.eve.jeveasset.io.local;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import javax.swing.JEditorPane;
-import javax.swing.JLabel;
-import javax.swing.JOptionPane;
-import net.nikr.eve.jeveasset.data.settings.Colors;
-import net.nikr.eve.jeveasset.i18n.General;
-import net.nikr.eve.jeveasset.io.shared.DesktopUtil;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Locks files between threads and between processes.
+ * The process lock is an OS lock (FileChannel.lock) on a .LOCK file next to the file.
+ * The OS releases the lock if the process dies, so a crash can not leave a file locked.
+ * The .LOCK file is kept on unlock: if it was deleted, a process waiting on the old file
+ * and a process creating a new file could both get a lock.
+ */
 public class FileLock {
 
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(FileLock.class);
-	private static final Object SYNC_LOCK = new Object();
-	private static final int MAX_TRIES = 12; //1 minute
-	private static final int DELAY = 5000;
-	private static final List<File> LOCKS = new ArrayList<File>();
-	private static boolean SAFE = false;
-
-	private static void saferShutdown() {
-		Runtime.getRuntime().addShutdownHook(new Thread() {
-			@Override
-			public void run() {
-				unlockLocked();
-			}
-		});
-	}
-
-	private static void unlockLocked() {
-		LOG.info("Unlocking " + LOCKS.size() + " files");
-		while (!LOCKS.isEmpty()) {
-			unlock(LOCKS.get(0));
-		}
-	}
-
-	private static void add(File file) {
-		if (!SAFE) {
-			SAFE = true;
-			saferShutdown();
-
-		}
-		LOCKS.add(file);
-	}
-
-	private static void remove(File file) {
-		LOCKS.remove(file);
-	}
-
+	private static final long TIMEOUT = 60000; //1 minute
+	private static final long RETRY_DELAY = 100;
+	private static final Map<File, Lock> LOCKS = new HashMap<>();
+
+	/**
+	 * Release all locks held by this process and delete all .LOCK files.
+	 * Should only be called when no other instance is running.
+	 */
 	public static void unlockAll() {
 		LOG.info("Unlocking all files");
+		synchronized (LOCKS) {
+			for (Lock lock : LOCKS.values()) {
+				lock.release();
+			}
+			LOCKS.clear();
+			LOCKS.notifyAll();
+		}
 		File folder;
 		folder = new File(FileUtil.getPathProfilesDirectory());
 		unlockFiles(folder.listFiles());
@@ -93,73 +78,155 @@ public class FileLock {
 		}
 	}
 
+	/**
+	 * Lock the file for the current thread.
+	 * Waits for other threads and processes holding the lock.
+	 * If the lock can not be taken within the timeout, an error is logged and the file is used unlocked.
+	 * Files are saved to a .new file and moved into place, so readers never see a half written file.
+	 * @param file file to lock
+	 */
 	public static void lock(File file) {
-		lock(file, 0, DELAY);
-	}
-
-	private static void lock(File file, int tries, int delay) {
-		try {
-			tryLockFile(file);
-		} catch (Exception ex) {
-			tries++;
-			if (tries > MAX_TRIES) {
-				JOptionPane.showMessageDialog(null, getMessage(file), General.get().fileLockTitle(), JOptionPane.ERROR_MESSAGE);
-				System.exit(-1);
-			} else {
-				waitForUnlock(file, tries, delay);
-				lock(file, tries, delay);
+		File lockFile = convertFile(file);
+		long end = System.currentTimeMillis() + TIMEOUT;
+		Lock lock;
+		//Other threads
+		synchronized (LOCKS) {
+			while (true) {
+				lock = LOCKS.get(lockFile);
+				if (lock == null) {
+					break;
+				}
+				if (lock.owner == Thread.currentThread()) { //Already locked by this thread
+					lock.count++;
+					return;
+				}
+				long wait = end - System.currentTimeMillis();
+				if (wait <= 0) {
+					LOG.error("Failed to lock: " + file.getName() + " (locked by " + lock.owner.getName() + ")");
+					return;
+				}
+				LOG.info("Waiting for lock: " + file.getName());
+				try {
+					LOCKS.wait(wait);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					LOG.error("Failed to lock: " + file.getName() + " (interrupted)");
+					return;
+				}
 			}
+			lock = new Lock(lockFile);
+			LOCKS.put(lockFile, lock);
 		}
-	}
-
-	private static synchronized void tryLockFile(File file) throws Exception {
-		if (isLocked(file)) {
-			throw new IOException();
-		}
-		boolean ok = convertFile(file).createNewFile();
-		if (!ok) {
-			throw new IOException();
+		//Other processes
+		try {
+			lock.lock(end);
+		} catch (IOException ex) {
+			LOG.error("Failed to lock: " + file.getName() + " (" + ex.getMessage() + ")");
 		}
-		add(file);
 	}
 
-	public static synchronized void unlock(File file) {
-		convertFile(file).delete();
-		remove(file);
-		synchronized (SYNC_LOCK) {
-			SYNC_LOCK.notify();
+	/**
+	 * Unlock a file locked by the current thread.
+	 * Does nothing if the file is not locked by the current thread.
+	 * @param file file to unlock
+	 */
+	public static void unlock(File file) {
+		File lockFile = convertFile(file);
+		synchronized (LOCKS) {
+			Lock lock = LOCKS.get(lockFile);
+			if (lock == null || lock.owner != Thread.currentThread()) {
+				return; //Not locked (by this thread)
+			}
+			lock.count--;
+			if (lock.count > 0) {
+				return;
+			}
+			LOCKS.remove(lockFile);
+			lock.release();
+			LOCKS.notifyAll();
 		}
 	}
 
 	protected static boolean isLocked(File file) {
-		return convertFile(file).exists();
+		File lockFile = convertFile(file);
+		synchronized (LOCKS) {
+			if (LOCKS.containsKey(lockFile)) {
+				return true;
+			}
+		}
+		if (!lockFile.exists()) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+			java.nio.channels.FileLock fileLock = channel.tryLock();
+			if (fileLock == null) {
+				return true; //Locked by another process
+			}
+			fileLock.release();
+			return false;
+		} catch (IOException ex) {
+			return false; //Deleted
+		}
 	}
 
 	private static File convertFile(File file) {
 		return new File(file.getAbsolutePath() + ".LOCK");
 	}
 
-	private static void waitForUnlock(File file, int tries, int delay) {
-		LOG.info("Waiting for lock: " + file.getName() + " (" + tries + " of " + MAX_TRIES + ")");
-		try {
-			synchronized (SYNC_LOCK) {
-				SYNC_LOCK.wait(delay);
+	private static class Lock {
+		private final File lockFile;
+		private final Thread owner = Thread.currentThread();
+		private int count = 1;
+		private FileChannel channel;
+		private java.nio.channels.FileLock fileLock;
+
+		public Lock(File lockFile) {
+			this.lockFile = lockFile;
+		}
+
+		private void lock(long end) throws IOException {
+			String error = "locked by another process";
+			while (true) {
+				try {
+					channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					fileLock = channel.tryLock();
+					if (fileLock != null) {
+						return; //Locked
+					}
+				} catch (IOException | OverlappingFileLockException ex) {
+					error = ex.getMessage(); //Try again
+				}
+				close();
+				if (System.currentTimeMillis() >= end) {
+					throw new IOException("Timeout: " + error);
+				}
+				LOG.debug("Waiting for lock: " + lockFile.getName());
+				try {
+					Thread.sleep(RETRY_DELAY);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted", ex);
+				}
 			}
-		} catch (InterruptedException ex) {
 		}
-	}
 
-	private static JEditorPane getMessage(File file) {
-		JLabel jLabel = new JLabel();
-		JEditorPane jEditorPane = new JEditorPane("text/html", "");
-		jEditorPane.setEditable(false);
-		jEditorPane.setFocusable(false);
-		jEditorPane.setOpaque(false);
-		jEditorPane.setBackground(Colors.COMPONENT_TRANSPARENT.getColor());
-		jEditorPane.setText("<html><body style=\"font-family: " + jLabel.getFont().getName() + "; font-size: " + jLabel.getFont().getSize() + "pt\">"
-				+ General.get().fileLockMsg(file.getName())
-				+ "</body></html>");
-		jEditorPane.addHyperlinkListener(DesktopUtil.getHyperlinkListener(null));
-		return jEditorPane;
+		private void release() {
+			close(); //The lock file is kept (see class doc)
+		}
+
+		private void close() {
+			try {
+				if (fileLock != null) {
+					fileLock.release();
+				}
+				if (channel != null) {
+					channel.close();
+				}
+			} catch (IOException ex) {
+				LOG.warn("Failed to release lock: " + lockFile.getName(), ex);
+			}
+			fileLock = null;
+			channel = null;
+		}
 	}
 }
@@ -23,6 +23,8 @@ package net.nikr.eve.jeveasset.io.local;
 
 import java.util.HashMap;
 import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import net.nikr.eve.jeveasset.data.sde.IndustryMaterial;
 import net.nikr.eve.jeveasset.data.sde.Item;
 import net.nikr.eve.jeveasset.data.sde.ReprocessedMaterial;
@@ -40,10 +42,10 @@ public final class ItemsReader extends AbstractXmlReader<Boolean> {
 		this.items = items;
 	}
 
-	public static void load(Map<Integer, Item> items) {
+	public static boolean load(Map<Integer, Item> items) {
 		ItemsReader reader = new ItemsReader(items);
 		reader.read("Items Updates", FileUtil.getPathItemsUpdates(), AbstractXmlReader.XmlType.DYNAMIC_BACKUP);
-		reader.read("Items", FileUtil.getPathItems(), AbstractXmlReader.XmlType.STATIC);
+		return reader.read("Items", FileUtil.getPathItems(), AbstractXmlReader.XmlType.STATIC);
 	}
 
 	@Override
@@ -52,6 +54,25 @@ public final class ItemsReader extends AbstractXmlReader<Boolean> {
 		return true;
 	}
 
+	@Override
+	protected boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	protected Boolean parse(XMLStreamReader reader) throws XmlException, XMLStreamException {
+		Map<Integer, Integer> blueprints = new HashMap<>();
+		while (nextChild(reader)) {
+			if (reader.getLocalName().equals("row")) {
+				addItem(readElement(reader), blueprints);
+			} else {
+				skipElement(reader);
+			}
+		}
+		setBlueprintIDs(blueprints);
+		return true;
+	}
+
 	@Override
 	protected Boolean failValue() {
 		return false;
@@ -67,15 +88,23 @@ public final class ItemsReader extends AbstractXmlReader<Boolean> {
 		Map<Integer, Integer> blueprints = new HashMap<>();
 		for (int i = 0; i < nodes.getLength(); i++) {
 			Element itemElement = (Element) nodes.item(i);
-			Item item = parseItem(itemElement);
-			parseMaterials(itemElement, item);
-			parseManufacturing(itemElement, item);
-			parseReaction(itemElement, item);
-			items.put(item.getTypeID(), item);
-			if (item.isBlueprint()) {
-				blueprints.put(item.getTypeID(), item.getProductTypeID());
-			}
+			addItem(itemElement, blueprints);
+		}
+		setBlueprintIDs(blueprints);
+	}
+
+	private void addItem(final Element itemElement, final Map<Integer, Integer> blueprints) throws XmlException {
+		Item item = parseItem(itemElement);
+		parseMaterials(itemElement, item);
+		parseManufacturing(itemElement, item);
+		parseReaction(itemElement, item);
+		items.put(item.getTypeID(), item);
+		if (item.isBlueprint()) {
+			blueprints.put(item.getTypeID(), item.getProductTypeID());
 		}
+	}
+
+	private void setBlueprintIDs(final Map<Integer, Integer> blueprints) {
 		for (Map.Entry<Integer, Integer> entry : blueprints.entrySet()) {
 			Item item = items.get(entry.getValue());
 			if (item != null) {
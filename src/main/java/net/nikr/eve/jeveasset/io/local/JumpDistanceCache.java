@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import net.nikr.eve.jeveasset.io.online.Updater;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk cache of the jump distance table used by RouteFinder.
+ * The table is memory-mapped when loaded, so it does not take up heap space.
+ */
+public final class JumpDistanceCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JumpDistanceCache.class);
+
+	private static final int MAGIC = 0x4A454A44; //JEJD
+	private static final int FORMAT_VERSION = 1;
+
+	private JumpDistanceCache() { }
+
+	/**
+	 * Load the distance table.
+	 * @param systemIDs the sorted system IDs the table must match
+	 * @return read-only distance table or null if the cache is missing, outdated or invalid
+	 */
+	public static ByteBuffer load(long[] systemIDs) {
+		return load(FileUtil.getPathJumpsCache(), getChecksum(), systemIDs);
+	}
+
+	public static boolean save(long[] systemIDs, byte[] distances) {
+		return save(FileUtil.getPathJumpsCache(), getChecksum(), systemIDs, distances);
+	}
+
+	protected static ByteBuffer load(String filename, String checksum, long[] systemIDs) {
+		File file = new File(filename);
+		if (!file.exists()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				LOG.warn("Jump distance cache not loaded: invalid size");
+				return null;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				LOG.info("Jump distance cache not loaded: unknown format");
+				return null;
+			}
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			if (!checksum.equals(new String(bytes, StandardCharsets.UTF_8))) {
+				LOG.info("Jump distance cache not loaded: outdated");
+				return null;
+			}
+			if (buffer.getInt() != systemIDs.length) {
+				LOG.info("Jump distance cache not loaded: outdated");
+				return null;
+			}
+			for (long systemID : systemIDs) {
+				if (buffer.getLong() != systemID) {
+					LOG.info("Jump distance cache not loaded: outdated");
+					return null;
+				}
+			}
+			if (buffer.remaining() != getSize(systemIDs.length)) {
+				LOG.warn("Jump distance cache not loaded: invalid size");
+				return null;
+			}
+			LOG.info("Jump distance cache loaded");
+			return buffer.slice().asReadOnlyBuffer();
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+			LOG.warn("Jump distance cache not loaded: " + ex.getMessage(), ex);
+			return null;
+		}
+	}
+
+	protected static boolean save(String filename, String checksum, long[] systemIDs, byte[] distances) {
+		File file = new File(filename);
+		File newFile = new File(filename + ".new");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				byte[] bytes = checksum.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				out.writeInt(systemIDs.length);
+				for (long systemID : systemIDs) {
+					out.writeLong(systemID);
+				}
+				out.write(distances);
+			}
+			Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			LOG.info("Jump distance cache saved");
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Jump distance cache not saved: " + ex.getMessage(), ex);
+			if (newFile.exists() && !newFile.delete()) {
+				LOG.warn("Failed to delete: " + newFile.getName());
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Size of the distance table for a number of systems.
+	 * Only one direction of each pair is stored (distance from a to b is the same as from b to a).
+	 * @param systems number of systems
+	 * @return number of bytes in the table
+	 */
+	public static long getSize(int systems) {
+		return (long) systems * (systems - 1) / 2;
+	}
+
+	private static String getChecksum() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(new Updater().getLocalData());
+		StaticDataCacheReader.appendFile(builder, FileUtil.getPathJumps());
+		return builder.toString();
+	}
+}
@@ -22,6 +22,8 @@
 package net.nikr.eve.jeveasset.io.local;
 
 import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import net.nikr.eve.jeveasset.data.sde.MyLocation;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
 import org.w3c.dom.Element;
@@ -37,9 +39,9 @@ public final class LocationsReader extends AbstractXmlReader<Boolean> {
 		this.locations = locations;
 	}
 
-	public static void load(Map<Long, MyLocation> locations) {
+	public static boolean load(Map<Long, MyLocation> locations) {
 		LocationsReader reader = new LocationsReader(locations);
-		reader.read("Locations loaded", FileUtil.getPathLocations(), AbstractXmlReader.XmlType.STATIC);
+		return reader.read("Locations loaded", FileUtil.getPathLocations(), AbstractXmlReader.XmlType.STATIC);
 	}
 
 	@Override
@@ -48,6 +50,23 @@ public final class LocationsReader extends AbstractXmlReader<Boolean> {
 		return true;
 	}
 
+	@Override
+	protected boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	protected Boolean parse(XMLStreamReader reader) throws XmlException, XMLStreamException {
+		while (nextChild(reader)) {
+			if (reader.getLocalName().equals("row")) {
+				MyLocation location = parseLocation(readAttributes(reader));
+				locations.put(location.getLocationID(), location);
+			}
+			skipElement(reader);
+		}
+		return true;
+	}
+
 	@Override
 	protected Boolean failValue() {
 		return false;
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import net.nikr.eve.jeveasset.gui.tabs.orders.Outbid;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The public order books of the last outbid processing, by typeID.
+ * Only a hash is kept per order, so a book can be compared to the previous book without keeping the orders.
+ * The outbid results are kept with the book, so unchanged books do not have to be processed again.
+ */
+public class OrderBookSnapshot extends AbstractBackup {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OrderBookSnapshot.class);
+
+	private static final int MAGIC = 0x4A454F42; //JEOB
+	private static final int FORMAT_VERSION = 1;
+
+	private static OrderBookSnapshot snapshot;
+
+	private final String filename;
+	private Map<Integer, TypeBook> books = null; //Loaded on first use
+
+	protected OrderBookSnapshot(String filename) {
+		this.filename = filename;
+	}
+
+	public static synchronized OrderBookSnapshot get() {
+		if (snapshot == null) {
+			snapshot = new OrderBookSnapshot(FileUtil.getPathOrderBookSnapshot());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Get the previous book of a type.
+	 * @param typeID
+	 * @return the previous book or null if the type was not processed before
+	 */
+	public synchronized TypeBook get(int typeID) {
+		return getBooks().get(typeID);
+	}
+
+	/**
+	 * Replace all books and save.
+	 * Types not in the new books are removed (no longer traded).
+	 * @param newBooks the books of the current processing
+	 * @return true if saved
+	 */
+	public synchronized boolean save(Map<Integer, TypeBook> newBooks) {
+		books = new HashMap<>(newBooks);
+		try {
+			lock(filename);
+			File file = new File(filename);
+			File directory = file.getParentFile();
+			if (directory != null && !directory.exists() && !directory.mkdirs()) {
+				throw new IOException("Failed to create directory: " + directory.getAbsolutePath());
+			}
+			FileOutputStream fileOut = new FileOutputStream(getNewFile(filename));
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(books.size());
+				for (Map.Entry<Integer, TypeBook> entry : books.entrySet()) {
+					out.writeInt(entry.getKey());
+					entry.getValue().write(out);
+				}
+				out.flush();
+				sync(fileOut);
+			}
+			commitFile(filename);
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Order book snapshot not saved: " + ex.getMessage(), ex);
+			deleteNewFile(filename);
+			return false;
+		} finally {
+			unlock(filename);
+		}
+	}
+
+	private Map<Integer, TypeBook> getBooks() {
+		if (books == null) {
+			books = load();
+		}
+		return books;
+	}
+
+	private Map<Integer, TypeBook> load() {
+		Map<Integer, TypeBook> loaded = new HashMap<>();
+		if (!new File(filename).exists()) {
+			return loaded;
+		}
+		try {
+			lock(filename);
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+					throw new IOException("Unknown format");
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					int typeID = in.readInt();
+					loaded.put(typeID, TypeBook.read(in));
+				}
+			}
+			return loaded;
+		} catch (IOException ex) {
+			//Only a cache: Process all types again
+			LOG.warn("Order book snapshot not loaded: " + ex.getMessage(), ex);
+			return new HashMap<>();
+		} finally {
+			unlock(filename);
+		}
+	}
+
+	/**
+	 * Order book of one type.
+	 * Order IDs are sorted, with the hash of each order at the same index.
+	 */
+	public static class TypeBook {
+		private final long signature;
+		private final long[] orderIDs;
+		private final long[] hashes;
+		private Map<Long, Outbid> outbids = Collections.emptyMap();
+
+		public TypeBook(long signature, long[] orderIDs, long[] hashes) {
+			this.signature = signature;
+			this.orderIDs = orderIDs;
+			this.hashes = hashes;
+		}
+
+		/**
+		 * Hash of the whole book, our orders and the settings used to process it.
+		 * @return
+		 */
+		public long getSignature() {
+			return signature;
+		}
+
+		public int size() {
+			return orderIDs.length;
+		}
+
+		public long getOrderID(int index) {
+			return orderIDs[index];
+		}
+
+		public long getHash(int index) {
+			return hashes[index];
+		}
+
+		/**
+		 * Outbid results of our orders (orderID :: outbid).
+		 * @return
+		 */
+		public Map<Long, Outbid> getOutbids() {
+			return outbids;
+		}
+
+		public void setOutbids(Map<Long, Outbid> outbids) {
+			this.outbids = outbids;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeLong(signature);
+			out.writeInt(orderIDs.length);
+			for (int i = 0; i < orderIDs.length; i++) {
+				out.writeLong(orderIDs[i]);
+				out.writeLong(hashes[i]);
+			}
+			out.writeInt(outbids.size());
+			for (Map.Entry<Long, Outbid> entry : outbids.entrySet()) {
+				out.writeLong(entry.getKey());
+				out.writeDouble(entry.getValue().getPrice());
+				out.writeLong(entry.getValue().getCount());
+			}
+		}
+
+		private static TypeBook read(DataInputStream in) throws IOException {
+			long signature = in.readLong();
+			int size = in.readInt();
+			long[] orderIDs = new long[size];
+			long[] hashes = new long[size];
+			for (int i = 0; i < size; i++) {
+				orderIDs[i] = in.readLong();
+				hashes[i] = in.readLong();
+			}
+			TypeBook book = new TypeBook(signature, orderIDs, hashes);
+			int outbidCount = in.readInt();
+			Map<Long, Outbid> outbids = new HashMap<>();
+			for (int i = 0; i < outbidCount; i++) {
+				long orderID = in.readLong();
+				double price = in.readDouble();
+				long count = in.readLong();
+				outbids.put(orderID, new Outbid(price, count));
+			}
+			book.setOutbids(outbids);
+			return book;
+		}
+	}
+}
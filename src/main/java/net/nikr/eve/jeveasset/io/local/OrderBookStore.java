@@ -0,0 +1,531 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.nikr.eve.jeveasset.data.api.raw.RawMarketOrder.MarketOrderRange;
+import net.nikr.eve.jeveasset.data.api.raw.RawPublicMarketOrder;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Public order books on disk.
+ * One file per region or structure, with fixed-width order records sorted by typeID.
+ * The files are memory-mapped, so the orders are only on the heap while a type is in use.
+ * The last book of each region or structure is kept, also after the ESI cache expires,
+ * so the books survive restarts and failed updates. Use OrderBook.isExpired() to check freshness.
+ * Books that have not been refreshed for MAX_AGE (no longer updated or access denied) are deleted.
+ *
+ * Each save creates a new file (generation), as a mapped file can not be replaced on all platforms.
+ * Old generations are deleted when possible.
+ */
+public class OrderBookStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OrderBookStore.class);
+
+	private static final int MAGIC = 0x4A454D4F; //JEMO
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 32; //magic + version + date + expires + types + orders
+	private static final int INDEX_SIZE = 12; //typeID + first + count
+	private static final int RECORD_SIZE = 64;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+	private static final long NULL_LONG = Long.MIN_VALUE;
+	private static final String REGION_PREFIX = "region_";
+	private static final String STRUCTURE_PREFIX = "structure_";
+	private static final String SUFFIX = ".dat";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final long MAX_AGE = 24 * 60 * 60 * 1000L; //1 day after expires
+	private static final MarketOrderRange[] RANGES = MarketOrderRange.values();
+
+	private static OrderBookStore store;
+
+	private final File directory;
+	private final Map<String, OrderBook> books = new HashMap<>(); //key :: newest book
+	private boolean loaded = false;
+	private long generation = 0;
+
+	protected OrderBookStore(String directory) {
+		this.directory = new File(directory);
+	}
+
+	public static synchronized OrderBookStore get() {
+		if (store == null) {
+			store = new OrderBookStore(FileUtil.getPathOrderBookDirectory());
+		}
+		return store;
+	}
+
+	public static String getRegionKey(long regionID) {
+		return REGION_PREFIX + regionID;
+	}
+
+	public static String getStructureKey(long structureID) {
+		return STRUCTURE_PREFIX + structureID;
+	}
+
+	/**
+	 * Start writing a new book.
+	 * The current book is used until the new book is committed.
+	 * @param key getRegionKey(long) or getStructureKey(long)
+	 * @return the writer
+	 */
+	public synchronized Writer create(String key) {
+		long next = Math.max(generation + 1, System.currentTimeMillis());
+		generation = next;
+		return new Writer(this, key, next);
+	}
+
+	/**
+	 * Get the current books of the regions and structures.
+	 * Expired books are skipped, so orders from books that are no longer updated are not used.
+	 * @return the books that are not expired
+	 */
+	public synchronized List<OrderBook> getBooks() {
+		load();
+		evict();
+		List<OrderBook> list = new ArrayList<>();
+		for (OrderBook book : books.values()) {
+			if (!book.isExpired()) {
+				list.add(book);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Get a book.
+	 * @param key getRegionKey(long) or getStructureKey(long)
+	 * @return the last book (may be expired) or null if missing
+	 */
+	public synchronized OrderBook getBook(String key) {
+		load();
+		evict();
+		return books.get(key);
+	}
+
+	private synchronized void put(OrderBook book) {
+		load();
+		OrderBook old = books.get(book.getKey());
+		if (old != null && old.getGeneration() > book.getGeneration()) {
+			delete(book.getFile()); //Newer book already saved
+			return;
+		}
+		books.put(book.getKey(), book);
+		if (old != null) {
+			delete(old.getFile());
+		}
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP_SUFFIX)) {
+				delete(file); //Unfinished write
+				continue;
+			}
+			int split = name.lastIndexOf('_');
+			if (!name.endsWith(SUFFIX) || split < 0) {
+				continue;
+			}
+			String key = name.substring(0, split);
+			long fileGeneration;
+			try {
+				fileGeneration = Long.parseLong(name.substring(split + 1, name.length() - SUFFIX.length()));
+			} catch (NumberFormatException ex) {
+				continue;
+			}
+			OrderBook book;
+			try {
+				book = OrderBook.open(file, key, fileGeneration);
+			} catch (IOException | IllegalArgumentException ex) {
+				LOG.warn("Order book not loaded: " + name + " (" + ex.getMessage() + ")");
+				delete(file);
+				continue;
+			}
+			generation = Math.max(generation, fileGeneration);
+			OrderBook old = books.get(key);
+			if (old == null || old.getGeneration() < fileGeneration) {
+				books.put(key, book);
+				if (old != null) {
+					delete(old.getFile());
+				}
+			} else {
+				delete(file);
+			}
+		}
+		LOG.info("Order books loaded: " + books.size());
+	}
+
+	/**
+	 * Delete the books that have not been refreshed for MAX_AGE.
+	 */
+	private void evict() {
+		long oldest = System.currentTimeMillis() - MAX_AGE;
+		Iterator<OrderBook> iterator = books.values().iterator();
+		while (iterator.hasNext()) {
+			OrderBook book = iterator.next();
+			if (book.getExpires().getTime() < oldest) {
+				iterator.remove();
+				delete(book.getFile());
+			}
+		}
+	}
+
+	private static void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			//Still mapped on some platforms: Deleted on next load
+			LOG.debug("Order book not deleted: " + file.getName());
+		}
+	}
+
+	private File getFile(String key, long fileGeneration) {
+		return new File(directory, key + "_" + fileGeneration + SUFFIX);
+	}
+
+	/**
+	 * Memory-mapped book (read only).
+	 */
+	public static class OrderBook {
+		private final File file;
+		private final String key;
+		private final long generation;
+		private final MappedByteBuffer buffer;
+		private final Date date;
+		private final Date expires;
+		private final int[] typeIDs;
+		private final int[] firsts;
+		private final int[] counts;
+		private final int size;
+
+		private OrderBook(File file, String key, long generation, MappedByteBuffer buffer) throws IOException {
+			this.file = file;
+			this.key = key;
+			this.generation = generation;
+			this.buffer = buffer;
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+				throw new IOException("Unknown format");
+			}
+			this.date = new Date(buffer.getLong(8));
+			this.expires = new Date(buffer.getLong(16));
+			int types = buffer.getInt(24);
+			this.size = buffer.getInt(28);
+			if (buffer.capacity() != getRecordPosition(types, size)) {
+				throw new IOException("Wrong size");
+			}
+			typeIDs = new int[types];
+			firsts = new int[types];
+			counts = new int[types];
+			for (int i = 0; i < types; i++) {
+				int position = HEADER_SIZE + i * INDEX_SIZE;
+				typeIDs[i] = buffer.getInt(position);
+				firsts[i] = buffer.getInt(position + 4);
+				counts[i] = buffer.getInt(position + 8);
+			}
+		}
+
+		private static OrderBook open(File file, String key, long generation) throws IOException {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				return new OrderBook(file, key, generation, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+		}
+
+		private File getFile() {
+			return file;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		private long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * ESI last-modified.
+		 * @return
+		 */
+		public Date getDate() {
+			return date;
+		}
+
+		/**
+		 * ESI expires.
+		 * @return
+		 */
+		public Date getExpires() {
+			return expires;
+		}
+
+		public boolean isExpired() {
+			return expires.getTime() < System.currentTimeMillis();
+		}
+
+		/**
+		 * Number of orders (all types).
+		 * @return
+		 */
+		public int size() {
+			return size;
+		}
+
+		public boolean contains(int typeID) {
+			return Arrays.binarySearch(typeIDs, typeID) >= 0;
+		}
+
+		/**
+		 * Read the orders of a type from the file.
+		 * @param typeID
+		 * @return the orders or an empty list
+		 */
+		public List<RawPublicMarketOrder> get(int typeID) {
+			int index = Arrays.binarySearch(typeIDs, typeID);
+			if (index < 0) {
+				return new ArrayList<>();
+			}
+			List<RawPublicMarketOrder> orders = new ArrayList<>(counts[index]);
+			long start = getRecordPosition(typeIDs.length, firsts[index]);
+			for (int i = 0; i < counts[index]; i++) {
+				orders.add(read(buffer, (int) (start + (long) i * RECORD_SIZE))); //Absolute reads: Thread safe
+			}
+			return orders;
+		}
+	}
+
+	/**
+	 * Write a book.
+	 * Orders are added in any order (thread safe), and sorted by typeID on commit.
+	 */
+	public static class Writer {
+		private final OrderBookStore store;
+		private final String key;
+		private final long generation;
+		private final Map<Integer, Integer> counts = new TreeMap<>();
+		private final File tempFile;
+		private DataOutputStream out = null;
+		private IOException error = null;
+		private boolean closed = false;
+		private int size = 0;
+
+		private Writer(OrderBookStore store, String key, long generation) {
+			this.store = store;
+			this.key = key;
+			this.generation = generation;
+			this.tempFile = new File(store.directory, key + "_" + generation + TEMP_SUFFIX);
+		}
+
+		/**
+		 * Add an order.
+		 * Write errors are logged, and the book is not committed.
+		 * @param marketOrder
+		 */
+		public synchronized void add(RawPublicMarketOrder marketOrder) {
+			if (error != null || closed) {
+				return;
+			}
+			try {
+				if (out == null) {
+					if (!store.directory.exists() && !store.directory.mkdirs()) {
+						throw new IOException("Failed to create directory: " + store.directory.getAbsolutePath());
+					}
+					out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+				}
+				write(out, marketOrder);
+				Integer count = counts.get(marketOrder.getTypeID());
+				counts.put(marketOrder.getTypeID(), count != null ? count + 1 : 1);
+				size++;
+			} catch (IOException ex) {
+				error = ex;
+				LOG.error("Order book not saved: " + key + " (" + ex.getMessage() + ")", ex);
+			}
+		}
+
+		/**
+		 * Save the book and replace the current book.
+		 * @param date ESI last-modified
+		 * @param expires ESI expires
+		 * @return the new book or null if it could not be saved
+		 */
+		public synchronized OrderBook commit(Date date, Date expires) {
+			if (error != null || closed) {
+				discard();
+				return null;
+			}
+			closed = true;
+			File file = store.getFile(key, generation);
+			try {
+				if (out != null) {
+					out.close();
+				} else if (!store.directory.exists() && !store.directory.mkdirs()) {
+					throw new IOException("Failed to create directory: " + store.directory.getAbsolutePath());
+				}
+				int types = counts.size();
+				long length = getRecordPosition(types, size);
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+					//Index
+					Map<Integer, Integer> next = new HashMap<>();
+					int first = 0;
+					int index = 0;
+					for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+						int position = HEADER_SIZE + index * INDEX_SIZE;
+						buffer.putInt(position, entry.getKey());
+						buffer.putInt(position + 4, first);
+						buffer.putInt(position + 8, entry.getValue());
+						next.put(entry.getKey(), first);
+						first = first + entry.getValue();
+						index++;
+					}
+					//Records (sorted by typeID)
+					if (size > 0) {
+						byte[] record = new byte[RECORD_SIZE];
+						try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tempFile)))) {
+							for (int i = 0; i < size; i++) {
+								in.readFully(record);
+								int typeID = ((record[32] & 0xFF) << 24) | ((record[33] & 0xFF) << 16) | ((record[34] & 0xFF) << 8) | (record[35] & 0xFF);
+								int recordIndex = next.get(typeID);
+								next.put(typeID, recordIndex + 1);
+								buffer.position((int) getRecordPosition(types, recordIndex));
+								buffer.put(record);
+							}
+						}
+					}
+					//Header (written last, so an incomplete file is never loaded)
+					buffer.putLong(8, date != null ? date.getTime() : System.currentTimeMillis());
+					buffer.putLong(16, expires.getTime());
+					buffer.putInt(24, types);
+					buffer.putInt(28, size);
+					buffer.putInt(4, FORMAT_VERSION);
+					buffer.force();
+					buffer.putInt(0, MAGIC);
+					buffer.force();
+				}
+				delete(tempFile);
+				OrderBook book = OrderBook.open(file, key, generation);
+				store.put(book);
+				return book;
+			} catch (IOException | IllegalArgumentException ex) {
+				LOG.error("Order book not saved: " + key + " (" + ex.getMessage() + ")", ex);
+				delete(tempFile);
+				delete(file);
+				return null;
+			}
+		}
+
+		/**
+		 * Drop the book (the current book is kept).
+		 */
+		public synchronized void discard() {
+			closed = true;
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ex) {
+					//No problem
+				}
+			}
+			delete(tempFile);
+		}
+	}
+
+	private static long getRecordPosition(int types, int index) {
+		return HEADER_SIZE + (long) types * INDEX_SIZE + (long) index * RECORD_SIZE;
+	}
+
+	private static void write(DataOutputStream out, RawPublicMarketOrder marketOrder) throws IOException {
+		out.writeLong(toLong(marketOrder.getOrderID())); //0
+		out.writeDouble(marketOrder.getPrice() != null ? marketOrder.getPrice() : Double.NaN); //8
+		out.writeLong(marketOrder.getIssued() != null ? marketOrder.getIssued().getTime() : NULL_LONG); //16
+		out.writeLong(toLong(marketOrder.getLocationID())); //24
+		out.writeInt(toInt(marketOrder.getTypeID())); //32 (typeID is read from here on commit)
+		out.writeInt(toInt(marketOrder.getSystemID())); //36
+		out.writeInt(toInt(marketOrder.getVolumeRemain())); //40
+		out.writeInt(toInt(marketOrder.getVolumeTotal())); //44
+		out.writeInt(toInt(marketOrder.getMinVolume())); //48
+		out.writeInt(toInt(marketOrder.getDuration())); //52
+		out.writeByte(marketOrder.getRange() != null ? marketOrder.getRange().ordinal() : -1); //56
+		out.writeByte(marketOrder.isBuyOrder() != null ? (marketOrder.isBuyOrder() ? 1 : 0) : -1); //57
+		out.write(new byte[RECORD_SIZE - 58]); //Padding
+	}
+
+	private static RawPublicMarketOrder read(MappedByteBuffer buffer, int position) {
+		double price = buffer.getDouble(position + 8);
+		long issued = buffer.getLong(position + 16);
+		byte range = buffer.get(position + 56);
+		byte buy = buffer.get(position + 57);
+		return new RawPublicMarketOrder(
+				toLong(buffer.getLong(position)),
+				toInteger(buffer.getInt(position + 32)),
+				Double.isNaN(price) ? null : price,
+				issued != NULL_LONG ? new Date(issued) : null,
+				toLong(buffer.getLong(position + 24)),
+				toInteger(buffer.getInt(position + 36)),
+				toInteger(buffer.getInt(position + 40)),
+				toInteger(buffer.getInt(position + 44)),
+				toInteger(buffer.getInt(position + 48)),
+				toInteger(buffer.getInt(position + 52)),
+				range >= 0 && range < RANGES.length ? RANGES[range] : null,
+				buy >= 0 ? buy == 1 : null);
+	}
+
+	private static long toLong(Long value) {
+		return value != null ? value : NULL_LONG;
+	}
+
+	private static Long toLong(long value) {
+		return value != NULL_LONG ? value : null;
+	}
+
+	private static int toInt(Integer value) {
+		return value != null ? value : NULL_INT;
+	}
+
+	private static Integer toInteger(int value) {
+		return value != NULL_INT ? value : null;
+	}
+}
@@ -0,0 +1,766 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.nikr.eve.jeveasset.data.settings.PriceData;
+import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceMode;
+import net.nikr.eve.jeveasset.data.settings.PriceHistorySeries;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Price data by typeID.
+ * In memory the prices are stored as sorted typeIDs and one column per price, to avoid an object per type.
+ * On disk the prices are stored as daily snapshots, appended to a single file.
+ * The last snapshot is the current prices, the older snapshots are the price history.
+ * Saving more than once a day replaces the snapshot of the day.
+ * Old snapshots are thinned to one per week after 30 days and one per month after a year.
+ * The file is rewritten when enough snapshots can be removed, so it's not rewritten every day.
+ *
+ * Snapshot: day + count + typeIDs[count] + sellMax[count] + ... + buyMin[count]
+ */
+public class PriceStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PriceStore.class);
+
+	private static final int MAGIC = 0x4A455052; //JEPR
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 8; //magic + version
+	private static final int SNAPSHOT_HEADER_SIZE = 8; //day + count
+	private static final int COLUMNS = 10;
+	private static final int ENTRY_SIZE = 4 + COLUMNS * 8; //typeID + prices
+	private static final int SELL_MIN = 4; //Column
+	private static final int BUY_MAX = 5; //Column
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	private static final int DAILY_DAYS = 30; //All snapshots of the last 30 days are kept
+	private static final int WEEKLY_DAYS = 365; //Then one snapshot per week for a year, then one per month
+	private static final int COMPACT_LIMIT = 30; //Rewrite the file when this many snapshots can be removed
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String IMPORT_SUFFIX = ".import";
+
+	private static PriceStore store;
+
+	private final File file;
+	private final List<Snapshot> snapshots = new ArrayList<>(); //Saved snapshots, by day
+	private volatile Prices prices = new Prices(new int[0], new double[COLUMNS][0]);
+	private long length = 0; //End of the saved snapshots
+	private boolean loaded = false;
+
+	protected PriceStore(String filename) {
+		this.file = new File(filename);
+	}
+
+	public static synchronized PriceStore get() {
+		if (store == null) {
+			store = new PriceStore(FileUtil.getPathPriceStore());
+		}
+		return store;
+	}
+
+	/**
+	 * Load the current prices and the snapshot index.
+	 * Prices are empty until loaded.
+	 */
+	public synchronized void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!file.exists()) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header = read(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				throw new IOException("Wrong file format");
+			}
+			long position = HEADER_SIZE;
+			while (position + SNAPSHOT_HEADER_SIZE <= size) {
+				ByteBuffer buffer = read(channel, position, SNAPSHOT_HEADER_SIZE);
+				int day = buffer.getInt();
+				int count = buffer.getInt();
+				long end = position + SNAPSHOT_HEADER_SIZE + (long) count * ENTRY_SIZE;
+				if (count < 0 || end > size) {
+					break; //Unfinished write: Overwritten by the next save
+				}
+				snapshots.add(new Snapshot(day, position, count));
+				position = end;
+			}
+			length = position;
+			if (position < size) {
+				LOG.warn("Price data: " + (size - position) + " bytes of unfinished snapshot ignored");
+			}
+			if (!snapshots.isEmpty()) {
+				prices = read(channel, snapshots.get(snapshots.size() - 1));
+			}
+			LOG.info("Price data loaded: " + prices.size() + " types, " + snapshots.size() + " days");
+		} catch (IOException ex) {
+			LOG.error("Price data not loaded: " + ex.getMessage(), ex);
+			snapshots.clear();
+			length = 0;
+		}
+	}
+
+	/**
+	 * Get the current price data of a type.
+	 * @param typeID
+	 * @return a new PriceData or null if the type has no price data
+	 */
+	public PriceData get(int typeID) {
+		Prices current = prices;
+		int index = Arrays.binarySearch(current.typeIDs, typeID);
+		if (index < 0) {
+			return null;
+		}
+		return current.get(index);
+	}
+
+	/**
+	 * Get the current price of a type, without creating a PriceData.
+	 * @param typeID
+	 * @param priceMode
+	 * @return the price or 0 if the type has no price data
+	 */
+	public double getPrice(int typeID, PriceMode priceMode) {
+		Prices current = prices;
+		int index = Arrays.binarySearch(current.typeIDs, typeID);
+		if (index < 0 || current.isEmpty(index)) {
+			return 0;
+		}
+		return getPrice(current.columns, index, priceMode);
+	}
+
+	public boolean contains(int typeID) {
+		return Arrays.binarySearch(prices.typeIDs, typeID) >= 0;
+	}
+
+	public int size() {
+		return prices.size();
+	}
+
+	public boolean isEmpty() {
+		return prices.size() == 0;
+	}
+
+	/**
+	 * Get a copy of the current price data.
+	 * @return price data by typeID
+	 */
+	public Map<Integer, PriceData> getAll() {
+		Prices current = prices;
+		Map<Integer, PriceData> map = new HashMap<>();
+		for (int i = 0; i < current.size(); i++) {
+			map.put(current.typeIDs[i], current.get(i));
+		}
+		return map;
+	}
+
+	/**
+	 * Replace the current price data.
+	 * Not saved until save() is called.
+	 * @param priceData price data by typeID
+	 */
+	public synchronized void setPrices(Map<Integer, PriceData> priceData) {
+		prices = Prices.create(priceData);
+	}
+
+	/**
+	 * Add or replace price data of some types.
+	 * Not saved until save() is called.
+	 * @param priceData price data by typeID
+	 */
+	public synchronized void putAll(Map<Integer, PriceData> priceData) {
+		if (priceData.isEmpty()) {
+			return;
+		}
+		prices = merge(prices, Prices.create(priceData));
+	}
+
+	private static Prices merge(Prices current, Prices updates) {
+		int size = current.size();
+		for (int typeID : updates.typeIDs) {
+			if (Arrays.binarySearch(current.typeIDs, typeID) < 0) {
+				size++;
+			}
+		}
+		int[] typeIDs = new int[size];
+		double[][] columns = new double[COLUMNS][size];
+		int i = 0; //current
+		int j = 0; //updates
+		for (int k = 0; k < size; k++) {
+			Prices from;
+			int index;
+			if (j >= updates.size() || (i < current.size() && current.typeIDs[i] < updates.typeIDs[j])) {
+				from = current;
+				index = i++;
+			} else {
+				if (i < current.size() && current.typeIDs[i] == updates.typeIDs[j]) {
+					i++; //Replaced
+				}
+				from = updates;
+				index = j++;
+			}
+			typeIDs[k] = from.typeIDs[index];
+			for (int column = 0; column < COLUMNS; column++) {
+				columns[column][k] = from.columns[column][index];
+			}
+		}
+		return new Prices(typeIDs, columns);
+	}
+
+	/**
+	 * Save the current price data as the snapshot of today.
+	 * @return true if saved
+	 */
+	public boolean save() {
+		return save(new Date());
+	}
+
+	/**
+	 * Save the current price data as the snapshot of a day.
+	 * Replaces the last snapshot if it's from the same day.
+	 * @param date the day of the snapshot (must not be before the last snapshot)
+	 * @return true if saved
+	 */
+	public synchronized boolean save(Date date) {
+		load();
+		int day = toDay(date);
+		Prices current = prices;
+		long position = length;
+		Snapshot last = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+		if (last != null && last.day > day) {
+			LOG.warn("Price data not saved: newer snapshot exist");
+			return false;
+		}
+		if (last != null && last.day == day) {
+			position = last.position; //Replace
+		}
+		ByteBuffer buffer = toBuffer(day, current);
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs()) {
+			LOG.error("Price data not saved: failed to create " + parent.getAbsolutePath());
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			if (position < HEADER_SIZE) { //New or broken file
+				writeHeader(channel);
+				position = HEADER_SIZE;
+			}
+			channel.truncate(position);
+			write(channel, buffer, position);
+			channel.force(false);
+		} catch (IOException ex) {
+			LOG.error("Price data not saved: " + ex.getMessage(), ex);
+			return false;
+		}
+		if (last != null && last.day == day) {
+			snapshots.remove(snapshots.size() - 1);
+		}
+		snapshots.add(new Snapshot(day, position, current.size()));
+		length = position + SNAPSHOT_HEADER_SIZE + (long) current.size() * ENTRY_SIZE;
+		compact(day);
+		return true;
+	}
+
+	/**
+	 * Remove the old snapshots that are not needed for the price history anymore.
+	 * The kept snapshots are copied to a new file, that replaces the old file.
+	 * On error the old file is kept as is.
+	 * @param today the day of the last snapshot
+	 */
+	private void compact(int today) {
+		List<Snapshot> keep = new ArrayList<>();
+		Snapshot last = null;
+		for (Snapshot snapshot : snapshots) {
+			if (last == null || isKept(last.day, snapshot.day, today)) {
+				keep.add(snapshot);
+				last = snapshot;
+			}
+		}
+		if (snapshots.size() - keep.size() < COMPACT_LIMIT) {
+			return;
+		}
+		File temp = new File(file.getPath() + TEMP_SUFFIX);
+		List<Snapshot> compacted = new ArrayList<>();
+		long position = HEADER_SIZE;
+		try {
+			try (FileChannel from = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+					FileChannel to = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				write(to, read(from, 0, HEADER_SIZE), 0);
+				for (Snapshot snapshot : keep) {
+					int size = SNAPSHOT_HEADER_SIZE + snapshot.count * ENTRY_SIZE;
+					write(to, read(from, snapshot.position, size), position);
+					compacted.add(new Snapshot(snapshot.day, position, snapshot.count));
+					position = position + size;
+				}
+				to.force(false);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			LOG.warn("Price data not compacted: " + ex.getMessage(), ex);
+			if (temp.exists() && !temp.delete()) {
+				LOG.warn("Price data: failed to delete " + temp.getName());
+			}
+			return;
+		}
+		LOG.info("Price data compacted: " + snapshots.size() + " to " + compacted.size() + " days");
+		snapshots.clear();
+		snapshots.addAll(compacted);
+		length = position;
+	}
+
+	/**
+	 * Is the snapshot kept by compacting?
+	 * Only the first snapshot of each day, week or month (depending on the age) is kept.
+	 * @param lastDay the day of the last kept snapshot
+	 * @param day the day of the snapshot
+	 * @param today the day of the last snapshot
+	 * @return true if the snapshot is kept
+	 */
+	private static boolean isKept(int lastDay, int day, int today) {
+		int age = today - day;
+		int days = age < DAILY_DAYS ? 1 : (age < WEEKLY_DAYS ? 7 : 30);
+		return Math.floorDiv(lastDay, days) != Math.floorDiv(day, days);
+	}
+
+	/**
+	 * Start importing price history (f.ex. from an older version).
+	 * Only the snapshots kept by compacting are written, to a new file in one pass.
+	 * The new file replaces the file on commit, so nothing is changed until the import is done.
+	 * Saved snapshots are kept, and imported days from the first saved snapshot are ignored.
+	 * @return the importer
+	 */
+	public synchronized Importer importer() {
+		load();
+		return new Importer(this, snapshots.isEmpty() ? Integer.MAX_VALUE : snapshots.get(0).day);
+	}
+
+	/**
+	 * Get the saved price history.
+	 * @param typeIDs
+	 * @param from first date (inclusive) or null for no limit
+	 * @param to last date (inclusive) or null for no limit
+	 * @param priceMode
+	 * @return price history by typeID
+	 */
+	public synchronized Map<Integer, PriceHistorySeries> getHistory(Set<Integer> typeIDs, Date from, Date to, PriceMode priceMode) {
+		load();
+		Map<Integer, PriceHistorySeries> data = new HashMap<>();
+		for (int typeID : typeIDs) {
+			data.put(typeID, new PriceHistorySeries());
+		}
+		int fromDay = from == null ? Integer.MIN_VALUE : toDay(from);
+		int toDay = to == null ? Integer.MAX_VALUE : toDay(to);
+		if (snapshots.isEmpty()) {
+			return data;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			int[] columns = getColumns(priceMode);
+			for (Snapshot snapshot : snapshots) {
+				if (snapshot.day < fromDay || snapshot.day > toDay) {
+					continue;
+				}
+				int[] ids = new int[snapshot.count];
+				read(channel, snapshot.position + SNAPSHOT_HEADER_SIZE, snapshot.count * 4).asIntBuffer().get(ids);
+				//Index of each type in the snapshot
+				Map<PriceHistorySeries, Integer> indexes = new HashMap<>();
+				int first = Integer.MAX_VALUE;
+				int last = -1;
+				for (Map.Entry<Integer, PriceHistorySeries> entry : data.entrySet()) {
+					int index = Arrays.binarySearch(ids, entry.getKey());
+					if (index >= 0) {
+						indexes.put(entry.getValue(), index);
+						first = Math.min(first, index);
+						last = Math.max(last, index);
+					}
+				}
+				if (indexes.isEmpty()) {
+					continue;
+				}
+				//One read per column, from the first to the last type
+				int size = last - first + 1;
+				double[][] values = new double[COLUMNS][];
+				long start = snapshot.position + SNAPSHOT_HEADER_SIZE + snapshot.count * 4L;
+				for (int column : columns) {
+					values[column] = new double[size];
+					read(channel, start + ((long) column * snapshot.count + first) * 8, size * 8).asDoubleBuffer().get(values[column]);
+				}
+				for (Map.Entry<PriceHistorySeries, Integer> entry : indexes.entrySet()) {
+					entry.getKey().add(snapshot.day * DAY, getPrice(values, entry.getValue() - first, priceMode));
+				}
+			}
+		} catch (IOException ex) {
+			LOG.error("Price history not loaded: " + ex.getMessage(), ex);
+		}
+		return data;
+	}
+
+	/**
+	 * Same as PriceMode.getDefaultPrice(PriceData, PriceMode), from the price columns.
+	 */
+	private static double getPrice(double[][] columns, int index, PriceMode priceMode) {
+		if (priceMode == PriceMode.PRICE_MIDPOINT) {
+			double sellMin = columns[SELL_MIN][index];
+			double buyMax = columns[BUY_MAX][index];
+			if (sellMin > 0 && buyMax > 0) { //Working as intended
+				return (sellMin + buyMax) / 2;
+			} else if (buyMax > 0) { //Using BuyMax (fallback)
+				return buyMax;
+			} else { //Using SellMin (fallback)
+				return sellMin; //SellMin or Zero
+			}
+		}
+		int column = getColumn(priceMode);
+		if (column < 0) {
+			return 0;
+		}
+		return columns[column][index];
+	}
+
+	private static int[] getColumns(PriceMode priceMode) {
+		if (priceMode == PriceMode.PRICE_MIDPOINT) {
+			return new int[] {SELL_MIN, BUY_MAX};
+		}
+		int column = getColumn(priceMode);
+		if (column < 0) {
+			return new int[0];
+		}
+		return new int[] {column};
+	}
+
+	private static int getColumn(PriceMode priceMode) {
+		if (priceMode == null) {
+			return -1;
+		}
+		switch (priceMode) {
+			case PRICE_SELL_MAX: return 0;
+			case PRICE_SELL_AVG: return 1;
+			case PRICE_SELL_MEDIAN: return 2;
+			case PRICE_SELL_PERCENTILE: return 3;
+			case PRICE_SELL_MIN: return SELL_MIN;
+			case PRICE_BUY_MAX: return BUY_MAX;
+			case PRICE_BUY_AVG: return 6;
+			case PRICE_BUY_MEDIAN: return 7;
+			case PRICE_BUY_PERCENTILE: return 8;
+			case PRICE_BUY_MIN: return 9;
+			default: return -1;
+		}
+	}
+
+	private static int toDay(Date date) {
+		return (int) Math.floorDiv(date.getTime(), DAY);
+	}
+
+	private static ByteBuffer toBuffer(int day, Prices prices) {
+		ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + prices.size() * ENTRY_SIZE);
+		buffer.putInt(day);
+		buffer.putInt(prices.size());
+		for (int typeID : prices.typeIDs) {
+			buffer.putInt(typeID);
+		}
+		for (double[] column : prices.columns) {
+			for (double value : column) {
+				buffer.putDouble(value);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void writeHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.flip();
+		write(channel, header, 0);
+	}
+
+	private static Prices read(FileChannel channel, Snapshot snapshot) throws IOException {
+		ByteBuffer buffer = read(channel, snapshot.position + SNAPSHOT_HEADER_SIZE, snapshot.count * ENTRY_SIZE);
+		int[] typeIDs = new int[snapshot.count];
+		for (int i = 0; i < snapshot.count; i++) {
+			typeIDs[i] = buffer.getInt();
+		}
+		double[][] columns = new double[COLUMNS][snapshot.count];
+		for (double[] column : columns) {
+			for (int i = 0; i < snapshot.count; i++) {
+				column[i] = buffer.getDouble();
+			}
+		}
+		return new Prices(typeIDs, columns);
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long offset = position;
+		while (buffer.hasRemaining()) {
+			offset += channel.write(buffer, offset);
+		}
+	}
+
+	/**
+	 * Import price history.
+	 * Days are added in date order, each day adds or replaces the prices of the day before.
+	 * The snapshots are written as they are added, but only the ones kept by compacting.
+	 * The file is synced and replaced once, on commit.
+	 */
+	public static class Importer {
+		private final PriceStore store;
+		private final int firstSaved;
+		private final int today;
+		private final File tempFile;
+		private final List<Snapshot> imported = new ArrayList<>();
+		private FileChannel channel = null;
+		private Prices prices = new Prices(new int[0], new double[COLUMNS][0]);
+		private Integer lastDay = null;
+		private boolean written = true;
+		private long position = HEADER_SIZE;
+		private IOException error = null;
+
+		private Importer(PriceStore store, int firstSaved) {
+			this.store = store;
+			this.firstSaved = firstSaved;
+			this.today = toDay(new Date());
+			this.tempFile = new File(store.file.getPath() + IMPORT_SUFFIX);
+		}
+
+		/**
+		 * Add the prices of a day.
+		 * Write errors are logged, and the import is not committed.
+		 * @param date the day (must not be before the last added day)
+		 * @param priceData price data by typeID
+		 */
+		public void add(Date date, Map<Integer, PriceData> priceData) {
+			int day = toDay(date);
+			if (error != null || day >= firstSaved || (lastDay != null && day < lastDay)) {
+				return; //Failed, already saved or out of order
+			}
+			prices = merge(prices, Prices.create(priceData));
+			Snapshot last = imported.isEmpty() ? null : imported.get(imported.size() - 1);
+			if (last != null && last.day == day) { //Same day: Replace the last snapshot
+				imported.remove(imported.size() - 1);
+				position = last.position;
+				written = write(day);
+			} else if (last == null || isKept(last.day, day, today)) {
+				written = write(day);
+			} else {
+				written = false;
+			}
+			lastDay = day;
+		}
+
+		private boolean write(int day) {
+			try {
+				if (channel == null) {
+					File parent = store.file.getParentFile();
+					if (parent != null && !parent.exists() && !parent.mkdirs()) {
+						throw new IOException("failed to create " + parent.getAbsolutePath());
+					}
+					channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+					writeHeader(channel);
+				}
+				PriceStore.write(channel, toBuffer(day, prices), position);
+				imported.add(new Snapshot(day, position, prices.size()));
+				position = position + SNAPSHOT_HEADER_SIZE + (long) prices.size() * ENTRY_SIZE;
+				return true;
+			} catch (IOException ex) {
+				error = ex;
+				LOG.error("Price data not imported: " + ex.getMessage(), ex);
+				return false;
+			}
+		}
+
+		/**
+		 * Save the imported price history, followed by the saved snapshots.
+		 * @return true if imported (or nothing to import)
+		 */
+		public boolean commit() {
+			synchronized (store) {
+				if (error == null && !written) {
+					write(lastDay); //The last day is always kept (current prices)
+				}
+				if (error != null) {
+					discard();
+					return false;
+				}
+				if (channel == null) {
+					return true; //Nothing imported
+				}
+				List<Snapshot> snapshots = new ArrayList<>(imported);
+				try {
+					if (!store.snapshots.isEmpty()) {
+						try (FileChannel from = FileChannel.open(store.file.toPath(), StandardOpenOption.READ)) {
+							for (Snapshot snapshot : store.snapshots) {
+								int size = SNAPSHOT_HEADER_SIZE + snapshot.count * ENTRY_SIZE;
+								PriceStore.write(channel, read(from, snapshot.position, size), position);
+								snapshots.add(new Snapshot(snapshot.day, position, snapshot.count));
+								position = position + size;
+							}
+						}
+					}
+					channel.truncate(position);
+					channel.force(false);
+					channel.close();
+					Files.move(tempFile.toPath(), store.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException ex) {
+					LOG.error("Price data not imported: " + ex.getMessage(), ex);
+					discard();
+					return false;
+				}
+				LOG.info("Price data imported: " + imported.size() + " days");
+				if (store.snapshots.isEmpty() && store.isEmpty()) {
+					store.prices = prices;
+				}
+				store.snapshots.clear();
+				store.snapshots.addAll(snapshots);
+				store.length = position;
+				return true;
+			}
+		}
+
+		/**
+		 * Stop the import, without changing the saved price data.
+		 */
+		public void discard() {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException ex) {
+					//No problem
+				}
+			}
+			if (tempFile.exists() && !tempFile.delete()) {
+				LOG.warn("Price data: failed to delete " + tempFile.getName());
+			}
+		}
+	}
+
+	private static class Snapshot {
+		private final int day;
+		private final long position;
+		private final int count;
+
+		public Snapshot(int day, long position, int count) {
+			this.day = day;
+			this.position = position;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Immutable: replaced on update, so readers never need to lock.
+	 */
+	private static class Prices {
+		private final int[] typeIDs;
+		private final double[][] columns;
+
+		public Prices(int[] typeIDs, double[][] columns) {
+			this.typeIDs = typeIDs;
+			this.columns = columns;
+		}
+
+		public static Prices create(Map<Integer, PriceData> priceData) {
+			int[] typeIDs = new int[priceData.size()];
+			int size = 0;
+			for (Integer typeID : priceData.keySet()) {
+				typeIDs[size++] = typeID;
+			}
+			Arrays.sort(typeIDs);
+			double[][] columns = new double[COLUMNS][typeIDs.length];
+			for (int i = 0; i < typeIDs.length; i++) {
+				PriceData data = priceData.get(typeIDs[i]);
+				columns[0][i] = data.getSellMax();
+				columns[1][i] = data.getSellAvg();
+				columns[2][i] = data.getSellMedian();
+				columns[3][i] = data.getSellPercentile();
+				columns[4][i] = data.getSellMin();
+				columns[5][i] = data.getBuyMax();
+				columns[6][i] = data.getBuyAvg();
+				columns[7][i] = data.getBuyMedian();
+				columns[8][i] = data.getBuyPercentile();
+				columns[9][i] = data.getBuyMin();
+			}
+			return new Prices(typeIDs, columns);
+		}
+
+		public static PriceData toPriceData(double[] values) {
+			PriceData priceData = new PriceData();
+			priceData.setSellMax(values[0]);
+			priceData.setSellAvg(values[1]);
+			priceData.setSellMedian(values[2]);
+			priceData.setSellPercentile(values[3]);
+			priceData.setSellMin(values[4]);
+			priceData.setBuyMax(values[5]);
+			priceData.setBuyAvg(values[6]);
+			priceData.setBuyMedian(values[7]);
+			priceData.setBuyPercentile(values[8]);
+			priceData.setBuyMin(values[9]);
+			return priceData;
+		}
+
+		public int size() {
+			return typeIDs.length;
+		}
+
+		public boolean isEmpty(int index) {
+			for (double[] column : columns) {
+				if (column[index] > 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public PriceData get(int index) {
+			double[] values = new double[COLUMNS];
+			for (int column = 0; column < COLUMNS; column++) {
+				values[column] = columns[column][index];
+			}
+			return toPriceData(values);
+		}
+	}
+}
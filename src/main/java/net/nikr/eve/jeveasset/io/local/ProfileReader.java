@@ -20,6 +20,10 @@
  */
 package net.nikr.eve.jeveasset.io.local;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
@@ -28,6 +32,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import net.nikr.eve.jeveasset.data.api.accounts.EsiOwner;
 import net.nikr.eve.jeveasset.data.api.accounts.EveApiAccount;
 import net.nikr.eve.jeveasset.data.api.accounts.EveApiAccount.KeyType;
@@ -74,6 +82,7 @@ import org.w3c.dom.NodeList;
 public final class ProfileReader extends AbstractXmlReader<Boolean> {
 
 	private final Profile profile;
+	private File shardDirectory;
 
 	public static boolean load(final Profile profile) {
 		return load(profile, profile.getFilename());
@@ -81,6 +90,7 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 
 	public static boolean load(final Profile profile, final String filename) {
 		ProfileReader reader = new ProfileReader(profile);
+		reader.shardDirectory = ProfileWriter.getShardDirectory(filename);
 		Boolean ok = reader.read(filename, filename, XmlType.DYNAMIC_BACKUP);
 		if (!ok) {
 			profile.clear();
@@ -92,6 +102,33 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 		this.profile = profile;
 	}
 
+	/**
+	 * Get the shards used by a profile file.
+	 * @param file profile file
+	 * @return shard filenames (empty if the file does not exist or can not be read)
+	 */
+	static Set<String> getShards(final File file) {
+		Set<String> shards = new HashSet<>();
+		if (!file.exists()) {
+			return shards;
+		}
+		try (InputStream is = new FileInputStream(file)) {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("shard")) {
+						shards.add(reader.getAttributeValue(null, "file"));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException | XMLStreamException ex) {
+			//Unreadable backup: nothing to keep
+		}
+		return shards;
+	}
+
 	@Override
 	protected Boolean parse(Element element) throws XmlException {
 		profile.clear(); //Clear before load (may happen more than once)
@@ -99,6 +136,39 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 		return true;
 	}
 
+	@Override
+	protected boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	protected Boolean parse(XMLStreamReader reader) throws XmlException, XMLStreamException {
+		profile.clear(); //Clear before load (may happen more than once)
+		if (!reader.getLocalName().equals("assets")) {
+			throw new XmlException("Wrong root element name.");
+		}
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "stockpiles":
+					parseStockpiles(readElement(reader), profile);
+					break;
+				case "accounts": //Eve XML Api
+					parseAccounts(readElement(reader), profile.getAccounts());
+					break;
+				case "evekitowners": //EveKit
+					parseEveKitOwners(readElement(reader), profile.getEveKitOwners());
+					break;
+				case "esiowners": //Esi
+					parseEsiOwners(reader, profile.getEsiOwners());
+					break;
+				default:
+					skipElement(reader);
+					break;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	protected Boolean failValue() {
 		return false;
@@ -154,38 +224,56 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 		NodeList ownerNodes = element.getElementsByTagName("esiowner");
 		for (int i = 0; i < ownerNodes.getLength(); i++) {
 			Element currentNode = (Element) ownerNodes.item(i);
-			String accountName = getString(currentNode, "accountname");
-			String refreshToken = getString(currentNode, "refreshtoken");
-			String scopes = getString(currentNode, "scopes");
-			Date structuresNextUpdate = getDate(currentNode, "structuresnextupdate");
-			Date accountNextUpdate = getDate(currentNode, "accountnextupdate");
-			EsiCallbackURL callbackURL;
-			try {
-				callbackURL = EsiCallbackURL.valueOf(getString(currentNode, "callbackurl"));
-			} catch (IllegalArgumentException ex) {
-				throw new XmlException(ex);
+			EsiOwner owner = parseEsiOwner(currentNode);
+			parseOwnerType(currentNode, owner);
+			esiOwners.add(owner);
+		}
+	}
+
+	private void parseEsiOwners(final XMLStreamReader reader, final List<EsiOwner> esiOwners) throws XmlException, XMLStreamException {
+		while (nextChild(reader)) {
+			if (reader.getLocalName().equals("esiowner")) {
+				Element currentNode = readAttributes(reader);
+				EsiOwner owner = parseEsiOwner(currentNode);
+				parseOwnerType(currentNode, owner); //Attributes (and empty data)
+				parseOwnerType(reader, owner); //Data
+				esiOwners.add(owner);
+			} else {
+				skipElement(reader);
 			}
-			Set<RolesEnum> roles = EnumSet.noneOf(RolesEnum.class);
-			if (haveAttribute(currentNode, "characterroles")) {
-				for (String role : getString(currentNode, "characterroles").split(",")) {
-					try {
-						roles.add(RolesEnum.valueOf(role));
-					} catch (IllegalArgumentException ex) {
+		}
+	}
+
+	private EsiOwner parseEsiOwner(final Element currentNode) throws XmlException {
+		String accountName = getString(currentNode, "accountname");
+		String refreshToken = getString(currentNode, "refreshtoken");
+		String scopes = getString(currentNode, "scopes");
+		Date structuresNextUpdate = getDate(currentNode, "structuresnextupdate");
+		Date accountNextUpdate = getDate(currentNode, "accountnextupdate");
+		EsiCallbackURL callbackURL;
+		try {
+			callbackURL = EsiCallbackURL.valueOf(getString(currentNode, "callbackurl"));
+		} catch (IllegalArgumentException ex) {
+			throw new XmlException(ex);
+		}
+		Set<RolesEnum> roles = EnumSet.noneOf(RolesEnum.class);
+		if (haveAttribute(currentNode, "characterroles")) {
+			for (String role : getString(currentNode, "characterroles").split(",")) {
+				try {
+					roles.add(RolesEnum.valueOf(role));
+				} catch (IllegalArgumentException ex) {
 
-					}
 				}
 			}
-			EsiOwner owner = new EsiOwner();
-			owner.setRoles(roles);
-			owner.setAccountName(accountName);
-			owner.setScopes(scopes);
-			owner.setStructuresNextUpdate(structuresNextUpdate);
-			owner.setAccountNextUpdate(accountNextUpdate);
-			owner.setAuth(callbackURL, refreshToken, null);
-
-			parseOwnerType(currentNode, owner);
-			esiOwners.add(owner);
 		}
+		EsiOwner owner = new EsiOwner();
+		owner.setRoles(roles);
+		owner.setAccountName(accountName);
+		owner.setScopes(scopes);
+		owner.setStructuresNextUpdate(structuresNextUpdate);
+		owner.setAccountNextUpdate(accountNextUpdate);
+		owner.setAuth(callbackURL, refreshToken, null);
+		return owner;
 	}
 
 	private void parseEveKitOwners(final Element element, final List<EveKitOwner> eveKitOwners) throws XmlException {
@@ -332,6 +420,155 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 		parseMining(node, owner);
 	}
 
+	/**
+	 * Parse the owner data one row at the time.
+	 * Only the small sections are read as a whole.
+	 * @param reader positioned on the owner start tag
+	 * @param owner
+	 * @throws XmlException
+	 * @throws XMLStreamException
+	 */
+	private void parseOwnerType(final XMLStreamReader reader, final OwnerType owner) throws XmlException, XMLStreamException {
+		List<String> shardFiles = new ArrayList<>();
+		while (nextChild(reader)) {
+			switch (reader.getLocalName()) {
+				case "shard":
+					String file = getString(readAttributes(reader), "file");
+					skipElement(reader);
+					parseShard(file, owner);
+					shardFiles.add(file);
+					break;
+				case "assets":
+					while (nextChild(reader)) {
+						Element assetsNode = createElement("assets");
+						assetsNode.appendChild(readElement(reader)); //One root asset (and it's children) at the time
+						parseAssets(assetsNode, owner, owner.getAssets(), null);
+					}
+					break;
+				case "contracts":
+					Map<MyContract, List<MyContractItem>> contracts = new HashMap<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("contract")) {
+							parseContract(readElement(reader), contracts);
+						} else {
+							skipElement(reader);
+						}
+					}
+					owner.setContracts(contracts);
+					break;
+				case "markerorders":
+					Set<MyMarketOrder> marketOrders = new HashSet<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("markerorder")) {
+							marketOrders.add(parseMarketOrder(readElement(reader), owner));
+						} else {
+							skipElement(reader);
+						}
+					}
+					owner.setMarketOrders(marketOrders);
+					break;
+				case "journals":
+					Set<MyJournal> journals = new HashSet<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("journal")) {
+							journals.add(DataConverter.toMyJournal(parseJournal(readAttributes(reader)), owner));
+						}
+						skipElement(reader);
+					}
+					owner.setJournal(journals);
+					break;
+				case "wallettransactions":
+					Set<MyTransaction> transactions = new HashSet<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("wallettransaction")) {
+							transactions.add(DataConverter.toMyTransaction(parseTransaction(readAttributes(reader)), owner));
+						}
+						skipElement(reader);
+					}
+					owner.setTransactions(transactions);
+					break;
+				case "industryjobs":
+					List<MyIndustryJob> industryJobs = new ArrayList<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("industryjob")) {
+							parseIndustryJob(readAttributes(reader), owner, industryJobs);
+						}
+						skipElement(reader);
+					}
+					owner.setIndustryJobs(industryJobs);
+					break;
+				case "blueprints":
+					Map<Long, RawBlueprint> blueprints = new HashMap<>();
+					while (nextChild(reader)) {
+						if (reader.getLocalName().equals("blueprint")) {
+							RawBlueprint blueprint = parseBlueprint(readAttributes(reader));
+							blueprints.put(blueprint.getItemID(), blueprint);
+						}
+						skipElement(reader);
+					}
+					owner.setBlueprints(blueprints);
+					break;
+				case "activeship":
+					parseActiveShip(createOwnerNode(readElement(reader)), owner);
+					break;
+				case "balances":
+					parseBalances(createOwnerNode(readElement(reader)), owner);
+					break;
+				case "assetdivisions":
+					parseAssetDivisions(createOwnerNode(readElement(reader)), owner);
+					break;
+				case "walletdivisions":
+					parseWalletDivisions(createOwnerNode(readElement(reader)), owner);
+					break;
+				case "skills":
+					parseSkills(createOwnerNode(readElement(reader)), owner);
+					break;
+				case "minings":
+					parseMining(createOwnerNode(readElement(reader)), owner);
+					break;
+				default:
+					skipElement(reader);
+					break;
+			}
+		}
+		if (!shardFiles.isEmpty()) { //The loaded shards are saved again, until the owner data is changed
+			ProfileWriter.setSavedShards(shardDirectory, owner, owner.getDataVersion(), shardFiles);
+		}
+	}
+
+	/**
+	 * Parse the owner sections saved in a separate file.
+	 * @param file shard filename
+	 * @param owner
+	 * @throws XmlException if the shard is missing or invalid
+	 * @throws XMLStreamException
+	 */
+	private void parseShard(final String file, final OwnerType owner) throws XmlException, XMLStreamException {
+		if (shardDirectory == null) {
+			throw new XmlException("Shard not supported");
+		}
+		try (InputStream is = new FileInputStream(new File(shardDirectory, file))) {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+			try {
+				reader.nextTag(); //Root element
+				if (!reader.getLocalName().equals("shard")) {
+					throw new XmlException("Wrong shard root element name.");
+				}
+				parseOwnerType(reader, owner);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		}
+	}
+
+	private Element createOwnerNode(final Element section) {
+		Element ownerNode = createElement("owner");
+		ownerNode.appendChild(section);
+		return ownerNode;
+	}
+
 	private void parseActiveShip(final Element element, final OwnerType owner) throws XmlException {
 		NodeList activeShipNodes = element.getElementsByTagName("activeship");
 		if(activeShipNodes.getLength() == 1) {
@@ -353,22 +590,25 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 			NodeList contractNodes = contractsNode.getElementsByTagName("contract");
 			for (int b = 0; b < contractNodes.getLength(); b++) {
 				Element contractNode = (Element) contractNodes.item(b);
-				MyContract contract = parseContract(contractNode);
-				NodeList itemNodes = contractNode.getElementsByTagName("contractitem");
-				List<MyContractItem> contractItems = new ArrayList<>();
-				for (int c = 0; c < itemNodes.getLength(); c++) {
-					Element currentNode = (Element) itemNodes.item(c);
-					RawContractItem rawContractItem = parseContractItem(currentNode);
-					MyContractItem contractItem = DataConverter.toMyContractItem(rawContractItem, contract);
-					contractItems.add(contractItem);
-				}
-
-				contracts.put(contract, contractItems);
+				parseContract(contractNode, contracts);
 			}
 		}
 		owner.setContracts(contracts);
 	}
 
+	private void parseContract(final Element contractNode, final Map<MyContract, List<MyContractItem>> contracts) throws XmlException {
+		MyContract contract = parseContract(contractNode);
+		NodeList itemNodes = contractNode.getElementsByTagName("contractitem");
+		List<MyContractItem> contractItems = new ArrayList<>();
+		for (int c = 0; c < itemNodes.getLength(); c++) {
+			Element currentNode = (Element) itemNodes.item(c);
+			RawContractItem rawContractItem = parseContractItem(currentNode);
+			MyContractItem contractItem = DataConverter.toMyContractItem(rawContractItem, contract);
+			contractItems.add(contractItem);
+		}
+		contracts.put(contract, contractItems);
+	}
+
 	private MyContract parseContract(final Element element) throws XmlException {
 		RawContract contract = RawContract.create();
 		int acceptorID = getInt(element, "acceptorid");
@@ -688,16 +928,20 @@ public final class ProfileReader extends AbstractXmlReader<Boolean> {
 			NodeList industryJobNodes = currentIndustryJobsNode.getElementsByTagName("industryjob");
 			for (int b = 0; b < industryJobNodes.getLength(); b++) {
 				Element currentNode = (Element) industryJobNodes.item(b);
-				if (haveAttribute(currentNode, "blueprintid")) {
-					RawIndustryJob rawIndustryJob = parseIndustryJob(currentNode);
-					MyIndustryJob industryJob = DataConverter.toMyIndustryJob(rawIndustryJob, owner);
-					industryJobs.add(industryJob);
-				}
+				parseIndustryJob(currentNode, owner, industryJobs);
 			}
 		}
 		owner.setIndustryJobs(industryJobs);
 	}
 
+	private void parseIndustryJob(final Element currentNode, final OwnerType owner, final List<MyIndustryJob> industryJobs) throws XmlException {
+		if (haveAttribute(currentNode, "blueprintid")) {
+			RawIndustryJob rawIndustryJob = parseIndustryJob(currentNode);
+			MyIndustryJob industryJob = DataConverter.toMyIndustryJob(rawIndustryJob, owner);
+			industryJobs.add(industryJob);
+		}
+	}
+
 	private RawIndustryJob parseIndustryJob(final Element element) throws XmlException {
 		RawIndustryJob rawIndustryJob = RawIndustryJob.create();
 		int jobID = getInt(element, "jobid");
@@ -20,10 +20,20 @@
  */
 package net.nikr.eve.jeveasset.io.local;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import net.nikr.eve.jeveasset.CliOptions;
 import net.nikr.eve.jeveasset.data.api.accounts.EsiOwner;
 import net.nikr.eve.jeveasset.data.api.accounts.EveApiAccount;
 import net.nikr.eve.jeveasset.data.api.accounts.EveApiOwner;
@@ -55,6 +65,24 @@ public final class ProfileWriter extends AbstractXmlWriter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ProfileWriter.class);
 
+	/**
+	 * Owner data saved in separate files, when saving sharded.
+	 * The large sections get a file each, the small sections share the OWNER file.
+	 */
+	private enum Shard {
+		OWNER, ASSETS, CONTRACTS, MARKET_ORDERS, JOURNALS, TRANSACTIONS, INDUSTRY_JOBS, BLUEPRINTS, MINING
+	}
+
+	/**
+	 * The shards holding the current data of each ESI owner, by shard directory and ownerID.
+	 * Set when the shards are saved or loaded.
+	 * Owners with the same data version are not built again on the next save.
+	 */
+	private static final Map<String, SavedShards> SAVED_SHARDS = new HashMap<>();
+
+	private final Set<String> shards = new HashSet<>();
+	private File shardDirectory;
+
 	private ProfileWriter() { }
 
 	public static boolean save(final Profile profile) {
@@ -62,11 +90,24 @@ public final class ProfileWriter extends AbstractXmlWriter {
 	}
 
 	public static boolean save(final Profile profile, final String filename) {
+		return save(profile, filename, CliOptions.get().isShardedProfiles());
+	}
+
+	protected static boolean save(final Profile profile, final String filename, final boolean sharded) {
 		ProfileWriter writer = new ProfileWriter();
-		return writer.write(profile, filename);
+		return writer.write(profile, filename, sharded);
 	}
 
-	private boolean write(final Profile profile, final String filename) {
+	/**
+	 * Directory for the owner shards of a profile.
+	 * @param filename profile filename
+	 * @return shard directory
+	 */
+	public static File getShardDirectory(final String filename) {
+		return new File(filename.substring(0, filename.lastIndexOf(".")) + "_shards");
+	}
+
+	private boolean write(final Profile profile, final String filename, final boolean sharded) {
 		Document xmldoc;
 		try {
 			xmldoc = getXmlDocument("assets");
@@ -74,20 +115,135 @@ public final class ProfileWriter extends AbstractXmlWriter {
 			LOG.error("Profile not saved " + ex.getMessage(), ex);
 			return false;
 		}
+		if (sharded) {
+			shardDirectory = getShardDirectory(filename);
+			if (!shardDirectory.exists() && !shardDirectory.mkdirs()) {
+				LOG.error("Profile not saved: failed to create " + shardDirectory.getName());
+				return false;
+			}
+		}
 		writeAccounts(xmldoc, profile.getAccounts());
 		writeEveKitOwners(xmldoc, profile.getEveKitOwners());
-		writeEsiOwners(xmldoc, profile.getEsiOwners());
 		try {
+			writeEsiOwners(xmldoc, profile.getEsiOwners());
 			writeXmlFile(xmldoc, filename, true);
 		} catch (XmlException ex) {
 			LOG.error("Profile not saved " + ex.getMessage(), ex);
 			return false;
 		}
+		cleanShards(filename);
 		LOG.info("Profile saved");
 		return true;
 	}
 
-	private void writeEsiOwners(final Document xmldoc, final List<EsiOwner> esiOwners) {
+	/**
+	 * Delete the shards not used by the profile or the profile backup.
+	 * @param filename profile filename
+	 */
+	private void cleanShards(final String filename) {
+		File directory = getShardDirectory(filename);
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Set<String> keep = new HashSet<>(shards);
+		keep.addAll(ProfileReader.getShards(getBackupFile(filename)));
+		for (File file : files) {
+			if (!keep.contains(file.getName()) && !file.delete()) {
+				LOG.warn("Failed to delete shard: " + file.getName());
+			}
+		}
+		if (keep.isEmpty() && !directory.delete()) {
+			LOG.warn("Failed to delete: " + directory.getName());
+		}
+	}
+
+	/**
+	 * Remember the shards holding the current data of an owner.
+	 * @param shardDirectory
+	 * @param owner
+	 * @param dataVersion owner data version the shards were saved or loaded from
+	 * @param files shard filenames
+	 */
+	static void setSavedShards(final File shardDirectory, final OwnerType owner, final long dataVersion, final List<String> files) {
+		synchronized (SAVED_SHARDS) {
+			SAVED_SHARDS.put(getSavedShardsKey(shardDirectory, owner), new SavedShards(dataVersion, files));
+		}
+	}
+
+	/**
+	 * Get the shards of an owner, if the owner data has not changed since they were saved or loaded.
+	 * @param shardDirectory
+	 * @param owner
+	 * @return shard filenames or null if the shards must be built
+	 */
+	private static List<String> getSavedShards(final File shardDirectory, final OwnerType owner) {
+		SavedShards saved;
+		synchronized (SAVED_SHARDS) {
+			saved = SAVED_SHARDS.get(getSavedShardsKey(shardDirectory, owner));
+		}
+		if (saved == null || saved.dataVersion != owner.getDataVersion() || saved.files.size() != Shard.values().length) {
+			return null;
+		}
+		for (String file : saved.files) {
+			if (!new File(shardDirectory, file).exists()) {
+				return null;
+			}
+		}
+		return saved.files;
+	}
+
+	private static String getSavedShardsKey(final File shardDirectory, final OwnerType owner) {
+		return shardDirectory.getAbsolutePath() + ":" + owner.getOwnerID();
+	}
+
+	/**
+	 * Save the shard, if the content has changed.
+	 * Shards are named by owner, section and content hash.
+	 * A shard with the same name will always have the same content, so existing shards are never rewritten.
+	 * @param owner
+	 * @param shard
+	 * @return the shard filename
+	 * @throws XmlException
+	 */
+	private String writeShard(final OwnerType owner, final Shard shard) throws XmlException {
+		Document sharddoc = getXmlDocument("shard");
+		writeSection(sharddoc, sharddoc.getDocumentElement(), owner, shard);
+		byte[] bytes = getXmlBytes(sharddoc);
+		String name = owner.getOwnerID() + "_" + shard.name().toLowerCase() + "_" + getHash(bytes) + ".xml";
+		File file = new File(shardDirectory, name);
+		if (!file.exists()) {
+			File newFile = new File(shardDirectory, name + ".new");
+			try {
+				try (FileOutputStream out = new FileOutputStream(newFile)) {
+					out.write(bytes);
+					sync(out);
+				}
+				Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException ex) {
+				if (newFile.exists() && !newFile.delete()) {
+					LOG.warn("Failed to delete: " + newFile.getName());
+				}
+				throw new XmlException(ex.getMessage(), ex);
+			}
+		}
+		return name;
+	}
+
+	private String getHash(final byte[] bytes) throws XmlException {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				builder.append(String.format("%02x", digest[i]));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		}
+	}
+
+	private void writeEsiOwners(final Document xmldoc, final List<EsiOwner> esiOwners) throws XmlException {
 		Element parentNode = xmldoc.createElement("esiowners");
 		xmldoc.getDocumentElement().appendChild(parentNode);
 		for (EsiOwner owner : esiOwners) {
@@ -103,7 +259,27 @@ public final class ProfileWriter extends AbstractXmlWriter {
 				roles.add(role.name());
 			}
 			setAttribute(node, "characterroles", String.join(",", roles));
-			writeTypeOwner(xmldoc, node, owner);
+			if (shardDirectory != null) {
+				writeTypeOwnerAttributes(node, owner);
+				//Only build the shards of owners changed since the last save or load
+				long dataVersion = owner.getDataVersion(); //Before building: Changes made while saving are saved next time
+				List<String> files = getSavedShards(shardDirectory, owner);
+				if (files == null) {
+					files = new ArrayList<>();
+					for (Shard shard : Shard.values()) {
+						files.add(writeShard(owner, shard));
+					}
+					setSavedShards(shardDirectory, owner, dataVersion, files);
+				}
+				for (String file : files) {
+					shards.add(file);
+					Element shardNode = xmldoc.createElement("shard");
+					setAttribute(shardNode, "file", file);
+					node.appendChild(shardNode);
+				}
+			} else {
+				writeTypeOwner(xmldoc, node, owner);
+			}
 			parentNode.appendChild(node);
 		}
 	}
@@ -162,6 +338,13 @@ public final class ProfileWriter extends AbstractXmlWriter {
 	}
 
 	private void writeTypeOwner(final Document xmldoc, final Element node, final OwnerType owner) {
+		writeTypeOwnerAttributes(node, owner);
+		for (Shard shard : Shard.values()) {
+			writeSection(xmldoc, node, owner, shard);
+		}
+	}
+
+	private void writeTypeOwnerAttributes(final Element node, final OwnerType owner) {
 		setAttribute(node, "id", owner.getOwnerID());
 		setAttribute(node, "name", owner.getOwnerName());
 		setAttributeOptional(node, "corp", owner.getCorporationName());
@@ -181,22 +364,44 @@ public final class ProfileWriter extends AbstractXmlWriter {
 		setAttribute(node, "bookmarksnextupdate", owner.getBookmarksNextUpdate());
 		setAttribute(node, "skillsnextupdate", owner.getSkillsNextUpdate());
 		setAttribute(node, "miningnextupdate", owner.getMiningNextUpdate());
+	}
 
-		Element childNode = xmldoc.createElement("assets");
-		node.appendChild(childNode);
-		writeAssets(xmldoc, childNode, owner.getAssets());
-		writeActiveShip(xmldoc, node, owner.getActiveShip());
-		writeContractItems(xmldoc, node, owner.getContracts());
-		writeAccountBalances(xmldoc, node, owner.getAccountBalances(), owner.isCorporation());
-		writeMarketOrders(xmldoc, node, owner.getMarketOrders(), owner.isCorporation());
-		writeJournals(xmldoc, node, owner.getJournal(), owner.isCorporation());
-		writeTransactions(xmldoc, node, owner.getTransactions(), owner.isCorporation());
-		writeIndustryJobs(xmldoc, node, owner.getIndustryJobs(), owner.isCorporation());
-		writeBlueprints(xmldoc, node, owner.getBlueprints(), owner.isCorporation());
-		writeAssetDivisions(xmldoc, node, owner.getAssetDivisions());
-		writeWalletDivisions(xmldoc, node, owner.getWalletDivisions());
-		writeSkills(xmldoc, node, owner.getSkills(), owner.getTotalSkillPoints(), owner.getUnallocatedSkillPoints());
-		writeMining(xmldoc, node, owner.getMining());
+	private void writeSection(final Document xmldoc, final Element node, final OwnerType owner, final Shard shard) {
+		switch (shard) {
+			case OWNER:
+				writeActiveShip(xmldoc, node, owner.getActiveShip());
+				writeAccountBalances(xmldoc, node, owner.getAccountBalances(), owner.isCorporation());
+				writeAssetDivisions(xmldoc, node, owner.getAssetDivisions());
+				writeWalletDivisions(xmldoc, node, owner.getWalletDivisions());
+				writeSkills(xmldoc, node, owner.getSkills(), owner.getTotalSkillPoints(), owner.getUnallocatedSkillPoints());
+				break;
+			case ASSETS:
+				Element childNode = xmldoc.createElement("assets");
+				node.appendChild(childNode);
+				writeAssets(xmldoc, childNode, owner.getAssets());
+				break;
+			case CONTRACTS:
+				writeContractItems(xmldoc, node, owner.getContracts());
+				break;
+			case MARKET_ORDERS:
+				writeMarketOrders(xmldoc, node, owner.getMarketOrders(), owner.isCorporation());
+				break;
+			case JOURNALS:
+				writeJournals(xmldoc, node, owner.getJournal(), owner.isCorporation());
+				break;
+			case TRANSACTIONS:
+				writeTransactions(xmldoc, node, owner.getTransactions(), owner.isCorporation());
+				break;
+			case INDUSTRY_JOBS:
+				writeIndustryJobs(xmldoc, node, owner.getIndustryJobs(), owner.isCorporation());
+				break;
+			case BLUEPRINTS:
+				writeBlueprints(xmldoc, node, owner.getBlueprints(), owner.isCorporation());
+				break;
+			case MINING:
+				writeMining(xmldoc, node, owner.getMining());
+				break;
+		}
 	}
 
 	private void writeAssets(final Document xmldoc, final Element parentNode, final List<MyAsset> assets) {
@@ -507,4 +712,14 @@ public final class ProfileWriter extends AbstractXmlWriter {
 			node.appendChild(childNode);
 		}
 	}
+
+	private static class SavedShards {
+		private final long dataVersion;
+		private final List<String> files;
+
+		public SavedShards(long dataVersion, List<String> files) {
+			this.dataVersion = dataVersion;
+			this.files = files;
+		}
+	}
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.local;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs saves on a single background thread.
+ * Save requests for the same target are collapsed into one save, that writes the latest state.
+ */
+public class SaveScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SaveScheduler.class);
+
+	public static enum SaveTarget {
+		SETTINGS("Settings", 500),
+		PROFILE("Profile", 0),
+		TRACKER("Tracker Data", 500),
+		;
+
+		private final String name;
+		private final long delay;
+
+		private SaveTarget(String name, long delay) {
+			this.name = name;
+			this.delay = delay;
+		}
+
+		/**
+		 * Time to wait for more save requests, before saving.
+		 * @return delay in milliseconds
+		 */
+		public long getDelay() {
+			return delay;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	public static interface Saver {
+		public void save(String msg);
+	}
+
+	private static SaveScheduler scheduler;
+
+	private final Map<SaveTarget, Task> pending = new EnumMap<>(SaveTarget.class);
+	private final long[] requested = new long[SaveTarget.values().length];
+	private final long[] completed = new long[SaveTarget.values().length];
+	private final long[] saved = new long[SaveTarget.values().length];
+	private final long[] collapsed = new long[SaveTarget.values().length];
+	private final Thread thread;
+
+	private SaveScheduler() {
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				saveLoop();
+			}
+		}, "Save Scheduler");
+		thread.setDaemon(true);
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread("Save Scheduler Flush") {
+			@Override
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+	public static synchronized SaveScheduler get() {
+		if (scheduler == null) {
+			scheduler = new SaveScheduler();
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Save in the background.
+	 * Waits for the target delay, so more save requests can be collapsed into one save.
+	 * @param target what is saved
+	 * @param msg who is saving what?
+	 * @param saver does the save (should save the latest state)
+	 */
+	public void save(SaveTarget target, String msg, Saver saver) {
+		request(target, msg, saver, target.getDelay());
+	}
+
+	/**
+	 * Save in the background and wait for the save to be done.
+	 * @param target what is saved
+	 * @param msg who is saving what?
+	 * @param saver does the save (should save the latest state)
+	 */
+	public void saveAndWait(SaveTarget target, String msg, Saver saver) {
+		if (Thread.currentThread() == thread) { //Saving from a save: Save now (waiting would block forever)
+			long id;
+			synchronized (this) {
+				pending.remove(target);
+				id = ++requested[target.ordinal()];
+			}
+			run(target, msg, saver, id);
+			return;
+		}
+		long id = request(target, msg, saver, 0);
+		waitFor(target, id);
+	}
+
+	/**
+	 * Wait for all requested saves of a target to be done.
+	 * @param target what is saved
+	 */
+	public void waitFor(SaveTarget target) {
+		long id;
+		synchronized (this) {
+			id = requested[target.ordinal()];
+		}
+		waitFor(target, id);
+	}
+
+	/**
+	 * Run all pending saves now, and wait for them to be done.
+	 */
+	public void flush() {
+		synchronized (this) {
+			for (Task task : pending.values()) {
+				task.due = 0;
+			}
+			notifyAll();
+		}
+		if (Thread.currentThread() == thread) {
+			return; //Can not wait for itself
+		}
+		for (SaveTarget target : SaveTarget.values()) {
+			waitFor(target);
+			LOG.info(target + ": " + getSaved(target) + " saves done, " + getCollapsed(target) + " saves collapsed");
+		}
+	}
+
+	/**
+	 * Number of save requests.
+	 * @param target what is saved
+	 * @return
+	 */
+	public synchronized long getRequested(SaveTarget target) {
+		return requested[target.ordinal()];
+	}
+
+	/**
+	 * Number of saves done.
+	 * @param target what is saved
+	 * @return
+	 */
+	public synchronized long getSaved(SaveTarget target) {
+		return saved[target.ordinal()];
+	}
+
+	/**
+	 * Number of save requests merged into an already pending save.
+	 * @param target what is saved
+	 * @return
+	 */
+	public synchronized long getCollapsed(SaveTarget target) {
+		return collapsed[target.ordinal()];
+	}
+
+	private synchronized long request(SaveTarget target, String msg, Saver saver, long delay) {
+		long id = ++requested[target.ordinal()];
+		long due = System.currentTimeMillis() + delay;
+		Task task = pending.get(target);
+		if (task == null) {
+			pending.put(target, new Task(msg, saver, due));
+		} else { //Collapse
+			collapsed[target.ordinal()]++;
+			task.msg = msg;
+			task.saver = saver;
+			task.due = Math.min(task.due, due);
+		}
+		notifyAll();
+		return id;
+	}
+
+	private synchronized void waitFor(SaveTarget target, long id) {
+		while (completed[target.ordinal()] < id) {
+			try {
+				wait();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void saveLoop() {
+		while (true) {
+			SaveTarget target = null;
+			Task task;
+			long id;
+			synchronized (this) {
+				while (target == null) {
+					long now = System.currentTimeMillis();
+					long next = Long.MAX_VALUE;
+					for (Map.Entry<SaveTarget, Task> entry : pending.entrySet()) {
+						if (entry.getValue().due <= now) {
+							target = entry.getKey();
+							break;
+						}
+						next = Math.min(next, entry.getValue().due);
+					}
+					if (target != null) {
+						break;
+					}
+					try {
+						if (next == Long.MAX_VALUE) {
+							wait();
+						} else {
+							wait(next - now);
+						}
+					} catch (InterruptedException ex) {
+						return;
+					}
+				}
+				task = pending.remove(target);
+				id = requested[target.ordinal()]; //All requests until now are covered by this save
+			}
+			run(target, task.msg, task.saver, id);
+		}
+	}
+
+	private void run(SaveTarget target, String msg, Saver saver, long id) {
+		long before = System.currentTimeMillis();
+		try {
+			saver.save(msg);
+		} catch (Throwable ex) { //Errors too: The save thread must keep running, or waiters will block forever
+			LOG.error(target + " not saved: " + ex.getMessage(), ex);
+		} finally {
+			synchronized (this) {
+				completed[target.ordinal()] = Math.max(completed[target.ordinal()], id);
+				saved[target.ordinal()]++;
+				notifyAll();
+			}
+		}
+		LOG.debug(target + " saved in: " + (System.currentTimeMillis() - before) + "ms");
+	}
+
+	private static class Task {
+		private String msg;
+		private Saver saver;
+		private long due;
+
+		public Task(String msg, Saver saver, long due) {
+			this.msg = msg;
+			this.saver = saver;
+			this.due = due;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -56,6 +57,7 @@ import net.nikr.eve.jeveasset.data.settings.ReprocessSettings;
 import net.nikr.eve.jeveasset.data.settings.RouteResult;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.data.settings.Settings.SettingFlag;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsSection;
 import net.nikr.eve.jeveasset.data.settings.Settings.SettingsFactory;
 import net.nikr.eve.jeveasset.data.settings.Settings.TransactionProfitPrice;
 import net.nikr.eve.jeveasset.data.settings.StockpileGroupSettings;
@@ -145,7 +147,7 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 	private static final Logger LOG = LoggerFactory.getLogger(SettingsReader.class);
 
 	private enum ReaderType {
-		SETTINGS, STOCKPILE, TRACKER, ROUTES
+		SETTINGS, STOCKPILE, TRACKER, ROUTES, SECTION
 	}
 
 	private Settings settings;
@@ -153,6 +155,8 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 	private List<Stockpile> stockpilesList;
 	private Map<String, List<Value>> trackerDataMap;
 	private Map<String, RouteResult> routes;
+	private Element sectionElement;
+	private String filename;
 	private final ReaderType readerType;
 
 	private SettingsReader(ReaderType readerType) {
@@ -162,6 +166,7 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 	public static Settings load(final SettingsFactory settingsFactory, final String filename) {
 		SettingsReader reader = new SettingsReader(ReaderType.SETTINGS);
 		reader.setSettingsFactory(settingsFactory);
+		reader.setFilename(filename);
 		Update updater = new Update();
 		try {
 			updater.performUpdates(SETTINGS_VERSION, filename);
@@ -186,6 +191,10 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		this.settingsFactory = settingsFactory;
 	}
 
+	private void setFilename(String filename) {
+		this.filename = filename;
+	}
+
 	private Settings getSettings() {
 		return settings;
 	}
@@ -204,6 +213,7 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 
 	public static List<Stockpile> loadStockpile(final String filename) {
 		SettingsReader reader = new SettingsReader(ReaderType.STOCKPILE);
+		reader.setFilename(filename);
 		if (reader.read(filename, filename, XmlType.IMPORT)) {
 			return reader.getStockpiles();
 		} else {
@@ -244,6 +254,12 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 			case ROUTES:
 				routes = loadRoutes(element);
 				break;
+			case SECTION:
+				if (!element.getNodeName().equals("settings")) {
+					throw new XmlException("Wrong root element name.");
+				}
+				sectionElement = element;
+				break;
 		}
 		return true;
 	}
@@ -275,11 +291,11 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		if (!element.getNodeName().equals("settings")) {
 			throw new XmlException("Wrong root element name.");
 		}
-		//Stockpiles
+		//Stockpiles (from the section file, if any)
 		List<Stockpile> stockpiles = new ArrayList<>();
-		NodeList stockpilesNodes = element.getElementsByTagName("stockpiles");
-		if (stockpilesNodes.getLength() == 1) {
-			Element stockpilesElement = (Element) stockpilesNodes.item(0);
+		Map<SettingsSection, Element> sections = loadSections(element, null);
+		Element stockpilesElement = getSectionNode(sections, SettingsSection.STOCKPILES, element, "stockpiles");
+		if (stockpilesElement != null) {
 			parseStockpiles(stockpilesElement, stockpiles, null);
 		}
 		return stockpiles;
@@ -303,6 +319,9 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 			throw new XmlException("Wrong root element name.");
 		}
 
+		//Sections (Large sections are saved in their own files)
+		Map<SettingsSection, Element> sections = loadSections(element, settings);
+
 		//Price History
 		Element priceHistoryElement = getNodeOptional(element, "pricehistory");
 		if (priceHistoryElement != null) {
@@ -358,7 +377,7 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		}
 
 		//Owners
-		Element ownersElement = getNodeOptional(element, "owners");
+		Element ownersElement = getSectionNode(sections, SettingsSection.OWNERS, element, "owners");
 		if (ownersElement != null) {
 			parseOwners(ownersElement, settings);
 		}
@@ -389,13 +408,13 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		}
 
 		//Stockpiles
-		Element stockpilesElement = getNodeOptional(element, "stockpiles");
+		Element stockpilesElement = getSectionNode(sections, SettingsSection.STOCKPILES, element, "stockpiles");
 		if (stockpilesElement != null) {
 			parseStockpiles(stockpilesElement, settings.getStockpiles(), settings.getStockpileGroupSettings());
 		}
 
 		//Stockpile Groups
-		Element stockpileGroupsElement = getNodeOptional(element, "stockpilegroups");
+		Element stockpileGroupsElement = getSectionNode(sections, SettingsSection.STOCKPILES, element, "stockpilegroups");
 		if (stockpileGroupsElement != null) {
 			parseStockpileGroups(stockpileGroupsElement, settings);
 		}
@@ -433,17 +452,19 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		}
 
 		//UserPrices
-		Element userPriceElement = getNode(element, "userprices");
-		parseUserPrices(userPriceElement, settings);
+		Element userPriceElement = getSectionNode(sections, SettingsSection.USER_PRICES, element, "userprices");
+		if (userPriceElement != null) {
+			parseUserPrices(userPriceElement, settings);
+		}
 
 		//User Item Names
-		Element userItemNameElement = getNodeOptional(element, "itemmames");
+		Element userItemNameElement = getSectionNode(sections, SettingsSection.USER_ITEM_NAMES, element, "itemmames");
 		if (userItemNameElement != null) {
 			parseUserItemNames(userItemNameElement, settings);
 		}
 
 		//Eve Item Names
-		Element eveNameElement = getNodeOptional(element, "evenames");
+		Element eveNameElement = getSectionNode(sections, SettingsSection.EVE_NAMES, element, "evenames");
 		if (eveNameElement != null) {
 			parseEveNames(eveNameElement, settings);
 		}
@@ -536,6 +557,55 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 		return settings;
 	}
 
+	/**
+	 * Load the section files listed in the settings file.
+	 * Sections without a file are read from the settings file (settings saved before sections was added).
+	 * @param element settings root element
+	 * @param settings settings to set the section hashes on (null to only read the sections)
+	 * @return root element of each loaded section file
+	 * @throws XmlException
+	 */
+	private Map<SettingsSection, Element> loadSections(final Element element, final Settings settings) throws XmlException {
+		Map<SettingsSection, Element> sections = new EnumMap<>(SettingsSection.class);
+		Element sectionsElement = getNodeOptional(element, "sections");
+		if (sectionsElement == null || filename == null) {
+			return sections;
+		}
+		NodeList sectionNodes = sectionsElement.getElementsByTagName("section");
+		for (int i = 0; i < sectionNodes.getLength(); i++) {
+			Element sectionNode = (Element) sectionNodes.item(i);
+			String name = getString(sectionNode, "name");
+			String hash = getString(sectionNode, "hash");
+			SettingsSection section;
+			try {
+				section = SettingsSection.valueOf(name);
+			} catch (IllegalArgumentException ex) {
+				LOG.warn("Unknown settings section: " + name);
+				continue;
+			}
+			SettingsReader reader = new SettingsReader(ReaderType.SECTION);
+			Boolean ok = reader.read("Settings Section " + name, section.getFilename(filename), XmlType.DYNAMIC_BACKUP);
+			if (ok && reader.sectionElement != null) {
+				sections.put(section, reader.sectionElement);
+				if (settings != null) {
+					settings.setSectionHash(section, hash); //Not changed since the last save
+				}
+			} else {
+				LOG.warn("Settings section not loaded: " + name);
+			}
+		}
+		return sections;
+	}
+
+	private Element getSectionNode(final Map<SettingsSection, Element> sections, final SettingsSection section, final Element element, final String nodeName) throws XmlException {
+		Element sectionElement = sections.get(section);
+		if (sectionElement != null) {
+			return getNodeOptional(sectionElement, nodeName);
+		} else {
+			return getNodeOptional(element, nodeName);
+		}
+	}
+
 	private void parseOwners(final Element element, final Settings settings) throws XmlException {
 		long ONE_DAY = 1000 * 60 * 60 * 24;
 		NodeList ownerNodeList = element.getElementsByTagName("owner");
@@ -1256,6 +1326,7 @@ public final class SettingsReader extends AbstractXmlReader<Boolean> {
 			locationID = priceSource.getDefaultLocationID();
 		}
 		settings.setPriceDataSettings(new PriceDataSettings(locationType, locationID, priceSource, priceType, priceReprocessedType, janiceKey));
+		settings.setPriceRefreshBudget(getIntNotNull(element, "refreshbudget", settings.getPriceRefreshBudget()));
 	}
 
 	private void parseMarketOrdersSettings(final Element element, final Settings settings) throws XmlException {
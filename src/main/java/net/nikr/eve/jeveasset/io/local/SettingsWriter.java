@@ -23,6 +23,8 @@ package net.nikr.eve.jeveasset.io.local;
 
 import java.io.File;
 import java.net.Proxy;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -41,6 +43,7 @@ import net.nikr.eve.jeveasset.data.settings.RouteResult;
 import net.nikr.eve.jeveasset.data.settings.RoutingSettings;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.data.settings.Settings.SettingFlag;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsSection;
 import net.nikr.eve.jeveasset.data.settings.TrackerData;
 import net.nikr.eve.jeveasset.data.settings.UserItem;
 import net.nikr.eve.jeveasset.data.settings.tag.Tag;
@@ -65,7 +68,6 @@ import net.nikr.eve.jeveasset.gui.tabs.stockpile.Stockpile.StockpileItem;
 import net.nikr.eve.jeveasset.gui.tabs.tracker.TrackerDate;
 import net.nikr.eve.jeveasset.gui.tabs.tracker.TrackerNote;
 import net.nikr.eve.jeveasset.gui.tabs.tracker.TrackerSkillPointFilter;
-import net.nikr.eve.jeveasset.io.shared.FileUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -79,7 +81,7 @@ public class SettingsWriter extends AbstractXmlWriter {
 	private SettingsWriter() { }
 
 	public static boolean save(final Settings settings, final String filename) {
-		if (!new File(FileUtil.getPathTrackerData()).exists()) { //Make sure the tracker data is saved
+		if (!TrackerDataStore.get().exists()) { //Make sure the tracker data is saved
 			TrackerData.save("Saving Settings", true);
 		}
 		SettingsWriter writer = new SettingsWriter();
@@ -148,18 +150,25 @@ public class SettingsWriter extends AbstractXmlWriter {
 		//Add version number
 		setAttribute(xmldoc.getDocumentElement(), "version", SettingsReader.SETTINGS_VERSION);
 
+		//Large sections are saved in their own files
+		Element sectionsNode = xmldoc.createElementNS(null, "sections");
+		xmldoc.getDocumentElement().appendChild(sectionsNode);
+		try {
+			for (SettingsSection section : SettingsSection.values()) {
+				writeSection(xmldoc, sectionsNode, settings, section, filename);
+			}
+		} catch (XmlException ex) {
+			LOG.error("Settings not saved " + ex.getMessage(), ex);
+			return false;
+		}
+
 		writeAssetSettings(xmldoc, settings);
-		writeStockpileGroups(xmldoc, settings);
-		writeStockpiles(xmldoc, settings.getStockpiles(), settings.getStockpileGroupSettings().getStockpileGroups(), false);
 		writeOverviewGroups(xmldoc, settings.getOverviewGroups());
 		writeReprocessSettings(xmldoc, settings.getReprocessSettings());
 		writeWindow(xmldoc, settings);
 		writeProxy(xmldoc, settings.getProxyData());
-		writePriceDataSettings(xmldoc, settings.getPriceDataSettings());
+		writePriceDataSettings(xmldoc, settings.getPriceDataSettings(), settings.getPriceRefreshBudget());
 		writeFlags(xmldoc, settings.getFlags());
-		writeUserPrices(xmldoc, settings.getUserPrices());
-		writeUserItemNames(xmldoc, settings.getUserItemNames());
-		writeEveNames(xmldoc, settings.getEveNames());
 		writeTableFilters(xmldoc, settings.getTableFilters());
 		writeCurrentTableFilters(xmldoc, settings.getCurrentTableFilters(), settings.getCurrentTableFiltersShown());
 		writeTableColumns(xmldoc, settings.getTableColumns());
@@ -173,7 +182,6 @@ public class SettingsWriter extends AbstractXmlWriter {
 		writeTrackerNotes(xmldoc, settings.getTrackerSettings().getNotes());
 		writeTrackerFilters(xmldoc, settings.getTrackerSettings().getFilters(), settings.getTrackerSettings().isSelectNew(), settings.getTrackerSettings().getSkillPointFilters());
 		writeTrackerSettings(xmldoc, settings);
-		writeOwners(xmldoc, settings.getOwners(), settings.getOwnersNextUpdate());
 		writeTags(xmldoc, settings.getTags());
 		writeRoutingSettings(xmldoc, settings.getRoutingSettings());
 		writeMarketOrderOutbid(xmldoc, settings.getPublicMarketOrdersNextUpdate(), settings.getPublicMarketOrdersLastUpdate(), settings.getOutbidOrderRange(), settings.getMarketOrdersOutbid());
@@ -193,6 +201,62 @@ public class SettingsWriter extends AbstractXmlWriter {
 		return true;
 	}
 
+	/**
+	 * Save the section to it's own file, if the content has changed since the last save.
+	 * The section content hash is saved in the settings file.
+	 * @param xmldoc settings document
+	 * @param sectionsNode node to add the section reference to
+	 * @param settings
+	 * @param section
+	 * @param filename settings file
+	 * @throws XmlException
+	 */
+	private void writeSection(final Document xmldoc, final Element sectionsNode, final Settings settings, final SettingsSection section, final String filename) throws XmlException {
+		Document sectiondoc = getXmlDocument("settings");
+		switch (section) {
+			case STOCKPILES:
+				writeStockpileGroups(sectiondoc, settings);
+				writeStockpiles(sectiondoc, settings.getStockpiles(), settings.getStockpileGroupSettings().getStockpileGroups(), false);
+				break;
+			case USER_PRICES:
+				writeUserPrices(sectiondoc, settings.getUserPrices());
+				break;
+			case USER_ITEM_NAMES:
+				writeUserItemNames(sectiondoc, settings.getUserItemNames());
+				break;
+			case EVE_NAMES:
+				writeEveNames(sectiondoc, settings.getEveNames());
+				break;
+			case OWNERS:
+				writeOwners(sectiondoc, settings.getOwners(), settings.getOwnersNextUpdate());
+				break;
+		}
+		String hash = getHash(getXmlBytes(sectiondoc));
+		String sectionFilename = section.getFilename(filename);
+		if (!hash.equals(settings.getSectionHash(section)) || !new File(sectionFilename).exists()) {
+			writeXmlFile(sectiondoc, sectionFilename, true);
+			settings.setSectionHash(section, hash);
+			LOG.info("Settings section saved: " + section.name());
+		}
+		Element node = xmldoc.createElementNS(null, "section");
+		setAttribute(node, "name", section);
+		setAttribute(node, "hash", hash);
+		sectionsNode.appendChild(node);
+	}
+
+	private String getHash(final byte[] bytes) throws XmlException {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			StringBuilder builder = new StringBuilder();
+			for (byte b : digest) {
+				builder.append(String.format("%02x", b));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new XmlException(ex.getMessage(), ex);
+		}
+	}
+
 	private void writePriceHistorySettings(Document xmldoc, Settings settings) {
 		Element priceHistoryNode = xmldoc.createElementNS(null, "pricehistory");
 		xmldoc.getDocumentElement().appendChild(priceHistoryNode);
@@ -736,7 +800,7 @@ public class SettingsWriter extends AbstractXmlWriter {
 		}
 	}
 
-	private void writePriceDataSettings(final Document xmldoc, final PriceDataSettings priceDataSettings) {
+	private void writePriceDataSettings(final Document xmldoc, final PriceDataSettings priceDataSettings, final int refreshBudget) {
 		Element parentNode = xmldoc.createElementNS(null, "marketstat");
 		setAttribute(parentNode, "defaultprice", priceDataSettings.getPriceType());
 		setAttribute(parentNode, "defaultreprocessedprice", priceDataSettings.getPriceReprocessedType());
@@ -744,6 +808,7 @@ public class SettingsWriter extends AbstractXmlWriter {
 		setAttribute(parentNode, "locationid", priceDataSettings.getLocationID());
 		setAttribute(parentNode, "type", priceDataSettings.getLocationType());
 		setAttributeOptional(parentNode, "janicekey", priceDataSettings.getJaniceKey());
+		setAttribute(parentNode, "refreshbudget", refreshBudget);
 		xmldoc.getDocumentElement().appendChild(parentNode);
 	}
 
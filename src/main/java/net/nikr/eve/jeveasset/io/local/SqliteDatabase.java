@@ -0,0 +1,450 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.local;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared access to a SQLite database file.
+ * Reads run on the calling thread, using a small pool of long-lived connections.
+ * Writes are queued and run in batched transactions on a single writer thread.
+ * The database runs in WAL mode, so readers are not blocked by the writer.
+ */
+public class SqliteDatabase {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SqliteDatabase.class);
+
+	private static final Map<String, SqliteDatabase> DATABASES = new HashMap<>();
+	private static final int MAX_READERS = 4;
+	private static final int MAX_BATCH = 100;
+	private static final int MAX_STATEMENTS = 32;
+	private static final String[] PRAGMAS = {
+		"PRAGMA journal_mode=WAL",
+		"PRAGMA synchronous=NORMAL",
+		"PRAGMA busy_timeout=10000",
+		"PRAGMA temp_store=MEMORY",
+		"PRAGMA cache_size=-8192"
+	};
+
+	private final String connectionUrl;
+	private final BlockingQueue<SqliteConnection> readers = new ArrayBlockingQueue<>(MAX_READERS);
+	private final BlockingQueue<WriteTask> writes = new LinkedBlockingQueue<>();
+	private final AtomicInteger schema = new AtomicInteger();
+	private final Thread writerThread;
+	private SqliteConnection writer;
+	private int readerCount = 0;
+	private boolean stopped = false;
+	private boolean closed = false;
+
+	private SqliteDatabase(String connectionUrl) {
+		this.connectionUrl = connectionUrl;
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "SQLite Writer: " + connectionUrl);
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Get the shared database for a connection url.
+	 * @param connectionUrl jdbc:sqlite: url
+	 * @return the shared database
+	 */
+	public static SqliteDatabase get(String connectionUrl) {
+		synchronized (DATABASES) {
+			SqliteDatabase database = DATABASES.get(connectionUrl);
+			if (database == null) {
+				database = new SqliteDatabase(connectionUrl);
+				DATABASES.put(connectionUrl, database);
+			}
+			return database;
+		}
+	}
+
+	/**
+	 * Wait for all queued writes and close all connections.
+	 * The databases will be reopened on the next use.
+	 */
+	public static void closeAll() {
+		List<SqliteDatabase> databases;
+		synchronized (DATABASES) {
+			databases = new ArrayList<>(DATABASES.values());
+			DATABASES.clear();
+		}
+		for (SqliteDatabase database : databases) {
+			database.close();
+		}
+	}
+
+	/**
+	 * Run a query on a pooled read connection.
+	 * @param <T> result type
+	 * @param query the query
+	 * @param failed returned if the query fails
+	 * @return query result or failed
+	 */
+	public <T> T read(Query<T> query, T failed) {
+		SqliteConnection connection = null;
+		try {
+			connection = borrow();
+			return query.query(connection);
+		} catch (SQLException ex) {
+			LOG.error(ex.getMessage(), ex);
+			return failed;
+		} finally {
+			if (connection != null) {
+				release(connection);
+			}
+		}
+	}
+
+	/**
+	 * Queue a write on the writer thread and return at once.
+	 * Writes are run in the order they are queued.
+	 * @param update the write
+	 */
+	public void write(Update update) {
+		queue(new WriteTask(update));
+	}
+
+	/**
+	 * Queue a write on the writer thread and wait for it to be committed.
+	 * @param update the write
+	 * @return true if the write was committed
+	 */
+	public boolean writeAndWait(Update update) {
+		WriteTask task = new WriteTask(update);
+		if (!queue(task)) {
+			return false;
+		}
+		return task.await();
+	}
+
+	public boolean tableExist(final String tableName) {
+		return read(new Query<Boolean>() {
+			@Override
+			public Boolean query(SqliteConnection connection) throws SQLException {
+				PreparedStatement statement = connection.prepare("SELECT name FROM sqlite_master WHERE type='table' AND name=?");
+				statement.setString(1, tableName);
+				try (ResultSet rs = statement.executeQuery()) {
+					return rs.next();
+				}
+			}
+		}, false);
+	}
+
+	private synchronized boolean queue(WriteTask task) {
+		if (stopped) {
+			LOG.warn("Write ignored, database closed: " + connectionUrl);
+			return false;
+		}
+		writes.add(task);
+		return true;
+	}
+
+	private void close() {
+		WriteTask stop = new WriteTask(null);
+		synchronized (this) {
+			stopped = true;
+			writes.add(stop); //Stop the writer thread after the queued writes
+		}
+		stop.await();
+		synchronized (readers) {
+			closed = true;
+			List<SqliteConnection> idle = new ArrayList<>();
+			readers.drainTo(idle);
+			for (SqliteConnection connection : idle) {
+				connection.close();
+			}
+			if (writer != null) {
+				writer.close();
+				writer = null;
+			}
+		}
+	}
+
+	private SqliteConnection borrow() throws SQLException {
+		SqliteConnection connection = readers.poll();
+		if (connection != null) {
+			return connection;
+		}
+		synchronized (readers) {
+			if (closed) {
+				throw new SQLException("Database closed: " + connectionUrl);
+			}
+			if (readerCount < MAX_READERS) {
+				SqliteConnection opened = open();
+				readerCount++;
+				return opened;
+			}
+		}
+		try {
+			return readers.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(ex.getMessage(), ex);
+		}
+	}
+
+	private void release(SqliteConnection connection) {
+		synchronized (readers) {
+			if (closed) { //Closed while in use
+				connection.close();
+			} else {
+				readers.offer(connection);
+			}
+		}
+	}
+
+	private SqliteConnection open() throws SQLException {
+		Connection connection = DriverManager.getConnection(connectionUrl);
+		try (Statement statement = connection.createStatement()) {
+			for (String pragma : PRAGMAS) {
+				statement.execute(pragma);
+			}
+		} catch (SQLException ex) {
+			connection.close();
+			throw ex;
+		}
+		return new SqliteConnection(connection);
+	}
+
+	private void writeLoop() {
+		while (true) {
+			List<WriteTask> tasks = new ArrayList<>();
+			try {
+				tasks.add(writes.take());
+			} catch (InterruptedException ex) {
+				return;
+			}
+			writes.drainTo(tasks, MAX_BATCH - 1);
+			boolean stop = false;
+			List<WriteTask> batch = new ArrayList<>();
+			for (WriteTask task : tasks) {
+				if (task.update == null) {
+					stop = true;
+				} else {
+					batch.add(task);
+				}
+			}
+			if (!batch.isEmpty()) {
+				if (batch.size() == 1 || !commit(batch)) {
+					//Run one by one, so one failed write does not fail the others
+					for (WriteTask task : batch) {
+						commit(Collections.singletonList(task));
+					}
+				}
+			}
+			if (stop) {
+				for (WriteTask task : tasks) {
+					if (task.update == null) {
+						task.done(true);
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	private boolean commit(List<WriteTask> tasks) {
+		Connection connection = null;
+		try {
+			if (writer == null) {
+				synchronized (readers) {
+					if (closed) {
+						throw new SQLException("Database closed: " + connectionUrl);
+					}
+					writer = open();
+				}
+			}
+			connection = writer.getConnection();
+			connection.setAutoCommit(false);
+			for (WriteTask task : tasks) {
+				task.update.update(writer);
+			}
+			connection.commit();
+			connection.setAutoCommit(true);
+			for (WriteTask task : tasks) {
+				task.done(true);
+			}
+			return true;
+		} catch (SQLException | RuntimeException ex) {
+			if (connection != null) {
+				try {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				} catch (SQLException ex1) {
+					LOG.error(ex1.getMessage(), ex1);
+				}
+			}
+			if (tasks.size() == 1) {
+				LOG.error(ex.getMessage(), ex);
+				tasks.get(0).done(false);
+			}
+			return false;
+		}
+	}
+
+	public static interface Query<T> {
+		public T query(SqliteConnection connection) throws SQLException;
+	}
+
+	public static interface Update {
+		public void update(SqliteConnection connection) throws SQLException;
+	}
+
+	/**
+	 * Long-lived connection with a cache of prepared statements.
+	 * Cached statements must not be closed by the caller.
+	 */
+	public class SqliteConnection {
+
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements;
+		private int generation;
+
+		private SqliteConnection(Connection connection) {
+			this.connection = connection;
+			this.generation = schema.get();
+			this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+					if (size() > MAX_STATEMENTS) {
+						closeStatement(eldest.getValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		private Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Get a cached prepared statement.
+		 * @param sql SQL with ? parameters
+		 * @return the prepared statement
+		 * @throws SQLException
+		 */
+		public PreparedStatement prepare(String sql) throws SQLException {
+			if (generation != schema.get()) { //Schema changed: drop statements for tables that may be gone
+				clear();
+				generation = schema.get();
+			}
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			return statement;
+		}
+
+		/**
+		 * Execute a schema change (CREATE, ALTER or DROP).
+		 * @param sql SQL without parameters
+		 * @throws SQLException
+		 */
+		public void execute(String sql) throws SQLException {
+			schema.incrementAndGet();
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(sql);
+			}
+		}
+
+		private void clear() {
+			for (PreparedStatement statement : statements.values()) {
+				closeStatement(statement);
+			}
+			statements.clear();
+		}
+
+		private void closeStatement(PreparedStatement statement) {
+			try {
+				statement.close();
+			} catch (SQLException ex) {
+				LOG.warn(ex.getMessage(), ex);
+			}
+		}
+
+		private void close() {
+			clear();
+			try {
+				connection.close();
+			} catch (SQLException ex) {
+				LOG.warn(ex.getMessage(), ex);
+			}
+		}
+	}
+
+	private static class WriteTask {
+
+		private final Update update;
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private boolean ok = false;
+
+		public WriteTask(Update update) {
+			this.update = update;
+		}
+
+		public synchronized void done(boolean ok) {
+			this.ok = ok;
+			latch.countDown();
+		}
+
+		public boolean await() {
+			try {
+				latch.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			synchronized (this) {
+				return ok;
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import net.nikr.eve.jeveasset.data.sde.IndustryMaterial;
+import net.nikr.eve.jeveasset.data.sde.Item;
+import net.nikr.eve.jeveasset.data.sde.ItemFlag;
+import net.nikr.eve.jeveasset.data.sde.Jump;
+import net.nikr.eve.jeveasset.data.sde.MyLocation;
+import net.nikr.eve.jeveasset.data.sde.ReprocessedMaterial;
+import net.nikr.eve.jeveasset.io.online.Updater;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the binary snapshot of the static data written by StaticDataCacheWriter.
+ * The snapshot is only used when the checksum match the current static data files,
+ * otherwise the XML files are used (and a new snapshot is created).
+ */
+public final class StaticDataCacheReader {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StaticDataCacheReader.class);
+
+	static final int MAGIC = 0x4A454153; //JEAS
+	static final int FORMAT_VERSION = 1;
+
+	private StaticDataCacheReader() { }
+
+	public static boolean load(Map<Integer, Item> items, Map<Long, MyLocation> locations, List<Jump> jumps, Map<Integer, ItemFlag> flags) {
+		return load(FileUtil.getPathStaticDataCache(), getChecksum(), items, locations, jumps, flags);
+	}
+
+	protected static boolean load(String filename, String checksum, Map<Integer, Item> items, Map<Long, MyLocation> locations, List<Jump> jumps, Map<Integer, ItemFlag> flags) {
+		File file = new File(filename);
+		if (!file.exists()) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < 16 || size > Integer.MAX_VALUE) {
+				LOG.warn("Static data cache not loaded: invalid size");
+				return false;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			//Checksum of the file content (everything but the last 8 bytes)
+			ByteBuffer content = buffer.duplicate();
+			content.limit((int) size - 8);
+			CRC32 crc32 = new CRC32();
+			crc32.update(content);
+			if (buffer.getLong((int) size - 8) != crc32.getValue()) {
+				LOG.warn("Static data cache not loaded: corrupted");
+				return false;
+			}
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				LOG.info("Static data cache not loaded: unknown format");
+				return false;
+			}
+			//Strings
+			String[] strings = new String[buffer.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			String fileChecksum = getString(buffer, strings);
+			if (!checksum.equals(fileChecksum)) {
+				LOG.info("Static data cache not loaded: outdated");
+				return false;
+			}
+			//Decode everything before touching the target collections (and the location cache)
+			Map<Integer, Item> loadedItems = readItems(buffer, strings);
+			List<MyLocation> newLocations = readLocations(buffer, strings);
+			long[] jumpIDs = readJumps(buffer);
+			Map<Integer, ItemFlag> loadedFlags = readFlags(buffer, strings);
+			Map<Long, MyLocation> loadedLocations = new HashMap<>(newLocations.size() * 2);
+			for (MyLocation location : newLocations) {
+				MyLocation cached = MyLocation.create(location);
+				loadedLocations.put(cached.getLocationID(), cached);
+			}
+			List<Jump> loadedJumps = new ArrayList<>(jumpIDs.length / 2);
+			for (int i = 0; i < jumpIDs.length; i = i + 2) {
+				loadedJumps.add(new Jump(loadedLocations.get(jumpIDs[i]), loadedLocations.get(jumpIDs[i + 1])));
+			}
+			items.putAll(loadedItems);
+			locations.putAll(loadedLocations);
+			jumps.addAll(loadedJumps);
+			flags.putAll(loadedFlags);
+			LOG.info("Static data cache loaded");
+			return true;
+		} catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException ex) {
+			LOG.warn("Static data cache not loaded: " + ex.getMessage(), ex);
+			return false;
+		}
+	}
+
+	/**
+	 * The checksum is the static data version and the size/timestamp of all the files the static data is loaded from.
+	 * Any change to the files will invalidate the cache.
+	 * @return checksum of the current static data
+	 */
+	public static String getChecksum() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(new Updater().getLocalData());
+		appendFile(builder, FileUtil.getPathItems());
+		appendFile(builder, FileUtil.getPathItemsUpdates());
+		appendFile(builder, FileUtil.getPathLocations());
+		appendFile(builder, FileUtil.getPathJumps());
+		appendFile(builder, FileUtil.getPathFlags());
+		return builder.toString();
+	}
+
+	static void appendFile(StringBuilder builder, String filename) {
+		File file = new File(filename);
+		builder.append('|');
+		builder.append(file.getName());
+		if (file.exists()) {
+			builder.append(':');
+			builder.append(file.length());
+			builder.append(':');
+			builder.append(file.lastModified());
+		}
+	}
+
+	private static Map<Integer, Item> readItems(ByteBuffer buffer, String[] strings) {
+		int size = buffer.getInt();
+		Map<Integer, Item> items = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			int typeID = buffer.getInt();
+			String version = getString(buffer, strings);
+			boolean empty = getBoolean(buffer);
+			if (empty) {
+				items.put(typeID, new Item(typeID, version));
+				continue;
+			}
+			String name = getString(buffer, strings);
+			String group = getString(buffer, strings);
+			String category = getString(buffer, strings);
+			long price = buffer.getLong();
+			float volume = buffer.getFloat();
+			float volumePackaged = buffer.getFloat();
+			float capacity = buffer.getFloat();
+			int meta = buffer.getInt();
+			String tech = getString(buffer, strings);
+			boolean marketGroup = getBoolean(buffer);
+			int portion = buffer.getInt();
+			int productTypeID = buffer.getInt();
+			int productQuantity = buffer.getInt();
+			String slot = getString(buffer, strings);
+			String chargeSize = getString(buffer, strings);
+			int blueprintTypeID = buffer.getInt();
+			Item item = new Item(typeID, name, group, category, price, volume, volumePackaged, capacity, meta, tech, marketGroup, portion, productTypeID, productQuantity, slot, chargeSize, version);
+			if (blueprintTypeID > 0) {
+				item.setBlueprintID(blueprintTypeID);
+			}
+			int reprocessed = buffer.getInt();
+			for (int j = 0; j < reprocessed; j++) {
+				item.addReprocessedMaterial(new ReprocessedMaterial(buffer.getInt(), buffer.getInt(), buffer.getInt()));
+			}
+			int manufacturing = buffer.getInt();
+			for (int j = 0; j < manufacturing; j++) {
+				item.addManufacturingMaterial(new IndustryMaterial(buffer.getInt(), buffer.getInt()));
+			}
+			int reaction = buffer.getInt();
+			for (int j = 0; j < reaction; j++) {
+				item.addReactionMaterial(new IndustryMaterial(buffer.getInt(), buffer.getInt()));
+			}
+			items.put(typeID, item);
+		}
+		return items;
+	}
+
+	/**
+	 * The locations are not added to the location cache.
+	 */
+	private static List<MyLocation> readLocations(ByteBuffer buffer, String[] strings) {
+		int size = buffer.getInt();
+		List<MyLocation> locations = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			long stationID = buffer.getLong();
+			String station = getString(buffer, strings);
+			long systemID = buffer.getLong();
+			String system = getString(buffer, strings);
+			long constellationID = buffer.getLong();
+			String constellation = getString(buffer, strings);
+			long regionID = buffer.getLong();
+			String region = getString(buffer, strings);
+			String security = getString(buffer, strings);
+			locations.add(new MyLocation(stationID, station, systemID, system, constellationID, constellation, regionID, region, security));
+		}
+		return locations;
+	}
+
+	/**
+	 * @return from and to locationIDs of each jump
+	 */
+	private static long[] readJumps(ByteBuffer buffer) {
+		int size = buffer.getInt();
+		long[] jumps = new long[size * 2];
+		for (int i = 0; i < jumps.length; i++) {
+			jumps[i] = buffer.getLong();
+		}
+		return jumps;
+	}
+
+	private static Map<Integer, ItemFlag> readFlags(ByteBuffer buffer, String[] strings) {
+		int size = buffer.getInt();
+		Map<Integer, ItemFlag> flags = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			int flagID = buffer.getInt();
+			String flagName = getString(buffer, strings);
+			String flagText = getString(buffer, strings);
+			flags.put(flagID, new ItemFlag(flagID, flagName, flagText));
+		}
+		return flags;
+	}
+
+	private static String getString(ByteBuffer buffer, String[] strings) {
+		int index = buffer.getInt();
+		if (index < 0) {
+			return null;
+		}
+		return strings[index];
+	}
+
+	private static boolean getBoolean(ByteBuffer buffer) {
+		return buffer.get() != 0;
+	}
+}
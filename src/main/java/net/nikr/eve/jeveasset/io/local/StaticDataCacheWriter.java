@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import net.nikr.eve.jeveasset.data.sde.IndustryMaterial;
+import net.nikr.eve.jeveasset.data.sde.Item;
+import net.nikr.eve.jeveasset.data.sde.ItemFlag;
+import net.nikr.eve.jeveasset.data.sde.Jump;
+import net.nikr.eve.jeveasset.data.sde.MyLocation;
+import net.nikr.eve.jeveasset.data.sde.ReprocessedMaterial;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a binary snapshot of the static data, that can be memory-mapped by StaticDataCacheReader.
+ * All strings are stored once in a string table and referenced by index.
+ */
+public final class StaticDataCacheWriter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StaticDataCacheWriter.class);
+
+	private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+	private StaticDataCacheWriter() { }
+
+	public static boolean save(Map<Integer, Item> items, Map<Long, MyLocation> locations, List<Jump> jumps, Map<Integer, ItemFlag> flags) {
+		return save(FileUtil.getPathStaticDataCache(), StaticDataCacheReader.getChecksum(), items, locations, jumps, flags);
+	}
+
+	protected static boolean save(String filename, String checksum, Map<Integer, Item> items, Map<Long, MyLocation> locations, List<Jump> jumps, Map<Integer, ItemFlag> flags) {
+		StaticDataCacheWriter writer = new StaticDataCacheWriter();
+		return writer.write(filename, checksum, items, locations, jumps, flags);
+	}
+
+	private boolean write(String filename, String checksum, Map<Integer, Item> items, Map<Long, MyLocation> locations, List<Jump> jumps, Map<Integer, ItemFlag> flags) {
+		File file = new File(filename);
+		File newFile = new File(filename + ".new");
+		try {
+			//Body (the string table is build while writing the body)
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(body);
+			writeString(out, checksum);
+			writeItems(out, items);
+			writeLocations(out, locations);
+			writeJumps(out, jumps);
+			writeFlags(out, flags);
+			out.flush();
+			//File
+			CRC32 crc32 = new CRC32();
+			try (DataOutputStream fileOut = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(newFile)), crc32))) {
+				fileOut.writeInt(StaticDataCacheReader.MAGIC);
+				fileOut.writeInt(StaticDataCacheReader.FORMAT_VERSION);
+				fileOut.writeInt(strings.size());
+				for (String string : strings.keySet()) {
+					byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+					fileOut.writeInt(bytes.length);
+					fileOut.write(bytes);
+				}
+				body.writeTo(fileOut);
+				fileOut.flush();
+				fileOut.writeLong(crc32.getValue()); //Not part of the checksum
+			}
+			Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			LOG.info("Static data cache saved");
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Static data cache not saved: " + ex.getMessage(), ex);
+			if (newFile.exists() && !newFile.delete()) {
+				LOG.warn("Failed to delete: " + newFile.getName());
+			}
+			return false;
+		}
+	}
+
+	private void writeItems(DataOutputStream out, Map<Integer, Item> items) throws IOException {
+		out.writeInt(items.size());
+		for (Item item : items.values()) {
+			out.writeInt(item.getTypeID());
+			writeString(out, item.getVersion());
+			out.writeBoolean(item.isEmpty());
+			if (item.isEmpty()) {
+				continue;
+			}
+			writeString(out, item.getTypeName());
+			writeString(out, item.getGroup());
+			writeString(out, item.getCategory());
+			out.writeLong((long) item.getPriceBase());
+			out.writeFloat(item.getVolume());
+			out.writeFloat(item.getVolumePackaged());
+			out.writeFloat(item.getCapacity());
+			out.writeInt(item.getMeta());
+			writeString(out, item.getTech());
+			out.writeBoolean(item.isMarketGroup());
+			out.writeInt(item.getPortion());
+			out.writeInt(item.getProductTypeID());
+			out.writeInt(item.getProductQuantity());
+			writeString(out, item.getSlot());
+			writeString(out, item.getChargeSize());
+			out.writeInt(item.getBlueprintTypeID());
+			out.writeInt(item.getReprocessedMaterial().size());
+			for (ReprocessedMaterial material : item.getReprocessedMaterial()) {
+				out.writeInt(material.getTypeID());
+				out.writeInt(material.getQuantity());
+				out.writeInt(material.getPortionSize());
+			}
+			out.writeInt(item.getManufacturingMaterials().size());
+			for (IndustryMaterial material : item.getManufacturingMaterials()) {
+				out.writeInt(material.getTypeID());
+				out.writeInt(material.getQuantity());
+			}
+			out.writeInt(item.getReactionMaterials().size());
+			for (IndustryMaterial material : item.getReactionMaterials()) {
+				out.writeInt(material.getTypeID());
+				out.writeInt(material.getQuantity());
+			}
+		}
+	}
+
+	private void writeLocations(DataOutputStream out, Map<Long, MyLocation> locations) throws IOException {
+		out.writeInt(locations.size());
+		for (MyLocation location : locations.values()) {
+			out.writeLong(location.getStationID());
+			writeString(out, location.getStation());
+			out.writeLong(location.getSystemID());
+			writeString(out, location.getSystem());
+			out.writeLong(location.getConstellationID());
+			writeString(out, location.getConstellation());
+			out.writeLong(location.getRegionID());
+			writeString(out, location.getRegion());
+			writeString(out, location.getSecurity());
+		}
+	}
+
+	private void writeJumps(DataOutputStream out, List<Jump> jumps) throws IOException {
+		out.writeInt(jumps.size());
+		for (Jump jump : jumps) {
+			out.writeLong(jump.getFrom() != null ? jump.getFrom().getLocationID() : 0);
+			out.writeLong(jump.getTo() != null ? jump.getTo().getLocationID() : 0);
+		}
+	}
+
+	private void writeFlags(DataOutputStream out, Map<Integer, ItemFlag> flags) throws IOException {
+		out.writeInt(flags.size());
+		for (ItemFlag flag : flags.values()) {
+			out.writeInt(flag.getFlagID());
+			writeString(out, flag.getFlagName());
+			writeString(out, flag.getFlagText());
+		}
+	}
+
+	private void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		Integer index = strings.get(string);
+		if (index == null) {
+			index = strings.size();
+			strings.put(string, index);
+		}
+		out.writeInt(index);
+	}
+}
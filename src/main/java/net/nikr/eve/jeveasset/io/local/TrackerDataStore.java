@@ -0,0 +1,820 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import net.nikr.eve.jeveasset.gui.tabs.values.AssetValue;
+import net.nikr.eve.jeveasset.gui.tabs.values.Breakdown;
+import net.nikr.eve.jeveasset.gui.tabs.values.Value;
+import net.nikr.eve.jeveasset.io.shared.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracker data storage.
+ * Each owner has a file with one column per numeric series (sorted by date).
+ * New data points are appended to a log, that is merged into the owner files when it is compacted.
+ * The JSON file (TrackerDataReader/TrackerDataWriter) is still used for import/export.
+ */
+public class TrackerDataStore extends AbstractBackup {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TrackerDataStore.class);
+
+	private static final int MAGIC = 0x4A45544B; //JETK
+	private static final int LOG_MAGIC = 0x4A45544C; //JETL
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 28; //magic + version + sequence + count + keys position
+	private static final int LOG_HEADER_SIZE = 8; //magic + version
+	private static final int DOUBLE_COLUMNS = 8;
+	private static final long COMPACT_SIZE = 1024 * 1024; //1MB
+	private static final String LOG_FILE = "tracker.log";
+	private static final String OWNER_PREFIX = "owner_";
+	private static final String OWNER_SUFFIX = ".dat";
+	private static final Comparator<Value> DATE_COMPARATOR = new Comparator<Value>() {
+		@Override
+		public int compare(Value o1, Value o2) {
+			return o1.getDate().compareTo(o2.getDate());
+		}
+	};
+
+	private static TrackerDataStore store;
+
+	private final File directory;
+	private final File logFile;
+	private final Map<String, Long> sequences = new HashMap<>(); //owner :: sequence of the owner file
+	private final Set<String> logged = new HashSet<>(); //owners with data in the log
+	private long sequence = 0;
+
+	protected TrackerDataStore(String directory) {
+		this.directory = new File(directory);
+		this.logFile = new File(directory, LOG_FILE);
+	}
+
+	public static synchronized TrackerDataStore get() {
+		if (store == null) {
+			store = new TrackerDataStore(FileUtil.getPathTrackerDirectory());
+		}
+		return store;
+	}
+
+	/**
+	 * The store is only complete after the first compaction (that is when the log is created).
+	 * @return true if the store has been saved
+	 */
+	public synchronized boolean exists() {
+		return logFile.exists();
+	}
+
+	public synchronized boolean isCompactNeeded() {
+		return logFile.length() > COMPACT_SIZE;
+	}
+
+	/**
+	 * Load all tracker data.
+	 * @return the tracker data or null if the store does not exist
+	 */
+	public synchronized Map<String, List<Value>> load() {
+		if (!exists()) {
+			return null;
+		}
+		String filename = logFile.getAbsolutePath();
+		try {
+			lock(directory.getAbsolutePath());
+			Map<String, List<Value>> trackerData = new HashMap<>();
+			sequences.clear();
+			logged.clear();
+			sequence = 0;
+			for (File file : listOwnerFiles()) {
+				String owner = getOwner(file);
+				OwnerData ownerData = readOwner(file.getAbsolutePath(), null, null);
+				if (owner == null || ownerData == null) {
+					continue;
+				}
+				sequences.put(owner, ownerData.getSequence());
+				sequence = Math.max(sequence, ownerData.getSequence());
+				if (!ownerData.getValues().isEmpty()) {
+					trackerData.put(owner, ownerData.getValues());
+				}
+			}
+			List<LogRecord> records;
+			try {
+				records = readLog(true);
+			} catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+				LOG.error("Tracker log not loaded: " + ex.getMessage(), ex);
+				restoreFailed(filename); //Backup error file (the store is saved again on next save)
+				records = new ArrayList<>();
+			}
+			for (LogRecord record : records) {
+				sequence = Math.max(sequence, record.getSequence());
+				Long ownerSequence = sequences.get(record.getOwner());
+				if (ownerSequence != null && record.getSequence() <= ownerSequence) {
+					continue; //Already in the owner file
+				}
+				List<Value> values = trackerData.get(record.getOwner());
+				if (values == null) {
+					values = new ArrayList<>();
+					trackerData.put(record.getOwner(), values);
+				}
+				values.add(record.getValue());
+				logged.add(record.getOwner());
+			}
+			for (List<Value> values : trackerData.values()) {
+				Collections.sort(values, DATE_COMPARATOR);
+			}
+			LOG.info("Tracker data loaded");
+			return trackerData;
+		} finally {
+			unlock(directory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Load the data points of an owner in a date range.
+	 * Only the rows in the range are read from the owner file.
+	 * @param owner owner to load
+	 * @param from first date (inclusive) or null to load from the first data point
+	 * @param to last date (inclusive) or null to load to the last data point
+	 * @return the data points sorted by date
+	 */
+	public synchronized List<Value> load(String owner, Date from, Date to) {
+		List<Value> values = new ArrayList<>();
+		if (!exists()) {
+			return values;
+		}
+		try {
+			lock(directory.getAbsolutePath());
+			long ownerSequence = 0;
+			File file = getOwnerFile(owner);
+			if (file.exists()) {
+				OwnerData ownerData = readOwner(file.getAbsolutePath(), from, to);
+				if (ownerData != null) {
+					ownerSequence = ownerData.getSequence();
+					values.addAll(ownerData.getValues());
+				}
+			}
+			for (LogRecord record : readLog(false)) {
+				if (!record.getOwner().equals(owner) || record.getSequence() <= ownerSequence) {
+					continue;
+				}
+				Date date = record.getValue().getDate();
+				if ((from == null || !date.before(from)) && (to == null || !date.after(to))) {
+					values.add(record.getValue());
+				}
+			}
+			Collections.sort(values, DATE_COMPARATOR);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+			LOG.error("Tracker data not loaded: " + ex.getMessage(), ex);
+		} finally {
+			unlock(directory.getAbsolutePath());
+		}
+		return values;
+	}
+
+	/**
+	 * Append new data points to the log.
+	 * @param appended owner :: new data points
+	 * @return true if saved
+	 */
+	public synchronized boolean append(Map<String, List<Value>> appended) {
+		if (appended.isEmpty()) {
+			return true;
+		}
+		try {
+			lock(directory.getAbsolutePath());
+			FileOutputStream logOut = new FileOutputStream(logFile, true);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(logOut))) {
+				for (Map.Entry<String, List<Value>> entry : appended.entrySet()) {
+					for (Value value : entry.getValue()) {
+						sequence++;
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						DataOutputStream record = new DataOutputStream(bytes);
+						record.writeLong(sequence);
+						writeString(record, entry.getKey());
+						writeValue(record, value);
+						record.flush();
+						byte[] payload = bytes.toByteArray();
+						CRC32 crc = new CRC32();
+						crc.update(payload);
+						out.writeInt(payload.length);
+						out.writeInt((int) crc.getValue());
+						out.write(payload);
+					}
+					logged.add(entry.getKey());
+				}
+				out.flush();
+				sync(logOut);
+			}
+			LOG.info("Tracker data appended");
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Tracker data not appended: " + ex.getMessage(), ex);
+			return false;
+		} finally {
+			unlock(directory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Rewrite the files of changed owners.
+	 * Owners that no longer have any data are saved empty, to hide their data in the log until it's compacted.
+	 * @param trackerData all tracker data
+	 * @param owners owners to rewrite
+	 * @return true if saved
+	 */
+	public synchronized boolean write(Map<String, List<Value>> trackerData, Collection<String> owners) {
+		if (owners.isEmpty()) {
+			return true;
+		}
+		try {
+			lock(directory.getAbsolutePath());
+			for (String owner : owners) {
+				writeOwner(owner, trackerData.get(owner));
+			}
+			LOG.info("Tracker data saved");
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Tracker data not saved: " + ex.getMessage(), ex);
+			return false;
+		} finally {
+			unlock(directory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Merge the log into the owner files.
+	 * @param trackerData all tracker data
+	 * @return true if compacted
+	 */
+	public synchronized boolean compact(Map<String, List<Value>> trackerData) {
+		return compact(trackerData, new HashSet<>(logged));
+	}
+
+	/**
+	 * Rewrite all owner files.
+	 * @param trackerData all tracker data
+	 * @return true if saved
+	 */
+	public synchronized boolean save(Map<String, List<Value>> trackerData) {
+		return compact(trackerData, trackerData.keySet());
+	}
+
+	private boolean compact(Map<String, List<Value>> trackerData, Collection<String> owners) {
+		String filename = logFile.getAbsolutePath();
+		try {
+			lock(directory.getAbsolutePath());
+			if (!directory.exists() && !directory.mkdirs()) {
+				throw new IOException("Failed to create directory: " + directory.getAbsolutePath());
+			}
+			for (String owner : owners) {
+				writeOwner(owner, trackerData.get(owner));
+			}
+			//Start a new log (everything in the old log is now in the owner files)
+			FileOutputStream logOut = new FileOutputStream(getNewFile(filename));
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(logOut))) {
+				out.writeInt(LOG_MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.flush();
+				sync(logOut);
+			}
+			commitFile(filename);
+			logged.clear();
+			//Remove owners without data
+			for (File file : listOwnerFiles()) {
+				String owner = getOwner(file);
+				if (owner == null) {
+					continue;
+				}
+				List<Value> values = trackerData.get(owner);
+				if (values == null || values.isEmpty()) {
+					sequences.remove(owner);
+					deleteOwner(file);
+				}
+			}
+			LOG.info("Tracker data compacted");
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Tracker data not compacted: " + ex.getMessage(), ex);
+			return false;
+		} finally {
+			unlock(directory.getAbsolutePath());
+		}
+	}
+
+	private void writeOwner(String owner, List<Value> values) throws IOException {
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory: " + directory.getAbsolutePath());
+		}
+		List<Value> sorted;
+		if (values != null) {
+			sorted = new ArrayList<>(values);
+			Collections.sort(sorted, DATE_COMPARATOR);
+		} else {
+			sorted = new ArrayList<>();
+		}
+		int count = sorted.size();
+		//Breakdown (balance and assets) are stored per row, after the columns
+		//The keys are stored once per file, at the end of the file
+		Keys keys = new Keys();
+		ByteArrayOutputStream breakdown = new ByteArrayOutputStream();
+		DataOutputStream breakdownOut = new DataOutputStream(breakdown);
+		int[] offsets = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			offsets[i] = breakdownOut.size();
+			writeBreakdown(breakdownOut, sorted.get(i), keys);
+		}
+		breakdownOut.flush();
+		offsets[count] = breakdownOut.size();
+		String filename = getOwnerFile(owner).getAbsolutePath();
+		FileOutputStream fileOut = new FileOutputStream(getNewFile(filename));
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(sequence);
+			out.writeInt(count);
+			out.writeLong(getPosition(count, DOUBLE_COLUMNS + 2) + (count + 1) * 4L + offsets[count]);
+			for (Value value : sorted) {
+				out.writeLong(value.getDate().getTime());
+			}
+			for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+				for (Value value : sorted) {
+					out.writeDouble(getColumn(value, column));
+				}
+			}
+			for (Value value : sorted) {
+				out.writeLong(value.getSkillPoints());
+			}
+			for (int offset : offsets) {
+				out.writeInt(offset);
+			}
+			breakdown.writeTo(out);
+			keys.write(out);
+			out.flush();
+			sync(fileOut);
+		}
+		backupFile(filename); //Link .dat => .bac and move .new => .dat
+		sequences.put(owner, sequence);
+	}
+
+	private OwnerData readOwner(String filename, Date from, Date to) {
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = read(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				throw new IOException("Unknown format");
+			}
+			long ownerSequence = header.getLong();
+			int count = header.getInt();
+			long keysPosition = header.getLong();
+			Keys keys = Keys.read(read(channel, keysPosition, (int) (channel.size() - keysPosition)));
+			long[] dates = new long[count];
+			read(channel, HEADER_SIZE, count * 8).asLongBuffer().get(dates);
+			int start = 0;
+			int end = count;
+			if (from != null) {
+				start = search(dates, from.getTime());
+			}
+			if (to != null) {
+				end = search(dates, to.getTime() + 1);
+			}
+			int size = Math.max(0, end - start);
+			double[][] columns = new double[DOUBLE_COLUMNS][size];
+			for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+				read(channel, getPosition(count, column + 1) + start * 8L, size * 8).asDoubleBuffer().get(columns[column]);
+			}
+			long[] skillPoints = new long[size];
+			read(channel, getPosition(count, DOUBLE_COLUMNS + 1) + start * 8L, size * 8).asLongBuffer().get(skillPoints);
+			int[] offsets = new int[size + 1];
+			read(channel, getPosition(count, DOUBLE_COLUMNS + 2) + start * 4L, (size + 1) * 4).asIntBuffer().get(offsets);
+			long breakdownPosition = getPosition(count, DOUBLE_COLUMNS + 2) + (count + 1) * 4L;
+			ByteBuffer breakdown = read(channel, breakdownPosition + offsets[0], offsets[size] - offsets[0]);
+			List<Value> values = new ArrayList<>(size);
+			double[] row = new double[DOUBLE_COLUMNS];
+			for (int i = 0; i < size; i++) {
+				for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+					row[column] = columns[column][i];
+				}
+				values.add(createValue(new Date(dates[start + i]), row, skillPoints[i], breakdown, keys));
+			}
+			return new OwnerData(ownerSequence, values);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+			LOG.warn(ex.getMessage(), ex);
+			if (restoreNewFile(filename)) { //If possible restore from .new (Should be the newest)
+				return readOwner(filename, from, to);
+			} else if (restoreBackupFile(filename)) { //If possible restore from .bac (Should be the oldest, but, still worth trying)
+				return readOwner(filename, from, to);
+			} else { //Nothing left to try
+				restoreFailed(filename); //Backup error file
+				LOG.error(ex.getMessage(), ex);
+				return null;
+			}
+		}
+	}
+
+	private List<LogRecord> readLog(boolean repair) throws IOException {
+		List<LogRecord> records = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = read(channel, 0, (int) channel.size());
+			if (buffer.remaining() < LOG_HEADER_SIZE || buffer.getInt() != LOG_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				throw new IOException("Unknown log format");
+			}
+			int valid = buffer.position();
+			while (buffer.remaining() >= 8) {
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					break; //Incomplete record
+				}
+				byte[] payload = new byte[length];
+				buffer.get(payload);
+				CRC32 crc = new CRC32();
+				crc.update(payload);
+				if ((int) crc.getValue() != checksum) {
+					break; //Corrupted record
+				}
+				ByteBuffer record = ByteBuffer.wrap(payload);
+				long recordSequence = record.getLong();
+				String owner = readString(record);
+				records.add(new LogRecord(recordSequence, owner, readValue(record)));
+				valid = buffer.position();
+			}
+			if (repair && valid < channel.size()) { //Drop incomplete record (so, new records are not appended after it)
+				LOG.warn("Tracker log: removing " + (channel.size() - valid) + " bytes of incomplete data");
+				channel.truncate(valid);
+			}
+		}
+		return records;
+	}
+
+	private List<File> listOwnerFiles() {
+		List<File> files = new ArrayList<>();
+		File[] list = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+				return name.startsWith(OWNER_PREFIX) && name.endsWith(OWNER_SUFFIX);
+			}
+		});
+		if (list != null) {
+			Collections.addAll(files, list);
+		}
+		return files;
+	}
+
+	private void deleteOwner(File file) {
+		File backup = getBackupFile(file.getAbsolutePath());
+		if (backup.exists() && !backup.delete()) {
+			LOG.warn("Failed to delete: " + backup.getName());
+		}
+		if (!file.delete()) {
+			LOG.warn("Failed to delete: " + file.getName());
+		}
+	}
+
+	private File getOwnerFile(String owner) {
+		StringBuilder builder = new StringBuilder(OWNER_PREFIX);
+		for (byte b : owner.getBytes(StandardCharsets.UTF_8)) {
+			builder.append(String.format("%02x", b));
+		}
+		builder.append(OWNER_SUFFIX);
+		return new File(directory, builder.toString());
+	}
+
+	private static String getOwner(File file) {
+		String name = file.getName();
+		String hex = name.substring(OWNER_PREFIX.length(), name.length() - OWNER_SUFFIX.length());
+		byte[] bytes = new byte[hex.length() / 2];
+		try {
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+			}
+		} catch (NumberFormatException ex) {
+			LOG.warn("Unknown tracker file: " + name);
+			return null;
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Position of a column in an owner file.
+	 * Column 0 is dates, 1-8 the double columns, 9 skill points and 10 the breakdown offsets.
+	 */
+	private static long getPosition(int count, int column) {
+		return HEADER_SIZE + (long) column * count * 8L;
+	}
+
+	/**
+	 * @return index of the first date equal to or after the key
+	 */
+	private static int search(long[] dates, long key) {
+		int low = 0;
+		int high = dates.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (dates[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static double getColumn(Value value, int column) {
+		switch (column) {
+			case 0: return value.getAssetsTotal();
+			case 1: return value.getEscrows();
+			case 2: return value.getEscrowsToCover();
+			case 3: return value.getSellOrders();
+			case 4: return value.getBalanceTotal();
+			case 5: return value.getManufacturing();
+			case 6: return value.getContractCollateral();
+			case 7: return value.getContractValue();
+			default: throw new IllegalArgumentException("Unknown column: " + column);
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Value value) throws IOException {
+		out.writeLong(value.getDate().getTime());
+		for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+			out.writeDouble(getColumn(value, column));
+		}
+		out.writeLong(value.getSkillPoints());
+		writeBreakdown(out, value, null);
+	}
+
+	private static Value readValue(ByteBuffer buffer) {
+		Date date = new Date(buffer.getLong());
+		double[] row = new double[DOUBLE_COLUMNS];
+		for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+			row[column] = buffer.getDouble();
+		}
+		long skillPoints = buffer.getLong();
+		return createValue(date, row, skillPoints, buffer, null);
+	}
+
+	/**
+	 * Write balance and assets breakdown.
+	 * @param keys file keys or null to write the keys inline
+	 */
+	private static void writeBreakdown(DataOutputStream out, Value value, Keys keys) throws IOException {
+		Breakdown balance = value.getBalanceBreakdown();
+		out.writeInt(balance.size());
+		for (int i = 0; i < balance.size(); i++) {
+			if (keys != null) {
+				out.writeInt(keys.getBalance(balance.getKey(i)));
+			} else {
+				writeString(out, Value.getBalanceID(balance.getKey(i)));
+			}
+			out.writeDouble(balance.getValue(i));
+		}
+		Breakdown assets = value.getAssetsBreakdown();
+		out.writeInt(assets.size());
+		for (int i = 0; i < assets.size(); i++) {
+			if (keys != null) {
+				out.writeInt(keys.getAsset(assets.getKey(i)));
+			} else {
+				writeAssetValue(out, AssetValue.fromIndex(assets.getKey(i)));
+			}
+			out.writeDouble(assets.getValue(i));
+		}
+	}
+
+	private static void writeAssetValue(DataOutputStream out, AssetValue assetValue) throws IOException {
+		writeString(out, assetValue.getLocation());
+		out.writeBoolean(assetValue.getFlag() != null);
+		if (assetValue.getFlag() != null) {
+			writeString(out, assetValue.getFlag());
+		}
+		out.writeBoolean(assetValue.getLocationID() != null);
+		if (assetValue.getLocationID() != null) {
+			out.writeLong(assetValue.getLocationID());
+		}
+	}
+
+	private static AssetValue readAssetValue(ByteBuffer buffer) {
+		String location = readString(buffer);
+		String flag = null;
+		if (buffer.get() != 0) {
+			flag = readString(buffer);
+		}
+		Long locationID = null;
+		if (buffer.get() != 0) {
+			locationID = buffer.getLong();
+		}
+		return AssetValue.create(location, flag, locationID);
+	}
+
+	/**
+	 * Create value.
+	 * @param keys file keys or null to read the keys inline
+	 */
+	private static Value createValue(Date date, double[] row, long skillPoints, ByteBuffer breakdown, Keys keys) {
+		Value value = new Value(date);
+		//Balance
+		int balanceSize = breakdown.getInt();
+		if (balanceSize > 0) {
+			for (int i = 0; i < balanceSize; i++) {
+				String id;
+				if (keys != null) {
+					id = keys.getBalanceID(breakdown.getInt());
+				} else {
+					id = readString(breakdown);
+				}
+				value.addBalance(id, breakdown.getDouble());
+			}
+		} else {
+			value.setBalanceTotal(row[4]);
+		}
+		//Assets
+		int assetSize = breakdown.getInt();
+		if (assetSize > 0) {
+			for (int i = 0; i < assetSize; i++) {
+				AssetValue assetValue;
+				if (keys != null) {
+					assetValue = keys.getAssetValue(breakdown.getInt());
+				} else {
+					assetValue = readAssetValue(breakdown);
+				}
+				value.addAssets(assetValue, breakdown.getDouble());
+			}
+		} else {
+			value.setAssetsTotal(row[0]);
+		}
+		value.setEscrows(row[1]);
+		value.setEscrowsToCover(row[2]);
+		value.setSellOrders(row[3]);
+		value.setManufacturing(row[5]);
+		value.setContractCollateral(row[6]);
+		value.setContractValue(row[7]);
+		value.setSkillPoints(skillPoints);
+		return value;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Balance ids and asset values used in an owner file.
+	 * Maps the global dictionary indexes to indexes in the file.
+	 */
+	private static class Keys {
+		private final Map<Integer, Integer> balanceIndexes = new HashMap<>(); //global :: file
+		private final List<String> balanceIDs = new ArrayList<>();
+		private final Map<Integer, Integer> assetIndexes = new HashMap<>(); //global :: file
+		private final List<AssetValue> assetValues = new ArrayList<>();
+
+		public int getBalance(int index) {
+			Integer fileIndex = balanceIndexes.get(index);
+			if (fileIndex == null) {
+				fileIndex = balanceIDs.size();
+				balanceIndexes.put(index, fileIndex);
+				balanceIDs.add(Value.getBalanceID(index));
+			}
+			return fileIndex;
+		}
+
+		public int getAsset(int index) {
+			Integer fileIndex = assetIndexes.get(index);
+			if (fileIndex == null) {
+				fileIndex = assetValues.size();
+				assetIndexes.put(index, fileIndex);
+				assetValues.add(AssetValue.fromIndex(index));
+			}
+			return fileIndex;
+		}
+
+		public String getBalanceID(int fileIndex) {
+			return balanceIDs.get(fileIndex);
+		}
+
+		public AssetValue getAssetValue(int fileIndex) {
+			return assetValues.get(fileIndex);
+		}
+
+		public void write(DataOutputStream out) throws IOException {
+			out.writeInt(balanceIDs.size());
+			for (String id : balanceIDs) {
+				writeString(out, id);
+			}
+			out.writeInt(assetValues.size());
+			for (AssetValue assetValue : assetValues) {
+				writeAssetValue(out, assetValue);
+			}
+		}
+
+		public static Keys read(ByteBuffer buffer) {
+			Keys keys = new Keys();
+			int balanceSize = buffer.getInt();
+			for (int i = 0; i < balanceSize; i++) {
+				keys.balanceIDs.add(readString(buffer));
+			}
+			int assetSize = buffer.getInt();
+			for (int i = 0; i < assetSize; i++) {
+				keys.assetValues.add(readAssetValue(buffer));
+			}
+			return keys;
+		}
+	}
+
+	private static class OwnerData {
+		private final long sequence;
+		private final List<Value> values;
+
+		public OwnerData(long sequence, List<Value> values) {
+			this.sequence = sequence;
+			this.values = values;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public List<Value> getValues() {
+			return values;
+		}
+	}
+
+	private static class LogRecord {
+		private final long sequence;
+		private final String owner;
+		private final Value value;
+
+		public LogRecord(long sequence, String owner, Value value) {
+			this.sequence = sequence;
+			this.owner = owner;
+			this.value = value;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		public Value getValue() {
+			return value;
+		}
+	}
+}
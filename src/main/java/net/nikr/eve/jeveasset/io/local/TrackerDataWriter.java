@@ -29,9 +29,11 @@ import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import net.nikr.eve.jeveasset.data.settings.TrackerData;
@@ -56,33 +58,27 @@ public class TrackerDataWriter extends AbstractBackup {
 	}
 
 	private void write(String filename, Map<String, List<Value>> trackerData, boolean createBackup) {
-		File file;
-		if (createBackup) {
-			file = getNewFile(filename); //Save to .new file
-		} else {
-			file = new File(filename);
-		}
+		File file = getNewFile(filename); //Save to .new file
 		Gson gson = new GsonBuilder().registerTypeAdapter(Value.class, new ValueSerializerGJson()).create();
-		FileWriter fileWriter = null;
 		try {
 			lock(filename);
-			fileWriter = new FileWriter(file);
-			gson.toJson(trackerData, fileWriter);
+			try (FileOutputStream outputStream = new FileOutputStream(file)) {
+				OutputStreamWriter writer = new OutputStreamWriter(outputStream, Charset.defaultCharset());
+				gson.toJson(trackerData, writer);
+				writer.flush();
+				sync(outputStream);
+			}
+			//Saving done - move the new file to target
+			if (createBackup) {
+				backupFile(filename); //Link .json => .bac and move .new => .json. That way we always have at least one safe file
+			} else {
+				commitFile(filename);
+			}
 			LOG.info("Tracker data saved");
 		} catch (IOException | JsonParseException ex) {
+			deleteNewFile(filename);
 			LOG.error(ex.getMessage(), ex);
 		} finally {
-			if (fileWriter != null) {
-				try {
-					fileWriter.close();
-				} catch (IOException ex) {
-					//No problem
-				}
-			}
-			//Saving done - create backup and rename new file to target
-			if (createBackup) {
-				backupFile(filename); //Rename .xml => .bac (.new is safe) and .new => .xml (.bac is safe). That way we always have at least one safe file
-			}
 			unlock(filename); //Last thing to do
 		}
 	}
@@ -21,6 +21,7 @@
 package net.nikr.eve.jeveasset.io.local.update;
 
 import net.nikr.eve.jeveasset.io.local.XmlException;
+import org.dom4j.Document;
 
 /**
  *
@@ -28,7 +29,7 @@ import net.nikr.eve.jeveasset.io.local.XmlException;
  */
 public interface LocalUpdate {
 
-	void performUpdate(String path) throws XmlException;
+	void performUpdate(Document doc) throws XmlException;
 	int getStart();
 	int getEnd();
 }
@@ -72,10 +72,7 @@ public class Update extends AbstractXmlReader<Integer> {
 		return SettingsReader.SETTINGS_VERSION;
 	}
 
-	void setVersion(final File xml, final int newVersion) throws DocumentException {
-		SAXReader xmlReader = new SAXReader();
-		Document doc = xmlReader.read(xml);
-
+	void setVersion(final Document doc, final int newVersion) {
 		XPath xpathSelector = DocumentHelper.createXPath("/settings");
 		List<?> results = xpathSelector.selectNodes(doc);
 		for (Iterator<?> iter = results.iterator(); iter.hasNext();) {
@@ -87,27 +84,28 @@ public class Update extends AbstractXmlReader<Integer> {
 				attr.setText(String.valueOf(newVersion));
 			}
 		}
+	}
 
-		FileOutputStream fos = null;
-		try {
-			fos = new FileOutputStream(xml);
+	/**
+	 * Write the updated settings to the .new file and move it to the target.
+	 * The settings.xml must never be written in place, as settings.bac may be a hard link to it.
+	 * @param doc updated settings
+	 * @param path settings path
+	 * @throws IOException if the settings could not be written
+	 */
+	void writeDocument(final Document doc, final String path) throws IOException {
+		try (FileOutputStream fos = new FileOutputStream(getNewFile(path))) {
 			OutputFormat outformat = OutputFormat.createPrettyPrint();
 			outformat.setEncoding("UTF-16");
 			XMLWriter writer = new XMLWriter(fos, outformat);
 			writer.write(doc);
 			writer.flush();
-		} catch (IOException ioe) {
-			LOG.error("Failed to update the serttings.xml version number", ioe);
-			throw new RuntimeException(ioe);
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (IOException ex) {
-					//No problem
-				}
-			}
+			sync(fos);
+		} catch (IOException ex) {
+			deleteNewFile(path);
+			throw ex;
 		}
+		commitFile(path);
 	}
 
 	/**
@@ -129,15 +127,21 @@ public class Update extends AbstractXmlReader<Integer> {
 			lock(path);
 			if (requiredVersion > currentVersion) {
 				LOG.info("settings.xml are out of date, updating.");
+				SAXReader xmlReader = new SAXReader();
+				Document doc = xmlReader.read(xml);
 				Update1To2 update = new Update1To2();
-				update.performUpdate(path);
-				setVersion(new File(path), requiredVersion);
+				update.performUpdate(doc);
+				setVersion(doc, requiredVersion);
+				writeDocument(doc, path);
 			} else {
 				LOG.info("settings.xml are up to date.");
 			}
 		} catch (DocumentException ex) {
 			LOG.warn("Failed to update settings", ex);
 			throw new XmlException(ex);
+		} catch (IOException ex) {
+			LOG.error("Failed to update the settings.xml", ex);
+			throw new XmlException(ex);
 		} finally {
 			unlock(path);
 		}
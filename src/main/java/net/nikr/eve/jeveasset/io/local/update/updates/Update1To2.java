@@ -20,8 +20,6 @@
  */
 package net.nikr.eve.jeveasset.io.local.update.updates;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -30,13 +28,9 @@ import net.nikr.eve.jeveasset.io.local.XmlException;
 import net.nikr.eve.jeveasset.io.local.update.LocalUpdate;
 import org.dom4j.Attribute;
 import org.dom4j.Document;
-import org.dom4j.DocumentException;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
 import org.dom4j.XPath;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.SAXReader;
-import org.dom4j.io.XMLWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,46 +44,21 @@ public class Update1To2 implements LocalUpdate {
 	private static final Logger LOG = LoggerFactory.getLogger(Update1To2.class);
 
 	@Override
-	public void performUpdate(final String path) throws XmlException {
+	public void performUpdate(final Document doc) throws XmlException {
 		LOG.info("Performing update from v1 to v2");
 		LOG.info(" - modifies files:");
 		LOG.info("  - settings.xml");
-		FileOutputStream fos = null;
-		try {
-			// We need to update the settings
-			// current changes are:
-			// 1. XPath: /settings/filters/filter/row[@mode]
-			// changed from (e.g.) "Contains" to the enum value name in AssetFilter.Mode
-			// 2. settings/marketstat[@defaultprice] --> another enum: Asset.PriceMode
-			// 3. settings/columns/column --> settings/tables/table/column
-			// settings/flags/flag --> removed two flags (now in settings/tables/table)
-			SAXReader xmlReader = new SAXReader();
-			Document doc = xmlReader.read(path);
-			convertDefaultPriceModes(doc);
-			convertModes(doc);
-			convertTableSettings(doc);
-
-			fos = new FileOutputStream(path);
-			OutputFormat outformat = OutputFormat.createPrettyPrint();
-			outformat.setEncoding("UTF-16");
-			XMLWriter writer = new XMLWriter(fos, outformat);
-			writer.write(doc);
-			writer.flush();
-		} catch (IOException ex) {
-			LOG.error("", ex);
-			throw new XmlException(ex);
-		} catch (DocumentException ex) {
-			LOG.error("", ex);
-			throw new XmlException(ex);
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (IOException ex) {
-					//No problem
-				}
-			}
-		}
+		// We need to update the settings
+		// current changes are:
+		// 1. XPath: /settings/filters/filter/row[@mode]
+		// changed from (e.g.) "Contains" to the enum value name in AssetFilter.Mode
+		// 2. settings/marketstat[@defaultprice] --> another enum: Asset.PriceMode
+		// 3. settings/columns/column --> settings/tables/table/column
+		// settings/flags/flag --> removed two flags (now in settings/tables/table)
+		// The updated document is written by Update
+		convertDefaultPriceModes(doc);
+		convertModes(doc);
+		convertTableSettings(doc);
 	}
 
 	private void convertModes(final Document doc) {
@@ -41,9 +41,9 @@ import net.nikr.eve.jeveasset.data.sde.StaticData;
 import net.nikr.eve.jeveasset.data.settings.PriceData;
 import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceMode;
 import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceSource;
-import net.nikr.eve.jeveasset.data.settings.PriceHistoryDatabase;
 import net.nikr.eve.jeveasset.data.settings.Settings;
 import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateTask;
+import net.nikr.eve.jeveasset.io.local.PriceStore;
 import net.nikr.eve.jeveasset.io.shared.ApiIdConverter;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
 import org.slf4j.Logger;
@@ -76,15 +76,16 @@ public class PriceDataGetter implements PricingListener {
 	private Set<Integer> okay;
 	private Set<Integer> zero;
 	private Set<Integer> queue;
+	private int planned;
 	private final Map<Integer, PriceData> updatedList = Collections.synchronizedMap(new HashMap<>());
-	private final Map<Integer, PriceData> priceDataList = Collections.synchronizedMap(new HashMap<>());
 
 	private long nextUpdate = 0;
 
 	public void load() {
 		Map<Integer, PriceData> priceData = processLoad();
 		if (priceData != null) {
-			Settings.get().setPriceData(priceData);
+			PriceStore.get().setPrices(priceData);
+			PriceStore.get().save();
 		}
 	}
 
@@ -92,64 +93,69 @@ public class PriceDataGetter implements PricingListener {
 	 * Load price data from cache and only update missing price data.
 	 * @param profileData
 	 * @param task UpdateTask to track progress
+	 * @param listener called on the update thread as each batch is saved (null = none)
 	 * @return
 	 */
-	public boolean updateNew(final ProfileData profileData, final UpdateTask task) {
-		return processUpdate(profileData, task, false);
+	public boolean updateNew(final ProfileData profileData, final UpdateTask task, final PriceBatchListener listener) {
+		return processUpdate(profileData, task, false, listener);
 	}
 
 	/**
 	 * Update of all price data.
 	 * @param profileData
 	 * @param task UpdateTask to track progress
+	 * @param listener called on the update thread as each batch is saved (null = none)
 	 * @return
 	 */
-	public boolean updateAll(final ProfileData profileData, final UpdateTask task) {
-		return processUpdate(profileData, task, true);
+	public boolean updateAll(final ProfileData profileData, final UpdateTask task, final PriceBatchListener listener) {
+		return processUpdate(profileData, task, true, listener);
 	}
 
 	/**
-	 * Load data from price cache
-	 * @return available price data
+	 * Load next update time from price cache.
+	 * The price data is loaded by the PriceStore.
+	 * The price cache is only used for price data, if the PriceStore is empty (first run).
+	 * @return price data from the price cache or null if not needed or not available
 	 */
 	private Map<Integer, PriceData> processLoad() {
 		Pricing pricing = PricingFactory.getPricing(PricingFetch.FUZZWORK, new DefaultPricingOptions());
 		LOG.info("Price data loading");
+		boolean importCache = PriceStore.get().isEmpty();
+		Map<Integer, PriceData> priceDataList = new HashMap<>();
 		for (Item item : StaticData.get().getItems().values()) { //For each typeID
 			if (!item.isMarketGroup()) {
 				continue;
 			}
 			int typeID = item.getTypeID();
-			PriceData priceData = priceDataList.get(typeID);
-			if (priceData == null) {
-				priceData = new PriceData();
-				priceDataList.put(typeID, priceData);
-			}
-			boolean ok = false;
-			for (PriceMode priceMode : PriceMode.values()) { //For each PriceMode (all combinations of PricingNumber & PricingType)
-				PriceType priceType = priceMode.getPricingType();
-				if (priceType == null) {
-					continue; //Ignore calculated prices - f.ex. PriceMode.PRICE_MIDPOINT
+			if (importCache) {
+				PriceData priceData = new PriceData();
+				boolean ok = false;
+				for (PriceMode priceMode : PriceMode.values()) { //For each PriceMode (all combinations of PricingNumber & PricingType)
+					PriceType priceType = priceMode.getPricingType();
+					if (priceType == null) {
+						continue; //Ignore calculated prices - f.ex. PriceMode.PRICE_MIDPOINT
+					}
+					Double price = pricing.getPriceCache(typeID, priceType);
+					if (price != null) {
+						ok = true; //Something is set
+						PriceMode.setDefaultPrice(priceData, priceMode, price);
+					}
 				}
-				Double price = pricing.getPriceCache(typeID, priceType);
-				if (price != null) {
-					ok = true; //Something is set
-					PriceMode.setDefaultPrice(priceData, priceMode, price);
+				if (ok) {
+					priceDataList.put(typeID, priceData);
 				}
 			}
-			if (!ok) {
-				priceDataList.remove(typeID); //Remove failed typeID
-			}
 			long nextUpdateTemp = pricing.getNextUpdateTime(typeID);
 			if (nextUpdateTemp >= 0 && nextUpdateTemp > getNextUpdateTime()) {
 				setUpdateNext(nextUpdateTemp);
 			}
 		}
-		if (!priceDataList.isEmpty()) {
+		if (!importCache) {
 			LOG.info("	Price data loaded");
-			Map<Integer, PriceData> hashMap = new HashMap<>();
-			hashMap.putAll(priceDataList);
-			return hashMap; //Return copy of Map
+			return null;
+		} else if (!priceDataList.isEmpty()) {
+			LOG.info("	Price data loaded from price cache");
+			return priceDataList;
 		} else {
 			LOG.info("	Price data not loaded");
 			return null;
@@ -160,12 +166,22 @@ public class PriceDataGetter implements PricingListener {
 	 * Update settings with new price data
 	 * @param task UpdateTask to update progress on
 	 * @param updateAll if true update all prices, if false only update new/missing prices
+	 * @param listener called as each batch is saved (null = none)
 	 * @return true if OK or false if FAILED
 	 */
-	private boolean processUpdate(final ProfileData profileData, final UpdateTask task, final boolean updateAll) {
-		Map<Integer, PriceData> priceData = processUpdate(task, updateAll, new DefaultPricingOptions(), profileData.getPriceTypeIDs(), Settings.get().getPriceDataSettings().getSource());
+	private boolean processUpdate(final ProfileData profileData, final UpdateTask task, final boolean updateAll, final PriceBatchListener listener) {
+		Map<Integer, PriceData> priceData = processUpdate(task, updateAll, new DefaultPricingOptions(), profileData.getPriceTypeIDs(), profileData.getPriceTypeValues(), Settings.get().getPriceRefreshBudget(), new PriceBatchListener() {
+			@Override
+			public void batchUpdated(Map<Integer, PriceData> prices) {
+				PriceStore.get().putAll(prices);
+				if (listener != null) {
+					listener.batchUpdated(prices);
+				}
+			}
+		}, Settings.get().getPriceDataSettings().getSource());
 		if (priceData != null) {
-			Settings.get().setPriceData(priceData);
+			PriceStore.get().setPrices(priceData);
+			PriceStore.get().save();
 			return true;
 		} else {
 			return false;
@@ -182,13 +198,29 @@ public class PriceDataGetter implements PricingListener {
 	 * @return
 	 */
 	protected Map<Integer, PriceData> processUpdate(final UpdateTask task, final boolean updateAll, final PricingOptions pricingOptions, final Set<Integer> typeIDs, final PriceSource priceSource) {
+		return processUpdate(task, updateAll, pricingOptions, typeIDs, new HashMap<>(), 0, null, priceSource);
+	}
+
+	/**
+	 *
+	 * @param task UpdateTask to update progress on
+	 * @param updateAll true to update all prices. false to only update new/missing prices
+	 * @param pricingOptions Options used doing update
+	 * @param typeIDs TypeIDs to get price data for
+	 * @param values ISK value by typeID (types with the most value are updated first)
+	 * @param budget max types to update (0 = all)
+	 * @param listener called as each batch is updated (null = only return the price data)
+	 * @param priceSource Price data source to update from (only used in log)
+	 * @return
+	 */
+	protected Map<Integer, PriceData> processUpdate(final UpdateTask task, final boolean updateAll, final PricingOptions pricingOptions, final Set<Integer> typeIDs, final Map<Integer, Double> values, final int budget, final PriceBatchListener listener, final PriceSource priceSource) {
 		this.updateTask = task;
 		this.update = updateAll;
 		this.typeIDs = Collections.synchronizedSet(new HashSet<>(typeIDs));
 		this.failed = Collections.synchronizedSet(new HashSet<>());
 		this.zero = Collections.synchronizedSet(new HashSet<>());
 		this.okay = Collections.synchronizedSet(new HashSet<>());
-		this.queue = Collections.synchronizedSet(new HashSet<>(typeIDs));
+		this.queue = Collections.synchronizedSet(new HashSet<>());
 		this.updatedList.clear();
 
 		if (priceSource == PriceSource.JANICE) {
@@ -210,18 +242,43 @@ public class PriceDataGetter implements PricingListener {
 
 		pricing.addPricingListener(this);
 
-		if (updateAll) { //Update all
-			pricing.updatePrices(typeIDs);
+		//Plan: Most value and most stale first
+		Map<Integer, Long> lastUpdates = new HashMap<>();
+		for (Integer typeID : typeIDs) {
+			if (!PriceStore.get().contains(typeID)) {
+				continue; //No price data
+			}
+			long nextUpdateTemp = pricing.getNextUpdateTime(typeID);
+			lastUpdates.put(typeID, nextUpdateTemp >= 0 ? nextUpdateTemp - PRICE_CACHE_TIMER : 0L); //Unknown: As stale as it gets
+		}
+		PriceRefreshPlanner planner = new PriceRefreshPlanner(typeIDs, values, lastUpdates, System.currentTimeMillis(), PRICE_CACHE_TIMER, updateAll ? budget : 0, PriceRefreshPlanner.BATCH_SIZE);
+		this.planned = planner.getPlanned();
+		if (planner.getSkipped() > 0) {
+			LOG.info("	Price data for " + planner.getSkipped() + " of " + typeIDs.size() + " types not updated (budget: " + budget + ")");
+		}
+		for (Set<Integer> batch : planner.getBatches()) {
+			queue.addAll(batch);
+		}
+
+		if (updateAll) { //Update all (batches are queued in order)
+			for (Set<Integer> batch : planner.getBatches()) {
+				pricing.updatePrices(batch);
+			}
 		} else { //Update new
-			for (int id : typeIDs) {
-				createPriceData(id, pricing);
+			for (Set<Integer> batch : planner.getBatches()) {
+				for (int id : batch) {
+					createPriceData(id, pricing);
+				}
 			}
 		}
 
-		while (!queue.isEmpty()) {
+		//Publish each batch as soon as it's done
+		for (Set<Integer> batch : planner.getBatches()) {
 			try {
 				synchronized (this) {
-					wait(1000);
+					while (isQueued(batch)) {
+						wait(); //Notified by priceUpdated/priceUpdateFailed
+					}
 				}
 			} catch (InterruptedException ex) {
 				LOG.info("Failed to update price");
@@ -234,6 +291,7 @@ public class PriceDataGetter implements PricingListener {
 				clear(pricing);
 				return null;
 			}
+			publish(batch, listener);
 		}
 		boolean updated = (!okay.isEmpty() && (typeIDs.size() * FAILED_PERCENT_CANCEL_LIMIT / 100) > failed.size() && (typeIDs.size() * ZERO_PERCENT_CANCEL_LIMIT / 100) > zero.size());
 		if (updated && !failed.isEmpty()) {
@@ -286,12 +344,11 @@ public class PriceDataGetter implements PricingListener {
 			}
 			//We only set the price data if everthing worked (AKA all updated)
 			try {
-				//return new HashMap<Integer, PriceData>(priceDataList);
-				// XXX - Workaround for ConcurrentModificationException in HashMap constructor
-				Map<Integer, PriceData> hashMap = new HashMap<>();
-				priceDataList.keySet().removeAll(failed); //Remove failed
-				hashMap.putAll(priceDataList);
-				PriceHistoryDatabase.setPriceData(updatedList);
+				Map<Integer, PriceData> hashMap = PriceStore.get().getAll();
+				synchronized (updatedList) {
+					hashMap.putAll(updatedList);
+				}
+				hashMap.keySet().removeAll(failed); //Remove failed
 				return hashMap;
 			} finally {
 				clear(pricing);
@@ -319,6 +376,31 @@ public class PriceDataGetter implements PricingListener {
 		this.nextUpdate = nextUpdate;
 	}
 
+	private boolean isQueued(Set<Integer> batch) {
+		for (Integer typeID : batch) {
+			if (queue.contains(typeID)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void publish(Set<Integer> batch, PriceBatchListener listener) {
+		if (listener == null) {
+			return;
+		}
+		Map<Integer, PriceData> prices = new HashMap<>();
+		for (Integer typeID : batch) {
+			PriceData priceData = updatedList.get(typeID);
+			if (priceData != null && !failed.contains(typeID)) {
+				prices.put(typeID, priceData);
+			}
+		}
+		if (!prices.isEmpty()) {
+			listener.batchUpdated(prices);
+		}
+	}
+
 	private void clear(Pricing pricing) {
 		//Memory
 		SplashUpdater.setSubProgress(100);
@@ -347,10 +429,12 @@ public class PriceDataGetter implements PricingListener {
 	}
 
 	private void createPriceData(final int typeID, final Pricing pricing) {
-		PriceData priceData = priceDataList.get(typeID);
+		PriceData priceData = updatedList.get(typeID);
+		if (priceData == null) {
+			priceData = PriceStore.get().get(typeID); //Keep prices not returned by the source
+		}
 		if (priceData == null) {
 			priceData = new PriceData();
-			priceDataList.put(typeID, priceData);
 		}
 		boolean ok = false;
 		boolean isZero = true;
@@ -385,13 +469,17 @@ public class PriceDataGetter implements PricingListener {
 			setUpdateNext(nextUpdateTemp);
 		}
 		if (updateTask != null) {
-			updateTask.setTaskProgress(typeIDs.size(), okay.size(), 0, 100);
+			updateTask.setTaskProgress(planned, okay.size(), 0, 100);
 		}
-		if (!okay.isEmpty() && !typeIDs.isEmpty()) {
-			SplashUpdater.setSubProgress((int) (okay.size() * 100.0 / typeIDs.size()));
+		if (!okay.isEmpty() && planned > 0) {
+			SplashUpdater.setSubProgress((int) (okay.size() * 100.0 / planned));
 		}
 	}
 
+	public static interface PriceBatchListener {
+		public void batchUpdated(Map<Integer, PriceData> prices);
+	}
+
 	private class DefaultPricingOptions implements PricingOptions {
 
 		@Override
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.online;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plan the order of a price update.
+ * Types without price data are first, as their value is unknown.
+ * Other types are ranked by value (ISK in assets, market orders and stockpiles) times staleness (age of the price).
+ * Within the budget, the highest ranked types are updated first, in batches.
+ */
+public class PriceRefreshPlanner {
+
+	public static final int BATCH_SIZE = 100;
+
+	private final List<Set<Integer>> batches = new ArrayList<>();
+	private final int skipped;
+
+	/**
+	 * Create a plan.
+	 * @param typeIDs types to update
+	 * @param values ISK value by typeID (missing = no value)
+	 * @param lastUpdates time of the last price update by typeID (missing = no price data)
+	 * @param now current time
+	 * @param cacheTime time a price is fresh (staleness is age / cacheTime)
+	 * @param budget max types to update or 0 for no limit (types without price data are always updated)
+	 * @param batchSize types per batch
+	 */
+	public PriceRefreshPlanner(Set<Integer> typeIDs, Map<Integer, Double> values, Map<Integer, Long> lastUpdates, long now, long cacheTime, int budget, int batchSize) {
+		final Map<Integer, Double> scores = new HashMap<>();
+		List<Integer> missing = new ArrayList<>();
+		List<Integer> ranked = new ArrayList<>();
+		for (Integer typeID : typeIDs) {
+			Long lastUpdate = lastUpdates.get(typeID);
+			if (lastUpdate == null) {
+				missing.add(typeID);
+				continue;
+			}
+			Double value = values.get(typeID);
+			double staleness = Math.max(0, now - lastUpdate) / (double) cacheTime;
+			scores.put(typeID, ((value != null ? Math.max(0, value) : 0) + 1) * staleness); //+1: Types without value are ranked by staleness
+			ranked.add(typeID);
+		}
+		Collections.sort(ranked, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int compare = Double.compare(scores.get(o2), scores.get(o1)); //Highest first
+				if (compare != 0) {
+					return compare;
+				}
+				return o1.compareTo(o2);
+			}
+		});
+		Collections.sort(missing);
+		List<Integer> planned = new ArrayList<>(missing);
+		if (budget > 0) {
+			planned.addAll(ranked.subList(0, Math.min(ranked.size(), Math.max(0, budget - missing.size()))));
+		} else {
+			planned.addAll(ranked);
+		}
+		skipped = typeIDs.size() - planned.size();
+		Set<Integer> batch = null;
+		for (Integer typeID : planned) {
+			if (batch == null || batch.size() >= batchSize) {
+				batch = new LinkedHashSet<>();
+				batches.add(batch);
+			}
+			batch.add(typeID);
+		}
+	}
+
+	/**
+	 * Types to update, in the order they should be updated.
+	 * @return batches of typeIDs
+	 */
+	public List<Set<Integer>> getBatches() {
+		return batches;
+	}
+
+	/**
+	 * Number of types to update.
+	 * @return
+	 */
+	public int getPlanned() {
+		int planned = 0;
+		for (Set<Integer> batch : batches) {
+			planned = planned + batch.size();
+		}
+		return planned;
+	}
+
+	/**
+	 * Number of types outside the budget (keeps the current price data).
+	 * @return
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+}
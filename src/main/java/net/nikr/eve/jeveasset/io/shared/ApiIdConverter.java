@@ -51,6 +51,7 @@ import net.nikr.eve.jeveasset.gui.shared.Formatter;
 import net.nikr.eve.jeveasset.i18n.General;
 import net.nikr.eve.jeveasset.io.esi.EsiItemsGetter;
 import net.nikr.eve.jeveasset.io.local.ItemsWriter;
+import net.nikr.eve.jeveasset.io.local.PriceStore;
 import net.nikr.eve.jeveasset.io.online.CitadelGetter;
 import net.troja.eve.esi.model.CharacterBookmarkItem;
 import net.troja.eve.esi.model.CharacterBookmarksResponse;
@@ -215,7 +216,7 @@ public final class ApiIdConverter {
 		if (isBlueprintCopy) {
 			return PriceData.EMPTY;
 		}
-		PriceData priceData = Settings.get().getPriceData().get(typeID);
+		PriceData priceData = PriceStore.get().get(typeID);
 		if (priceData == null) {
 			return PriceData.EMPTY;
 		}
@@ -266,14 +267,10 @@ public final class ApiIdConverter {
 		}
 
 		//Price data
-		PriceData priceData = Settings.get().getPriceData().get(typeID);
-		if (priceData != null && priceData.isEmpty()) {
-			priceData = null;
-		}
 		if (reprocessed) {
-			return Settings.get().getPriceDataSettings().getDefaultPriceReprocessed(priceData);
+			return PriceStore.get().getPrice(typeID, Settings.get().getPriceDataSettings().getPriceReprocessedType());
 		} else {
-			return Settings.get().getPriceDataSettings().getDefaultPrice(priceData);
+			return PriceStore.get().getPrice(typeID, Settings.get().getPriceDataSettings().getPriceType());
 		}
 	}
 
@@ -22,6 +22,7 @@ package net.nikr.eve.jeveasset.io.shared;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -33,6 +34,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import net.nikr.eve.jeveasset.CliOptions;
 import net.nikr.eve.jeveasset.Program;
 import net.nikr.eve.jeveasset.data.settings.Settings;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsSection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,14 +46,21 @@ public class FileUtil extends FileUtilSimple {
 	private static final String PATH_ASSET_ADDED_DATABASE = "data" + File.separator + "addedsql.db";
 	private static final String PATH_STOCKPILE_IDS_DATABASE = "data" + File.separator + "stockpileids.db";
 	private static final String PATH_PRICE_HISTORY_DATABASE = "data" + File.separator + "pricehistory.db";
+	private static final String PATH_ESI_CACHE_DATABASE = "data" + File.separator + "esicache.db";
+	private static final String PATH_ORDER_BOOK_SNAPSHOT = "data" + File.separator + "orderbook.dat";
+	private static final String PATH_ORDER_BOOK_DIRECTORY = "data" + File.separator + "orderbooks";
 	private static final String PATH_TRACKER_DATA = "data" + File.separator + "tracker.json";
+	private static final String PATH_TRACKER_DIRECTORY = "data" + File.separator + "tracker";
 	private static final String PATH_SETTINGS = "data" + File.separator + "settings.xml";
 	private static final String PATH_ITEMS = "data" + File.separator + "items.xml";
 	private static final String PATH_ITEMS_UPDATES = "data" + File.separator + "items_updates.xml";
 	private static final String PATH_JUMPS = "data" + File.separator + "jumps.xml";
 	private static final String PATH_LOCATIONS = "data" + File.separator + "locations.xml";
 	private static final String PATH_FLAGS = "data" + File.separator + "flags.xml";
+	private static final String PATH_STATIC_DATA_CACHE = "data" + File.separator + "staticdata.cache";
+	private static final String PATH_JUMPS_CACHE = "data" + File.separator + "jumps.cache";
 	private static final String PATH_PRICE_DATA = "data" + File.separator + "pricedata.dat";
+	private static final String PATH_PRICE_STORE = "data" + File.separator + "prices.dat";
 	private static final String PATH_ASSETS = "data" + File.separator + "assets.xml";
 	private static final String PATH_CONQUERABLE_STATIONS = "data" + File.separator + "conquerable_stations.xml";
 	private static final String PATH_CITADEL = "data" + File.separator + "citadel.xml";
@@ -139,29 +148,39 @@ public class FileUtil extends FileUtilSimple {
 			CliOptions.get().setPortable(false);
 			Path settingsFrom = Paths.get(getPathSettings());
 			Path trackerFrom = Paths.get(getPathTrackerData());
+			Path trackerDirectoryFrom = Paths.get(getPathTrackerDirectory());
 			Path assetAddedFrom = Paths.get(getPathAssetAdded());
 			Path assetAddedDatabaseFrom = Paths.get(getPathAssetAddedDatabase());
 			Path stockpileIDsDatabaseFrom = Paths.get(getPathStockpileIDsDatabase());
 			Path priceHistoryDatabasFrom = Paths.get(getPathPriceHistoryDatabase());
 			Path citadelFrom = Paths.get(getPathCitadel());
 			Path priceFrom = Paths.get(getPathPriceData());
+			Path priceStoreFrom = Paths.get(getPathPriceStore());
 			Path profilesFrom = Paths.get(getPathProfilesDirectory());
 			Path itemsUpdatesFrom = Paths.get(getPathItemsUpdates());
 			CliOptions.get().setPortable(true);
 			Path settingsTo = Paths.get(getPathSettings());
 			Path trackerTo = Paths.get(getPathTrackerData());
+			Path trackerDirectoryTo = Paths.get(getPathTrackerDirectory());
 			Path assetAddedTo = Paths.get(getPathAssetAdded());
 			Path assetAddedDatabaseTo = Paths.get(getPathAssetAddedDatabase());
 			Path stockpileIDsDatabaseTo = Paths.get(getPathStockpileIDsDatabase());
 			Path priceHistoryDatabasTo = Paths.get(getPathPriceHistoryDatabase());
 			Path citadelTo = Paths.get(getPathCitadel());
 			Path priceTo = Paths.get(getPathPriceData());
+			Path priceStoreTo = Paths.get(getPathPriceStore());
 			Path profilesTo = Paths.get(getPathProfilesDirectory());
 			Path itemsUpdatesTo = Paths.get(getPathItemsUpdates());
 			if (Files.exists(settingsFrom) && !Files.exists(settingsTo)) {
 				LOG.info("Importing settings");
 				try {
 					Files.copy(settingsFrom, settingsTo);
+					for (SettingsSection section : SettingsSection.values()) {
+						Path sectionFrom = Paths.get(section.getFilename(settingsFrom.toString()));
+						if (Files.exists(sectionFrom)) {
+							Files.copy(sectionFrom, Paths.get(section.getFilename(settingsTo.toString())));
+						}
+					}
 					LOG.info("	OK");
 				} catch (IOException ex) {
 					LOG.info("	FAILED");
@@ -176,6 +195,20 @@ public class FileUtil extends FileUtilSimple {
 					LOG.info("	FAILED");
 				}
 			}
+			if (Files.exists(trackerDirectoryFrom) && !Files.exists(trackerDirectoryTo)) {
+				LOG.info("Importing tracker data store");
+				try {
+					Files.createDirectories(trackerDirectoryTo);
+					try (DirectoryStream<Path> stream = Files.newDirectoryStream(trackerDirectoryFrom)) {
+						for (Path file : stream) {
+							Files.copy(file, trackerDirectoryTo.resolve(file.getFileName()));
+						}
+					}
+					LOG.info("	OK");
+				} catch (IOException ex) {
+					LOG.info("	FAILED");
+				}
+			}
 			if (Files.exists(assetAddedFrom) && !Files.exists(assetAddedTo)) {
 				LOG.info("Importing asset added");
 				try {
@@ -230,6 +263,15 @@ public class FileUtil extends FileUtilSimple {
 					LOG.info("	FAILED");
 				}
 			}
+			if (Files.exists(priceStoreFrom) && !Files.exists(priceStoreTo)) {
+				LOG.info("Importing price store");
+				try {
+					Files.copy(priceStoreFrom, priceStoreTo);
+					LOG.info("	OK");
+				} catch (IOException ex) {
+					LOG.info("	FAILED");
+				}
+			}
 			if (Files.exists(itemsUpdatesFrom) && !Files.exists(itemsUpdatesTo)) {
 				LOG.info("Importing items updates");
 				try {
@@ -282,6 +324,10 @@ public class FileUtil extends FileUtilSimple {
 		return getLocalFile(PATH_TRACKER_DATA, !CliOptions.get().isPortable());
 	}
 
+	public static String getPathTrackerDirectory() {
+		return getLocalFile(PATH_TRACKER_DIRECTORY, !CliOptions.get().isPortable());
+	}
+
 	public static String getPathAssetAdded() {
 		return getLocalFile(PATH_ASSET_ADDED, !CliOptions.get().isPortable());
 	}
@@ -298,6 +344,18 @@ public class FileUtil extends FileUtilSimple {
 		return getLocalFile(PATH_PRICE_HISTORY_DATABASE, !CliOptions.get().isPortable());
 	}
 
+	public static String getPathEsiCacheDatabase() {
+		return getLocalFile(PATH_ESI_CACHE_DATABASE, !CliOptions.get().isPortable());
+	}
+
+	public static String getPathOrderBookSnapshot() {
+		return getLocalFile(PATH_ORDER_BOOK_SNAPSHOT, !CliOptions.get().isPortable());
+	}
+
+	public static String getPathOrderBookDirectory() {
+		return getLocalFile(PATH_ORDER_BOOK_DIRECTORY, !CliOptions.get().isPortable());
+	}
+
 	public static String getPathConquerableStations() {
 		return getLocalFile(PATH_CONQUERABLE_STATIONS, !CliOptions.get().isPortable());
 	}
@@ -314,10 +372,22 @@ public class FileUtil extends FileUtilSimple {
 		return getLocalFile(PATH_FLAGS, false);
 	}
 
+	public static String getPathStaticDataCache() {
+		return getLocalFile(PATH_STATIC_DATA_CACHE, !CliOptions.get().isPortable());
+	}
+
+	public static String getPathJumpsCache() {
+		return getLocalFile(PATH_JUMPS_CACHE, !CliOptions.get().isPortable());
+	}
+
 	public static String getPathPriceData() {
 		return getLocalFile(PATH_PRICE_DATA, !CliOptions.get().isPortable());
 	}
 
+	public static String getPathPriceStore() {
+		return getLocalFile(PATH_PRICE_STORE, !CliOptions.get().isPortable());
+	}
+
 	public static String getPathAssetsOld() {
 		return getLocalFile(PATH_ASSETS, !CliOptions.get().isPortable());
 	}
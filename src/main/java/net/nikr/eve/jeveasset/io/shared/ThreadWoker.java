@@ -24,7 +24,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -39,6 +42,7 @@ public class ThreadWoker {
 	private static final int MAIN_THREADS = 100;
 	private static final int SUB_THREADS = 100;
 	private static final ExecutorService RETURN_THREAD_POOL = Executors.newFixedThreadPool(SUB_THREADS);
+	private static final long CANCEL_CHECK = 100; //ms
 
 	private static final Logger LOG = LoggerFactory.getLogger(ThreadWoker.class);
 
@@ -56,36 +60,48 @@ public class ThreadWoker {
 
 	public static void start(UpdateTask updateTask, Collection<? extends Runnable> updaters, boolean updateProgress, int start, int end) {
 		ExecutorService threadPool = Executors.newFixedThreadPool(MAIN_THREADS);
+		CompletionService<Object> completionService = new ExecutorCompletionService<>(threadPool);
+		List<Future<Object>> futures = new ArrayList<>();
 		try {
 			LOG.info("Starting " + updaters.size() + " main threads");
-			List<Future<?>> futures = new ArrayList<Future<?>>();
 			for (Runnable runnable : updaters) {
-				futures.add(threadPool.submit(runnable));
+				futures.add(completionService.submit(runnable, null));
 			}
 			threadPool.shutdown();
-			while (!threadPool.awaitTermination(500, TimeUnit.MICROSECONDS)) {
-				if (updateTask != null) {
-					if (updateTask.isCancelled()) {
-						threadPool.shutdownNow();
-					} else if (updateProgress) {
-						int progress = 0;
-						for (Future<?> future : futures) {
-							if (future.isDone()) {
-								progress++;
-							}
-						}
-						updateTask.setTaskProgress(updaters.size(), progress, start, end);
-					}
-				}
-			}
-			//Get errors (if any)
-			for (Future<?> future : futures) {
-				future.get();
+			ExecutionException error = waitFor(updateTask, completionService, futures.size(), updateProgress, start, end);
+			if (error != null) {
+				throwExecutionException(error);
 			}
 		} catch (InterruptedException ex) {
-			//No problem
-		} catch (ExecutionException ex) {
-			throwExecutionException(ex);
+			//Interrupted: stop all threads now
+			stop(threadPool, futures);
+			Thread.currentThread().interrupt(); //Let the caller see the interrupt
+		} catch (TaskCancelledException ex) {
+			//Cancelled: stop all threads now
+			stop(threadPool, futures);
+		}
+	}
+
+	/**
+	 * Cancel the tasks and wait for the workers to stop.
+	 * The workers may still be writing shared data, so the caller must not continue before they are done.
+	 * If interrupted while waiting, the interrupt is restored once the workers are done.
+	 */
+	private static void stop(ExecutorService threadPool, List<? extends Future<?>> futures) {
+		cancel(futures);
+		threadPool.shutdownNow();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (threadPool.awaitTermination(CANCEL_CHECK, TimeUnit.MILLISECONDS)) {
+					break;
+				}
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -102,31 +118,58 @@ public class ThreadWoker {
 			throw new TaskCancelledException();
 		}
 		LOG.info("Starting " + updaters.size() + " sub threads");
-		List<Future<K>> futures = new ArrayList<Future<K>>();
+		CompletionService<K> completionService = new ExecutorCompletionService<>(RETURN_THREAD_POOL);
+		List<Future<K>> futures = new ArrayList<>();
 		for (Callable<K> callable : updaters) {
-			futures.add(RETURN_THREAD_POOL.submit(callable));
+			futures.add(completionService.submit(callable));
+		}
+		try {
+			waitFor(updateTask, completionService, futures.size(), updateProgress, start, end);
+		} catch (InterruptedException | TaskCancelledException ex) {
+			cancel(futures); //Cancel all threads
+			throw ex; //Stop parent Task
 		}
+		return futures;
+	}
+
+	/**
+	 * Wait for the tasks to complete.
+	 * Progress is updated as each task completes.
+	 * Cancel is checked every CANCEL_CHECK milliseconds (or at once, if the thread is interrupted).
+	 * @return the first error or null
+	 */
+	private static <K> ExecutionException waitFor(UpdateTask updateTask, CompletionService<K> completionService, int size, boolean updateProgress, int start, int end) throws InterruptedException {
+		ExecutionException error = null;
 		int done = 0;
-		while (done < futures.size()) {
-			done = 0;
-			for (Future<?> future : futures) {
-				if (future.isDone()) {
-					done++;
-				}
+		while (done < size) {
+			if (updateTask != null && updateTask.isCancelled()) {
+				throw new TaskCancelledException();
+			}
+			Future<K> future = completionService.poll(CANCEL_CHECK, TimeUnit.MILLISECONDS);
+			if (future == null) {
+				continue;
 			}
-			if (updateTask != null) {
-				if (updateTask.isCancelled()) { //If task is cancelled
-					for (Future<?> future : futures) { //cancel all threads
-						future.cancel(true);
-					}
-					throw new TaskCancelledException(); //Stop parent Task
-				} else if (updateProgress) {
-					updateTask.setTaskProgress(updaters.size(), done, start, end);
+			done++;
+			try {
+				future.get();
+			} catch (ExecutionException ex) {
+				if (error == null) {
+					error = ex;
 				}
+			} catch (CancellationException ex) {
+				//No problem
+			}
+			if (updateTask != null && updateProgress) {
+				updateTask.setTaskProgress(size, done, start, end);
 			}
-			Thread.sleep(500);
 		}
-		return futures;
+		return error;
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(true);
+		}
 	}
 
 	public static class TaskCancelledException extends RuntimeException {
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.nikr.eve.jeveasset.gui.dialogs.update.UpdateTask;
+import net.nikr.eve.jeveasset.io.shared.ThreadWoker.TaskCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs update tasks as a dependency graph.
+ * Each node is started as soon as all the nodes it depends on are done.
+ * Nodes are created when they are started, so they see the data of the nodes they depend on.
+ * Failed nodes do not stop the nodes that depend on them (same as the getters handle their own errors).
+ */
+public class UpdateGraph {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UpdateGraph.class);
+
+	private static final int THREADS = 100;
+
+	private final List<Node> nodes = new ArrayList<>();
+
+	/**
+	 * Add a node.
+	 * @param name node name (for logging)
+	 * @param factory creates the task, when the node is started
+	 * @param dependencies nodes that must be done before this node is started (null nodes are ignored)
+	 * @return the new node
+	 */
+	public Node add(String name, NodeFactory factory, Node... dependencies) {
+		Node node = new Node(name, factory);
+		for (Node dependency : dependencies) {
+			node.dependOn(dependency);
+		}
+		nodes.add(node);
+		return node;
+	}
+
+	/**
+	 * Add a node that depends on a list of nodes.
+	 * @param name node name (for logging)
+	 * @param factory creates the task, when the node is started
+	 * @param dependencies nodes that must be done before this node is started (null nodes are ignored)
+	 * @return the new node
+	 */
+	public Node add(String name, NodeFactory factory, List<Node> dependencies) {
+		return add(name, factory, dependencies.toArray(new Node[dependencies.size()]));
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Run all nodes and wait for them to be done.
+	 * @param updateTask for progress and cancel (can be null)
+	 */
+	public void run(UpdateTask updateTask) {
+		ExecutorService threadPool = Executors.newFixedThreadPool(THREADS);
+		CompletionService<Node> completionService = new ExecutorCompletionService<>(threadPool);
+		long start = System.currentTimeMillis();
+		int total = nodes.size();
+		int done = 0;
+		int running = 0;
+		Throwable error = null;
+		LOG.info("Starting " + total + " update nodes");
+		try {
+			running += submitReady(completionService);
+			while (running > 0) {
+				if (updateTask != null && updateTask.isCancelled()) {
+					threadPool.shutdownNow();
+					throw new TaskCancelledException();
+				}
+				Future<Node> future = completionService.poll(100, TimeUnit.MILLISECONDS); //Check cancel every 100ms
+				if (future == null) {
+					continue;
+				}
+				running--;
+				done++;
+				Node node;
+				try {
+					node = future.get();
+				} catch (ExecutionException ex) {
+					NodeException nodeException = (NodeException) ex.getCause();
+					node = nodeException.node;
+					if (error == null) {
+						error = nodeException.getCause();
+					}
+				}
+				node.state = State.DONE;
+				LOG.debug(node.name + " done in " + node.time + "ms (" + done + " of " + total + ")");
+				for (Node dependent : node.dependents) {
+					dependent.waiting--;
+				}
+				running += submitReady(completionService);
+				if (updateTask != null) {
+					updateTask.setTaskProgress(total, done, 0, 100);
+				}
+			}
+			if (done < total) { //Should not happen (cycles are not possible, nodes can only depend on existing nodes)
+				LOG.error((total - done) + " update nodes not started");
+			}
+		} catch (InterruptedException ex) {
+			threadPool.shutdownNow();
+			Thread.currentThread().interrupt();
+			return;
+		} finally {
+			threadPool.shutdown();
+		}
+		LOG.info(total + " update nodes done in " + (System.currentTimeMillis() - start) + "ms");
+		if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw (RuntimeException) error;
+		}
+	}
+
+	private int submitReady(CompletionService<Node> completionService) {
+		//Create all ready nodes before any is started, so they all see the same data
+		List<Node> ready = new ArrayList<>();
+		for (Node node : nodes) {
+			if (node.state == State.WAITING && node.waiting == 0) {
+				node.state = State.RUNNING;
+				node.runnable = node.factory.create();
+				ready.add(node);
+			}
+		}
+		for (final Node node : ready) {
+			completionService.submit(new Callable<Node>() {
+				@Override
+				public Node call() throws Exception {
+					long start = System.currentTimeMillis();
+					try {
+						if (node.runnable != null) {
+							node.runnable.run();
+						}
+					} catch (RuntimeException | Error ex) {
+						throw new NodeException(node, ex);
+					} finally {
+						node.time = System.currentTimeMillis() - start;
+					}
+					return node;
+				}
+			});
+		}
+		return ready.size();
+	}
+
+	public static interface NodeFactory {
+		/**
+		 * Create the task of a node.
+		 * Called when all the nodes it depends on are done.
+		 * @return the task or null, if there is nothing to do
+		 */
+		public Runnable create();
+	}
+
+	private static enum State {
+		WAITING, RUNNING, DONE
+	}
+
+	public static class Node {
+		private final String name;
+		private final NodeFactory factory;
+		private final List<Node> dependents = new ArrayList<>();
+		private Runnable runnable;
+		private State state = State.WAITING;
+		private int waiting = 0;
+		private volatile long time;
+
+		private Node(String name, NodeFactory factory) {
+			this.name = name;
+			this.factory = factory;
+		}
+
+		private void dependOn(Node node) {
+			if (node == null) {
+				return;
+			}
+			waiting++;
+			node.dependents.add(this);
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static class NodeException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Node node;
+
+		public NodeException(Node node, Throwable cause) {
+			super(cause);
+			this.node = node;
+		}
+	}
+}
@@ -21,7 +21,9 @@
 package net.nikr.eve.jeveasset;
 
 import ch.qos.logback.classic.Level;
+import java.io.File;
 import net.nikr.eve.jeveasset.data.settings.Settings;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsSection;
 import org.junit.BeforeClass;
 
 
@@ -40,4 +42,17 @@ public class TestUtil {
 		ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(ch.qos.logback.classic.Logger.ROOT_LOGGER_NAME);
 		root.setLevel(level);
 	}
+
+	/**
+	 * Delete the section files (and their backups) of a settings file.
+	 * @param settingsFilename settings.xml path
+	 */
+	protected static void deleteSettingsSections(String settingsFilename) {
+		for (SettingsSection section : SettingsSection.values()) {
+			String filename = section.getFilename(settingsFilename);
+			new File(filename).delete();
+			new File(filename.substring(0, filename.lastIndexOf(".")) + ".bac").delete();
+			new File(filename.substring(0, filename.lastIndexOf(".")) + "_" + Program.PROGRAM_VERSION.replace(" ", "_") + "_backup.zip").delete();
+		}
+	}
 }
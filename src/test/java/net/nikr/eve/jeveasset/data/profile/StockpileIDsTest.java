@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Set;
 import net.nikr.eve.jeveasset.TestUtil;
 import net.nikr.eve.jeveasset.gui.tabs.stockpile.Stockpile;
+import net.nikr.eve.jeveasset.io.local.SqliteDatabase;
 import net.nikr.eve.jeveasset.io.shared.FileUtil;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
@@ -56,6 +57,7 @@ public class StockpileIDsTest extends TestUtil {
 	public static void out() {
 		StockpileIDs.setConnectionUrl(StockpileIDs.DEFAULT_CONNECTION_URL);
 		stockpileIDs.removeTable();
+		SqliteDatabase.closeAll();
 		new File(FILENAME).delete();
 	}
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.data.sde;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.gui.tabs.routing.SolarSystem;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.Test;
+import uk.me.candle.eve.graph.Edge;
+import uk.me.candle.eve.graph.Graph;
+import uk.me.candle.eve.graph.distances.Jumps;
+
+
+public class RouteFinderTest extends TestUtil {
+
+	@Test
+	public void testIndex() {
+		int size = 50;
+		Set<Integer> indexes = new HashSet<>();
+		for (int a = 0; a < size; a++) {
+			for (int b = a + 1; b < size; b++) {
+				int index = RouteFinder.getIndex(size, a, b);
+				assertThat(index, equalTo(RouteFinder.getIndex(size, b, a)));
+				assertThat(indexes.add(index), equalTo(true));
+			}
+		}
+		assertThat(indexes.size(), equalTo(size * (size - 1) / 2));
+		for (int i = 0; i < indexes.size(); i++) {
+			assertThat(indexes.contains(i), equalTo(true));
+		}
+	}
+
+	@Test
+	public void testDistances() {
+		RouteFinder routeFinder = RouteFinder.get();
+		RouteFinder.Distances distances = routeFinder.getDistances(30000142L);
+		assertThat(routeFinder.getDistances(30000142L) == distances, equalTo(true)); //Shared
+		for (Jump jump : StaticData.get().getJumps()) {
+			long systemID = jump.getTo().getSystemID();
+			assertThat(distances.get(systemID), equalTo(routeFinder.distanceBetween(30000142L, systemID)));
+		}
+		assertThat(distances.get(30000142L), equalTo(0));
+		assertThat(distances.get(1L), equalTo(null));
+		assertThat(routeFinder.getDistances(1L).get(30000142L), equalTo(null));
+		routeFinder.retainDistances(new HashSet<Long>());
+		assertThat(routeFinder.getDistances(30000142L) == distances, equalTo(false)); //Released
+	}
+
+	@Test
+	public void testDistance() {
+		Graph<SolarSystem> graph = new Graph<>(new Jumps<>());
+		Map<Long, SolarSystem> systemCache = new HashMap<>();
+		for (Jump jump : StaticData.get().getJumps()) {
+			SolarSystem from = systemCache.get(jump.getFrom().getSystemID());
+			SolarSystem to = systemCache.get(jump.getTo().getSystemID());
+			if (from == null) {
+				from = SolarSystem.create(systemCache, jump.getFrom());
+			}
+			if (to == null) {
+				to = SolarSystem.create(systemCache, jump.getTo());
+			}
+			graph.addEdge(new Edge<>(from, to));
+		}
+		RouteFinder routeFinder = RouteFinder.get();
+		assertThat(routeFinder.distanceBetween(30000142L, 30000142L), equalTo(0));
+		assertThat(routeFinder.distanceBetween(30000142L, null), equalTo(null));
+		assertThat(routeFinder.distanceBetween(30000142L, 1L), equalTo(null));
+		long[] systems = {30000142L, 30002187L, 30002659L, 30002510L, 30002053L, 30000144L};
+		for (long from : systems) {
+			for (long to : systems) {
+				if (from == to) {
+					continue;
+				}
+				Integer expected = graph.distanceBetween(systemCache.get(from), systemCache.get(to));
+				assertThat(routeFinder.distanceBetween(from, to), equalTo(expected));
+			}
+		}
+	}
+}
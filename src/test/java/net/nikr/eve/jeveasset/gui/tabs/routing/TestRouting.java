@@ -114,6 +114,41 @@ public class TestRouting extends TestUtil {
 		testRoute(getErentaList(), new SimpleUnisexMutatorHibrid2Opt<>(), 40);
 	}
 
+	@Test
+	public void testErentaPortfolio() {
+		testRoute(getErentaList(), 40);
+	}
+
+	private void testRoute(final List<String> waypointNames, final int exptectedDistance) {
+		FakeRoutingTab frd = new FakeRoutingTab(new RoutingMockProgram());
+		frd.buildTestGraph();
+		List<SolarSystem> initial = frd.getNodesFromNames(waypointNames);
+		final List<Integer> streamed = new ArrayList<>();
+		PortfolioRouting<SolarSystem> portfolio = new PortfolioRouting<>(1000);
+		List<SolarSystem> route = portfolio.execute(new FakeProgress(), frd.getGraph(), new ArrayList<>(initial), new PortfolioRouting.BestRouteListener<SolarSystem>() {
+			@Override
+			public void bestRoute(List<SolarSystem> route, int distance, long time) {
+				streamed.add(distance);
+			}
+		});
+		SolarSystem last = null;
+		int totalDistance = 0;
+		for (SolarSystem current : route) {
+			if (last != null) {
+				totalDistance = totalDistance + frd.getGraph().distanceBetween(last, current);
+			}
+			last = current;
+		}
+		if (last != null) {
+			totalDistance = totalDistance + frd.getGraph().distanceBetween(last, route.get(0));
+		}
+		assertEquals("Not all waypoints", initial.size(), route.size());
+		assertEquals("Not the same stating system", route.get(0), initial.get(0));
+		assertEquals("totalDistance != exptectedDistance", exptectedDistance, totalDistance);
+		assertEquals("totalDistance != LastDistance", totalDistance, portfolio.getLastDistance());
+		assertEquals("Best route not streamed", false, streamed.isEmpty());
+	}
+
 	private void testRoute(final List<String> waypointNames, final RoutingAlgorithm<SolarSystem> ra, final int exptectedDistance) {
 		FakeRoutingTab frd = new FakeRoutingTab(new RoutingMockProgram());
 		frd.buildTestGraph();
@@ -173,6 +208,11 @@ public class TestRouting extends TestUtil {
 		testRoute(getArtisineList(), new BruteForce<>(), 61);
 	}
 
+	@Test
+	public void testArtisinePortfolio() {
+		testRoute(getArtisineList(), 61);
+	}
+
 	@Test
 	public void testArtisineCrossover() {
 		testRoute(getArtisineList(), new Crossover<>(), 61);
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.esi;
+
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.io.esi.EsiGovernor.Limiter;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+public class EsiGovernorTest extends TestUtil {
+
+	@Test
+	public void testErrorHalves() throws InterruptedException {
+		Limiter limiter = new Limiter("test");
+		assertEquals("Initial", Limiter.INITIAL_LIMIT, limiter.getAllowed());
+		limiter.acquire();
+		limiter.release(502, 100, null, null);
+		assertEquals("Halved", Limiter.INITIAL_LIMIT / 2, limiter.getAllowed());
+		limiter.acquire();
+		limiter.release(502, 100, null, null);
+		assertEquals("Only halved once per interval", Limiter.INITIAL_LIMIT / 2, limiter.getAllowed());
+		assertEquals("In flight", 0, limiter.getInFlight());
+	}
+
+	@Test
+	public void testGrow() throws InterruptedException {
+		Limiter limiter = new Limiter("test");
+		int limit = limiter.getAllowed();
+		for (int i = 0; i < limit; i++) {
+			limiter.acquire();
+		}
+		for (int i = 0; i < limit; i++) {
+			limiter.release(200, 100, null, null);
+		}
+		assertEquals("Grown", limit + 1, limiter.getAllowed());
+		assertTrue("Max", limiter.getAllowed() <= Limiter.MAX_LIMIT);
+	}
+
+	@Test
+	public void testNoGrowUnused() throws InterruptedException {
+		Limiter limiter = new Limiter("test");
+		for (int i = 0; i < Limiter.INITIAL_LIMIT * 10; i++) { //One request at the time
+			limiter.acquire();
+			limiter.release(200, 100, null, null);
+		}
+		assertEquals("Not grown", Limiter.INITIAL_LIMIT, limiter.getAllowed());
+	}
+
+	@Test
+	public void testErrorLimit() throws InterruptedException {
+		Limiter limiter = new Limiter("test");
+		limiter.acquire();
+		limiter.release(200, 100, 60, 30);
+		assertEquals("Error limited", (60 - Limiter.ERRORS_RESERVED) / Limiter.ERRORS_PER_REQUEST, limiter.getAllowed());
+		limiter.acquire();
+		limiter.release(404, 100, Limiter.ERRORS_RESERVED, 1);
+		assertEquals("Error window used", 0, limiter.getAllowed());
+		limiter.acquire(); //Wait for the error window to reset
+		limiter.release(200, 100, 100, 60);
+		assertEquals("Error window reset", Limiter.INITIAL_LIMIT, limiter.getAllowed());
+	}
+}
@@ -68,6 +68,10 @@ public class FileLockTest extends TestUtil {
 		profileVersionBackup.delete();
 		profileError.delete();
 		timeout.delete();
+		for (File file : new File[] {settings, profile, timeout}) {
+			new File(file.getAbsolutePath() + ".LOCK").delete();
+		}
+		deleteSettingsSections(settings.getAbsolutePath());
 	}
 
 	private static class LoadSettings extends Thread implements TestThread {
@@ -116,6 +120,20 @@ public class FileLockTest extends TestUtil {
 		FileLock.lock(file);
 	}
 
+	@Test
+	public void lockFileTest() throws IOException {
+		File file = new File(FileLockSettings.getPathTimeout());
+		FileLock.lock(file);
+		assertTrue("File not locked", FileLock.isLocked(file));
+		FileLock.unlock(file);
+		assertFalse("File not unlocked", FileLock.isLocked(file));
+		assertTrue("Lock file deleted", new File(file.getAbsolutePath() + ".LOCK").exists()); //Kept, so the lock is always on the same file
+		FileLock.lock(file);
+		assertTrue("File not locked again", FileLock.isLocked(file));
+		FileLock.unlock(file);
+		assertFalse("File not unlocked again", FileLock.isLocked(file));
+	}
+
 	@Test
 	public void restoreBackupProfileTest() throws IOException {
 		File file = new File (FileLockSettings.getPathProfile());
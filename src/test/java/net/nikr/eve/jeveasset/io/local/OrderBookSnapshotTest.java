@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.gui.tabs.orders.Outbid;
+import net.nikr.eve.jeveasset.io.local.OrderBookSnapshot.TypeBook;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class OrderBookSnapshotTest extends TestUtil {
+
+	private final String filename = "orderbook.dat";
+
+	@After
+	public void tearDown() {
+		new File(filename).delete();
+	}
+
+	@Test
+	public void testSaveLoad() {
+		Map<Integer, TypeBook> books = new HashMap<>();
+		TypeBook book = new TypeBook(42L, new long[] {1L, 2L, 3L}, new long[] {10L, 20L, 30L});
+		Map<Long, Outbid> outbids = new HashMap<>();
+		outbids.put(2L, new Outbid(5.5, 7L));
+		book.setOutbids(outbids);
+		books.put(34, book);
+		books.put(35, new TypeBook(43L, new long[0], new long[0]));
+		assertThat(new OrderBookSnapshot(filename).save(books), equalTo(true));
+
+		OrderBookSnapshot snapshot = new OrderBookSnapshot(filename);
+		assertThat(snapshot.get(36), nullValue());
+		TypeBook loaded = snapshot.get(34);
+		assertThat(loaded.getSignature(), equalTo(42L));
+		assertThat(loaded.size(), equalTo(3));
+		for (int i = 0; i < 3; i++) {
+			assertThat(loaded.getOrderID(i), equalTo(book.getOrderID(i)));
+			assertThat(loaded.getHash(i), equalTo(book.getHash(i)));
+		}
+		assertThat(loaded.getOutbids().size(), equalTo(1));
+		assertThat(loaded.getOutbids().get(2L).getPrice(), equalTo(5.5));
+		assertThat(loaded.getOutbids().get(2L).getCount(), equalTo(7L));
+		assertThat(snapshot.get(35).size(), equalTo(0));
+		//Types not in the new books are removed
+		books.remove(35);
+		assertThat(snapshot.save(books), equalTo(true));
+		assertThat(new OrderBookSnapshot(filename).get(35), nullValue());
+	}
+}
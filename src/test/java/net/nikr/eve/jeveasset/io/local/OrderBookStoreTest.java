@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.data.api.raw.RawMarketOrder.MarketOrderRange;
+import net.nikr.eve.jeveasset.data.api.raw.RawPublicMarketOrder;
+import net.nikr.eve.jeveasset.io.local.OrderBookStore.OrderBook;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class OrderBookStoreTest extends TestUtil {
+
+	private final String directory = "orderbooks";
+
+	@After
+	public void tearDown() {
+		File[] files = new File(directory).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		new File(directory).delete();
+	}
+
+	@Test
+	public void testSaveLoad() {
+		String key = OrderBookStore.getRegionKey(10000002);
+		Date date = new Date(1552492124000L);
+		Date expires = new Date(System.currentTimeMillis() + 60000);
+		OrderBookStore store = new OrderBookStore(directory);
+		OrderBookStore.Writer writer = store.create(key);
+		RawPublicMarketOrder first = create(1L, 35, 10.5, MarketOrderRange.REGION, true);
+		RawPublicMarketOrder second = create(2L, 34, 11.5, MarketOrderRange._5, false);
+		RawPublicMarketOrder third = new RawPublicMarketOrder(3L, 35, 12.5, null, 60003760L, null, null, null, null, null, null, null);
+		writer.add(first);
+		writer.add(second);
+		writer.add(third);
+		assertThat(writer.commit(date, expires), notNullValue());
+		test(store.getBook(key), date, expires, first, second, third);
+		//Reload from disk
+		test(new OrderBookStore(directory).getBook(key), date, expires, first, second, third);
+		//Discard keeps the current book
+		OrderBookStore.Writer discarded = store.create(key);
+		discarded.add(create(4L, 36, 1.0, MarketOrderRange.STATION, true));
+		discarded.discard();
+		test(store.getBook(key), date, expires, first, second, third);
+		//Commit replaces the current book
+		OrderBookStore.Writer replaced = store.create(key);
+		replaced.add(second);
+		assertThat(replaced.commit(date, expires), notNullValue());
+		assertThat(store.getBook(key).size(), equalTo(1));
+		assertThat(new OrderBookStore(directory).getBook(key).size(), equalTo(1));
+	}
+
+	@Test
+	public void testExpired() {
+		String key = OrderBookStore.getStructureKey(1000000000001L);
+		OrderBookStore store = new OrderBookStore(directory);
+		OrderBookStore.Writer writer = store.create(key);
+		writer.add(create(1L, 35, 10.5, MarketOrderRange.STATION, false));
+		assertThat(writer.commit(new Date(), new Date(System.currentTimeMillis() - 1000)), notNullValue());
+		//Expired books are kept, but not used
+		assertThat(store.getBook(key).isExpired(), equalTo(true));
+		assertThat(store.getBooks().size(), equalTo(0));
+		OrderBook loaded = new OrderBookStore(directory).getBook(key);
+		assertThat(loaded, notNullValue());
+		assertThat(loaded.isExpired(), equalTo(true));
+		assertThat(loaded.size(), equalTo(1));
+	}
+
+	@Test
+	public void testEvict() {
+		String key = OrderBookStore.getStructureKey(1000000000002L);
+		OrderBookStore store = new OrderBookStore(directory);
+		OrderBookStore.Writer writer = store.create(key);
+		writer.add(create(1L, 35, 10.5, MarketOrderRange.STATION, false));
+		Date expires = new Date(System.currentTimeMillis() - 2 * 24 * 60 * 60 * 1000L);
+		assertThat(writer.commit(expires, expires), notNullValue());
+		//Not refreshed for too long: Deleted
+		assertThat(store.getBook(key), nullValue());
+		assertThat(new OrderBookStore(directory).getBook(key), nullValue());
+		assertThat(new File(directory).listFiles().length, equalTo(0));
+	}
+
+	private RawPublicMarketOrder create(long orderID, int typeID, double price, MarketOrderRange range, boolean buy) {
+		return new RawPublicMarketOrder(orderID, typeID, price, new Date(1552492124589L + orderID), 60003760L, 30000142, 5, 10, 1, 90, range, buy);
+	}
+
+	private void test(OrderBook book, Date date, Date expires, RawPublicMarketOrder first, RawPublicMarketOrder second, RawPublicMarketOrder third) {
+		assertThat(book, notNullValue());
+		assertThat(book.size(), equalTo(3));
+		assertThat(book.getDate(), equalTo(date));
+		assertThat(book.getExpires(), equalTo(expires));
+		assertThat(book.contains(36), equalTo(false));
+		assertThat(book.get(36).size(), equalTo(0));
+		List<RawPublicMarketOrder> type34 = book.get(34);
+		assertThat(type34.size(), equalTo(1));
+		test(second, type34.get(0));
+		List<RawPublicMarketOrder> type35 = book.get(35);
+		assertThat(type35.size(), equalTo(2));
+		test(first, type35.get(0));
+		test(third, type35.get(1));
+	}
+
+	private void test(RawPublicMarketOrder out, RawPublicMarketOrder in) {
+		assertThat(in.getOrderID(), equalTo(out.getOrderID()));
+		assertThat(in.getTypeID(), equalTo(out.getTypeID()));
+		assertThat(in.getPrice(), equalTo(out.getPrice()));
+		assertThat(in.getIssued(), equalTo(out.getIssued()));
+		assertThat(in.getLocationID(), equalTo(out.getLocationID()));
+		assertThat(in.getSystemID(), equalTo(out.getSystemID()));
+		assertThat(in.getVolumeRemain(), equalTo(out.getVolumeRemain()));
+		assertThat(in.getVolumeTotal(), equalTo(out.getVolumeTotal()));
+		assertThat(in.getMinVolume(), equalTo(out.getMinVolume()));
+		assertThat(in.getDuration(), equalTo(out.getDuration()));
+		assertThat(in.getRange(), equalTo(out.getRange()));
+		assertThat(in.getRangeString(), equalTo(out.getRangeString()));
+		assertThat(in.isBuyOrder(), equalTo(out.isBuyOrder()));
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.data.settings.PriceData;
+import net.nikr.eve.jeveasset.data.settings.PriceDataSettings.PriceMode;
+import net.nikr.eve.jeveasset.data.settings.PriceHistorySeries;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class PriceStoreTest extends TestUtil {
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	private static final long START = 1552435200000L; //2019-03-13 00:00 GMT
+
+	private final String filename = "prices.dat";
+
+	@After
+	public void tearDown() {
+		new File(filename).delete();
+	}
+
+	@Test
+	public void testSaveLoad() {
+		PriceStore store = new PriceStore(filename);
+		Map<Integer, PriceData> out = new HashMap<>();
+		out.put(34, create(1));
+		out.put(35, create(2));
+		out.put(20, create(3));
+		store.setPrices(out);
+		assertThat(store.save(new Date(START)), equalTo(true));
+		test(out, store);
+		assertThat(store.get(36), nullValue());
+		//Reload from disk
+		PriceStore loaded = new PriceStore(filename);
+		loaded.load();
+		test(out, loaded);
+	}
+
+	@Test
+	public void testPutAll() {
+		PriceStore store = new PriceStore(filename);
+		Map<Integer, PriceData> out = new HashMap<>();
+		out.put(34, create(1));
+		out.put(36, create(2));
+		store.setPrices(out);
+		Map<Integer, PriceData> update = new HashMap<>();
+		update.put(20, create(3));
+		update.put(35, create(4));
+		update.put(36, create(5));
+		update.put(40, create(6));
+		store.putAll(update);
+		out.putAll(update);
+		test(out, store);
+	}
+
+	@Test
+	public void testHistory() {
+		PriceStore store = new PriceStore(filename);
+		store.setPrices(Collections.singletonMap(34, create(1)));
+		assertThat(store.save(new Date(START)), equalTo(true));
+		store.putAll(Collections.singletonMap(35, create(2)));
+		assertThat(store.save(new Date(START + DAY)), equalTo(true));
+		//Same day: Replaced
+		store.putAll(Collections.singletonMap(34, create(3)));
+		assertThat(store.save(new Date(START + DAY + 1000)), equalTo(true));
+		//Older day: Not saved
+		assertThat(store.save(new Date(START)), equalTo(false));
+
+		PriceStore loaded = new PriceStore(filename);
+		loaded.load();
+		assertThat(loaded.get(34).getSellMax(), equalTo(create(3).getSellMax()));
+		Set<Integer> typeIDs = new HashSet<>();
+		typeIDs.add(34);
+		typeIDs.add(35);
+		typeIDs.add(36);
+		Map<Integer, PriceHistorySeries> history = loaded.getHistory(typeIDs, null, null, PriceMode.PRICE_SELL_MAX);
+		test(history.get(34), create(1), create(3));
+		test(history.get(35), create(2));
+		test(history.get(36));
+		//Range
+		history = loaded.getHistory(typeIDs, new Date(START + DAY), null, PriceMode.PRICE_SELL_MAX);
+		test(history.get(34), create(3));
+		history = loaded.getHistory(typeIDs, null, new Date(START), PriceMode.PRICE_SELL_MAX);
+		test(history.get(34), create(1));
+		test(history.get(35));
+	}
+
+	@Test
+	public void testGetPrice() {
+		PriceStore store = new PriceStore(filename);
+		Map<Integer, PriceData> out = new HashMap<>();
+		out.put(34, create(1));
+		out.put(35, new PriceData());
+		store.setPrices(out);
+		for (PriceMode priceMode : PriceMode.values()) {
+			assertThat(store.getPrice(34, priceMode), equalTo(PriceMode.getDefaultPrice(create(1), priceMode)));
+			assertThat(store.getPrice(35, priceMode), equalTo(0.0));
+			assertThat(store.getPrice(36, priceMode), equalTo(0.0));
+		}
+		//History uses the same price modes
+		assertThat(store.save(new Date(START)), equalTo(true));
+		for (PriceMode priceMode : PriceMode.values()) {
+			PriceHistorySeries series = store.getHistory(Collections.singleton(34), null, null, priceMode).get(34);
+			assertThat(series.size(), equalTo(1));
+			assertThat(series.getPrice(0), equalTo(PriceMode.getDefaultPrice(create(1), priceMode)));
+		}
+	}
+
+	@Test
+	public void testCompact() {
+		final int days = 500;
+		PriceStore store = new PriceStore(filename);
+		Map<Integer, PriceData> out = new HashMap<>();
+		out.put(20, create(0));
+		for (int i = 0; i < days; i++) {
+			out.put(34, create(i));
+			store.setPrices(out);
+			assertThat(store.save(new Date(START + i * DAY)), equalTo(true));
+		}
+		Set<Integer> typeIDs = new HashSet<>();
+		typeIDs.add(20);
+		typeIDs.add(34);
+		Map<Integer, PriceHistorySeries> history = store.getHistory(typeIDs, null, null, PriceMode.PRICE_SELL_MAX);
+		PriceHistorySeries series = history.get(34);
+		//Daily for 30 days, weekly for a year, then monthly (+ the snapshots not compacted yet)
+		assertThat(series.size() < 30 + 53 + 5 + 30, equalTo(true));
+		assertThat(history.get(20).size(), equalTo(series.size()));
+		assertThat(new File(filename + ".tmp").exists(), equalTo(false));
+		//The last 30 days are all kept
+		for (int i = 0; i < 30; i++) {
+			int index = series.size() - 30 + i;
+			int day = days - 30 + i;
+			assertThat(series.getDate(index), equalTo(START + day * DAY));
+			assertThat(series.getPrice(index), equalTo(create(day).getSellMax()));
+		}
+		//The first snapshot is kept
+		assertThat(series.getDate(0), equalTo(START));
+		//Reload from disk
+		PriceStore loaded = new PriceStore(filename);
+		loaded.load();
+		assertThat(loaded.get(34).getSellMax(), equalTo(create(days - 1).getSellMax()));
+		PriceHistorySeries reloaded = loaded.getHistory(typeIDs, null, null, PriceMode.PRICE_SELL_MAX).get(34);
+		assertThat(reloaded.size(), equalTo(series.size()));
+		for (int i = 0; i < series.size(); i++) {
+			assertThat(reloaded.getDate(i), equalTo(series.getDate(i)));
+			assertThat(reloaded.getPrice(i), equalTo(series.getPrice(i)));
+		}
+		//Saving continues after the compacted snapshots
+		assertThat(loaded.save(new Date(START + days * DAY)), equalTo(true));
+		reloaded = loaded.getHistory(typeIDs, null, null, PriceMode.PRICE_SELL_MAX).get(34);
+		assertThat(reloaded.getDate(reloaded.size() - 1), equalTo(START + days * DAY));
+	}
+
+	@Test
+	public void testImport() {
+		final int days = 500;
+		long start = (System.currentTimeMillis() / DAY - days) * DAY;
+		PriceStore store = new PriceStore(filename);
+		//Saved snapshot: Kept, imported days from here are ignored
+		store.setPrices(Collections.singletonMap(34, create(days)));
+		assertThat(store.save(new Date(start + (days - 10) * DAY)), equalTo(true));
+		PriceStore.Importer importer = store.importer();
+		importer.add(new Date(start), Collections.singletonMap(20, create(0)));
+		for (int i = 0; i < days; i++) {
+			importer.add(new Date(start + i * DAY), Collections.singletonMap(34, create(i)));
+		}
+		//Nothing saved until committed
+		assertThat(new PriceStore(filename).getHistory(Collections.singleton(34), null, null, PriceMode.PRICE_SELL_MAX).get(34).size(), equalTo(1));
+		assertThat(importer.commit(), equalTo(true));
+		assertThat(new File(filename + ".import").exists(), equalTo(false));
+		assertThat(store.get(34).getSellMax(), equalTo(create(days).getSellMax()));
+		PriceHistorySeries series = store.getHistory(Collections.singleton(34), null, null, PriceMode.PRICE_SELL_MAX).get(34);
+		//Compacted: Daily for 30 days, weekly for a year, then monthly
+		assertThat(series.size() < 30 + 53 + 5, equalTo(true));
+		assertThat(series.getDate(0), equalTo(start));
+		assertThat(series.getPrice(0), equalTo(create(0).getSellMax()));
+		//The last imported day, followed by the saved snapshot
+		assertThat(series.getDate(series.size() - 2), equalTo(start + (days - 11) * DAY));
+		assertThat(series.getPrice(series.size() - 2), equalTo(create(days - 11).getSellMax()));
+		assertThat(series.getDate(series.size() - 1), equalTo(start + (days - 10) * DAY));
+		//Each imported snapshot has all the prices up to that day
+		assertThat(store.getHistory(Collections.singleton(20), null, null, PriceMode.PRICE_SELL_MAX).get(20).size(), equalTo(series.size() - 1));
+		//Reload from disk
+		PriceStore loaded = new PriceStore(filename);
+		loaded.load();
+		assertThat(loaded.get(34).getSellMax(), equalTo(create(days).getSellMax()));
+		assertThat(loaded.getHistory(Collections.singleton(34), null, null, PriceMode.PRICE_SELL_MAX).get(34).size(), equalTo(series.size()));
+	}
+
+	private PriceData create(int i) {
+		PriceData priceData = new PriceData();
+		priceData.setSellMax(i + 0.1);
+		priceData.setSellAvg(i + 0.2);
+		priceData.setSellMedian(i + 0.3);
+		priceData.setSellPercentile(i + 0.4);
+		priceData.setSellMin(i + 0.5);
+		priceData.setBuyMax(i + 0.6);
+		priceData.setBuyAvg(i + 0.7);
+		priceData.setBuyMedian(i + 0.8);
+		priceData.setBuyPercentile(i + 0.9);
+		priceData.setBuyMin(i + 1.0);
+		return priceData;
+	}
+
+	private void test(Map<Integer, PriceData> out, PriceStore in) {
+		assertThat(in.size(), equalTo(out.size()));
+		assertThat(in.getAll().keySet(), equalTo(out.keySet()));
+		for (Map.Entry<Integer, PriceData> entry : out.entrySet()) {
+			test(entry.getValue(), in.get(entry.getKey()));
+		}
+	}
+
+	private void test(PriceData out, PriceData in) {
+		assertThat(in.getSellMax(), equalTo(out.getSellMax()));
+		assertThat(in.getSellAvg(), equalTo(out.getSellAvg()));
+		assertThat(in.getSellMedian(), equalTo(out.getSellMedian()));
+		assertThat(in.getSellPercentile(), equalTo(out.getSellPercentile()));
+		assertThat(in.getSellMin(), equalTo(out.getSellMin()));
+		assertThat(in.getBuyMax(), equalTo(out.getBuyMax()));
+		assertThat(in.getBuyAvg(), equalTo(out.getBuyAvg()));
+		assertThat(in.getBuyMedian(), equalTo(out.getBuyMedian()));
+		assertThat(in.getBuyPercentile(), equalTo(out.getBuyPercentile()));
+		assertThat(in.getBuyMin(), equalTo(out.getBuyMin()));
+	}
+
+	private void test(PriceHistorySeries series, PriceData ... prices) {
+		assertThat(series.size(), equalTo(prices.length));
+		for (int i = 0; i < prices.length; i++) {
+			assertThat(series.getPrice(i), equalTo(prices[i].getSellMax()));
+		}
+	}
+}
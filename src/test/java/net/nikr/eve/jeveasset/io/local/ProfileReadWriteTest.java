@@ -21,6 +21,7 @@
 package net.nikr.eve.jeveasset.io.local;
 
 import java.io.File;
+import java.util.Set;
 import net.nikr.eve.jeveasset.Program;
 import net.nikr.eve.jeveasset.TestUtil;
 import net.nikr.eve.jeveasset.data.api.accounts.EsiOwner;
@@ -46,15 +47,20 @@ public class ProfileReadWriteTest extends TestUtil {
 
 	@Test
 	public void testNotNull() {
-		test(false);
+		test(false, false);
 	}
 
 	@Test
 	public void testNull() {
-		test(true);
+		test(true, false);
 	}
 
-	private void test(boolean setNull) {
+	@Test
+	public void testSharded() {
+		test(false, true);
+	}
+
+	private void test(boolean setNull, boolean sharded) {
 		AddedData.load();
 		for (ConverterTestOptions options : ConverterTestOptionsGetter.getConverterOptions()) {
 			Profile saveProfile = new DefaultProfile();
@@ -68,7 +74,24 @@ public class ProfileReadWriteTest extends TestUtil {
 			saveProfile.getEveKitOwners().add(ConverterTestUtil.getEveKitOwner(true, setNull, false, options));
 
 			//Write
-			ProfileWriter.save(saveProfile, FILENAME);
+			assertTrue(ProfileWriter.save(saveProfile, FILENAME, sharded));
+			File shardDirectory = ProfileWriter.getShardDirectory(FILENAME);
+			if (sharded) {
+				//Unchanged shards are not saved again
+				File[] shards = shardDirectory.listFiles();
+				assertTrue(shards != null && shards.length > 0);
+				long[] lastModified = new long[shards.length];
+				for (int i = 0; i < shards.length; i++) {
+					lastModified[i] = shards[i].lastModified();
+				}
+				assertTrue(ProfileWriter.save(saveProfile, FILENAME, sharded));
+				assertEquals(shards.length, shardDirectory.listFiles().length);
+				for (int i = 0; i < shards.length; i++) {
+					assertEquals(lastModified[i], shards[i].lastModified());
+				}
+			} else {
+				assertTrue(!shardDirectory.exists());
+			}
 
 			//Read
 			ProfileManager loadProfile = new ProfileManager();
@@ -94,9 +117,32 @@ public class ProfileReadWriteTest extends TestUtil {
 			EveKitOwner eveKitOwner = loadProfile.getEveKitOwners().get(0);
 			ConverterTestUtil.testOwner(eveKitOwner, setNull, options);
 
+			if (sharded) {
+				//Loaded owners are not built again, until the owner data is changed
+				ProfileManager reloadProfile = new ProfileManager();
+				ProfileReader.load(reloadProfile.getActiveProfile(), FILENAME);
+				Set<String> loaded = ProfileReader.getShards(new File(FILENAME));
+				EsiOwner reloadOwner = reloadProfile.getEsiOwners().get(0);
+				reloadOwner.getWalletDivisions().put(99, "Changed in place");
+				assertTrue(ProfileWriter.save(reloadProfile.getActiveProfile(), FILENAME, sharded));
+				assertEquals(loaded, ProfileReader.getShards(new File(FILENAME)));
+				reloadOwner.setDataChanged();
+				assertTrue(ProfileWriter.save(reloadProfile.getActiveProfile(), FILENAME, sharded));
+				assertTrue(!loaded.equals(ProfileReader.getShards(new File(FILENAME))));
+			}
+
 			//Clean up
 			File file = new File(FILENAME);
 			assertTrue(file.delete());
+			File bacFile = new File(FILENAME.substring(0, FILENAME.lastIndexOf(".")) + ".bac");
+			bacFile.delete();
+			File[] shards = shardDirectory.listFiles();
+			if (shards != null) {
+				for (File shard : shards) {
+					assertTrue(shard.delete());
+				}
+				assertTrue(shardDirectory.delete());
+			}
 
 			File backupFile = new File(FILENAME.substring(0, FILENAME.lastIndexOf(".")) + "_" + Program.PROGRAM_VERSION.replace(" ", "_") + "_backup.zip");
 			assertTrue(backupFile.delete());
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.io.local.SaveScheduler.SaveTarget;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.Test;
+
+
+public class SaveSchedulerTest extends TestUtil {
+
+	@Test
+	public void testCoalesce() {
+		SaveScheduler scheduler = SaveScheduler.get();
+		scheduler.waitFor(SaveTarget.SETTINGS);
+		long saved = scheduler.getSaved(SaveTarget.SETTINGS);
+		long collapsed = scheduler.getCollapsed(SaveTarget.SETTINGS);
+		final AtomicInteger count = new AtomicInteger();
+		SaveScheduler.Saver saver = new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				count.incrementAndGet();
+			}
+		};
+		for (int i = 0; i < 5; i++) {
+			scheduler.save(SaveTarget.SETTINGS, "test", saver); //Within the delay: One save
+		}
+		scheduler.waitFor(SaveTarget.SETTINGS);
+		assertThat(count.get(), equalTo(1));
+		assertThat(scheduler.getSaved(SaveTarget.SETTINGS), equalTo(saved + 1));
+		assertThat(scheduler.getCollapsed(SaveTarget.SETTINGS), equalTo(collapsed + 4));
+	}
+
+	@Test
+	public void testOrder() {
+		SaveScheduler scheduler = SaveScheduler.get();
+		final List<String> saves = Collections.synchronizedList(new ArrayList<String>());
+		for (int i = 0; i < 10; i++) {
+			scheduler.save(SaveTarget.PROFILE, String.valueOf(i), new SaveScheduler.Saver() {
+				@Override
+				public void save(String msg) {
+					saves.add(msg);
+				}
+			});
+		}
+		scheduler.saveAndWait(SaveTarget.PROFILE, "last", new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				saves.add(msg);
+			}
+		});
+		//Saves are done in request order, and the latest request is always saved
+		int last = -1;
+		for (String msg : saves.subList(0, saves.size() - 1)) {
+			int value = Integer.parseInt(msg);
+			assertThat(value > last, equalTo(true));
+			last = value;
+		}
+		assertThat(saves.get(saves.size() - 1), equalTo("last"));
+	}
+
+	@Test
+	public void testFlush() {
+		SaveScheduler scheduler = SaveScheduler.get();
+		final AtomicInteger count = new AtomicInteger();
+		SaveScheduler.Saver saver = new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				count.incrementAndGet();
+			}
+		};
+		scheduler.save(SaveTarget.SETTINGS, "test", saver);
+		scheduler.save(SaveTarget.TRACKER, "test", saver);
+		scheduler.flush(); //Does not wait for the delay
+		assertThat(count.get(), equalTo(2));
+	}
+
+	@Test
+	public void testError() {
+		SaveScheduler scheduler = SaveScheduler.get();
+		scheduler.saveAndWait(SaveTarget.PROFILE, "error", new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				throw new AssertionError("Test error");
+			}
+		});
+		//The save thread must still be running
+		final AtomicInteger count = new AtomicInteger();
+		scheduler.saveAndWait(SaveTarget.PROFILE, "test", new SaveScheduler.Saver() {
+			@Override
+			public void save(String msg) {
+				count.incrementAndGet();
+			}
+		});
+		assertThat(count.get(), equalTo(1));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import ch.qos.logback.classic.Level;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import net.nikr.eve.jeveasset.Program;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.data.settings.Settings;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsFactory;
+import net.nikr.eve.jeveasset.data.settings.Settings.SettingsSection;
+import net.nikr.eve.jeveasset.gui.dialogs.settings.UserPriceSettingsPanel.UserPrice;
+import net.nikr.eve.jeveasset.gui.tabs.stockpile.Stockpile;
+import net.nikr.eve.jeveasset.gui.tabs.stockpile.Stockpile.StockpileFilter;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class SettingsSectionTest extends TestUtil {
+
+	private static final String FILENAME = "settings_sections_test.xml";
+	private static final long OLD = 1000000000000L;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		setLoggingLevel(Level.OFF);
+	}
+
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		setLoggingLevel(Level.INFO);
+	}
+
+	@After
+	public void tearDown() {
+		String filename = new File(FILENAME).getAbsolutePath();
+		String name = filename.substring(0, filename.lastIndexOf("."));
+		new File(filename).delete();
+		new File(name + ".bac").delete();
+		new File(name + "_" + Program.PROGRAM_VERSION.replace(" ", "_") + "_backup.zip").delete();
+		deleteSettingsSections(filename);
+	}
+
+	@Test
+	public void testSections() {
+		SectionSettings settings = new SectionSettings();
+		settings.getStockpiles().add(new Stockpile("Stockpile", null, new ArrayList<StockpileFilter>(), 1, false));
+		settings.getUserPrices().put(34, new UserPrice(1.0, 34, "Tritanium"));
+		assertThat(SettingsWriter.save(settings, FILENAME), equalTo(true));
+		for (SettingsSection section : SettingsSection.values()) {
+			File file = new File(section.getFilename(FILENAME));
+			assertThat(section.name() + " not saved", file.exists(), equalTo(true));
+			file.setLastModified(OLD);
+		}
+
+		//Reload
+		Settings loaded = SettingsReader.load(settings, FILENAME);
+		assertThat(loaded.isSettingsLoadError(), equalTo(false));
+		assertThat(loaded.getStockpiles().size(), equalTo(1));
+		assertThat(loaded.getUserPrices().get(34).getValue(), equalTo(1.0));
+
+		//Change one section: Only that section file is saved
+		loaded.getUserPrices().put(35, new UserPrice(2.0, 35, "Pyerite"));
+		assertThat(SettingsWriter.save(loaded, FILENAME), equalTo(true));
+		for (SettingsSection section : SettingsSection.values()) {
+			boolean saved = new File(section.getFilename(FILENAME)).lastModified() != OLD;
+			assertThat(section.name() + " saved", saved, equalTo(section == SettingsSection.USER_PRICES));
+		}
+
+		//Reload changes
+		Settings reloaded = SettingsReader.load(settings, FILENAME);
+		assertThat(reloaded.getUserPrices().size(), equalTo(2));
+		assertThat(reloaded.getStockpiles().size(), equalTo(1));
+
+		//Stockpile import reads the section file
+		List<Stockpile> stockpiles = SettingsReader.loadStockpile(FILENAME);
+		assertThat(stockpiles.size(), equalTo(1));
+		assertThat(stockpiles.get(0).getName(), equalTo("Stockpile"));
+	}
+
+	private static class SectionSettings extends Settings implements SettingsFactory {
+
+		public SectionSettings() {
+			super();
+		}
+
+		@Override
+		public Settings create() {
+			return new SectionSettings();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.data.sde.Item;
+import net.nikr.eve.jeveasset.data.sde.ItemFlag;
+import net.nikr.eve.jeveasset.data.sde.Jump;
+import net.nikr.eve.jeveasset.data.sde.MyLocation;
+import net.nikr.eve.jeveasset.data.sde.StaticData;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.Test;
+
+
+public class StaticDataCacheTest extends TestUtil {
+
+	private final String filename = "staticdata.cache";
+
+	@Test
+	public void testWriteRead() {
+		StaticData staticData = StaticData.get();
+		Map<Long, MyLocation> locations = new HashMap<>();
+		for (MyLocation location : staticData.getLocations()) {
+			locations.put(location.getLocationID(), location);
+		}
+		assertThat(StaticDataCacheWriter.save(filename, "checksum", staticData.getItems(), locations, staticData.getJumps(), staticData.getItemFlags()), equalTo(true));
+
+		Map<Integer, Item> items = new HashMap<>();
+		Map<Long, MyLocation> locationsIn = new HashMap<>();
+		List<Jump> jumps = new ArrayList<>();
+		Map<Integer, ItemFlag> flags = new HashMap<>();
+		//Outdated
+		assertThat(StaticDataCacheReader.load(filename, "outdated", items, locationsIn, jumps, flags), equalTo(false));
+		assertThat(items.isEmpty(), equalTo(true));
+		assertThat(locationsIn.isEmpty(), equalTo(true));
+		//Valid
+		assertThat(StaticDataCacheReader.load(filename, "checksum", items, locationsIn, jumps, flags), equalTo(true));
+		new File(filename).delete();
+
+		assertThat(items.keySet(), equalTo(staticData.getItems().keySet()));
+		for (Item out : staticData.getItems().values()) {
+			Item in = items.get(out.getTypeID());
+			assertThat(in.getTypeName(), equalTo(out.getTypeName()));
+			assertThat(in.getGroup(), equalTo(out.getGroup()));
+			assertThat(in.getCategory(), equalTo(out.getCategory()));
+			assertThat(in.getVersion(), equalTo(out.getVersion()));
+			assertThat(in.getPriceBase(), equalTo(out.getPriceBase()));
+			assertThat(in.getVolume(), equalTo(out.getVolume()));
+			assertThat(in.getVolumePackaged(), equalTo(out.getVolumePackaged()));
+			assertThat(in.getBlueprintTypeID(), equalTo(out.getBlueprintTypeID()));
+			assertThat(in.getSlot(), equalTo(out.getSlot()));
+			assertThat(in.getChargeSize(), equalTo(out.getChargeSize()));
+			assertThat(in.getReprocessedMaterial().size(), equalTo(out.getReprocessedMaterial().size()));
+			assertThat(in.getManufacturingMaterials().size(), equalTo(out.getManufacturingMaterials().size()));
+			assertThat(in.getReactionMaterials().size(), equalTo(out.getReactionMaterials().size()));
+		}
+		assertThat(locationsIn.keySet(), equalTo(locations.keySet()));
+		for (MyLocation out : locations.values()) {
+			MyLocation in = locationsIn.get(out.getLocationID());
+			assertThat(in.getLocation(), equalTo(out.getLocation()));
+			assertThat(in.getSystemID(), equalTo(out.getSystemID()));
+			assertThat(in.getRegionID(), equalTo(out.getRegionID()));
+			assertThat(in.getSecurity(), equalTo(out.getSecurity()));
+		}
+		assertThat(jumps.size(), equalTo(staticData.getJumps().size()));
+		for (int i = 0; i < jumps.size(); i++) {
+			assertThat(jumps.get(i).getFrom(), equalTo(staticData.getJumps().get(i).getFrom()));
+			assertThat(jumps.get(i).getTo(), equalTo(staticData.getJumps().get(i).getTo()));
+		}
+		assertThat(flags.keySet(), equalTo(staticData.getItemFlags().keySet()));
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.local;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.gui.tabs.values.AssetValue;
+import net.nikr.eve.jeveasset.gui.tabs.values.Value;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class TrackerDataStoreTest extends TestUtil {
+
+	private final String directory = "tracker";
+
+	@After
+	public void tearDown() {
+		File[] files = new File(directory).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		new File(directory).delete();
+	}
+
+	@Test
+	public void testSaveLoad() {
+		Map<String, List<Value>> out = new HashMap<>();
+		out.put("owner", createValues(0, 10));
+		out.put("other", createValues(5, 3));
+		TrackerDataStore store = new TrackerDataStore(directory);
+		assertThat(store.exists(), equalTo(false));
+		assertThat(store.save(out), equalTo(true));
+		assertThat(store.exists(), equalTo(true));
+		test(out, new TrackerDataStore(directory).load());
+	}
+
+	@Test
+	public void testAppend() {
+		Map<String, List<Value>> out = new HashMap<>();
+		out.put("owner", createValues(0, 10));
+		TrackerDataStore store = new TrackerDataStore(directory);
+		assertThat(store.save(out), equalTo(true));
+		//Append
+		Map<String, List<Value>> appended = new HashMap<>();
+		appended.put("owner", createValues(10, 2));
+		appended.put("new", createValues(0, 1));
+		assertThat(store.append(appended), equalTo(true));
+		out.get("owner").addAll(appended.get("owner"));
+		out.put("new", appended.get("new"));
+		test(out, new TrackerDataStore(directory).load());
+		//Rewrite (appended values must not be loaded twice)
+		out.get("owner").remove(0);
+		assertThat(store.write(out, Collections.singleton("owner")), equalTo(true));
+		test(out, new TrackerDataStore(directory).load());
+		//Remove owner
+		out.remove("new");
+		assertThat(store.write(out, Collections.singleton("new")), equalTo(true));
+		test(out, new TrackerDataStore(directory).load());
+		//Compact
+		assertThat(store.compact(out), equalTo(true));
+		test(out, new TrackerDataStore(directory).load());
+	}
+
+	@Test
+	public void testRange() {
+		Map<String, List<Value>> out = new HashMap<>();
+		out.put("owner", createValues(0, 10));
+		TrackerDataStore store = new TrackerDataStore(directory);
+		assertThat(store.save(out), equalTo(true));
+		Map<String, List<Value>> appended = new HashMap<>();
+		appended.put("owner", createValues(10, 5));
+		assertThat(store.append(appended), equalTo(true));
+		out.get("owner").addAll(appended.get("owner"));
+		List<Value> values = out.get("owner");
+		test(values.subList(3, 13), store.load("owner", values.get(3).getDate(), values.get(12).getDate()));
+		test(values.subList(0, 2), store.load("owner", null, values.get(1).getDate()));
+		test(values.subList(14, 15), store.load("owner", values.get(14).getDate(), null));
+		test(values, store.load("owner", null, null));
+		test(new ArrayList<Value>(), store.load("unknown", null, null));
+	}
+
+	private List<Value> createValues(int start, int count) {
+		List<Value> values = new ArrayList<>();
+		for (int i = start; i < start + count; i++) {
+			Value value = new Value(new Date(1552492124589L + i * 3600000L));
+			value.setContractCollateral(i + 3);
+			value.setContractValue(i + 4);
+			value.setEscrows(i + 5);
+			value.setEscrowsToCover(i + 6);
+			value.setManufacturing(i + 7);
+			value.setSellOrders(i + 8);
+			if (i % 2 == 0) {
+				value.addAssets(AssetValue.create("location", "flag", 1000L), i + 9.0);
+				value.addAssets(AssetValue.create("location", null, null), i + 1.0);
+				value.addBalance("balance-id", i + 10);
+			} else {
+				value.setAssetsTotal(i + 9);
+				value.setBalanceTotal(i + 10);
+			}
+			value.setSkillPoints(i + 11);
+			values.add(value);
+		}
+		return values;
+	}
+
+	private void test(Map<String, List<Value>> out, Map<String, List<Value>> in) {
+		assertThat(in.keySet(), equalTo(out.keySet()));
+		for (String key : in.keySet()) {
+			test(out.get(key), in.get(key));
+		}
+	}
+
+	private void test(List<Value> out, List<Value> in) {
+		assertThat(in.size(), equalTo(out.size()));
+		for (int i = 0; i < in.size(); i++) {
+			Value outValue = out.get(i);
+			Value inValue = in.get(i);
+			assertThat(inValue.getDate(), equalTo(outValue.getDate()));
+			assertThat(inValue.getAssetsFilter(), equalTo(outValue.getAssetsFilter()));
+			assertThat(inValue.getAssetsTotal(), equalTo(outValue.getAssetsTotal()));
+			assertThat(inValue.getBalanceFilter(), equalTo(outValue.getBalanceFilter()));
+			assertThat(inValue.getBalanceTotal(), equalTo(outValue.getBalanceTotal()));
+			assertThat(inValue.getContractCollateral(), equalTo(outValue.getContractCollateral()));
+			assertThat(inValue.getContractValue(), equalTo(outValue.getContractValue()));
+			assertThat(inValue.getEscrows(), equalTo(outValue.getEscrows()));
+			assertThat(inValue.getEscrowsToCover(), equalTo(outValue.getEscrowsToCover()));
+			assertThat(inValue.getManufacturing(), equalTo(outValue.getManufacturing()));
+			assertThat(inValue.getSellOrders(), equalTo(outValue.getSellOrders()));
+			assertThat(inValue.getSkillPoints(), equalTo(outValue.getSkillPoints()));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package net.nikr.eve.jeveasset.io.online;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.nikr.eve.jeveasset.TestUtil;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.Test;
+
+
+public class PriceRefreshPlannerTest extends TestUtil {
+
+	private static final long NOW = 1552492124589L;
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	@Test
+	public void testOrder() {
+		Set<Integer> typeIDs = new HashSet<>(Arrays.asList(1, 2, 3, 4, 5));
+		Map<Integer, Double> values = new HashMap<>();
+		values.put(1, 1000.0);
+		values.put(2, 1000.0);
+		values.put(3, 10.0);
+		//4: No value
+		values.put(5, 1000000.0);
+		Map<Integer, Long> lastUpdates = new HashMap<>();
+		lastUpdates.put(1, NOW - HOUR); //Stale
+		lastUpdates.put(2, NOW - 10 * HOUR); //Very stale
+		lastUpdates.put(3, NOW - 10 * HOUR);
+		lastUpdates.put(4, NOW - 10 * HOUR);
+		//5: No price data
+		PriceRefreshPlanner planner = new PriceRefreshPlanner(typeIDs, values, lastUpdates, NOW, HOUR, 0, 2);
+		assertThat(planner.getPlanned(), equalTo(5));
+		assertThat(planner.getSkipped(), equalTo(0));
+		assertThat(flatten(planner), equalTo(Arrays.asList(5, 2, 1, 3, 4)));
+		assertThat(planner.getBatches().size(), equalTo(3));
+	}
+
+	@Test
+	public void testBudget() {
+		Set<Integer> typeIDs = new HashSet<>(Arrays.asList(1, 2, 3, 4));
+		Map<Integer, Double> values = new HashMap<>();
+		values.put(1, 10.0);
+		values.put(2, 20.0);
+		values.put(3, 30.0);
+		Map<Integer, Long> lastUpdates = new HashMap<>();
+		lastUpdates.put(1, NOW - HOUR);
+		lastUpdates.put(2, NOW - HOUR);
+		lastUpdates.put(3, NOW - HOUR);
+		//4: No price data (always updated)
+		PriceRefreshPlanner planner = new PriceRefreshPlanner(typeIDs, values, lastUpdates, NOW, HOUR, 2, PriceRefreshPlanner.BATCH_SIZE);
+		assertThat(flatten(planner), equalTo(Arrays.asList(4, 3)));
+		assertThat(planner.getSkipped(), equalTo(2));
+		//Missing price data is not limited by the budget
+		planner = new PriceRefreshPlanner(typeIDs, values, new HashMap<Integer, Long>(), NOW, HOUR, 2, PriceRefreshPlanner.BATCH_SIZE);
+		assertThat(planner.getPlanned(), equalTo(4));
+		assertThat(planner.getSkipped(), equalTo(0));
+	}
+
+	private List<Integer> flatten(PriceRefreshPlanner planner) {
+		List<Integer> list = new ArrayList<>();
+		for (Set<Integer> batch : planner.getBatches()) {
+			list.addAll(batch);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2009-2023 Contributors (see credits.txt)
+ *
+ * This file is part of jEveAssets.
+ *
+ * jEveAssets is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * jEveAssets is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with jEveAssets; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+
+package net.nikr.eve.jeveasset.io.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.nikr.eve.jeveasset.TestUtil;
+import net.nikr.eve.jeveasset.io.shared.UpdateGraph.Node;
+import net.nikr.eve.jeveasset.io.shared.UpdateGraph.NodeFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class UpdateGraphTest extends TestUtil {
+
+	@Test
+	public void testOrder() {
+		final List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		UpdateGraph graph = new UpdateGraph();
+		Node slow = graph.add("slow", new Task(done, "slow", 500));
+		Node fast = graph.add("fast", new Task(done, "fast", 0));
+		Node afterFast = graph.add("afterFast", new Task(done, "afterFast", 0), fast);
+		Node afterSlow = graph.add("afterSlow", new Task(done, "afterSlow", 0), slow);
+		List<Node> all = new ArrayList<>();
+		all.add(afterFast);
+		all.add(afterSlow);
+		graph.add("last", new Task(done, "last", 0), all);
+		graph.run(null);
+		assertEquals("All nodes done", 5, done.size());
+		assertTrue("Not held back by the slow node", done.indexOf("afterFast") < done.indexOf("slow"));
+		assertTrue("After dependency", done.indexOf("afterSlow") > done.indexOf("slow"));
+		assertEquals("Last", "last", done.get(done.size() - 1));
+	}
+
+	private static class Task implements NodeFactory {
+
+		private final List<String> done;
+		private final String name;
+		private final long sleep;
+
+		public Task(List<String> done, String name, long sleep) {
+			this.done = done;
+			this.name = name;
+			this.sleep = sleep;
+		}
+
+		@Override
+		public Runnable create() {
+			return new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(sleep);
+					} catch (InterruptedException ex) {
+						//No problem
+					}
+					done.add(name);
+				}
+			};
+		}
+	}
+}
@@ -32,7 +32,6 @@ import net.nikr.eve.jeveasset.data.settings.ColorSettings;
 import net.nikr.eve.jeveasset.data.settings.CopySettings;
 import net.nikr.eve.jeveasset.data.settings.ExportSettings;
 import net.nikr.eve.jeveasset.data.settings.MarketOrdersSettings;
-import net.nikr.eve.jeveasset.data.settings.PriceData;
 import net.nikr.eve.jeveasset.data.settings.PriceDataSettings;
 import net.nikr.eve.jeveasset.data.settings.ProxyData;
 import net.nikr.eve.jeveasset.data.settings.ReprocessSettings;
@@ -136,11 +135,6 @@ public abstract class FakeSettings extends Settings {
 		throw new UnsupportedOperationException("not implemented");
 	}
 
-	@Override
-	public void setPriceData(final Map<Integer, PriceData> priceData) {
-		throw new UnsupportedOperationException("not implemented");
-	}
-
 	@Override
 	public void setPriceDataSettings(final PriceDataSettings priceDataSettings) {
 		throw new UnsupportedOperationException("not implemented");
@@ -316,11 +310,6 @@ public abstract class FakeSettings extends Settings {
 		throw new UnsupportedOperationException("not implemented");
 	}
 
-	@Override
-	public Map<Integer, PriceData> getPriceData() {
-		throw new UnsupportedOperationException("not implemented");
-	}
-
 	@Override
 	public CopySettings getCopySettings() {
 		throw new UnsupportedOperationException("not implemented");